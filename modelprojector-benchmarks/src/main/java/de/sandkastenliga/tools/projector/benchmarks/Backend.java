@@ -0,0 +1,47 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.benchmarks;
+
+import de.sandkastenliga.tools.projector.core.PropertyAccessMode;
+import de.sandkastenliga.tools.projector.core.Projector;
+
+/**
+ * The projection backends compared by the benchmarks.
+ */
+public enum Backend {
+
+    /**
+     * Runtime projection plans with lambda based property access.
+     */
+    lambda,
+    /**
+     * Runtime projection plans with commons-beanutils based property access.
+     */
+    beanUtils,
+    /**
+     * Projectors generated at compile time by the annotation processor.
+     */
+    generated;
+
+    /**
+     * @return a new projector configured for this backend
+     */
+    public Projector createProjector() {
+        final Projector projector = new Projector();
+        projector.setUseGeneratedProjectors(this == generated);
+        projector.setPropertyAccessMode(this == beanUtils ? PropertyAccessMode.beanUtils : PropertyAccessMode.lambda);
+        return projector;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.benchmarks;
+
+import de.sandkastenliga.tools.projector.benchmarks.model.Person;
+import de.sandkastenliga.tools.projector.benchmarks.model.PersonDto;
+import de.sandkastenliga.tools.projector.benchmarks.model.PersonProjectionCollectionDto;
+import de.sandkastenliga.tools.projector.benchmarks.model.PersonPropertyCollectionDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Scaling of the collection projection types with the size of the projected collections.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollectionSizeBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    private int collectionSize;
+
+    private Person person;
+
+    @Setup
+    public void setup() {
+        person = TestData.person(collectionSize);
+    }
+
+    @Benchmark
+    public PersonPropertyCollectionDto propertyCollection(ProjectorState state) {
+        return state.getProjector().project(person, PersonPropertyCollectionDto.class);
+    }
+
+    @Benchmark
+    public PersonProjectionCollectionDto projectionCollection(ProjectorState state) {
+        return state.getProjector().project(person, PersonProjectionCollectionDto.class);
+    }
+
+    @Benchmark
+    public PersonDto allTypes(ProjectorState state) {
+        return state.getProjector().project(person, PersonDto.class);
+    }
+
+    @Benchmark
+    public PersonDto handWritten() {
+        return HandWrittenMapper.toPersonDto(person);
+    }
+}
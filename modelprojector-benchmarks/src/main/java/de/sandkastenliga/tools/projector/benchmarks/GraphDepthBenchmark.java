@@ -0,0 +1,59 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.benchmarks;
+
+import de.sandkastenliga.tools.projector.benchmarks.model.Person;
+import de.sandkastenliga.tools.projector.benchmarks.model.PersonTreeDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Scaling of nested projections with the depth of the projected object graph.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GraphDepthBenchmark {
+
+    @Param({"1", "4", "16", "64"})
+    private int depth;
+
+    private Person person;
+
+    @Setup
+    public void setup() {
+        person = TestData.generations(depth);
+    }
+
+    @Benchmark
+    public PersonTreeDto projection(ProjectorState state) {
+        return state.getProjector().project(person, PersonTreeDto.class);
+    }
+
+    @Benchmark
+    public PersonTreeDto handWritten() {
+        return HandWrittenMapper.toPersonTreeDto(person);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.benchmarks;
+
+import de.sandkastenliga.tools.projector.benchmarks.model.Address;
+import de.sandkastenliga.tools.projector.benchmarks.model.AddressDto;
+import de.sandkastenliga.tools.projector.benchmarks.model.Person;
+import de.sandkastenliga.tools.projector.benchmarks.model.PersonDto;
+import de.sandkastenliga.tools.projector.benchmarks.model.PersonTreeDto;
+import de.sandkastenliga.tools.projector.benchmarks.model.RealEstate;
+import de.sandkastenliga.tools.projector.benchmarks.model.RealEstateDto;
+
+/**
+ * Hand-written mapping code as the baseline every projection is compared with.
+ */
+public final class HandWrittenMapper {
+
+    private HandWrittenMapper() {
+    }
+
+    public static PersonDto toPersonDto(Person person) {
+        final PersonDto dto = new PersonDto();
+        dto.setId(person.getId());
+        dto.setEmail(person.getLogin());
+        dto.setName(person.getName());
+        if (person.getAddress() != null) {
+            dto.setAddress(toAddressDto(person.getAddress()));
+        }
+        if (person.getMarriedTo() != null) {
+            dto.setHusbandOrWifeId(person.getMarriedTo().getId());
+        }
+        for (Person child : person.getChildren()) {
+            dto.getChildrenIds().add(child.getId());
+        }
+        for (RealEstate home : person.getHomes()) {
+            dto.getHomes().add(toRealEstateDto(home));
+        }
+        return dto;
+    }
+
+    public static AddressDto toAddressDto(Address address) {
+        final AddressDto dto = new AddressDto();
+        dto.setStreet(address.getStreet());
+        dto.setCity(address.getCity());
+        dto.setZip(address.getZip());
+        return dto;
+    }
+
+    public static RealEstateDto toRealEstateDto(RealEstate realEstate) {
+        final RealEstateDto dto = new RealEstateDto();
+        dto.setName(realEstate.getName());
+        if (realEstate.getAddress() != null) {
+            dto.setCity(realEstate.getAddress().getCity());
+        }
+        return dto;
+    }
+
+    public static PersonTreeDto toPersonTreeDto(Person person) {
+        final PersonTreeDto dto = new PersonTreeDto();
+        dto.setId(person.getId());
+        dto.setName(person.getName());
+        for (Person child : person.getChildren()) {
+            dto.getChildren().add(toPersonTreeDto(child));
+        }
+        return dto;
+    }
+}
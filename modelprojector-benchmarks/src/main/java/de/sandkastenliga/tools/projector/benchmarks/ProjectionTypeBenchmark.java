@@ -0,0 +1,86 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.benchmarks;
+
+import de.sandkastenliga.tools.projector.benchmarks.model.Person;
+import de.sandkastenliga.tools.projector.benchmarks.model.PersonAsIsDto;
+import de.sandkastenliga.tools.projector.benchmarks.model.PersonDto;
+import de.sandkastenliga.tools.projector.benchmarks.model.PersonProjectionCollectionDto;
+import de.sandkastenliga.tools.projector.benchmarks.model.PersonProjectionDto;
+import de.sandkastenliga.tools.projector.benchmarks.model.PersonPropertyCollectionDto;
+import de.sandkastenliga.tools.projector.benchmarks.model.PersonPropertyDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of each {@link de.sandkastenliga.tools.projector.core.ProjectionType} in isolation and of a projection
+ * using all of them compared with hand-written mapping code.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProjectionTypeBenchmark {
+
+    private Person person;
+
+    @Setup
+    public void setup() {
+        person = TestData.person(3);
+    }
+
+    @Benchmark
+    public PersonAsIsDto asIs(ProjectorState state) {
+        return state.getProjector().project(person, PersonAsIsDto.class);
+    }
+
+    @Benchmark
+    public PersonPropertyDto property(ProjectorState state) {
+        return state.getProjector().project(person, PersonPropertyDto.class);
+    }
+
+    @Benchmark
+    public PersonProjectionDto projection(ProjectorState state) {
+        return state.getProjector().project(person, PersonProjectionDto.class);
+    }
+
+    @Benchmark
+    public PersonPropertyCollectionDto propertyCollection(ProjectorState state) {
+        return state.getProjector().project(person, PersonPropertyCollectionDto.class);
+    }
+
+    @Benchmark
+    public PersonProjectionCollectionDto projectionCollection(ProjectorState state) {
+        return state.getProjector().project(person, PersonProjectionCollectionDto.class);
+    }
+
+    @Benchmark
+    public PersonDto allTypes(ProjectorState state) {
+        return state.getProjector().project(person, PersonDto.class);
+    }
+
+    @Benchmark
+    public PersonDto handWritten() {
+        return HandWrittenMapper.toPersonDto(person);
+    }
+}
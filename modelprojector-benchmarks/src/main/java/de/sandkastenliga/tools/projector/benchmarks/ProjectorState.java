@@ -0,0 +1,43 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.benchmarks;
+
+import de.sandkastenliga.tools.projector.core.Projector;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The projector of each {@link Backend}. Only benchmarks taking this state are run per backend, so the hand-written
+ * baselines are run once.
+ */
+@State(Scope.Benchmark)
+public class ProjectorState {
+
+    @Param({"lambda", "beanUtils", "generated"})
+    private Backend backend;
+
+    private Projector projector;
+
+    @Setup
+    public void setup() {
+        projector = backend.createProjector();
+    }
+
+    public Projector getProjector() {
+        return projector;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.benchmarks;
+
+import de.sandkastenliga.tools.projector.benchmarks.model.Address;
+import de.sandkastenliga.tools.projector.benchmarks.model.Person;
+import de.sandkastenliga.tools.projector.benchmarks.model.RealEstate;
+
+/**
+ * Creates the object graphs used by the benchmarks.
+ */
+public final class TestData {
+
+    private TestData() {
+    }
+
+    /**
+     * @param collectionSize the number of children and homes of the person
+     * @return a fully populated person
+     */
+    public static Person person(int collectionSize) {
+        final Person person = person(1L);
+        person.setMarriedTo(person(2L));
+        person.setAddress(address("Leipzig"));
+        for (int i = 0; i < collectionSize; i++) {
+            person.getChildren().add(person(100L + i));
+            final RealEstate home = new RealEstate();
+            home.setName("Home " + i);
+            home.setAddress(address("City " + i));
+            person.getHomes().add(home);
+        }
+        return person;
+    }
+
+    /**
+     * @param depth the number of generations
+     * @return a person with a chain of descendants of the given depth
+     */
+    public static Person generations(int depth) {
+        final Person root = person(1L);
+        Person parent = root;
+        for (int i = 1; i < depth; i++) {
+            final Person child = person(1L + i);
+            parent.getChildren().add(child);
+            parent = child;
+        }
+        return root;
+    }
+
+    private static Person person(long id) {
+        final Person person = new Person();
+        person.setId(id);
+        person.setLogin("person" + id + "@test.de");
+        person.setName("Person " + id);
+        return person;
+    }
+
+    private static Address address(String city) {
+        final Address address = new Address();
+        address.setStreet("Teststreet 1");
+        address.setCity(city);
+        address.setZip("04109");
+        return address;
+    }
+}
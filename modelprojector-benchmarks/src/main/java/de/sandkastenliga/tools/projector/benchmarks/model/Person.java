@@ -0,0 +1,85 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.benchmarks.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class Person {
+
+    private Long id;
+    private String login;
+    private String name;
+    private Address address;
+    private Person marriedTo;
+    private List<Person> children = new ArrayList<Person>();
+    private List<RealEstate> homes = new ArrayList<RealEstate>();
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getLogin() {
+        return login;
+    }
+
+    public void setLogin(String login) {
+        this.login = login;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Address getAddress() {
+        return address;
+    }
+
+    public void setAddress(Address address) {
+        this.address = address;
+    }
+
+    public Person getMarriedTo() {
+        return marriedTo;
+    }
+
+    public void setMarriedTo(Person marriedTo) {
+        this.marriedTo = marriedTo;
+    }
+
+    public List<Person> getChildren() {
+        return children;
+    }
+
+    public void setChildren(List<Person> children) {
+        this.children = children;
+    }
+
+    public List<RealEstate> getHomes() {
+        return homes;
+    }
+
+    public void setHomes(List<RealEstate> homes) {
+        this.homes = homes;
+    }
+}
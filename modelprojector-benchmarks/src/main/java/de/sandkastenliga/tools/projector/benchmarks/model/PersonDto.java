@@ -0,0 +1,98 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.benchmarks.model;
+
+import de.sandkastenliga.tools.projector.core.Projection;
+import de.sandkastenliga.tools.projector.core.ProjectionSource;
+import de.sandkastenliga.tools.projector.core.ProjectionType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Projection using all projection types at once.
+ */
+@ProjectionSource(Person.class)
+public class PersonDto {
+
+    private long id;
+    private String email;
+    private String name;
+    private AddressDto address;
+    private long husbandOrWifeId;
+    private List<Long> childrenIds = new ArrayList<Long>();
+    private List<RealEstateDto> homes = new ArrayList<RealEstateDto>();
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    @Projection(propertyName = "login")
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public AddressDto getAddress() {
+        return address;
+    }
+
+    @Projection(ProjectionType.projection)
+    public void setAddress(AddressDto address) {
+        this.address = address;
+    }
+
+    public long getHusbandOrWifeId() {
+        return husbandOrWifeId;
+    }
+
+    @Projection(value = ProjectionType.property, propertyName = "marriedTo")
+    public void setHusbandOrWifeId(long husbandOrWifeId) {
+        this.husbandOrWifeId = husbandOrWifeId;
+    }
+
+    public List<Long> getChildrenIds() {
+        return childrenIds;
+    }
+
+    @Projection(value = ProjectionType.propertyCollection, propertyName = "children")
+    public void setChildrenIds(List<Long> childrenIds) {
+        this.childrenIds = childrenIds;
+    }
+
+    public List<RealEstateDto> getHomes() {
+        return homes;
+    }
+
+    @Projection(ProjectionType.projectionCollection)
+    public void setHomes(List<RealEstateDto> homes) {
+        this.homes = homes;
+    }
+}
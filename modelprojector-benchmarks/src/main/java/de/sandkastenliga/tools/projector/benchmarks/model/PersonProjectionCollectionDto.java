@@ -0,0 +1,40 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.benchmarks.model;
+
+import de.sandkastenliga.tools.projector.core.Projection;
+import de.sandkastenliga.tools.projector.core.ProjectionSource;
+import de.sandkastenliga.tools.projector.core.ProjectionType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Projection using {@link ProjectionType#projectionCollection} only.
+ */
+@ProjectionSource(Person.class)
+public class PersonProjectionCollectionDto {
+
+    private List<RealEstateDto> homes = new ArrayList<RealEstateDto>();
+
+    public List<RealEstateDto> getHomes() {
+        return homes;
+    }
+
+    @Projection(ProjectionType.projectionCollection)
+    public void setHomes(List<RealEstateDto> homes) {
+        this.homes = homes;
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.benchmarks.model;
+
+import de.sandkastenliga.tools.projector.core.Projection;
+import de.sandkastenliga.tools.projector.core.ProjectionSource;
+import de.sandkastenliga.tools.projector.core.ProjectionType;
+
+/**
+ * Projection using {@link ProjectionType#projection} only.
+ */
+@ProjectionSource(Person.class)
+public class PersonProjectionDto {
+
+    private AddressDto address;
+
+    public AddressDto getAddress() {
+        return address;
+    }
+
+    @Projection(ProjectionType.projection)
+    public void setAddress(AddressDto address) {
+        this.address = address;
+    }
+}
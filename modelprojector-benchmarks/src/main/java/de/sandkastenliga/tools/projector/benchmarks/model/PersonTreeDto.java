@@ -0,0 +1,58 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.benchmarks.model;
+
+import de.sandkastenliga.tools.projector.core.Projection;
+import de.sandkastenliga.tools.projector.core.ProjectionSource;
+import de.sandkastenliga.tools.projector.core.ProjectionType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recursive projection of a person and all of its descendants, used to measure the cost of deep graphs.
+ */
+@ProjectionSource(Person.class)
+public class PersonTreeDto {
+
+    private long id;
+    private String name;
+    private List<PersonTreeDto> children = new ArrayList<PersonTreeDto>();
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public List<PersonTreeDto> getChildren() {
+        return children;
+    }
+
+    @Projection(ProjectionType.projectionCollection)
+    public void setChildren(List<PersonTreeDto> children) {
+        this.children = children;
+    }
+}
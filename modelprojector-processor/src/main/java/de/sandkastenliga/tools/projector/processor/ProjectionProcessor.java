@@ -0,0 +1,56 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.processor;
+
+import de.sandkastenliga.tools.projector.core.ProjectionSource;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import java.util.Set;
+
+/**
+ * Annotation processor generating a {@link de.sandkastenliga.tools.projector.core.GeneratedProjector} for each
+ * class annotated with {@link ProjectionSource}. The generated projectors use plain getter and setter calls
+ * and are picked up by the {@link de.sandkastenliga.tools.projector.core.Projector} automatically.
+ * All projection rules of the target class are validated against the source class while compiling, so mapping
+ * errors (e.g. unknown source or reference properties) are reported as compilation errors.
+ * @author Guido Laures
+ */
+@SupportedAnnotationTypes("de.sandkastenliga.tools.projector.core.ProjectionSource")
+public class ProjectionProcessor extends AbstractProcessor {
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(ProjectionSource.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "@ProjectionSource is only allowed on classes", element);
+                continue;
+            }
+            new ProjectorGenerator(processingEnv, (TypeElement) element).generate();
+        }
+        return false;
+    }
+}
@@ -0,0 +1,549 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.processor;
+
+import de.sandkastenliga.tools.projector.core.GeneratedProjector;
+import de.sandkastenliga.tools.projector.core.NoProjection;
+import de.sandkastenliga.tools.projector.core.Projection;
+import de.sandkastenliga.tools.projector.core.ProjectionSource;
+import de.sandkastenliga.tools.projector.core.ProjectionType;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.TypeVariable;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import java.beans.Introspector;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Validates the projection rules of one target class against its source class and writes the source code of
+ * the target class' {@link GeneratedProjector}. The generated code mirrors what the runtime projection plans do
+ * for each {@link ProjectionType}.
+ * @author Guido Laures
+ */
+class ProjectorGenerator {
+
+    private static final String INDENT = "        ";
+
+    private final ProcessingEnvironment processingEnv;
+    private final Types types;
+    private final Elements elements;
+    private final TypeElement target;
+    private final StringBuilder body = new StringBuilder();
+    private boolean valid = true;
+
+    ProjectorGenerator(ProcessingEnvironment processingEnv, TypeElement target) {
+        this.processingEnv = processingEnv;
+        this.types = processingEnv.getTypeUtils();
+        this.elements = processingEnv.getElementUtils();
+        this.target = target;
+    }
+
+    void generate() {
+        final TypeMirror sourceType = getSourceType();
+        if (sourceType == null || sourceType.getKind() != TypeKind.DECLARED) {
+            error("@ProjectionSource needs to reference a class", target);
+            return;
+        }
+        if (target.getModifiers().contains(Modifier.ABSTRACT) || !hasNoArgsConstructor(target)) {
+            error("Projection class needs to be a non-abstract class with a non-private constructor without arguments, immutable projection classes are not supported by generated projectors", target);
+            return;
+        }
+        final Map<String, ExecutableElement> sourceGetters = getters((DeclaredType) sourceType);
+        final Map<String, ExecutableElement> targetGetters = getters((DeclaredType) target.asType());
+        for (Map.Entry<String, ExecutableElement> setter : setters((DeclaredType) target.asType()).entrySet()) {
+            addProjection(setter.getKey(), setter.getValue(), (DeclaredType) sourceType, sourceGetters, targetGetters);
+        }
+        if (valid) {
+            write(sourceType);
+        }
+    }
+
+    private void addProjection(String propertyName, ExecutableElement setter, DeclaredType sourceType,
+                               Map<String, ExecutableElement> sourceGetters, Map<String, ExecutableElement> targetGetters) {
+        if (setter.getAnnotation(NoProjection.class) != null) {
+            return;
+        }
+        final Projection projection = setter.getAnnotation(Projection.class);
+        final ProjectionType projectionType = projection == null ? ProjectionType.asIs : projection.value();
+        if (projectionType == ProjectionType.none) {
+            return;
+        }
+        if (projection != null && !projection.resolver().isEmpty()) {
+            error("Batch resolvers are not supported by generated projectors, remove @ProjectionSource from the class", setter);
+            return;
+        }
+        if (projection != null && (projection.limit() != Integer.MAX_VALUE || !projection.filter().isEmpty() || !projection.comparator().isEmpty())) {
+            error("Limits, filters and comparators of collections are not supported by generated projectors, remove @ProjectionSource from the class", setter);
+            return;
+        }
+        final String sourcePropertyName = projection == null || projection.propertyName().equals("") ? propertyName : projection.propertyName();
+        final ExecutableElement sourceGetter = sourceGetters.get(sourcePropertyName);
+        if (sourceGetter == null) {
+            error("Unknown property '" + sourcePropertyName + "' on source class '" + sourceType + "'", setter);
+            return;
+        }
+        final TypeMirror sourceValueType = returnType(sourceType, sourceGetter);
+        final TypeMirror targetValueType = parameterType((DeclaredType) target.asType(), setter);
+        final String setterCall = "target." + setter.getSimpleName();
+        final String valueName = propertyName + "Value";
+        final String readSource = INDENT + "final " + sourceValueType + " " + valueName + " = source." + sourceGetter.getSimpleName() + "();\n";
+        switch (projectionType) {
+            case property: {
+                final ExecutableElement referenceGetter = referenceGetter(sourceValueType, projection.referencePropertyName(), setter);
+                if (referenceGetter == null || !checkAssignable(returnType((DeclaredType) sourceValueType, referenceGetter), targetValueType, setter)) {
+                    return;
+                }
+                body.append(readSource)
+                        .append(INDENT).append("if (").append(valueName).append(" != null) {\n");
+                appendSetterCall(INDENT + "    ", propertyName, setterCall, valueName + "." + referenceGetter.getSimpleName() + "()",
+                        returnType((DeclaredType) sourceValueType, referenceGetter), targetValueType);
+                body.append(INDENT).append("}\n");
+                break;
+            }
+            case projection: {
+                if (targetValueType.getKind() != TypeKind.DECLARED) {
+                    error("The type of a projected property needs to be a class", setter);
+                    return;
+                }
+                final String projectionName = propertyName + "Projection";
+                final String projectMethod = projection.lazy() ? "projectLazily" : "project";
+                body.append(readSource)
+                        .append(INDENT).append("if (").append(valueName).append(" != null) {\n")
+                        .append(INDENT).append("    final ").append(types.erasure(targetValueType)).append(" ").append(projectionName)
+                        .append(" = context.").append(projectMethod).append("(").append(valueName).append(", ").append(types.erasure(targetValueType)).append(".class);\n")
+                        .append(INDENT).append("    if (").append(projectionName).append(" != null) {\n")
+                        .append(INDENT).append("        ").append(setterCall).append("(").append(projectionName).append(");\n")
+                        .append(INDENT).append("    }\n")
+                        .append(INDENT).append("}\n");
+                break;
+            }
+            case propertyCollection:
+            case projectionCollection: {
+                final TypeMirror sourceElementType = collectionElementType(sourceValueType);
+                if (sourceElementType == null) {
+                    error("The source property '" + sourcePropertyName + "' needs to be a parameterized collection", setter);
+                    return;
+                }
+                if (projectionType == ProjectionType.projectionCollection && projection.lazy()) {
+                    addLazyProjectionCollection(propertyName, setter, targetValueType, readSource, setterCall, valueName);
+                    return;
+                }
+                if (projectionType == ProjectionType.propertyCollection && targetValueType.getKind() == TypeKind.ARRAY) {
+                    addPropertyArray(propertyName, setter, sourceElementType, targetValueType, readSource, setterCall, valueName);
+                    return;
+                }
+                final TypeMirror targetElementType = collectionElementType(targetValueType);
+                if (targetElementType == null) {
+                    error("The setter's parameter needs to be a parameterized collection", setter);
+                    return;
+                }
+                final ExecutableElement targetGetter = targetGetters.get(propertyName);
+                if (targetGetter != null && !types.isAssignable(returnType((DeclaredType) target.asType(), targetGetter), targetValueType)) {
+                    error("The getter of property '" + propertyName + "' needs to return the type of the setter's parameter", setter);
+                    return;
+                }
+                final String addValue;
+                if (projectionType == ProjectionType.propertyCollection) {
+                    final ExecutableElement referenceGetter = referenceGetter(sourceElementType, projection.referencePropertyName(), setter);
+                    if (referenceGetter == null || !checkAssignable(returnType((DeclaredType) sourceElementType, referenceGetter), targetElementType, setter)) {
+                        return;
+                    }
+                    addValue = "targetCollection.add(entry." + referenceGetter.getSimpleName() + "());\n";
+                } else {
+                    if (targetElementType.getKind() != TypeKind.DECLARED) {
+                        error("The setter's parameter needs to be a parameterized collection of a projection class", setter);
+                        return;
+                    }
+                    final String elementProjectionClass = types.erasure(targetElementType).toString();
+                    addValue = "final " + elementProjectionClass + " projection = context.project(entry, " + elementProjectionClass + ".class);\n"
+                            + INDENT + "        if (projection != null) {\n"
+                            + INDENT + "            targetCollection.add(projection);\n"
+                            + INDENT + "        }\n";
+                }
+                final String newCollection = newCollection(targetValueType, targetElementType, valueName + ".size()");
+                if (targetGetter == null && newCollection == null) {
+                    error("Property '" + propertyName + "' needs a getter or a type of collection that can be instantiated", setter);
+                    return;
+                }
+                final String createdName = propertyName + "Created";
+                body.append(readSource)
+                        .append(INDENT).append("if (").append(valueName).append(" != null) {\n");
+                if (targetGetter == null) {
+                    // the collection can only be set
+                    body.append(INDENT).append("    final ").append(targetValueType).append(" targetCollection = ").append(newCollection).append(";\n");
+                } else {
+                    // the collection initialized by the target object is used if there is one, otherwise a new one is set
+                    body.append(INDENT).append("    ").append(targetValueType).append(" targetCollection = target.")
+                            .append(targetGetter.getSimpleName()).append("();\n")
+                            .append(INDENT).append("    final boolean ").append(createdName).append(" = targetCollection == null;\n")
+                            .append(INDENT).append("    if (").append(createdName).append(") {\n")
+                            .append(INDENT).append("        ").append(newCollection == null
+                                    ? "throw new IllegalStateException(\"The collection of property '" + propertyName + "' is null and cannot be created\")"
+                                    : "targetCollection = " + newCollection).append(";\n")
+                            .append(INDENT).append("    } else if (targetCollection instanceof java.util.ArrayList) {\n")
+                            .append(INDENT).append("        ((java.util.ArrayList<?>) targetCollection).ensureCapacity(targetCollection.size() + ")
+                            .append(valueName).append(".size());\n")
+                            .append(INDENT).append("    }\n");
+                }
+                appendLimitedLoop(propertyName, sourceElementType, valueName);
+                body.append(INDENT).append("        ").append(addValue)
+                        .append(INDENT).append("    }\n");
+                if (targetGetter == null) {
+                    body.append(INDENT).append("    ").append(setterCall).append("(targetCollection);\n");
+                } else {
+                    body.append(INDENT).append("    if (").append(createdName).append(") {\n")
+                            .append(INDENT).append("        ").append(setterCall).append("(targetCollection);\n")
+                            .append(INDENT).append("    }\n");
+                }
+                body.append(INDENT).append("}\n");
+                break;
+            }
+            default: {
+                if (!checkAssignable(sourceValueType, targetValueType, setter)) {
+                    return;
+                }
+                appendSetterCall(INDENT, propertyName, setterCall, "source." + sourceGetter.getSimpleName() + "()", sourceValueType, targetValueType);
+            }
+        }
+    }
+
+    /**
+     * Appends the call of the setter with the given value. Null values of wrapper types projected onto primitive
+     * properties are handled like the runtime plans do, according to the projector's null to primitive policy.
+     */
+    private void appendSetterCall(String indent, String propertyName, String setterCall, String value, TypeMirror valueType, TypeMirror targetValueType) {
+        if (!targetValueType.getKind().isPrimitive() || valueType.getKind().isPrimitive()) {
+            body.append(indent).append(setterCall).append("(").append(value).append(");\n");
+            return;
+        }
+        final String nullableName = propertyName + "NullableValue";
+        final String defaultValue = targetValueType.getKind() == TypeKind.BOOLEAN ? "false" : "(" + targetValueType + ") 0";
+        body.append(indent).append("final ").append(valueType).append(" ").append(nullableName).append(" = ").append(value).append(";\n")
+                .append(indent).append("if (").append(nullableName).append(" != null) {\n")
+                .append(indent).append("    ").append(setterCall).append("(").append(nullableName).append(");\n")
+                .append(indent).append("} else if (context.projectNullOntoPrimitive(").append(types.erasure(target.asType()))
+                .append(".class, \"").append(propertyName).append("\")) {\n")
+                .append(indent).append("    ").append(setterCall).append("(").append(defaultValue).append(");\n")
+                .append(indent).append("}\n");
+    }
+
+    /**
+     * Appends the head of the loop over the entries of the source collection, which stops once the maximum number
+     * of collection elements of the projection budget has been reached.
+     */
+    private void appendLimitedLoop(String propertyName, TypeMirror sourceElementType, String valueName) {
+        final String maxName = propertyName + "MaxElements";
+        final String countName = propertyName + "Count";
+        body.append(INDENT).append("    final int ").append(maxName).append(" = context.getMaxCollectionElements();\n")
+                .append(INDENT).append("    int ").append(countName).append(" = 0;\n")
+                .append(INDENT).append("    for (final ").append(sourceElementType).append(" entry : ").append(valueName).append(") {\n")
+                .append(INDENT).append("        if (").append(countName).append("++ == ").append(maxName).append(") {\n")
+                .append(INDENT).append("            context.collectionBudgetExceeded(").append(types.erasure(target.asType()))
+                .append(".class, \"").append(propertyName).append("\");\n")
+                .append(INDENT).append("            break;\n")
+                .append(INDENT).append("        }\n");
+    }
+
+    /**
+     * Projects the reference property of each entry of the source collection into a {@code long[]} or {@code int[]}
+     * array. Null values of wrapper types are handled according to the projector's null to primitive policy.
+     */
+    private void addPropertyArray(String propertyName, ExecutableElement setter, TypeMirror sourceElementType, TypeMirror targetValueType,
+                                  String readSource, String setterCall, String valueName) {
+        final TypeMirror componentType = ((ArrayType) targetValueType).getComponentType();
+        if (componentType.getKind() != TypeKind.LONG && componentType.getKind() != TypeKind.INT) {
+            error("Only long[] and int[] arrays are supported", setter);
+            return;
+        }
+        final ExecutableElement referenceGetter = referenceGetter(sourceElementType, setter.getAnnotation(Projection.class).referencePropertyName(), setter);
+        if (referenceGetter == null) {
+            return;
+        }
+        final TypeMirror referenceType = returnType((DeclaredType) sourceElementType, referenceGetter);
+        final boolean primitive = referenceType.getKind().isPrimitive();
+        final TypeMirror unboxedType = primitive ? referenceType : unboxedType(referenceType);
+        // int values are widened into long[] arrays
+        if (unboxedType == null || unboxedType.getKind() != componentType.getKind()
+                && !(unboxedType.getKind() == TypeKind.INT && componentType.getKind() == TypeKind.LONG)) {
+            error("Cannot project a value of type '" + referenceType + "' into an array of type '" + targetValueType + "'", setter);
+            return;
+        }
+        final String arrayName = propertyName + "Array";
+        final String sizeName = propertyName + "Size";
+        body.append(readSource)
+                .append(INDENT).append("if (").append(valueName).append(" != null) {\n")
+                .append(INDENT).append("    final ").append(componentType).append("[] ").append(arrayName).append(" = new ").append(componentType)
+                .append("[").append(valueName).append(".size()];\n")
+                .append(INDENT).append("    int ").append(sizeName).append(" = 0;\n");
+        appendLimitedLoop(propertyName, sourceElementType, valueName);
+        if (primitive) {
+            body.append(INDENT).append("        ").append(arrayName).append("[").append(sizeName).append("++] = entry.")
+                    .append(referenceGetter.getSimpleName()).append("();\n");
+        } else {
+            body.append(INDENT).append("        final ").append(referenceType).append(" value = entry.").append(referenceGetter.getSimpleName()).append("();\n")
+                    .append(INDENT).append("        if (value != null) {\n")
+                    .append(INDENT).append("            ").append(arrayName).append("[").append(sizeName).append("++] = value;\n")
+                    .append(INDENT).append("        } else if (context.projectNullOntoPrimitive(").append(types.erasure(target.asType()))
+                    .append(".class, \"").append(propertyName).append("\")) {\n")
+                    .append(INDENT).append("            ").append(arrayName).append("[").append(sizeName).append("++] = 0;\n")
+                    .append(INDENT).append("        }\n");
+        }
+        body.append(INDENT).append("    }\n")
+                .append(INDENT).append("    ").append(setterCall).append("(").append(sizeName).append(" == ").append(arrayName).append(".length ? ")
+                .append(arrayName).append(" : java.util.Arrays.copyOf(").append(arrayName).append(", ").append(sizeName).append("));\n")
+                .append(INDENT).append("}\n");
+    }
+
+    /**
+     * @return the expression creating a collection of the given type with room for the given number of entries
+     * or null if there is no known way to create it
+     */
+    private String newCollection(TypeMirror collectionType, TypeMirror elementType, String size) {
+        final TypeMirror erasure = types.erasure(collectionType);
+        if (isAssignableFrom(erasure, "java.util.ArrayList")) {
+            return "new java.util.ArrayList<" + elementType + ">(" + size + ")";
+        }
+        if (isAssignableFrom(erasure, "java.util.LinkedHashSet")) {
+            return "new java.util.LinkedHashSet<" + elementType + ">(Math.max(" + size + " * 4 / 3 + 1, 16))";
+        }
+        if (isAssignableFrom(erasure, "java.util.TreeSet")) {
+            return "new java.util.TreeSet<" + elementType + ">()";
+        }
+        final TypeElement collectionElement = (TypeElement) types.asElement(collectionType);
+        if (collectionElement.getKind() != ElementKind.CLASS || collectionElement.getModifiers().contains(Modifier.ABSTRACT)) {
+            return null;
+        }
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(collectionElement.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                return "new " + erasure + (collectionElement.getTypeParameters().isEmpty() ? "()" : "<>()");
+            }
+        }
+        return null;
+    }
+
+    private boolean isAssignableFrom(TypeMirror type, String className) {
+        return types.isAssignable(types.erasure(elements.getTypeElement(className).asType()), type);
+    }
+
+    private TypeMirror unboxedType(TypeMirror type) {
+        try {
+            return types.unboxedType(type);
+        } catch (final IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Lazily projected collections are not added to the target object's collection, the setter is called with
+     * a lazy list instead.
+     */
+    private void addLazyProjectionCollection(String propertyName, ExecutableElement setter, TypeMirror targetValueType,
+                                             String readSource, String setterCall, String valueName) {
+        final TypeMirror elementProjectionType = collectionElementType(targetValueType);
+        if (elementProjectionType == null || elementProjectionType.getKind() != TypeKind.DECLARED) {
+            error("The setter's parameter needs to be a parameterized collection of a projection class", setter);
+            return;
+        }
+        final TypeMirror listType = types.erasure(elements.getTypeElement("java.util.List").asType());
+        if (!types.isAssignable(listType, types.erasure(targetValueType))) {
+            error("Cannot project '" + propertyName + "' lazily: the setter's parameter needs to accept a List", setter);
+            return;
+        }
+        final String elementProjectionClass = types.erasure(elementProjectionType).toString();
+        body.append(readSource)
+                .append(INDENT).append("if (").append(valueName).append(" != null) {\n")
+                .append(INDENT).append("    ").append(setterCall).append("(context.projectCollectionLazily(").append(valueName)
+                .append(", ").append(elementProjectionClass).append(".class));\n")
+                .append(INDENT).append("}\n");
+    }
+
+    private ExecutableElement referenceGetter(TypeMirror referencedType, String referencePropertyName, ExecutableElement setter) {
+        if (referencedType.getKind() != TypeKind.DECLARED) {
+            error("Cannot resolve reference property '" + referencePropertyName + "' on type '" + referencedType + "'", setter);
+            return null;
+        }
+        final ExecutableElement referenceGetter = getters((DeclaredType) referencedType).get(referencePropertyName);
+        if (referenceGetter == null) {
+            error("Unknown reference property '" + referencePropertyName + "' on class '" + referencedType + "'", setter);
+        }
+        return referenceGetter;
+    }
+
+    private boolean checkAssignable(TypeMirror from, TypeMirror to, ExecutableElement setter) {
+        if (types.isAssignable(from, to)) {
+            return true;
+        }
+        error("Cannot project a value of type '" + from + "' onto a property of type '" + to
+                + "', converters are not supported by generated projectors (remove @ProjectionSource from the class to use one)", setter);
+        return false;
+    }
+
+    private TypeMirror getSourceType() {
+        for (AnnotationMirror annotation : target.getAnnotationMirrors()) {
+            if (((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(ProjectionSource.class.getName())) {
+                for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value : annotation.getElementValues().entrySet()) {
+                    if (value.getKey().getSimpleName().contentEquals("value")) {
+                        return (TypeMirror) value.getValue().getValue();
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean hasNoArgsConstructor(TypeElement type) {
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return all public getter methods of the given type by property name
+     */
+    private Map<String, ExecutableElement> getters(DeclaredType type) {
+        final Map<String, ExecutableElement> getters = new LinkedHashMap<String, ExecutableElement>();
+        for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers((TypeElement) type.asElement()))) {
+            if (!isPublicInstanceMethod(method) || !method.getParameters().isEmpty()) {
+                continue;
+            }
+            final String name = method.getSimpleName().toString();
+            if (name.startsWith("get") && name.length() > 3 && method.getReturnType().getKind() != TypeKind.VOID && !name.equals("getClass")) {
+                getters.put(Introspector.decapitalize(name.substring(3)), method);
+            } else if (name.startsWith("is") && name.length() > 2 && method.getReturnType().getKind() == TypeKind.BOOLEAN) {
+                getters.put(Introspector.decapitalize(name.substring(2)), method);
+            }
+        }
+        return getters;
+    }
+
+    /**
+     * @return all public setter methods of the given type by property name
+     */
+    private Map<String, ExecutableElement> setters(DeclaredType type) {
+        final Map<String, ExecutableElement> setters = new LinkedHashMap<String, ExecutableElement>();
+        for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers((TypeElement) type.asElement()))) {
+            final String name = method.getSimpleName().toString();
+            if (isPublicInstanceMethod(method) && method.getParameters().size() == 1 && method.getReturnType().getKind() == TypeKind.VOID
+                    && name.startsWith("set") && name.length() > 3) {
+                setters.put(Introspector.decapitalize(name.substring(3)), method);
+            }
+        }
+        return setters;
+    }
+
+    private static boolean isPublicInstanceMethod(ExecutableElement method) {
+        return method.getModifiers().contains(Modifier.PUBLIC) && !method.getModifiers().contains(Modifier.STATIC);
+    }
+
+    private TypeMirror returnType(DeclaredType containing, ExecutableElement method) {
+        return ((ExecutableType) types.asMemberOf(containing, method)).getReturnType();
+    }
+
+    private TypeMirror parameterType(DeclaredType containing, ExecutableElement method) {
+        return ((ExecutableType) types.asMemberOf(containing, method)).getParameterTypes().get(0);
+    }
+
+    /**
+     * @return the element type of the given collection type or null if it is not a parameterized collection
+     */
+    private TypeMirror collectionElementType(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        final DeclaredType declaredType = (DeclaredType) type;
+        if (((TypeElement) declaredType.asElement()).getQualifiedName().contentEquals("java.util.Collection")) {
+            return declaredType.getTypeArguments().isEmpty() ? null : upperBound(declaredType.getTypeArguments().get(0));
+        }
+        for (TypeMirror supertype : types.directSupertypes(type)) {
+            final TypeMirror elementType = collectionElementType(supertype);
+            if (elementType != null) {
+                return elementType;
+            }
+        }
+        return null;
+    }
+
+    private TypeMirror upperBound(TypeMirror type) {
+        if (type instanceof WildcardType) {
+            final TypeMirror bound = ((WildcardType) type).getExtendsBound();
+            return bound == null ? elements.getTypeElement(Object.class.getName()).asType() : bound;
+        }
+        if (type instanceof TypeVariable) {
+            return ((TypeVariable) type).getUpperBound();
+        }
+        return type;
+    }
+
+    private void error(String message, Element element) {
+        valid = false;
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private void write(TypeMirror sourceType) {
+        final PackageElement packageElement = elements.getPackageOf(target);
+        final String packageName = packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+        final String binaryName = elements.getBinaryName(target).toString();
+        final String projectorName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) + GeneratedProjector.CLASS_NAME_SUFFIX;
+        final String targetType = types.erasure(target.asType()).toString();
+        final String sourceClass = types.erasure(sourceType).toString();
+        try {
+            final Writer writer = processingEnv.getFiler().createSourceFile(
+                    (packageName.isEmpty() ? "" : packageName + ".") + projectorName, target).openWriter();
+            try {
+                if (!packageName.isEmpty()) {
+                    writer.write("package " + packageName + ";\n\n");
+                }
+                writer.write("/**\n * Projects {@link " + sourceClass + "} onto {@link " + targetType + "}.\n"
+                        + " * Generated by the ModelProjector annotation processor, do not edit.\n */\n");
+                writer.write("public final class " + projectorName + " implements " + GeneratedProjector.class.getName()
+                        + "<" + sourceClass + ", " + targetType + "> {\n\n");
+                writer.write("    @Override\n    public Class<" + sourceClass + "> getSourceClass() {\n        return " + sourceClass + ".class;\n    }\n\n");
+                writer.write("    @Override\n    public Class<" + targetType + "> getTargetClass() {\n        return " + targetType + ".class;\n    }\n\n");
+                writer.write("    @Override\n    public " + targetType + " newInstance() {\n        return new " + targetType + "();\n    }\n\n");
+                writer.write("    @Override\n    public void project(final " + sourceClass + " source, final " + targetType + " target, final "
+                        + "de.sandkastenliga.tools.projector.core.ProjectionContext context) {\n");
+                writer.write(body.toString());
+                writer.write("    }\n}\n");
+            } finally {
+                writer.close();
+            }
+        } catch (final IOException e) {
+            error("Cannot write projector for " + target + ": " + e.getMessage(), target);
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package de.sandkastenliga.tools.projector.processor;
+
+import de.sandkastenliga.tools.projector.core.BudgetPolicy;
+import de.sandkastenliga.tools.projector.core.BudgetedProjection;
+import de.sandkastenliga.tools.projector.core.NullToPrimitivePolicy;
+import de.sandkastenliga.tools.projector.core.ProjectionBudget;
+import de.sandkastenliga.tools.projector.core.ProjectionPlan;
+import de.sandkastenliga.tools.projector.core.Projector;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ProjectionProcessorTest {
+
+    private static final String PERSON = "package model;\n"
+            + "import java.util.*;\n"
+            + "public class Person {\n"
+            + "    private Long id; private String login; private Address address; private Person marriedTo;\n"
+            + "    private List<Person> children = new ArrayList<Person>();\n"
+            + "    private List<Address> homes = new ArrayList<Address>();\n"
+            + "    public Long getId() { return id; }\n"
+            + "    public void setId(Long id) { this.id = id; }\n"
+            + "    public String getLogin() { return login; }\n"
+            + "    public void setLogin(String login) { this.login = login; }\n"
+            + "    public Address getAddress() { return address; }\n"
+            + "    public void setAddress(Address address) { this.address = address; }\n"
+            + "    public Person getMarriedTo() { return marriedTo; }\n"
+            + "    public void setMarriedTo(Person marriedTo) { this.marriedTo = marriedTo; }\n"
+            + "    public List<Person> getChildren() { return children; }\n"
+            + "    public List<Address> getHomes() { return homes; }\n"
+            + "}\n";
+    private static final String ADDRESS = "package model;\n"
+            + "public class Address {\n"
+            + "    private String city;\n"
+            + "    public String getCity() { return city; }\n"
+            + "    public void setCity(String city) { this.city = city; }\n"
+            + "}\n";
+    private static final String ADDRESS_DTO = "package model;\n"
+            + "import de.sandkastenliga.tools.projector.core.*;\n"
+            + "@ProjectionSource(Address.class)\n"
+            + "public class AddressDto {\n"
+            + "    private String city;\n"
+            + "    public String getCity() { return city; }\n"
+            + "    public void setCity(String city) { this.city = city; }\n"
+            + "}\n";
+    private static final String PERSON_DTO = "package model;\n"
+            + "import de.sandkastenliga.tools.projector.core.*;\n"
+            + "import java.util.*;\n"
+            + "@ProjectionSource(Person.class)\n"
+            + "public class PersonDto {\n"
+            + "    private long id; private String email; private AddressDto address; private long husbandOrWifeId; private String ignored;\n"
+            + "    private List<Long> childrenIds = new ArrayList<Long>();\n"
+            + "    private List<AddressDto> homes = new ArrayList<AddressDto>();\n"
+            + "    public long getId() { return id; }\n"
+            + "    public void setId(long id) { this.id = id; }\n"
+            + "    public String getEmail() { return email; }\n"
+            + "    @Projection(propertyName = \"login\")\n"
+            + "    public void setEmail(String email) { this.email = email; }\n"
+            + "    public AddressDto getAddress() { return address; }\n"
+            + "    @Projection(ProjectionType.projection)\n"
+            + "    public void setAddress(AddressDto address) { this.address = address; }\n"
+            + "    public long getHusbandOrWifeId() { return husbandOrWifeId; }\n"
+            + "    @Projection(value = ProjectionType.property, propertyName = \"marriedTo\", referencePropertyName = \"%s\")\n"
+            + "    public void setHusbandOrWifeId(long husbandOrWifeId) { this.husbandOrWifeId = husbandOrWifeId; }\n"
+            + "    public List<Long> getChildrenIds() { return childrenIds; }\n"
+            + "    @Projection(value = ProjectionType.propertyCollection, propertyName = \"children\")\n"
+            + "    public void setChildrenIds(List<Long> childrenIds) { this.childrenIds = childrenIds; }\n"
+            + "    public List<AddressDto> getHomes() { return homes; }\n"
+            + "    @Projection(ProjectionType.projectionCollection)\n"
+            + "    public void setHomes(List<AddressDto> homes) { this.homes = homes; }\n"
+            + "    @NoProjection\n"
+            + "    public void setIgnored(String ignored) { this.ignored = ignored; }\n"
+            + "}\n";
+
+    private File workDirectory;
+    private DiagnosticCollector<JavaFileObject> diagnostics;
+
+    @Before
+    public void createWorkDirectory() throws IOException {
+        workDirectory = Files.createTempDirectory("projector-processor").toFile();
+        diagnostics = new DiagnosticCollector<JavaFileObject>();
+    }
+
+    @Test
+    public void testGeneratedProjectorIsUsed() throws Exception {
+        Assert.assertTrue(diagnostics.getDiagnostics().toString(), compile(String.format(PERSON_DTO, "id")));
+        Assert.assertTrue(new File(workDirectory, "classes/model/PersonDtoProjector.class").exists());
+        Assert.assertTrue(new File(workDirectory, "classes/model/AddressDtoProjector.class").exists());
+
+        URLClassLoader classLoader = new URLClassLoader(new URL[]{new File(workDirectory, "classes").toURI().toURL()}, getClass().getClassLoader());
+        Class<?> personClass = classLoader.loadClass("model.Person");
+        Class<?> addressClass = classLoader.loadClass("model.Address");
+        Class<?> personDtoClass = classLoader.loadClass("model.PersonDto");
+        Object person = personClass.newInstance();
+        personClass.getMethod("setId", Long.class).invoke(person, 1L);
+        personClass.getMethod("setLogin", String.class).invoke(person, "test@test.de");
+        Object husband = personClass.newInstance();
+        personClass.getMethod("setId", Long.class).invoke(husband, 34L);
+        personClass.getMethod("setMarriedTo", personClass).invoke(person, husband);
+        Object address = addressClass.newInstance();
+        addressClass.getMethod("setCity", String.class).invoke(address, "Testcity");
+        personClass.getMethod("setAddress", addressClass).invoke(person, address);
+        ((List<Object>) personClass.getMethod("getChildren").invoke(person)).add(husband);
+        ((List<Object>) personClass.getMethod("getHomes").invoke(person)).add(address);
+
+        Projector projector = new Projector();
+        ProjectionPlan<?> plan = projector.getPlan(personClass, personDtoClass);
+        Assert.assertNotNull(plan.getGeneratedProjector());
+        Object dto = projector.project(person, personDtoClass);
+        Assert.assertEquals(1L, personDtoClass.getMethod("getId").invoke(dto));
+        Assert.assertEquals("test@test.de", personDtoClass.getMethod("getEmail").invoke(dto));
+        Assert.assertEquals(34L, personDtoClass.getMethod("getHusbandOrWifeId").invoke(dto));
+        Assert.assertEquals(Arrays.asList(34L), personDtoClass.getMethod("getChildrenIds").invoke(dto));
+        Object addressDto = personDtoClass.getMethod("getAddress").invoke(dto);
+        Assert.assertEquals("Testcity", addressDto.getClass().getMethod("getCity").invoke(addressDto));
+        Assert.assertEquals(1, ((List<?>) personDtoClass.getMethod("getHomes").invoke(dto)).size());
+
+        projector.setUseGeneratedProjectors(false);
+        Assert.assertNull(projector.getPlan(personClass, personDtoClass).getGeneratedProjector());
+    }
+
+    @Test
+    public void testLazyProjectionsAreGenerated() throws Exception {
+        String personDto = String.format(PERSON_DTO, "id")
+                .replace("@Projection(ProjectionType.projection)", "@Projection(value = ProjectionType.projection, lazy = true)")
+                .replace("@Projection(ProjectionType.projectionCollection)", "@Projection(value = ProjectionType.projectionCollection, lazy = true)");
+        Assert.assertTrue(diagnostics.getDiagnostics().toString(), compile(personDto));
+
+        URLClassLoader classLoader = new URLClassLoader(new URL[]{new File(workDirectory, "classes").toURI().toURL()}, getClass().getClassLoader());
+        Class<?> personClass = classLoader.loadClass("model.Person");
+        Class<?> addressClass = classLoader.loadClass("model.Address");
+        Class<?> addressDtoClass = classLoader.loadClass("model.AddressDto");
+        Class<?> personDtoClass = classLoader.loadClass("model.PersonDto");
+        Object person = personClass.newInstance();
+        personClass.getMethod("setId", Long.class).invoke(person, 1L);
+        Object address = addressClass.newInstance();
+        personClass.getMethod("setAddress", addressClass).invoke(person, address);
+        ((List<Object>) personClass.getMethod("getHomes").invoke(person)).add(address);
+
+        Projector projector = new Projector();
+        Assert.assertNotNull(projector.getPlan(personClass, personDtoClass).getGeneratedProjector());
+        Object dto = projector.project(person, personDtoClass);
+        addressClass.getMethod("setCity", String.class).invoke(address, "Testcity");
+        Object addressDto = personDtoClass.getMethod("getAddress").invoke(dto);
+        Assert.assertNotSame(addressDtoClass, addressDto.getClass());
+        Assert.assertEquals("Testcity", addressDtoClass.getMethod("getCity").invoke(addressDto));
+        List<?> homes = (List<?>) personDtoClass.getMethod("getHomes").invoke(dto);
+        Assert.assertEquals("Testcity", addressDtoClass.getMethod("getCity").invoke(homes.get(0)));
+    }
+
+    @Test
+    public void testNullOntoPrimitiveIsHandledByGeneratedProjector() throws Exception {
+        Assert.assertTrue(diagnostics.getDiagnostics().toString(), compile(String.format(PERSON_DTO, "id")));
+
+        URLClassLoader classLoader = new URLClassLoader(new URL[]{new File(workDirectory, "classes").toURI().toURL()}, getClass().getClassLoader());
+        Class<?> personClass = classLoader.loadClass("model.Person");
+        Class<?> personDtoClass = classLoader.loadClass("model.PersonDto");
+        Object person = personClass.newInstance();
+        personClass.getMethod("setMarriedTo", personClass).invoke(person, personClass.newInstance());
+
+        Projector projector = new Projector();
+        try {
+            projector.project(person, personDtoClass);
+            Assert.fail();
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+        projector.setNullToPrimitivePolicy(NullToPrimitivePolicy.defaultValue);
+        Object dto = projector.project(person, personDtoClass);
+        Assert.assertEquals(0L, personDtoClass.getMethod("getId").invoke(dto));
+        Assert.assertEquals(0L, personDtoClass.getMethod("getHusbandOrWifeId").invoke(dto));
+    }
+
+    @Test
+    public void testArraysAndMissingCollectionsAreGenerated() throws Exception {
+        String personDto = String.format(PERSON_DTO, "id")
+                .replace("private List<AddressDto> homes = new ArrayList<AddressDto>();", "private List<AddressDto> homes; private long[] childIdArray;")
+                .replace("    @NoProjection\n", "    public long[] getChildIdArray() { return childIdArray; }\n"
+                        + "    @Projection(value = ProjectionType.propertyCollection, propertyName = \"children\")\n"
+                        + "    public void setChildIdArray(long[] childIdArray) { this.childIdArray = childIdArray; }\n"
+                        + "    @NoProjection\n");
+        Assert.assertTrue(diagnostics.getDiagnostics().toString(), compile(personDto));
+
+        URLClassLoader classLoader = new URLClassLoader(new URL[]{new File(workDirectory, "classes").toURI().toURL()}, getClass().getClassLoader());
+        Class<?> personClass = classLoader.loadClass("model.Person");
+        Class<?> addressClass = classLoader.loadClass("model.Address");
+        Class<?> personDtoClass = classLoader.loadClass("model.PersonDto");
+        Object person = personClass.newInstance();
+        personClass.getMethod("setId", Long.class).invoke(person, 1L);
+        for (long id = 2; id <= 3; id++) {
+            Object child = personClass.newInstance();
+            personClass.getMethod("setId", Long.class).invoke(child, id);
+            ((List<Object>) personClass.getMethod("getChildren").invoke(person)).add(child);
+        }
+        ((List<Object>) personClass.getMethod("getHomes").invoke(person)).add(addressClass.newInstance());
+
+        Projector projector = new Projector();
+        Assert.assertNotNull(projector.getPlan(personClass, personDtoClass).getGeneratedProjector());
+        Object dto = projector.project(person, personDtoClass);
+        Assert.assertArrayEquals(new long[]{2L, 3L}, (long[]) personDtoClass.getMethod("getChildIdArray").invoke(dto));
+        Assert.assertEquals(1, ((List<?>) personDtoClass.getMethod("getHomes").invoke(dto)).size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCollectionBudgetIsAppliedByGeneratedProjector() throws Exception {
+        String personDto = String.format(PERSON_DTO, "id")
+                .replace("private List<AddressDto> homes = new ArrayList<AddressDto>();", "private List<AddressDto> homes; private long[] childIdArray;")
+                .replace("    @NoProjection\n", "    public long[] getChildIdArray() { return childIdArray; }\n"
+                        + "    @Projection(value = ProjectionType.propertyCollection, propertyName = \"children\")\n"
+                        + "    public void setChildIdArray(long[] childIdArray) { this.childIdArray = childIdArray; }\n"
+                        + "    @NoProjection\n");
+        Assert.assertTrue(diagnostics.getDiagnostics().toString(), compile(personDto));
+
+        URLClassLoader classLoader = new URLClassLoader(new URL[]{new File(workDirectory, "classes").toURI().toURL()}, getClass().getClassLoader());
+        Class<?> personClass = classLoader.loadClass("model.Person");
+        Class<?> personDtoClass = classLoader.loadClass("model.PersonDto");
+        Object person = personClass.newInstance();
+        personClass.getMethod("setId", Long.class).invoke(person, 1L);
+        for (long id = 2; id <= 4; id++) {
+            Object child = personClass.newInstance();
+            personClass.getMethod("setId", Long.class).invoke(child, id);
+            ((List<Object>) personClass.getMethod("getChildren").invoke(person)).add(child);
+        }
+
+        Projector projector = new Projector();
+        Assert.assertNotNull(projector.getPlan(personClass, personDtoClass).getGeneratedProjector());
+        BudgetedProjection<?> projection = projector.projectWithin(person, personDtoClass,
+                ProjectionBudget.UNLIMITED.withMaxCollectionElements(2, BudgetPolicy.truncate));
+        Assert.assertTrue(projection.isTruncated());
+        Assert.assertArrayEquals(new long[]{2L, 3L}, (long[]) personDtoClass.getMethod("getChildIdArray").invoke(projection.getProjection()));
+        Assert.assertEquals(2, ((List<?>) personDtoClass.getMethod("getChildrenIds").invoke(projection.getProjection())).size());
+    }
+
+    @Test
+    public void testUnknownReferencePropertyIsReportedAtCompileTime() throws Exception {
+        Assert.assertFalse(compile(String.format(PERSON_DTO, "identifier")));
+        Assert.assertTrue(hasError("Unknown reference property 'identifier' on class 'model.Person'"));
+    }
+
+    @Test
+    public void testUnknownSourcePropertyIsReportedAtCompileTime() throws Exception {
+        Assert.assertFalse(compile(String.format(PERSON_DTO, "id").replace("propertyName = \"login\"", "propertyName = \"mail\"")));
+        Assert.assertTrue(hasError("Unknown property 'mail' on source class 'model.Person'"));
+    }
+
+    @Test
+    public void testBatchResolverIsReportedAtCompileTime() throws Exception {
+        Assert.assertFalse(compile(String.format(PERSON_DTO, "id")
+                .replace("@Projection(ProjectionType.projection)", "@Projection(value = ProjectionType.projection, resolver = \"addresses\")")));
+        Assert.assertTrue(hasError("Batch resolvers are not supported by generated projectors"));
+    }
+
+    private boolean hasError(String message) {
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR && diagnostic.getMessage(null).contains(message)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean compile(String personDto) throws IOException {
+        List<File> sources = new ArrayList<File>();
+        sources.add(writeSource("Person", PERSON));
+        sources.add(writeSource("Address", ADDRESS));
+        sources.add(writeSource("AddressDto", ADDRESS_DTO));
+        sources.add(writeSource("PersonDto", personDto));
+        File classes = new File(workDirectory, "classes");
+        File generated = new File(workDirectory, "generated");
+        classes.mkdirs();
+        generated.mkdirs();
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8);
+        try {
+            List<String> options = Arrays.asList("-classpath", System.getProperty("java.class.path"),
+                    "-processor", ProjectionProcessor.class.getName(),
+                    "-d", classes.getPath(), "-s", generated.getPath());
+            return compiler.getTask(null, fileManager, diagnostics, options, null, fileManager.getJavaFileObjectsFromFiles(sources)).call();
+        } finally {
+            fileManager.close();
+        }
+    }
+
+    private File writeSource(String name, String source) throws IOException {
+        File file = new File(workDirectory, "src/model/" + name + ".java");
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), source.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
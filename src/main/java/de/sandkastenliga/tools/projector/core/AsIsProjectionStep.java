@@ -0,0 +1,52 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+
+/**
+ * Copies the value of the source object's property onto the target object.
+ * @author Guido Laures
+ * @see ProjectionType#asIs
+ */
+final class AsIsProjectionStep extends ProjectionStep {
+
+    AsIsProjectionStep(String propertyName, String sourcePropertyName, Function<Object, Object> sourceReader, Function<Object, Object> targetReader, BiConsumer<Object, Object> targetWriter) {
+        super(ProjectionType.asIs, propertyName, sourcePropertyName, sourceReader, targetReader, targetWriter);
+    }
+
+    @Override
+    void apply(Object source, Object target, ProjectionContext context) throws Exception {
+        targetWriter.accept(target, sourceReader.apply(source));
+    }
+
+    @Override
+    void update(Object source, Object target, ProjectionUpdate update) throws Exception {
+        final Object value = sourceReader.apply(source);
+        if (targetReader == null || !Objects.equals(value, targetReader.apply(target))) {
+            targetWriter.accept(target, value);
+            update.changed(getPropertyName());
+        }
+    }
+
+    @Override
+    void write(Object source, ProjectionWriter writer) throws Exception {
+        writer.getSink().name(getPropertyName());
+        writer.getSink().value(sourceReader.apply(source));
+    }
+}
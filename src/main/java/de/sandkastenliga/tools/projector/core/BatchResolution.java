@@ -0,0 +1,144 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * The keys waiting to be resolved by {@link BatchResolver}s during one projection of a source object or of a range
+ * of source objects. Steps reading a key register a continuation, which finishes the step once the key's object is
+ * resolved. Keys are resolved in rounds: all keys registered so far are resolved with one call per resolver, then the
+ * continuations are run, which may register the keys of the next round (e.g. keys of the resolved objects' nested
+ * projections). Continuations are always run one after the other, so the contexts of the projections are never used
+ * by several threads at once.
+ * @author Guido Laures
+ */
+final class BatchResolution {
+
+    private Map<BatchResolver<Object, Object>, List<Pending>> pending = new IdentityHashMap<BatchResolver<Object, Object>, List<Pending>>();
+
+    /**
+     * Finishes a step once its key has been resolved.
+     */
+    interface Continuation {
+
+        /**
+         * @param value the object the key has been resolved to or null if it could not be resolved
+         */
+        void resolved(Object value) throws Exception;
+    }
+
+    void add(BatchResolver<Object, Object> resolver, Object key, ProjectionContext context, int depth, Continuation continuation) {
+        List<Pending> pendingOfResolver = pending.get(resolver);
+        if (pendingOfResolver == null) {
+            pendingOfResolver = new ArrayList<Pending>();
+            pending.put(resolver, pendingOfResolver);
+        }
+        pendingOfResolver.add(new Pending(key, context, depth, continuation));
+    }
+
+    /**
+     * @return true if keys are waiting to be resolved, so the projections of the batch are not finished yet
+     */
+    boolean isPending() {
+        return !pending.isEmpty();
+    }
+
+    /**
+     * Resolves all keys synchronously, round by round, until no more keys are registered.
+     */
+    void complete() throws Exception {
+        while (!pending.isEmpty()) {
+            final Map<BatchResolver<Object, Object>, List<Pending>> round = nextRound();
+            for (Map.Entry<BatchResolver<Object, Object>, List<Pending>> entry : round.entrySet()) {
+                resume(entry.getValue(), entry.getKey().resolve(keys(entry.getValue())));
+            }
+        }
+    }
+
+    /**
+     * Resolves all keys asynchronously, round by round, until no more keys are registered. The resolvers of one round
+     * are called at once, the continuations are run once all of them have completed.
+     */
+    CompletableFuture<Void> completeAsync() {
+        if (pending.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        final Map<BatchResolver<Object, Object>, List<Pending>> round = nextRound();
+        final List<List<Pending>> pendingOfResolvers = new ArrayList<List<Pending>>();
+        final List<CompletableFuture<Map<Object, Object>>> values = new ArrayList<CompletableFuture<Map<Object, Object>>>();
+        for (Map.Entry<BatchResolver<Object, Object>, List<Pending>> entry : round.entrySet()) {
+            pendingOfResolvers.add(entry.getValue());
+            values.add(entry.getKey().resolveAsync(keys(entry.getValue())));
+        }
+        return CompletableFuture.allOf(values.toArray(new CompletableFuture<?>[values.size()])).thenCompose(ignored -> {
+            try {
+                for (int i = 0; i < values.size(); i++) {
+                    resume(pendingOfResolvers.get(i), values.get(i).join());
+                }
+            } catch (final RuntimeException e) {
+                throw e;
+            } catch (final Exception e) {
+                throw new CompletionException(e);
+            }
+            return completeAsync();
+        });
+    }
+
+    private Map<BatchResolver<Object, Object>, List<Pending>> nextRound() {
+        final Map<BatchResolver<Object, Object>, List<Pending>> round = pending;
+        pending = new IdentityHashMap<BatchResolver<Object, Object>, List<Pending>>();
+        return round;
+    }
+
+    private static Set<Object> keys(List<Pending> pendingOfResolver) {
+        final Set<Object> keys = new LinkedHashSet<Object>();
+        for (Pending p : pendingOfResolver) {
+            keys.add(p.key);
+        }
+        return keys;
+    }
+
+    private static void resume(List<Pending> pendingOfResolver, Map<Object, Object> values) throws Exception {
+        for (Pending p : pendingOfResolver) {
+            p.context.resume(p.depth, p.continuation, values == null ? null : values.get(p.key));
+        }
+    }
+
+    private static final class Pending {
+
+        private final Object key;
+        private final ProjectionContext context;
+        /**
+         * The depth of the projection the step belongs to.
+         */
+        private final int depth;
+        private final Continuation continuation;
+
+        Pending(Object key, ProjectionContext context, int depth, Continuation continuation) {
+            this.key = key;
+            this.context = context;
+            this.depth = depth;
+            this.continuation = continuation;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Resolves the values read from source properties (e.g. IDs of objects held by a remote service) to the objects they
+ * refer to, many at once. A resolver is set on the projector by name and used by properties annotated with
+ * {@link Projection#resolver()}: the value of the source property is the key, the object it is resolved to is
+ * projected instead. While projecting a source object or a collection of them, the projector collects the keys of
+ * all properties using the same resolver and resolves them with one call, so a list of n objects needs one call
+ * per resolver and level of nesting instead of n calls.
+ * Resolvers are called by the projecting thread (or by the thread completing the future of
+ * {@link #resolveAsync(Set)}) and may be called by several threads at once.
+ * @param <K> the type of the keys read from the source properties
+ * @param <V> the type of the resolved objects
+ * @author Guido Laures
+ * @see Projector#setBatchResolver(String, BatchResolver)
+ */
+public interface BatchResolver<K, V> {
+
+    /**
+     * Resolves keys synchronously.
+     * @param keys the distinct keys to resolve
+     * @return the resolved objects by key, keys which cannot be resolved may be missing
+     * @throws Exception if the keys cannot be resolved, the projection fails with it
+     */
+    Map<K, V> resolve(Set<K> keys) throws Exception;
+
+    /**
+     * Resolves keys asynchronously, used by {@link Projector#projectAsync(Object, Class)} and
+     * {@link Projector#projectAllAsync(java.util.Collection, Class)}. The default implementation resolves the keys
+     * synchronously with {@link #resolve(Set)}.
+     * @param keys the distinct keys to resolve
+     * @return the future of the resolved objects by key, keys which cannot be resolved may be missing
+     */
+    default CompletableFuture<Map<K, V>> resolveAsync(Set<K> keys) {
+        final CompletableFuture<Map<K, V>> future = new CompletableFuture<Map<K, V>>();
+        try {
+            future.complete(resolve(keys));
+        } catch (final Exception e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+}
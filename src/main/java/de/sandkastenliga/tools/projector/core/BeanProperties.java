@@ -0,0 +1,85 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import org.apache.commons.beanutils.PropertyUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+
+/**
+ * Introspection helpers used while building {@link ProjectionPlan}s.
+ * @author Guido Laures
+ */
+final class BeanProperties {
+
+    private BeanProperties() {
+    }
+
+    /**
+     * @return the descriptor of the named property of the given class or null if there is no such property
+     */
+    static PropertyDescriptor findPropertyDescriptor(Class<?> beanClass, String propertyName) {
+        for (PropertyDescriptor descriptor : PropertyUtils.getPropertyDescriptors(beanClass)) {
+            if (descriptor.getName().equals(propertyName)) {
+                return descriptor;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the descriptor of the named property of the given class or null if the property cannot be read
+     */
+    static PropertyDescriptor findReadableProperty(Class<?> beanClass, String propertyName) {
+        PropertyDescriptor descriptor = findPropertyDescriptor(beanClass, propertyName);
+        return descriptor == null || PropertyUtils.getReadMethod(descriptor) == null ? null : descriptor;
+    }
+
+    /**
+     * @return the descriptor of the named property of the given class
+     * @throws NoSuchMethodException if the property does not exist or cannot be read
+     */
+    static PropertyDescriptor getReadableProperty(Class<?> beanClass, String propertyName) throws NoSuchMethodException {
+        PropertyDescriptor descriptor = findReadableProperty(beanClass, propertyName);
+        if (descriptor == null) {
+            throw new NoSuchMethodException("Unknown property '" + propertyName + "' on class '" + beanClass + "'");
+        }
+        return descriptor;
+    }
+
+    /**
+     * @return the class of the first type argument of the given generic type (e.g. {@code Address} for
+     * {@code List<Address>}) or null if it cannot be determined
+     */
+    static Class<?> firstTypeArgument(Type type) {
+        if (type instanceof ParameterizedType) {
+            Type argument = ((ParameterizedType) type).getActualTypeArguments()[0];
+            if (argument instanceof WildcardType) {
+                // e.g. Collection<? extends Address> accepted by a builder method
+                argument = ((WildcardType) argument).getUpperBounds()[0];
+            }
+            if (argument instanceof Class) {
+                return (Class<?>) argument;
+            }
+            if (argument instanceof ParameterizedType) {
+                return (Class<?>) ((ParameterizedType) argument).getRawType();
+            }
+        }
+        return null;
+    }
+}
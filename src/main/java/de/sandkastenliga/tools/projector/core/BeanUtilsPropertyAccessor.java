@@ -0,0 +1,54 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import org.apache.commons.beanutils.PropertyUtils;
+
+import java.beans.PropertyDescriptor;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * {@link PropertyAccessor} delegating to commons-beanutils' {@link PropertyUtils} for every access.
+ * This is the original (slower) way of accessing properties and is kept as a fallback and for comparison.
+ * @author Guido Laures
+ * @see PropertyAccessMode#beanUtils
+ */
+public class BeanUtilsPropertyAccessor implements PropertyAccessor {
+
+    @Override
+    public Function<Object, Object> createReader(PropertyDescriptor property) {
+        final String propertyName = property.getName();
+        return bean -> {
+            try {
+                return PropertyUtils.getProperty(bean, propertyName);
+            } catch (final Exception e) {
+                throw new RuntimeException(e);
+            }
+        };
+    }
+
+    @Override
+    public BiConsumer<Object, Object> createWriter(PropertyDescriptor property) {
+        final String propertyName = property.getName();
+        return (bean, value) -> {
+            try {
+                PropertyUtils.setProperty(bean, propertyName, value);
+            } catch (final Exception e) {
+                throw new RuntimeException(e);
+            }
+        };
+    }
+}
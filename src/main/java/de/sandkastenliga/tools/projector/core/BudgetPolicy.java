@@ -0,0 +1,34 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+/**
+ * Tells the {@link Projector} what to do if a projection exceeds a limit of its {@link ProjectionBudget}.
+ * @see ProjectionBudget
+ * @author Guido Laures
+ */
+public enum BudgetPolicy {
+
+    /**
+     * Stop projecting where the limit is exceeded: the nested projection is left null (or out of its collection)
+     * and the remaining elements of a collection are left out. The projection is marked as truncated, see
+     * {@link BudgetedProjection#isTruncated()}.
+     */
+    truncate,
+    /**
+     * Throw a {@link ProjectionBudgetExceededException}.
+     */
+    fail
+}
@@ -0,0 +1,56 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * The projection of a source object within a {@link ProjectionBudget}, telling whether it has been truncated
+ * because it exceeded a limit of the budget.
+ * @author Guido Laures
+ * @see Projector#projectWithin(Object, Class, ProjectionBudget)
+ */
+public final class BudgetedProjection<T> {
+
+    private final T projection;
+    private final Set<ProjectionBudget.Limit> exceededLimits;
+
+    BudgetedProjection(T projection, Set<ProjectionBudget.Limit> exceededLimits) {
+        this.projection = projection;
+        this.exceededLimits = exceededLimits == null ? Collections.<ProjectionBudget.Limit>emptySet() : Collections.unmodifiableSet(exceededLimits);
+    }
+
+    /**
+     * @return the projection or null if not even the source object itself could be projected within the budget
+     */
+    public T getProjection() {
+        return projection;
+    }
+
+    /**
+     * @return true if the projection is incomplete because the budget has been exceeded
+     */
+    public boolean isTruncated() {
+        return !exceededLimits.isEmpty();
+    }
+
+    /**
+     * @return the limits of the budget which have been exceeded by the projection
+     */
+    public Set<ProjectionBudget.Limit> getExceededLimits() {
+        return exceededLimits;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Projects all elements of a collection onto the same projection class, either sequentially or split into
+ * ranges that are projected in parallel. The results keep the order of the source elements.
+ * The plan resolved for an element is reused for all following elements of the same class, so a batch of
+ * uniform elements resolves its plan only once per range.
+ * @author Guido Laures
+ * @see Projector#projectAll(Collection, Class)
+ */
+final class BulkProjection<T> {
+
+    /**
+     * Number of ranges per available thread the input is split into, allowing work stealing to balance the load.
+     */
+    private static final int RANGES_PER_THREAD = 4;
+
+    private final Projector projector;
+    private final Class<T> projectionClass;
+    private final String profile;
+    private final Object[] sources;
+    private final Object[] results;
+
+    BulkProjection(Projector projector, Collection<?> sources, Class<T> projectionClass, String profile) {
+        this.projector = projector;
+        this.projectionClass = projectionClass;
+        this.profile = profile;
+        this.sources = sources.toArray();
+        this.results = new Object[this.sources.length];
+    }
+
+    List<T> projectSequentially() {
+        projectRange(0, sources.length);
+        return result();
+    }
+
+    List<T> projectInParallel(Executor executor) {
+        final int parallelism = executor instanceof ForkJoinPool ? ((ForkJoinPool) executor).getParallelism() : Runtime.getRuntime().availableProcessors();
+        final int rangeSize = Math.max(1, sources.length / (parallelism * RANGES_PER_THREAD));
+        try {
+            if (executor instanceof ForkJoinPool) {
+                ((ForkJoinPool) executor).invoke(new RangeTask(0, sources.length, rangeSize));
+            } else {
+                final List<CompletableFuture<Void>> ranges = new ArrayList<CompletableFuture<Void>>();
+                for (int from = 0; from < sources.length; from += rangeSize) {
+                    final int to = Math.min(sources.length, from + rangeSize);
+                    final int rangeStart = from;
+                    ranges.add(CompletableFuture.runAsync(() -> projectRange(rangeStart, to), executor));
+                }
+                CompletableFuture.allOf(ranges.toArray(new CompletableFuture<?>[ranges.size()])).join();
+            }
+        } catch (final CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new RuntimeException(e.getCause());
+        }
+        return result();
+    }
+
+    /**
+     * Projects all source objects sequentially in one batch whose keys are resolved asynchronously.
+     */
+    CompletableFuture<List<T>> projectAsync() {
+        final BatchResolution batchResolution = new BatchResolution();
+        projectRange(0, sources.length, batchResolution);
+        return batchResolution.completeAsync().thenApply(ignored -> result());
+    }
+
+    /**
+     * Projects a range of source objects, resolving the keys of batch resolvers for the whole range at once.
+     */
+    private void projectRange(int from, int to) {
+        final BatchResolution batchResolution = projector.createBatchResolution();
+        projectRange(from, to, batchResolution);
+        if (batchResolution != null) {
+            try {
+                batchResolution.complete();
+            } catch (final RuntimeException e) {
+                throw e;
+            } catch (final Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    private void projectRange(int from, int to, BatchResolution batchResolution) {
+        Class<?> planSourceClass = null;
+        ProjectionPlan<T> plan = null;
+        try {
+            for (int i = from; i < to; i++) {
+                final Object source = sources[i];
+                if (source == null) {
+                    continue;
+                }
+                if (source.getClass() != planSourceClass) {
+                    planSourceClass = source.getClass();
+                    plan = projector.getPlan(planSourceClass, projectionClass, profile);
+                }
+                results[i] = new ProjectionContext(projector, profile, batchResolution).project(source, plan);
+            }
+        } catch (final RuntimeException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<T> result() {
+        return new ArrayList<T>((List<T>) Arrays.asList(results));
+    }
+
+    private final class RangeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int rangeSize;
+
+        RangeTask(int from, int to, int rangeSize) {
+            this.from = from;
+            this.to = to;
+            this.rangeSize = rangeSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= rangeSize) {
+                projectRange(from, to);
+            } else {
+                final int middle = (from + to) >>> 1;
+                invokeAll(new RangeTask(from, middle, rangeSize), new RangeTask(middle, to, rangeSize));
+            }
+        }
+    }
+}
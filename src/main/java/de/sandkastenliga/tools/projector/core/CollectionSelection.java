@@ -0,0 +1,77 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Selects the elements of a source collection that are projected by a collection property with a
+ * {@link Projection#filter() filter}, {@link Projection#comparator() comparator} or {@link Projection#limit() limit}.
+ * The elements are filtered, sorted and limited before any of them is projected, so elements left out are never
+ * projected.
+ * @author Guido Laures
+ */
+final class CollectionSelection {
+
+    private final Predicate<Object> filter;
+    private final Comparator<Object> comparator;
+    private final int limit;
+
+    /**
+     * @param filter     the filter of the elements or null to select all elements
+     * @param comparator the order of the elements or null to keep the order of the source collection
+     * @param limit      the maximum number of selected elements
+     */
+    CollectionSelection(Predicate<Object> filter, Comparator<Object> comparator, int limit) {
+        this.filter = filter;
+        this.comparator = comparator;
+        this.limit = limit;
+    }
+
+    /**
+     * @return the selected elements of the source collection, which is returned itself if all of its elements are selected
+     */
+    Collection<?> select(Collection<?> sources) {
+        if (filter == null && comparator == null) {
+            if (sources.size() <= limit) {
+                return sources;
+            }
+            if (sources instanceof List) {
+                return ((List<?>) sources).subList(0, limit);
+            }
+        }
+        final List<Object> selected = new ArrayList<Object>(comparator == null ? Math.min(limit, sources.size()) : sources.size());
+        for (Object source : sources) {
+            // without a comparator the first elements passing the filter are the selected ones
+            if (comparator == null && selected.size() == limit) {
+                break;
+            }
+            if (filter == null || filter.test(source)) {
+                selected.add(source);
+            }
+        }
+        if (comparator != null) {
+            selected.sort(comparator);
+            if (selected.size() > limit) {
+                return selected.subList(0, limit);
+            }
+        }
+        return selected;
+    }
+}
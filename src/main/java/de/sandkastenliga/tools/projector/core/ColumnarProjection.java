@@ -0,0 +1,484 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The state of one call to {@link Projector#projectColumns(Collection, Class)}. Properties and property collections
+ * are written by the steps of the plans to the column of the step, which is the sink of the writer while the step
+ * is written. Nested projections are projected within one context shared by all rows, so source objects
+ * referenced by several rows share their projection.
+ * @author Guido Laures
+ */
+final class ColumnarProjection implements ProjectionSink {
+
+    private final Projector projector;
+    private final Class<?> projectionClass;
+    private final String profile;
+    private final int size;
+    private final NullToPrimitivePolicy nullToPrimitivePolicy;
+    private final ProjectionContext context;
+    private final ProjectionWriter writer;
+    private final Map<String, Column> columns = new LinkedHashMap<String, Column>();
+    private ProjectionPlan<?> lastPlan;
+    private Column[] lastColumns;
+    /**
+     * The column the step currently written writes to.
+     */
+    private ValueColumn current;
+
+    ColumnarProjection(Projector projector, Class<?> projectionClass, String profile, int size) {
+        this.projector = projector;
+        this.projectionClass = projectionClass;
+        this.profile = profile;
+        this.size = size;
+        this.nullToPrimitivePolicy = projector.getNullToPrimitivePolicy();
+        // each row is a projection of depth 1
+        this.context = new ProjectionContext(projector, profile, projector.getProjectionListener(), 1);
+        this.writer = new ProjectionWriter(context, this);
+    }
+
+    ProjectionColumns project(Collection<?> sources) throws Exception {
+        int row = 0;
+        for (Object source : sources) {
+            if (source != null) {
+                project(source, row);
+            }
+            row++;
+        }
+        final Map<String, Object> arrays = new LinkedHashMap<String, Object>();
+        final Map<String, int[]> offsets = new LinkedHashMap<String, int[]>();
+        for (Column column : columns.values()) {
+            arrays.put(column.name, column.getValues());
+            if (column instanceof CollectionColumn) {
+                offsets.put(column.name, ((CollectionColumn) column).getOffsets());
+            }
+        }
+        return new ProjectionColumns(projectionClass, size, arrays, offsets);
+    }
+
+    private void project(Object source, int row) throws Exception {
+        final ProjectionPlan<?> plan = projector.getUpdatePlan(source.getClass(), projectionClass, profile);
+        if (plan != lastPlan) {
+            lastColumns = getColumns(plan);
+            lastPlan = plan;
+        }
+        final List<ProjectionStep> steps = plan.getSteps();
+        for (int i = 0; i < lastColumns.length; i++) {
+            lastColumns[i].project(steps.get(i), source, row);
+        }
+    }
+
+    /**
+     * @return the columns of the plan's steps, which are shared by all plans projecting onto the projection class
+     */
+    private Column[] getColumns(ProjectionPlan<?> plan) {
+        final List<ProjectionStep> steps = plan.getSteps();
+        final Column[] columnsOfPlan = new Column[steps.size()];
+        for (int i = 0; i < columnsOfPlan.length; i++) {
+            final ProjectionStep step = steps.get(i);
+            Column column = columns.get(step.getPropertyName());
+            if (column == null) {
+                column = createColumn(step);
+                columns.put(step.getPropertyName(), column);
+            }
+            columnsOfPlan[i] = column;
+        }
+        return columnsOfPlan;
+    }
+
+    private Column createColumn(ProjectionStep step) {
+        final PropertyDescriptor targetProperty = BeanProperties.findPropertyDescriptor(projectionClass, step.getPropertyName());
+        final Class<?> type = targetProperty.getPropertyType();
+        switch (step.getType()) {
+            case projection:
+                return new NestedColumn(step.getPropertyName());
+            case projectionCollection:
+                return new ProjectionListColumn(step.getPropertyName());
+            case propertyCollection:
+                final Class<?> elementType = type.isArray() ? type.getComponentType()
+                        : BeanProperties.firstTypeArgument(targetProperty.getWriteMethod().getGenericParameterTypes()[0]);
+                return new CollectionColumn(step.getPropertyName(), unboxed(elementType));
+            default:
+                return new ValueColumn(step.getPropertyName(), type.isPrimitive() ? unboxed(type) : Object.class, size);
+        }
+    }
+
+    /**
+     * @return the primitive type of the values of a column holding values of the given type, or Object if the
+     * values are held in an object array
+     */
+    private static Class<?> unboxed(Class<?> type) {
+        if (type == Long.class || type == long.class) {
+            return long.class;
+        }
+        if (type == Integer.class || type == int.class) {
+            return int.class;
+        }
+        if (type == Double.class || type == double.class) {
+            return double.class;
+        }
+        if (type == Boolean.class || type == boolean.class) {
+            return boolean.class;
+        }
+        return Object.class;
+    }
+
+    @Override
+    public void beginObject() {
+        throw new IllegalStateException("Nested projections are not written to columns");
+    }
+
+    @Override
+    public void endObject() {
+        throw new IllegalStateException("Nested projections are not written to columns");
+    }
+
+    @Override
+    public void beginArray() {
+        current.beginArray();
+    }
+
+    @Override
+    public void endArray() {
+        current.endArray();
+    }
+
+    @Override
+    public void name(String name) {
+    }
+
+    @Override
+    public void value(Object value) {
+        if (value == null) {
+            current.addNull();
+        } else {
+            current.add(value);
+        }
+    }
+
+    @Override
+    public void value(long value) {
+        current.add(value);
+    }
+
+    @Override
+    public void value(double value) {
+        current.add(value);
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    private abstract static class Column {
+
+        final String name;
+
+        Column(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Projects the step's property of the source object into the given row of this column.
+         */
+        abstract void project(ProjectionStep step, Object source, int row) throws Exception;
+
+        /**
+         * @return the array holding the values of this column
+         */
+        abstract Object getValues();
+    }
+
+    /**
+     * A column of the values of a property, written by the property's step. The values are held in an array of
+     * the column's type, which is Object or a primitive type.
+     */
+    private class ValueColumn extends Column {
+
+        private final Class<?> type;
+        Object values;
+        int index;
+
+        ValueColumn(String name, Class<?> type, int capacity) {
+            super(name);
+            this.type = type;
+            this.values = Array.newInstance(type, capacity);
+        }
+
+        @Override
+        void project(ProjectionStep step, Object source, int row) throws Exception {
+            index = row;
+            current = this;
+            step.write(source, writer);
+        }
+
+        @Override
+        Object getValues() {
+            return values;
+        }
+
+        void beginArray() {
+        }
+
+        void endArray() {
+        }
+
+        void add(Object value) {
+            store(value);
+        }
+
+        void add(long value) {
+            store(value);
+        }
+
+        void add(double value) {
+            store(value);
+        }
+
+        /**
+         * Null values leave the default value of the column's type.
+         */
+        void addNull() {
+            if (type.isPrimitive() && nullToPrimitivePolicy == NullToPrimitivePolicy.fail) {
+                throw new IllegalArgumentException("Cannot project null onto primitive column '" + name + "'");
+            }
+        }
+
+        final void store(Object value) {
+            if (values instanceof Object[]) {
+                ((Object[]) values)[index] = value;
+            } else if (values instanceof boolean[]) {
+                ((boolean[]) values)[index] = (Boolean) value;
+            } else if (values instanceof double[]) {
+                ((double[]) values)[index] = ((Number) value).doubleValue();
+            } else if (values instanceof long[]) {
+                ((long[]) values)[index] = ((Number) value).longValue();
+            } else {
+                ((int[]) values)[index] = ((Number) value).intValue();
+            }
+        }
+
+        final void store(long value) {
+            if (values instanceof long[]) {
+                ((long[]) values)[index] = value;
+            } else if (values instanceof int[]) {
+                ((int[]) values)[index] = (int) value;
+            } else {
+                store((Object) value);
+            }
+        }
+
+        final void store(double value) {
+            if (values instanceof double[]) {
+                ((double[]) values)[index] = value;
+            } else {
+                store((Object) value);
+            }
+        }
+    }
+
+    /**
+     * A column of the flattened values of a property collection. The values of all rows are appended to an array
+     * growing as needed, the offsets mark where the values of each row start.
+     */
+    private final class CollectionColumn extends ValueColumn {
+
+        private final int[] offsets = new int[size + 1];
+        /**
+         * The number of rows whose offsets have been set.
+         */
+        private int rows;
+        private boolean inArray;
+
+        CollectionColumn(String name, Class<?> type) {
+            super(name, type, Math.max(16, size));
+        }
+
+        @Override
+        void project(ProjectionStep step, Object source, int row) throws Exception {
+            fillOffsets(row);
+            current = this;
+            step.write(source, writer);
+            fillOffsets(row + 1);
+        }
+
+        @Override
+        Object getValues() {
+            fillOffsets(size);
+            if (Array.getLength(values) == index) {
+                return values;
+            }
+            final Object trimmed = Array.newInstance(values.getClass().getComponentType(), index);
+            System.arraycopy(values, 0, trimmed, 0, index);
+            return trimmed;
+        }
+
+        int[] getOffsets() {
+            fillOffsets(size);
+            return offsets;
+        }
+
+        /**
+         * Sets the offsets of all rows up to the given one to the number of values written so far.
+         */
+        private void fillOffsets(int row) {
+            while (rows < row) {
+                offsets[++rows] = index;
+            }
+        }
+
+        @Override
+        void beginArray() {
+            inArray = true;
+        }
+
+        @Override
+        void endArray() {
+            inArray = false;
+        }
+
+        @Override
+        void add(Object value) {
+            ensureCapacity();
+            store(value);
+            index++;
+        }
+
+        @Override
+        void add(long value) {
+            ensureCapacity();
+            store(value);
+            index++;
+        }
+
+        @Override
+        void add(double value) {
+            ensureCapacity();
+            store(value);
+            index++;
+        }
+
+        /**
+         * Null values of primitive collections are left out or projected as the default value, like they are by
+         * projections onto primitive arrays. A null value outside of an array is a collection set to null, which
+         * has no values.
+         */
+        @Override
+        void addNull() {
+            if (!inArray) {
+                return;
+            }
+            if (values instanceof Object[]) {
+                add((Object) null);
+                return;
+            }
+            switch (nullToPrimitivePolicy) {
+                case skip:
+                    break;
+                case defaultValue:
+                    ensureCapacity();
+                    index++;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Cannot project null into primitive column '" + name + "'");
+            }
+        }
+
+        private void ensureCapacity() {
+            final int capacity = Array.getLength(values);
+            if (index == capacity) {
+                final Object grown = Array.newInstance(values.getClass().getComponentType(), capacity * 2);
+                System.arraycopy(values, 0, grown, 0, capacity);
+                values = grown;
+            }
+        }
+    }
+
+    /**
+     * A column of nested projections, which are projected eagerly even if the property is {@link Projection#lazy() lazy}.
+     */
+    private class NestedColumn extends Column {
+
+        final Object[] values = new Object[size];
+
+        NestedColumn(String name) {
+            super(name);
+        }
+
+        @Override
+        void project(ProjectionStep step, Object source, int row) throws Exception {
+            if (context.isMaxDepthReached()) {
+                return;
+            }
+            final Object sourceValueObject = step.readSourceValue(source, context);
+            if (sourceValueObject != null) {
+                values[row] = projectNested(sourceValueObject, step.getProjectionClass());
+            }
+        }
+
+        @Override
+        Object getValues() {
+            return values;
+        }
+
+        /**
+         * @return the projection of the source object or null if it is not projected
+         */
+        Object projectNested(Object sourceValueObject, Class<?> projectionClass) throws Exception {
+            if (context.isLoaded(sourceValueObject)) {
+                return context.projectNested(sourceValueObject, projectionClass);
+            }
+            return context.getUnloadedAssociationPolicy() == UnloadedAssociationPolicy.idOnly
+                    ? context.projectIdentifier(sourceValueObject, projectionClass) : null;
+        }
+    }
+
+    /**
+     * A column of lists of nested projections.
+     */
+    private final class ProjectionListColumn extends NestedColumn {
+
+        ProjectionListColumn(String name) {
+            super(name);
+        }
+
+        @Override
+        void project(ProjectionStep step, Object source, int row) throws Exception {
+            if (context.isMaxDepthReached()) {
+                return;
+            }
+            final Collection<?> sourceCollection = (Collection<?>) step.sourceReader.apply(source);
+            if (sourceCollection != null && context.isLoaded(sourceCollection)) {
+                final List<Object> projections = new ArrayList<Object>(sourceCollection.size());
+                for (Object sourceCollectionEntry : sourceCollection) {
+                    final Object projection = sourceCollectionEntry == null ? null
+                            : projectNested(sourceCollectionEntry, step.getProjectionClass());
+                    if (projection != null) {
+                        projections.add(projection);
+                    }
+                }
+                values[row] = projections;
+            }
+        }
+    }
+}
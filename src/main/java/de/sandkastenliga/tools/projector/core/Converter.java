@@ -0,0 +1,34 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+/**
+ * Converts the value of a source property into the type of the target property it is projected onto, e.g. a
+ * {@link java.util.Date} into an {@link java.time.Instant}. Converters are registered for a pair of types with
+ * {@link Projector#setConverter(Class, Class, Converter)} and chosen once per property when the plan of a pair of
+ * classes is built, they are used by {@link ProjectionType#asIs} and {@link ProjectionType#property} projections
+ * whose source type is not assignable to the target type.
+ * @author Guido Laures
+ * @see Projector#getConverter(Class, Class)
+ */
+@FunctionalInterface
+public interface Converter<S, T> {
+
+    /**
+     * @param value the value of the source property, never null (null values are projected as null)
+     * @return the converted value
+     */
+    T convert(S value);
+}
@@ -0,0 +1,156 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import java.lang.invoke.MethodType;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The converters of a {@link Projector} by target and source type. The registered converters are immutable, setting
+ * a converter creates a new instance. A converter registered for a source type is used for its subclasses as well,
+ * the converter of the most specific source type wins.
+ * @author Guido Laures
+ */
+final class Converters {
+
+    /**
+     * The converters every projector starts with.
+     */
+    static final Converters BUILT_IN = new Converters(new HashMap<Class<?>, Map<Class<?>, Converter<Object, Object>>>())
+            .with(Date.class, Instant.class, date -> Instant.ofEpochMilli(date.getTime()))
+            .with(Instant.class, Date.class, Date::from)
+            .with(Date.class, Long.class, Date::getTime)
+            .with(Timestamp.class, Instant.class, Timestamp::toInstant)
+            .with(Timestamp.class, LocalDateTime.class, Timestamp::toLocalDateTime)
+            .with(LocalDateTime.class, Timestamp.class, Timestamp::valueOf)
+            .with(java.sql.Date.class, LocalDate.class, java.sql.Date::toLocalDate)
+            .with(LocalDate.class, java.sql.Date.class, java.sql.Date::valueOf)
+            .with(Time.class, LocalTime.class, Time::toLocalTime)
+            .with(LocalTime.class, Time.class, Time::valueOf)
+            .with(Enum.class, String.class, value -> ((Enum<?>) value).name())
+            .with(UUID.class, String.class, UUID::toString)
+            .with(String.class, UUID.class, UUID::fromString)
+            .with(Number.class, Long.class, Converters::toLong)
+            .with(Number.class, Integer.class, value -> Math.toIntExact(toLong(value)))
+            .with(Number.class, Double.class, Number::doubleValue)
+            .with(Number.class, Float.class, Number::floatValue)
+            .with(Number.class, BigDecimal.class, Converters::toBigDecimal)
+            .with(Number.class, BigInteger.class, value -> toBigDecimal(value).toBigIntegerExact());
+
+    private final Map<Class<?>, Map<Class<?>, Converter<Object, Object>>> convertersByTargetType;
+
+    private Converters(Map<Class<?>, Map<Class<?>, Converter<Object, Object>>> convertersByTargetType) {
+        this.convertersByTargetType = convertersByTargetType;
+    }
+
+    /**
+     * @return a copy of these converters with the given converter, replacing the one of the same pair of types
+     */
+    @SuppressWarnings("unchecked")
+    <S, T> Converters with(Class<S> sourceType, Class<T> targetType, Converter<? super S, ? extends T> converter) {
+        final Map<Class<?>, Map<Class<?>, Converter<Object, Object>>> copy = new HashMap<Class<?>, Map<Class<?>, Converter<Object, Object>>>(convertersByTargetType);
+        final Map<Class<?>, Converter<Object, Object>> convertersBySourceType = copy.containsKey(boxed(targetType))
+                ? new HashMap<Class<?>, Converter<Object, Object>>(copy.get(boxed(targetType))) : new HashMap<Class<?>, Converter<Object, Object>>();
+        if (converter == null) {
+            convertersBySourceType.remove(boxed(sourceType));
+        } else {
+            convertersBySourceType.put(boxed(sourceType), (Converter<Object, Object>) converter);
+        }
+        copy.put(boxed(targetType), convertersBySourceType);
+        return new Converters(copy);
+    }
+
+    /**
+     * @return the converter of values of the source type onto the target type or null if values of the source type
+     * can be assigned to the target type as they are or there is no converter
+     */
+    @SuppressWarnings("unchecked")
+    <S, T> Converter<S, T> find(Class<S> sourceType, Class<T> targetType) {
+        final Class<?> boxedSourceType = boxed(sourceType);
+        final Class<?> boxedTargetType = boxed(targetType);
+        if (boxedTargetType.isAssignableFrom(boxedSourceType)) {
+            return null;
+        }
+        final Map<Class<?>, Converter<Object, Object>> convertersBySourceType = convertersByTargetType.get(boxedTargetType);
+        if (convertersBySourceType != null) {
+            final Converter<Object, Object> converter = find(convertersBySourceType, boxedSourceType);
+            if (converter != null) {
+                return (Converter<S, T>) converter;
+            }
+        }
+        if (boxedSourceType == String.class && boxedTargetType.isEnum()) {
+            return (Converter<S, T>) enumConverter(boxedTargetType.asSubclass(Enum.class));
+        }
+        return null;
+    }
+
+    private static Converter<Object, Object> find(Map<Class<?>, Converter<Object, Object>> convertersBySourceType, Class<?> sourceType) {
+        for (Class<?> type = sourceType; type != null; type = type.getSuperclass()) {
+            Converter<Object, Object> converter = convertersBySourceType.get(type);
+            if (converter != null) {
+                return converter;
+            }
+            for (Class<?> interfaceType : type.getInterfaces()) {
+                converter = find(convertersBySourceType, interfaceType);
+                if (converter != null) {
+                    return converter;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static <E extends Enum<E>> Converter<String, E> enumConverter(final Class<E> enumType) {
+        return value -> Enum.valueOf(enumType, value);
+    }
+
+    static Class<?> boxed(Class<?> type) {
+        return type.isPrimitive() ? MethodType.methodType(type).wrap().returnType() : type;
+    }
+
+    /**
+     * @throws ArithmeticException if the value has a fraction or does not fit into a long
+     */
+    private static long toLong(Number value) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return value.longValue();
+        }
+        return toBigDecimal(value).longValueExact();
+    }
+
+    private static BigDecimal toBigDecimal(Number value) {
+        if (value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        }
+        if (value instanceof BigInteger) {
+            return new BigDecimal((BigInteger) value);
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return BigDecimal.valueOf(value.doubleValue());
+        }
+        return BigDecimal.valueOf(value.longValue());
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+/**
+ * Tells the {@link Projector} what to do if a source object is reached again while it is still being projected,
+ * i.e. if the object graph contains a cycle (e.g. an address referencing the person it belongs to).
+ * @see Projector#setCyclePolicy(CyclePolicy)
+ * @author Guido Laures
+ */
+public enum CyclePolicy {
+
+    /**
+     * Use the (not yet completely projected) projection of the source object, so the projected graph contains
+     * the same cycle as the source graph. This is the default.
+     */
+    reuse,
+    /**
+     * Do not project the property closing the cycle, leaving it null (or the element out of the collection).
+     */
+    setNull,
+    /**
+     * Throw a {@link ProjectionCycleException}.
+     */
+    fail
+}
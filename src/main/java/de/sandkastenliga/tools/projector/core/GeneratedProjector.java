@@ -0,0 +1,55 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+/**
+ * A projector generated at compile time by the ModelProjector annotation processor for a target class
+ * annotated with {@link ProjectionSource}. It projects source objects with plain getter and setter calls.
+ * The {@link Projector} picks up a generated projector automatically if a class named like the target class
+ * with the suffix {@value #CLASS_NAME_SUFFIX} (e.g. {@code PersonDtoProjector} for {@code PersonDto}) implementing
+ * this interface is available from the target class' class loader.
+ * @author Guido Laures
+ * @see Projector#setUseGeneratedProjectors(boolean)
+ */
+public interface GeneratedProjector<S, T> {
+
+    /**
+     * Suffix appended to the (binary) name of the target class to name its generated projector.
+     */
+    String CLASS_NAME_SUFFIX = "Projector";
+
+    /**
+     * @return the class of the objects this projector projects
+     */
+    Class<S> getSourceClass();
+
+    /**
+     * @return the class of the projections this projector creates
+     */
+    Class<T> getTargetClass();
+
+    /**
+     * @return a new instance of the target class
+     */
+    T newInstance();
+
+    /**
+     * Projects the given source object onto the target object.
+     * @param source the object to be projected
+     * @param target the new instance of the target class the source object is projected onto
+     * @param context the context of the current projection to be used for nested projections
+     */
+    void project(S source, T target, ProjectionContext context);
+}
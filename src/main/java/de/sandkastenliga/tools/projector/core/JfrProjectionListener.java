@@ -0,0 +1,53 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ProjectionListener} emitting a Java Flight Recorder event (named
+ * {@code de.sandkastenliga.projector.SlowProjection}) for each projection taking at least the given threshold.
+ * Nested projections are reported on their own as well as part of the projections they are nested in.
+ * This listener requires a Java runtime providing the {@code jdk.jfr} API (Java 11 or later, Java 8 from update 262).
+ * @author Guido Laures
+ * @see ProjectionListener#of(ProjectionListener...)
+ */
+public class JfrProjectionListener implements ProjectionListener {
+
+    private final long thresholdNanos;
+
+    /**
+     * @param threshold the minimum time of projections to be recorded
+     * @param unit      the unit of the threshold
+     */
+    public JfrProjectionListener(final long threshold, final TimeUnit unit) {
+        this.thresholdNanos = unit.toNanos(threshold);
+    }
+
+    @Override
+    public void projected(ProjectionPlan<?> plan, int depth, long nanos) {
+        if (nanos < thresholdNanos) {
+            return;
+        }
+        final SlowProjectionEvent event = new SlowProjectionEvent();
+        if (event.isEnabled()) {
+            event.sourceClass = plan.getSourceClass();
+            event.targetClass = plan.getTargetClass();
+            event.depth = depth;
+            event.projectionTime = nanos;
+            event.commit();
+        }
+    }
+}
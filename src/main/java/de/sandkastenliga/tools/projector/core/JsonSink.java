@@ -0,0 +1,199 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * A {@link ProjectionSink} writing projections as JSON, so no projection instances are created for objects which
+ * are only projected to be serialized. Projected objects are written as JSON objects with the names of the
+ * properties of the projection class, collections as arrays. Values copied from source objects are written as
+ * follows: strings, characters and enums (by name) as strings, numbers and booleans as such (infinite and NaN
+ * numbers as null), collections and arrays as arrays, maps as objects and all other values as the string returned
+ * by their {@code toString()} method.
+ * @author Guido Laures
+ * @see Projector#projectTo(Object, Class, ProjectionSink)
+ */
+public final class JsonSink implements ProjectionSink {
+
+    private static final String[] ESCAPES = new String[0x20];
+
+    static {
+        for (int c = 0; c < ESCAPES.length; c++) {
+            ESCAPES[c] = String.format("\\u%04x", c);
+        }
+        ESCAPES['\b'] = "\\b";
+        ESCAPES['\t'] = "\\t";
+        ESCAPES['\n'] = "\\n";
+        ESCAPES['\f'] = "\\f";
+        ESCAPES['\r'] = "\\r";
+    }
+
+    private final Writer out;
+    /**
+     * Whether the object or array of each nesting level already has a member, so the next one needs a separator.
+     */
+    private boolean[] hasMembers = new boolean[16];
+    private int level;
+    private boolean afterName;
+
+    /**
+     * @param out the writer the JSON is written to, which should be buffered
+     */
+    public JsonSink(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * @param out the stream the JSON is written to in UTF-8, it is buffered by the sink
+     */
+    public JsonSink(OutputStream out) {
+        this(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+    }
+
+    @Override
+    public void beginObject() throws IOException {
+        beforeValue();
+        out.write('{');
+        enter();
+    }
+
+    @Override
+    public void endObject() throws IOException {
+        level--;
+        out.write('}');
+    }
+
+    @Override
+    public void beginArray() throws IOException {
+        beforeValue();
+        out.write('[');
+        enter();
+    }
+
+    @Override
+    public void endArray() throws IOException {
+        level--;
+        out.write(']');
+    }
+
+    @Override
+    public void name(String name) throws IOException {
+        beforeValue();
+        writeString(name);
+        out.write(':');
+        afterName = true;
+    }
+
+    @Override
+    public void value(Object value) throws IOException {
+        if (value == null) {
+            beforeValue();
+            out.write("null");
+        } else if (value instanceof String || value instanceof Character) {
+            beforeValue();
+            writeString(value.toString());
+        } else if (value instanceof Enum) {
+            beforeValue();
+            writeString(((Enum<?>) value).name());
+        } else if (value instanceof Double || value instanceof Float) {
+            value(((Number) value).doubleValue());
+        } else if (value instanceof Number || value instanceof Boolean) {
+            beforeValue();
+            out.write(value.toString());
+        } else if (value instanceof Iterable) {
+            beginArray();
+            for (Object element : (Iterable<?>) value) {
+                value(element);
+            }
+            endArray();
+        } else if (value.getClass().isArray()) {
+            beginArray();
+            for (int i = 0, length = Array.getLength(value); i < length; i++) {
+                value(Array.get(value, i));
+            }
+            endArray();
+        } else if (value instanceof Map) {
+            beginObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                name(String.valueOf(entry.getKey()));
+                value(entry.getValue());
+            }
+            endObject();
+        } else {
+            beforeValue();
+            writeString(value.toString());
+        }
+    }
+
+    @Override
+    public void value(long value) throws IOException {
+        beforeValue();
+        out.write(Long.toString(value));
+    }
+
+    @Override
+    public void value(double value) throws IOException {
+        beforeValue();
+        out.write(Double.isNaN(value) || Double.isInfinite(value) ? "null" : Double.toString(value));
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    private void beforeValue() throws IOException {
+        if (afterName) {
+            afterName = false;
+        } else if (level > 0) {
+            if (hasMembers[level]) {
+                out.write(',');
+            }
+            hasMembers[level] = true;
+        }
+    }
+
+    private void enter() {
+        if (++level == hasMembers.length) {
+            hasMembers = Arrays.copyOf(hasMembers, level * 2);
+        }
+        hasMembers[level] = false;
+    }
+
+    private void writeString(String value) throws IOException {
+        out.write('"');
+        int start = 0;
+        for (int i = 0, length = value.length(); i < length; i++) {
+            final char c = value.charAt(i);
+            final String escape = c < 0x20 ? ESCAPES[c] : c == '"' ? "\\\"" : c == '\\' ? "\\\\" : null;
+            if (escape != null) {
+                out.write(value, start, i - start);
+                out.write(escape);
+                start = i + 1;
+            }
+        }
+        out.write(value, start, value.length() - start);
+        out.write('"');
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import org.apache.commons.beanutils.PropertyUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Default {@link PropertyAccessor} turning each getter and setter into a {@link Function} or
+ * {@link BiConsumer} via {@link LambdaMetafactory}. The resulting accessors are plain interface calls of
+ * generated classes which the JIT can inline into the projection loop. Properties of the types {@code long},
+ * {@code int} and {@code double} can also be accessed through primitive lambdas, which do not box their values.
+ * If a lambda cannot be created (e.g. on Java 8 where no private lookup into foreign classes is available)
+ * the accessor falls back to invoking a {@link MethodHandle} which is still considerably faster than reflection.
+ * @author Guido Laures
+ * @see PropertyAccessMode#lambda
+ */
+public class LambdaPropertyAccessor implements PropertyAccessor {
+
+    private static final MethodType READER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType WRITER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final Method PRIVATE_LOOKUP_IN = findPrivateLookupIn();
+
+    @Override
+    public Function<Object, Object> createReader(PropertyDescriptor property) {
+        final Method readMethod = accessibleMethod(PropertyUtils.getReadMethod(property), property);
+        final MethodHandle handle = unreflect(readMethod);
+        final Function<Object, Object> lambda = spin(readMethod, handle, Function.class, "apply", READER_TYPE,
+                MethodType.methodType(box(readMethod.getReturnType()), readMethod.getDeclaringClass()));
+        if (lambda != null) {
+            return lambda;
+        }
+        final MethodHandle genericHandle = handle.asType(READER_TYPE);
+        return bean -> {
+            try {
+                return genericHandle.invokeExact(bean);
+            } catch (final Throwable t) {
+                throw rethrow(t);
+            }
+        };
+    }
+
+    @Override
+    public BiConsumer<Object, Object> createWriter(PropertyDescriptor property) {
+        final Method writeMethod = accessibleMethod(PropertyUtils.getWriteMethod(property), property);
+        final MethodHandle handle = unreflect(writeMethod);
+        final BiConsumer<Object, Object> lambda = spin(writeMethod, handle, BiConsumer.class, "accept", WRITER_TYPE,
+                MethodType.methodType(void.class, writeMethod.getDeclaringClass(), box(writeMethod.getParameterTypes()[0])));
+        if (lambda != null) {
+            return lambda;
+        }
+        final MethodHandle genericHandle = handle.asType(WRITER_TYPE);
+        return (bean, value) -> {
+            try {
+                genericHandle.invokeExact(bean, value);
+            } catch (final Throwable t) {
+                throw rethrow(t);
+            }
+        };
+    }
+
+    @Override
+    public ToLongFunction<Object> createLongReader(PropertyDescriptor property) {
+        final Method readMethod = accessibleMethod(PropertyUtils.getReadMethod(property), property);
+        final MethodHandle handle = unreflect(readMethod);
+        final MethodType readerType = MethodType.methodType(long.class, Object.class);
+        final ToLongFunction<Object> lambda = spin(readMethod, handle, ToLongFunction.class, "applyAsLong", readerType,
+                readerType.changeParameterType(0, readMethod.getDeclaringClass()));
+        if (lambda != null) {
+            return lambda;
+        }
+        final MethodHandle genericHandle = handle.asType(readerType);
+        return bean -> {
+            try {
+                return (long) genericHandle.invokeExact(bean);
+            } catch (final Throwable t) {
+                throw rethrow(t);
+            }
+        };
+    }
+
+    @Override
+    public ObjLongConsumer<Object> createLongWriter(PropertyDescriptor property) {
+        final Method writeMethod = accessibleMethod(PropertyUtils.getWriteMethod(property), property);
+        final MethodHandle handle = unreflect(writeMethod);
+        final MethodType writerType = MethodType.methodType(void.class, Object.class, long.class);
+        final ObjLongConsumer<Object> lambda = spin(writeMethod, handle, ObjLongConsumer.class, "accept", writerType,
+                writerType.changeParameterType(0, writeMethod.getDeclaringClass()));
+        if (lambda != null) {
+            return lambda;
+        }
+        final MethodHandle genericHandle = handle.asType(writerType);
+        return (bean, value) -> {
+            try {
+                genericHandle.invokeExact(bean, value);
+            } catch (final Throwable t) {
+                throw rethrow(t);
+            }
+        };
+    }
+
+    @Override
+    public ToIntFunction<Object> createIntReader(PropertyDescriptor property) {
+        final Method readMethod = accessibleMethod(PropertyUtils.getReadMethod(property), property);
+        final MethodHandle handle = unreflect(readMethod);
+        final MethodType readerType = MethodType.methodType(int.class, Object.class);
+        final ToIntFunction<Object> lambda = spin(readMethod, handle, ToIntFunction.class, "applyAsInt", readerType,
+                readerType.changeParameterType(0, readMethod.getDeclaringClass()));
+        if (lambda != null) {
+            return lambda;
+        }
+        final MethodHandle genericHandle = handle.asType(readerType);
+        return bean -> {
+            try {
+                return (int) genericHandle.invokeExact(bean);
+            } catch (final Throwable t) {
+                throw rethrow(t);
+            }
+        };
+    }
+
+    @Override
+    public ObjIntConsumer<Object> createIntWriter(PropertyDescriptor property) {
+        final Method writeMethod = accessibleMethod(PropertyUtils.getWriteMethod(property), property);
+        final MethodHandle handle = unreflect(writeMethod);
+        final MethodType writerType = MethodType.methodType(void.class, Object.class, int.class);
+        final ObjIntConsumer<Object> lambda = spin(writeMethod, handle, ObjIntConsumer.class, "accept", writerType,
+                writerType.changeParameterType(0, writeMethod.getDeclaringClass()));
+        if (lambda != null) {
+            return lambda;
+        }
+        final MethodHandle genericHandle = handle.asType(writerType);
+        return (bean, value) -> {
+            try {
+                genericHandle.invokeExact(bean, value);
+            } catch (final Throwable t) {
+                throw rethrow(t);
+            }
+        };
+    }
+
+    @Override
+    public ToDoubleFunction<Object> createDoubleReader(PropertyDescriptor property) {
+        final Method readMethod = accessibleMethod(PropertyUtils.getReadMethod(property), property);
+        final MethodHandle handle = unreflect(readMethod);
+        final MethodType readerType = MethodType.methodType(double.class, Object.class);
+        final ToDoubleFunction<Object> lambda = spin(readMethod, handle, ToDoubleFunction.class, "applyAsDouble", readerType,
+                readerType.changeParameterType(0, readMethod.getDeclaringClass()));
+        if (lambda != null) {
+            return lambda;
+        }
+        final MethodHandle genericHandle = handle.asType(readerType);
+        return bean -> {
+            try {
+                return (double) genericHandle.invokeExact(bean);
+            } catch (final Throwable t) {
+                throw rethrow(t);
+            }
+        };
+    }
+
+    @Override
+    public ObjDoubleConsumer<Object> createDoubleWriter(PropertyDescriptor property) {
+        final Method writeMethod = accessibleMethod(PropertyUtils.getWriteMethod(property), property);
+        final MethodHandle handle = unreflect(writeMethod);
+        final MethodType writerType = MethodType.methodType(void.class, Object.class, double.class);
+        final ObjDoubleConsumer<Object> lambda = spin(writeMethod, handle, ObjDoubleConsumer.class, "accept", writerType,
+                writerType.changeParameterType(0, writeMethod.getDeclaringClass()));
+        if (lambda != null) {
+            return lambda;
+        }
+        final MethodHandle genericHandle = handle.asType(writerType);
+        return (bean, value) -> {
+            try {
+                genericHandle.invokeExact(bean, value);
+            } catch (final Throwable t) {
+                throw rethrow(t);
+            }
+        };
+    }
+
+    /**
+     * Spins a lambda implementing the functional interface by calling the accessor method.
+     * @return the lambda or null if it cannot be created
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <F> F spin(Method method, MethodHandle handle, Class functionalInterface, String interfaceMethodName,
+                              MethodType interfaceMethodType, MethodType instantiatedMethodType) {
+        final MethodHandles.Lookup lookup = privateLookupIn(method.getDeclaringClass());
+        if (lookup == null) {
+            return null;
+        }
+        try {
+            final CallSite site = LambdaMetafactory.metafactory(lookup, interfaceMethodName,
+                    MethodType.methodType(functionalInterface), interfaceMethodType, handle, instantiatedMethodType);
+            return (F) site.getTarget().invoke();
+        } catch (final Throwable t) {
+            // fall back to the method handle
+            return null;
+        }
+    }
+
+    private static Method accessibleMethod(Method method, PropertyDescriptor property) {
+        if (method == null) {
+            throw new IllegalArgumentException("Property '" + property.getName() + "' is not accessible");
+        }
+        return method;
+    }
+
+    private static MethodHandle unreflect(Method method) {
+        try {
+            return MethodHandles.publicLookup().unreflect(method);
+        } catch (final IllegalAccessException e) {
+            throw new IllegalArgumentException("Cannot access " + method, e);
+        }
+    }
+
+    private static Class<?> box(Class<?> type) {
+        return MethodType.methodType(type).wrap().returnType();
+    }
+
+    /**
+     * Lambdas can only be spun with a lookup having private access to the class declaring the accessor method.
+     * {@code MethodHandles.privateLookupIn} is only available on Java 9+ and is therefore called reflectively.
+     */
+    private static MethodHandles.Lookup privateLookupIn(Class<?> declaringClass) {
+        if (PRIVATE_LOOKUP_IN == null) {
+            return null;
+        }
+        try {
+            return (MethodHandles.Lookup) PRIVATE_LOOKUP_IN.invoke(null, declaringClass, MethodHandles.lookup());
+        } catch (final Exception e) {
+            return null;
+        }
+    }
+
+    private static Method findPrivateLookupIn() {
+        try {
+            return MethodHandles.class.getMethod("privateLookupIn", Class.class, MethodHandles.Lookup.class);
+        } catch (final NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException) {
+            return (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return new RuntimeException(t);
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Sets a proxy onto the target property projecting the source object's property value on first access.
+ * @author Guido Laures
+ * @see ProjectionType#projection
+ * @see Projection#lazy()
+ */
+final class LazyNestedProjectionStep extends ProjectionStep {
+
+    private final Class<?> projectionClass;
+
+    LazyNestedProjectionStep(String propertyName, String sourcePropertyName, Function<Object, Object> sourceReader, Function<Object, Object> targetReader, BiConsumer<Object, Object> targetWriter, Class<?> projectionClass) {
+        super(ProjectionType.projection, propertyName, sourcePropertyName, sourceReader, targetReader, targetWriter);
+        this.projectionClass = projectionClass;
+        // generates the proxy class while the plan is built
+        try {
+            LazyProjectionProxies.check(projectionClass);
+        } catch (final NoClassDefFoundError e) {
+            throw new IllegalStateException("Lazy projections require Byte Buddy (net.bytebuddy:byte-buddy) on the class path", e);
+        }
+    }
+
+    @Override
+    void apply(Object source, Object target, ProjectionContext context) throws Exception {
+        if (context.isMaxDepthReached()) {
+            return;
+        }
+        Object sourceValueObject = sourceReader.apply(source);
+        if (sourceValueObject != null) {
+            if (!context.isLoaded(sourceValueObject)) {
+                applyUnloaded(target, sourceValueObject, projectionClass, context);
+                return;
+            }
+            final Object projectionOfSourceValueObject = context.projectLazily(sourceValueObject, projectionClass);
+            if (projectionOfSourceValueObject != null) {
+                targetWriter.accept(target, projectionOfSourceValueObject);
+            }
+        }
+    }
+
+    @Override
+    void update(Object source, Object target, ProjectionUpdate update) throws Exception {
+        NestedProjectionStep.update(this, source, target, update, projectionClass, true);
+    }
+
+    @Override
+    void write(Object source, ProjectionWriter writer) throws Exception {
+        NestedProjectionStep.write(this, source, writer, projectionClass);
+    }
+
+    @Override
+    Class<?> getProjectionClass() {
+        return projectionClass;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Sets a list onto the target property projecting the entries of the source object's collection on first access.
+ * @author Guido Laures
+ * @see ProjectionType#projectionCollection
+ * @see Projection#lazy()
+ */
+final class LazyProjectionCollectionProjectionStep extends ProjectionStep {
+
+    private final Class<?> elementProjectionClass;
+
+    LazyProjectionCollectionProjectionStep(String propertyName, String sourcePropertyName, Function<Object, Object> sourceReader, BiConsumer<Object, Object> targetWriter, Class<?> elementProjectionClass) {
+        super(ProjectionType.projectionCollection, propertyName, sourcePropertyName, sourceReader, targetWriter);
+        this.elementProjectionClass = elementProjectionClass;
+    }
+
+    @Override
+    void apply(Object source, Object target, ProjectionContext context) throws Exception {
+        if (context.isMaxDepthReached()) {
+            return;
+        }
+        Collection<?> sourceCollection = (Collection<?>) sourceReader.apply(source);
+        if (sourceCollection != null) {
+            if (!context.isLoaded(sourceCollection)) {
+                applyUnloaded(target, sourceCollection, null, context);
+                return;
+            }
+            final List<?> projections = context.projectCollectionLazily(sourceCollection, elementProjectionClass);
+            targetWriter.accept(target, projections);
+            context.collectionProjected(this, projections.size());
+        }
+    }
+
+    /**
+     * Lazy lists cannot be modified, a new one replacing the target object's list is always counted as a change.
+     */
+    @Override
+    void update(Object source, Object target, ProjectionUpdate update) throws Exception {
+        Collection<?> sourceCollection = (Collection<?>) sourceReader.apply(source);
+        if (sourceCollection != null && update.getContext().isLoaded(sourceCollection)) {
+            targetWriter.accept(target, update.getContext().projectCollectionLazily(sourceCollection, elementProjectionClass));
+            update.changed(getPropertyName());
+        }
+    }
+
+    @Override
+    void write(Object source, ProjectionWriter writer) throws Exception {
+        ProjectionCollectionProjectionStep.write(this, source, writer, elementProjectionClass);
+    }
+
+    @Override
+    Class<?> getProjectionClass() {
+        return elementProjectionClass;
+    }
+}
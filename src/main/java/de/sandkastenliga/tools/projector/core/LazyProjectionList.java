@@ -0,0 +1,96 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * An unmodifiable list projecting the elements of a source collection when they are accessed first.
+ * The size of the list is known without projecting any element. All elements are projected with one
+ * {@link ProjectionContext} created on first access, so source objects contained several times share
+ * their projection.
+ * @author Guido Laures
+ * @see ProjectionContext#projectCollectionLazily(Collection, Class)
+ */
+final class LazyProjectionList<T> extends AbstractList<T> implements RandomAccess {
+
+    private final Projector projector;
+    private final String profile;
+    private final int depth;
+    private final Class<T> elementProjectionClass;
+    private final int size;
+    /**
+     * Random access lists are read directly, all other collections are copied on first access.
+     */
+    private Collection<?> sourceCollection;
+    private List<?> sources;
+    private Object[] projections;
+    private boolean[] projected;
+    private int projectedCount;
+    private ProjectionContext context;
+
+    /**
+     * @param profile the profile of the projections or null
+     * @param depth   the depth of the projection the list is nested in
+     */
+    LazyProjectionList(Projector projector, String profile, int depth, Collection<?> sources, Class<T> elementProjectionClass) {
+        this.projector = projector;
+        this.profile = profile;
+        this.depth = depth;
+        this.elementProjectionClass = elementProjectionClass;
+        this.size = sources.size();
+        if (sources instanceof List && sources instanceof RandomAccess) {
+            this.sources = (List<?>) sources;
+        } else {
+            this.sourceCollection = sources;
+        }
+    }
+
+    @Override
+    public synchronized T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (projections == null) {
+            projections = new Object[size];
+            projected = new boolean[size];
+            context = new ProjectionContext(projector, profile, projector.getProjectionListener(), depth);
+            if (sources == null) {
+                sources = Arrays.asList(sourceCollection.toArray());
+                sourceCollection = null;
+            }
+        }
+        if (!projected[index]) {
+            final Object source = sources.get(index);
+            projections[index] = source == null ? null : context.project(source, elementProjectionClass);
+            projected[index] = true;
+            if (++projectedCount == size) {
+                // all elements are projected, the source objects and the context are not needed anymore
+                sources = null;
+                context = null;
+            }
+        }
+        return elementProjectionClass.cast(projections[index]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.asm.Advice;
+import net.bytebuddy.description.modifier.FieldPersistence;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
+import net.bytebuddy.implementation.SuperMethodCall;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.function.Consumer;
+
+import static net.bytebuddy.matcher.ElementMatchers.isDeclaredBy;
+import static net.bytebuddy.matcher.ElementMatchers.isFinal;
+import static net.bytebuddy.matcher.ElementMatchers.isPublic;
+import static net.bytebuddy.matcher.ElementMatchers.isStatic;
+import static net.bytebuddy.matcher.ElementMatchers.not;
+
+/**
+ * Creates the proxies of lazy projections (see {@link Projection#lazy()}). A proxy class is generated once per
+ * projection class as a subclass overriding all of its public methods. Each proxy holds an initializer in a
+ * transient field that projects the source object onto the proxy before the first overridden method is executed.
+ * Byte Buddy is an optional dependency, it is only loaded with this class.
+ * @author Guido Laures
+ */
+final class LazyProjectionProxies {
+
+    private static final String INITIALIZER_FIELD_NAME = "$lazyProjection";
+
+    private static final ClassValue<LazyProjectionProxies> PROXIES = new ClassValue<LazyProjectionProxies>() {
+        @Override
+        protected LazyProjectionProxies computeValue(Class<?> projectionClass) {
+            return new LazyProjectionProxies(projectionClass);
+        }
+    };
+
+    private final MethodHandle constructor;
+    private final MethodHandle initializerSetter;
+
+    private LazyProjectionProxies(Class<?> projectionClass) {
+        if (Modifier.isFinal(projectionClass.getModifiers())) {
+            throw new IllegalStateException("Cannot project lazily onto final class '" + projectionClass + "'");
+        }
+        final Class<?> proxyClass = new ByteBuddy()
+                .subclass(projectionClass)
+                .defineField(INITIALIZER_FIELD_NAME, Consumer.class, Visibility.PRIVATE, FieldPersistence.TRANSIENT)
+                .method(isPublic().and(not(isStatic())).and(not(isFinal())).and(not(isDeclaredBy(Object.class))))
+                .intercept(Advice.to(InitializationAdvice.class).wrap(SuperMethodCall.INSTANCE))
+                .make()
+                .load(projectionClass.getClassLoader(), ClassLoadingStrategy.Default.WRAPPER)
+                .getLoaded();
+        try {
+            final Field initializerField = proxyClass.getDeclaredField(INITIALIZER_FIELD_NAME);
+            initializerField.setAccessible(true);
+            final MethodHandles.Lookup lookup = MethodHandles.lookup();
+            this.constructor = lookup.findConstructor(proxyClass, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Object.class));
+            this.initializerSetter = lookup.unreflectSetter(initializerField)
+                    .asType(MethodType.methodType(void.class, Object.class, Consumer.class));
+        } catch (final ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create lazy projection proxies for class '" + projectionClass + "'", e);
+        }
+    }
+
+    /**
+     * Makes sure the proxy class of the projection class can be generated.
+     * @throws IllegalStateException if the projection class cannot be proxied
+     */
+    static void check(Class<?> projectionClass) {
+        PROXIES.get(projectionClass);
+    }
+
+    /**
+     * @param profile the profile of the lazy projection or null
+     * @param depth   the depth of the projection the lazy projection is nested in
+     * @return a new proxy projecting the source object onto itself on first access
+     */
+    static <T> T create(Projector projector, String profile, int depth, Object source, Class<T> projectionClass) {
+        final LazyProjectionProxies proxies = PROXIES.get(projectionClass);
+        try {
+            final Object proxy = proxies.constructor.invokeExact();
+            proxies.initializerSetter.invokeExact(proxy, (Consumer) new Initializer<T>(projector, profile, depth, source, projectionClass));
+            return projectionClass.cast(proxy);
+        } catch (final RuntimeException | Error e) {
+            throw e;
+        } catch (final Throwable t) {
+            throw new IllegalStateException("Cannot create lazy projection of class '" + projectionClass + "'", t);
+        }
+    }
+
+    /**
+     * Inlined into each overridden method of a proxy class. The initializer is not set yet while the constructor
+     * of the projection class runs.
+     */
+    static final class InitializationAdvice {
+
+        @Advice.OnMethodEnter
+        static void enter(@Advice.This Object proxy, @Advice.FieldValue(INITIALIZER_FIELD_NAME) Consumer<Object> initializer) {
+            if (initializer != null) {
+                initializer.accept(proxy);
+            }
+        }
+    }
+
+    /**
+     * Projects the source object onto the proxy once. Other threads accessing the proxy wait until it is
+     * initialized, methods called on the proxy while it is being initialized by the same thread (e.g. the setters
+     * called by the projection) are passed through.
+     */
+    private static final class Initializer<T> implements Consumer<Object> {
+
+        private final Projector projector;
+        private final String profile;
+        private final int depth;
+        private final Class<T> projectionClass;
+        private Object source;
+        private boolean initializing;
+        private volatile boolean initialized;
+
+        Initializer(Projector projector, String profile, int depth, Object source, Class<T> projectionClass) {
+            this.projector = projector;
+            this.profile = profile;
+            this.depth = depth;
+            this.source = source;
+            this.projectionClass = projectionClass;
+        }
+
+        @Override
+        public void accept(Object proxy) {
+            if (initialized) {
+                return;
+            }
+            synchronized (this) {
+                if (initialized || initializing) {
+                    return;
+                }
+                initializing = true;
+                try {
+                    new ProjectionContext(projector, profile, projector.getProjectionListener(), depth)
+                            .projectInto(source, projectionClass.cast(proxy), projector.getPlan(source.getClass(), projectionClass, profile));
+                    // the source object is not needed anymore and must not be kept from being garbage collected
+                    source = null;
+                    initialized = true;
+                } catch (final RuntimeException e) {
+                    throw e;
+                } catch (final Exception e) {
+                    throw new RuntimeException(e);
+                } finally {
+                    initializing = false;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+/**
+ * Tells the {@link Projector} whether associations of source objects have been loaded, so projecting them does not
+ * load them accidentally (e.g. lazy associations of JPA entities, which would be loaded one by one). Unloaded
+ * associations are handled according to the {@link UnloadedAssociationPolicy}.
+ * @author Guido Laures
+ * @see Projector#setLoadStateResolver(LoadStateResolver)
+ * @see PersistenceLoadStateResolver
+ */
+public interface LoadStateResolver {
+
+    /**
+     * @param value the value of an association, e.g. a lazy proxy of an entity or a lazy collection
+     * @return true if the value has been loaded and can be read without loading it
+     */
+    boolean isLoaded(Object value);
+
+    /**
+     * @param entity an unloaded entity
+     * @return the name of the entity's identifier property or null if its identifier cannot be read without loading it
+     */
+    default String getIdentifierName(Object entity) {
+        return null;
+    }
+
+    /**
+     * @param entity an unloaded entity with a known {@link #getIdentifierName(Object) identifier name}
+     * @return the identifier of the entity, read without loading it
+     */
+    default Object getIdentifier(Object entity) {
+        return null;
+    }
+}
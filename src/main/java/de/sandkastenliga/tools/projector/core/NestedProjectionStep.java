@@ -0,0 +1,110 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+
+/**
+ * Projects the source object's property value onto the target property's type.
+ * @author Guido Laures
+ * @see ProjectionType#projection
+ */
+final class NestedProjectionStep extends ProjectionStep {
+
+    private final Class<?> projectionClass;
+
+    NestedProjectionStep(String propertyName, String sourcePropertyName, Function<Object, Object> sourceReader, Function<Object, Object> targetReader, BiConsumer<Object, Object> targetWriter, Class<?> projectionClass) {
+        super(ProjectionType.projection, propertyName, sourcePropertyName, sourceReader, targetReader, targetWriter);
+        this.projectionClass = projectionClass;
+    }
+
+    @Override
+    void apply(Object source, Object target, ProjectionContext context) throws Exception {
+        if (context.isMaxDepthReached()) {
+            return;
+        }
+        Object sourceValueObject = sourceReader.apply(source);
+        if (sourceValueObject != null) {
+            if (!context.isLoaded(sourceValueObject)) {
+                applyUnloaded(target, sourceValueObject, projectionClass, context);
+                return;
+            }
+            final Object projectionOfSourceValueObject = context.projectNested(sourceValueObject, projectionClass);
+            if (projectionOfSourceValueObject != null) {
+                targetWriter.accept(target, projectionOfSourceValueObject);
+            }
+        }
+    }
+
+    @Override
+    void update(Object source, Object target, ProjectionUpdate update) throws Exception {
+        update(this, source, target, update, projectionClass, false);
+    }
+
+    /**
+     * Updates the projection of the source object's property value. The projection the target object holds is
+     * updated in place if it is an instance of the projection class, otherwise a new projection is set.
+     * A null property value of the source object sets the target property to null, unloaded values are skipped.
+     */
+    static void update(ProjectionStep step, Object source, Object target, ProjectionUpdate update, Class<?> projectionClass, boolean lazy) throws Exception {
+        final Object sourceValueObject = step.sourceReader.apply(source);
+        final Object current = step.targetReader == null ? null : step.targetReader.apply(target);
+        if (sourceValueObject == null) {
+            if (current != null || step.targetReader == null) {
+                step.targetWriter.accept(target, null);
+                update.changed(step.getPropertyName());
+            }
+            return;
+        }
+        if (!update.getContext().isLoaded(sourceValueObject)) {
+            return;
+        }
+        final Object projection = update.updateNested(sourceValueObject, current, projectionClass, step.getPropertyName(), -1, lazy);
+        if (projection != null && projection != current) {
+            step.targetWriter.accept(target, projection);
+            update.changed(step.getPropertyName());
+        }
+    }
+
+    @Override
+    void write(Object source, ProjectionWriter writer) throws Exception {
+        write(this, source, writer, projectionClass);
+    }
+
+    /**
+     * Writes the projection of the source object's property value as an object, lazy projections are written the
+     * same way.
+     */
+    static void write(ProjectionStep step, Object source, ProjectionWriter writer, Class<?> projectionClass) throws Exception {
+        if (writer.isMaxDepthReached()) {
+            return;
+        }
+        final Object sourceValueObject = step.sourceReader.apply(source);
+        if (sourceValueObject != null) {
+            if (!writer.getContext().isLoaded(sourceValueObject)) {
+                step.writeUnloaded(sourceValueObject, projectionClass, writer);
+                return;
+            }
+            writer.writeNested(step.getPropertyName(), sourceValueObject, projectionClass);
+        }
+    }
+
+    @Override
+    Class<?> getProjectionClass() {
+        return projectionClass;
+    }
+}
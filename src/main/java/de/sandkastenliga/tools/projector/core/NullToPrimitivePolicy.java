@@ -0,0 +1,37 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+/**
+ * Tells the {@link Projector} what to do if a null value (e.g. of a {@code Long} property of the source object)
+ * is projected onto a property of a primitive type (e.g. {@code long}).
+ * @see Projector#setNullToPrimitivePolicy(NullToPrimitivePolicy)
+ * @author Guido Laures
+ */
+public enum NullToPrimitivePolicy {
+
+    /**
+     * Throw an {@link IllegalArgumentException}. This is the default.
+     */
+    fail,
+    /**
+     * Do not project the property, leaving the value the target object was initialized with.
+     */
+    skip,
+    /**
+     * Project the default value of the primitive type (0 or false).
+     */
+    defaultValue
+}
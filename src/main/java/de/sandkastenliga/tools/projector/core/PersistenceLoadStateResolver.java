@@ -0,0 +1,85 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import javax.persistence.PersistenceUnitUtil;
+import javax.persistence.PersistenceUtil;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.Metamodel;
+
+/**
+ * A {@link LoadStateResolver} using the load state of the JPA provider. Created with the entity manager factory
+ * of the persistence unit, it also reads the identifiers of unloaded entities without loading them.
+ * JPA (the {@code javax.persistence} API) is an optional dependency, it is only loaded with this class.
+ * @author Guido Laures
+ */
+public class PersistenceLoadStateResolver implements LoadStateResolver {
+
+    private final PersistenceUtil persistenceUtil;
+    private final PersistenceUnitUtil persistenceUnitUtil;
+    private final ClassValue<String> identifierNames;
+
+    /**
+     * Creates a resolver asking all JPA providers on the class path for load states, which cannot read identifiers.
+     */
+    public PersistenceLoadStateResolver() {
+        this.persistenceUtil = Persistence.getPersistenceUtil();
+        this.persistenceUnitUtil = null;
+        this.identifierNames = null;
+    }
+
+    /**
+     * Creates a resolver for the entities of one persistence unit.
+     * @param entityManagerFactory the entity manager factory of the persistence unit
+     */
+    public PersistenceLoadStateResolver(final EntityManagerFactory entityManagerFactory) {
+        this.persistenceUnitUtil = entityManagerFactory.getPersistenceUnitUtil();
+        this.persistenceUtil = persistenceUnitUtil;
+        final Metamodel metamodel = entityManagerFactory.getMetamodel();
+        this.identifierNames = new ClassValue<String>() {
+            @Override
+            protected String computeValue(Class<?> type) {
+                // proxies are subclasses of their entity classes
+                for (Class<?> entityClass = type; entityClass != null; entityClass = entityClass.getSuperclass()) {
+                    final EntityType<?> entityType;
+                    try {
+                        entityType = metamodel.entity(entityClass);
+                    } catch (final IllegalArgumentException e) {
+                        continue;
+                    }
+                    return entityType.hasSingleIdAttribute() ? entityType.getId(entityType.getIdType().getJavaType()).getName() : null;
+                }
+                return null;
+            }
+        };
+    }
+
+    @Override
+    public boolean isLoaded(Object value) {
+        return persistenceUtil.isLoaded(value);
+    }
+
+    @Override
+    public String getIdentifierName(Object entity) {
+        return identifierNames == null ? null : identifierNames.get(entity.getClass());
+    }
+
+    @Override
+    public Object getIdentifier(Object entity) {
+        return persistenceUnitUtil == null ? null : persistenceUnitUtil.getIdentifier(entity);
+    }
+}
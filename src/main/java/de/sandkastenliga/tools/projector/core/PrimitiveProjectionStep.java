@@ -0,0 +1,370 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import org.apache.commons.beanutils.PropertyUtils;
+
+import java.beans.PropertyDescriptor;
+import java.util.function.Function;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Copies the value of the source object's primitive property onto the target object's property of the same
+ * primitive type without boxing it. Values of the wrapper type (e.g. a {@code Long} onto a {@code long}) are unboxed
+ * once they are read and null values are handled according to the {@link NullToPrimitivePolicy}. There is one
+ * subclass per supported primitive type, so each step's call sites only ever see one kind of accessor.
+ * Properties of type {@code boolean} and {@code float} are not supported, they are copied by an {@link AsIsProjectionStep}.
+ * @author Guido Laures
+ * @see ProjectionType#asIs
+ */
+abstract class PrimitiveProjectionStep extends ProjectionStep {
+
+    PrimitiveProjectionStep(String propertyName, String sourcePropertyName) {
+        super(ProjectionType.asIs, propertyName, sourcePropertyName, null, null);
+    }
+
+    /**
+     * @return true if properties of the given type can be projected by a primitive step
+     */
+    static boolean isSupported(Class<?> type) {
+        return type == long.class || type == int.class || type == double.class;
+    }
+
+    /**
+     * @return the step projecting the source property of a {@link #isSupported(Class) supported} primitive type
+     * onto the target property of the same type
+     */
+    static PrimitiveProjectionStep create(PropertyDescriptor targetProperty, PropertyDescriptor sourceProperty, PropertyAccessor propertyAccessor) {
+        final Class<?> type = targetProperty.getPropertyType();
+        final String propertyName = targetProperty.getName();
+        final String sourcePropertyName = sourceProperty.getName();
+        // the target property is read to detect changes when updating projections
+        final boolean readable = PropertyUtils.getReadMethod(targetProperty) != null;
+        if (type == long.class) {
+            return new LongProjectionStep(propertyName, sourcePropertyName, propertyAccessor.createLongReader(sourceProperty),
+                    readable ? propertyAccessor.createLongReader(targetProperty) : null, propertyAccessor.createLongWriter(targetProperty));
+        }
+        if (type == int.class) {
+            return new IntProjectionStep(propertyName, sourcePropertyName, propertyAccessor.createIntReader(sourceProperty),
+                    readable ? propertyAccessor.createIntReader(targetProperty) : null, propertyAccessor.createIntWriter(targetProperty));
+        }
+        if (type == double.class) {
+            return new DoubleProjectionStep(propertyName, sourcePropertyName, propertyAccessor.createDoubleReader(sourceProperty),
+                    readable ? propertyAccessor.createDoubleReader(targetProperty) : null, propertyAccessor.createDoubleWriter(targetProperty));
+        }
+        throw new IllegalArgumentException("Unsupported primitive type " + type);
+    }
+
+    /**
+     * @return the step projecting the source property of the wrapper type of a {@link #isSupported(Class) supported}
+     * primitive type onto the target property of the primitive type
+     */
+    static PrimitiveProjectionStep createUnboxing(Class<?> targetClass, PropertyDescriptor targetProperty, PropertyDescriptor sourceProperty,
+                                                  PropertyAccessor propertyAccessor, NullToPrimitivePolicy nullToPrimitivePolicy) {
+        final Class<?> type = targetProperty.getPropertyType();
+        final String propertyName = targetProperty.getName();
+        final String sourcePropertyName = sourceProperty.getName();
+        final Function<Object, Object> reader = propertyAccessor.createReader(sourceProperty);
+        final boolean readable = PropertyUtils.getReadMethod(targetProperty) != null;
+        if (type == long.class) {
+            return new UnboxingLongProjectionStep(targetClass, propertyName, sourcePropertyName, reader, nullToPrimitivePolicy,
+                    readable ? propertyAccessor.createLongReader(targetProperty) : null, propertyAccessor.createLongWriter(targetProperty));
+        }
+        if (type == int.class) {
+            return new UnboxingIntProjectionStep(targetClass, propertyName, sourcePropertyName, reader, nullToPrimitivePolicy,
+                    readable ? propertyAccessor.createIntReader(targetProperty) : null, propertyAccessor.createIntWriter(targetProperty));
+        }
+        if (type == double.class) {
+            return new UnboxingDoubleProjectionStep(targetClass, propertyName, sourcePropertyName, reader, nullToPrimitivePolicy,
+                    readable ? propertyAccessor.createDoubleReader(targetProperty) : null, propertyAccessor.createDoubleWriter(targetProperty));
+        }
+        throw new IllegalArgumentException("Unsupported primitive type " + type);
+    }
+
+    private static final class LongProjectionStep extends PrimitiveProjectionStep {
+
+        private final ToLongFunction<Object> reader;
+        private final ToLongFunction<Object> targetReader;
+        private final ObjLongConsumer<Object> writer;
+
+        LongProjectionStep(String propertyName, String sourcePropertyName, ToLongFunction<Object> reader, ToLongFunction<Object> targetReader, ObjLongConsumer<Object> writer) {
+            super(propertyName, sourcePropertyName);
+            this.reader = reader;
+            this.targetReader = targetReader;
+            this.writer = writer;
+        }
+
+        @Override
+        void apply(Object source, Object target, ProjectionContext context) {
+            writer.accept(target, reader.applyAsLong(source));
+        }
+
+        @Override
+        void update(Object source, Object target, ProjectionUpdate update) {
+            final long value = reader.applyAsLong(source);
+            if (targetReader == null || value != targetReader.applyAsLong(target)) {
+                writer.accept(target, value);
+                update.changed(getPropertyName());
+            }
+        }
+
+        @Override
+        void write(Object source, ProjectionWriter writer) throws Exception {
+            writer.getSink().name(getPropertyName());
+            writer.getSink().value(reader.applyAsLong(source));
+        }
+    }
+
+    private static final class IntProjectionStep extends PrimitiveProjectionStep {
+
+        private final ToIntFunction<Object> reader;
+        private final ToIntFunction<Object> targetReader;
+        private final ObjIntConsumer<Object> writer;
+
+        IntProjectionStep(String propertyName, String sourcePropertyName, ToIntFunction<Object> reader, ToIntFunction<Object> targetReader, ObjIntConsumer<Object> writer) {
+            super(propertyName, sourcePropertyName);
+            this.reader = reader;
+            this.targetReader = targetReader;
+            this.writer = writer;
+        }
+
+        @Override
+        void apply(Object source, Object target, ProjectionContext context) {
+            writer.accept(target, reader.applyAsInt(source));
+        }
+
+        @Override
+        void update(Object source, Object target, ProjectionUpdate update) {
+            final int value = reader.applyAsInt(source);
+            if (targetReader == null || value != targetReader.applyAsInt(target)) {
+                writer.accept(target, value);
+                update.changed(getPropertyName());
+            }
+        }
+
+        @Override
+        void write(Object source, ProjectionWriter writer) throws Exception {
+            writer.getSink().name(getPropertyName());
+            writer.getSink().value(reader.applyAsInt(source));
+        }
+    }
+
+    private static final class DoubleProjectionStep extends PrimitiveProjectionStep {
+
+        private final ToDoubleFunction<Object> reader;
+        private final ToDoubleFunction<Object> targetReader;
+        private final ObjDoubleConsumer<Object> writer;
+
+        DoubleProjectionStep(String propertyName, String sourcePropertyName, ToDoubleFunction<Object> reader, ToDoubleFunction<Object> targetReader, ObjDoubleConsumer<Object> writer) {
+            super(propertyName, sourcePropertyName);
+            this.reader = reader;
+            this.targetReader = targetReader;
+            this.writer = writer;
+        }
+
+        @Override
+        void apply(Object source, Object target, ProjectionContext context) {
+            writer.accept(target, reader.applyAsDouble(source));
+        }
+
+        @Override
+        void update(Object source, Object target, ProjectionUpdate update) {
+            final double value = reader.applyAsDouble(source);
+            if (targetReader == null || Double.compare(value, targetReader.applyAsDouble(target)) != 0) {
+                writer.accept(target, value);
+                update.changed(getPropertyName());
+            }
+        }
+
+        @Override
+        void write(Object source, ProjectionWriter writer) throws Exception {
+            writer.getSink().name(getPropertyName());
+            writer.getSink().value(reader.applyAsDouble(source));
+        }
+    }
+
+    /**
+     * Reads the value of the wrapper type and handles null values.
+     */
+    private abstract static class UnboxingProjectionStep extends PrimitiveProjectionStep {
+
+        final Function<Object, Object> reader;
+        private final Class<?> targetClass;
+        private final NullToPrimitivePolicy nullToPrimitivePolicy;
+
+        UnboxingProjectionStep(Class<?> targetClass, String propertyName, String sourcePropertyName, Function<Object, Object> reader,
+                               NullToPrimitivePolicy nullToPrimitivePolicy) {
+            super(propertyName, sourcePropertyName);
+            this.targetClass = targetClass;
+            this.reader = reader;
+            this.nullToPrimitivePolicy = nullToPrimitivePolicy;
+        }
+
+        /**
+         * @return true if a null value is projected as the default value, false if it is not projected
+         */
+        boolean projectNull() {
+            switch (nullToPrimitivePolicy) {
+                case skip:
+                    return false;
+                case defaultValue:
+                    return true;
+                default:
+                    throw new IllegalArgumentException("Cannot project null onto primitive property '" + getPropertyName()
+                            + "' of class '" + targetClass + "'");
+            }
+        }
+    }
+
+    private static final class UnboxingLongProjectionStep extends UnboxingProjectionStep {
+
+        private final ToLongFunction<Object> targetReader;
+        private final ObjLongConsumer<Object> writer;
+
+        UnboxingLongProjectionStep(Class<?> targetClass, String propertyName, String sourcePropertyName, Function<Object, Object> reader,
+                                   NullToPrimitivePolicy nullToPrimitivePolicy, ToLongFunction<Object> targetReader, ObjLongConsumer<Object> writer) {
+            super(targetClass, propertyName, sourcePropertyName, reader, nullToPrimitivePolicy);
+            this.targetReader = targetReader;
+            this.writer = writer;
+        }
+
+        @Override
+        void apply(Object source, Object target, ProjectionContext context) {
+            final Long value = (Long) reader.apply(source);
+            if (value != null) {
+                writer.accept(target, value);
+            } else if (projectNull()) {
+                writer.accept(target, 0L);
+            }
+        }
+
+        @Override
+        void update(Object source, Object target, ProjectionUpdate update) {
+            final Long boxedValue = (Long) reader.apply(source);
+            if (boxedValue == null && !projectNull()) {
+                return;
+            }
+            final long value = boxedValue == null ? 0L : boxedValue;
+            if (targetReader == null || value != targetReader.applyAsLong(target)) {
+                writer.accept(target, value);
+                update.changed(getPropertyName());
+            }
+        }
+
+        @Override
+        void write(Object source, ProjectionWriter writer) throws Exception {
+            final Long value = (Long) reader.apply(source);
+            if (value != null || projectNull()) {
+                writer.getSink().name(getPropertyName());
+                writer.getSink().value(value == null ? 0L : value);
+            }
+        }
+    }
+
+    private static final class UnboxingIntProjectionStep extends UnboxingProjectionStep {
+
+        private final ToIntFunction<Object> targetReader;
+        private final ObjIntConsumer<Object> writer;
+
+        UnboxingIntProjectionStep(Class<?> targetClass, String propertyName, String sourcePropertyName, Function<Object, Object> reader,
+                                  NullToPrimitivePolicy nullToPrimitivePolicy, ToIntFunction<Object> targetReader, ObjIntConsumer<Object> writer) {
+            super(targetClass, propertyName, sourcePropertyName, reader, nullToPrimitivePolicy);
+            this.targetReader = targetReader;
+            this.writer = writer;
+        }
+
+        @Override
+        void apply(Object source, Object target, ProjectionContext context) {
+            final Integer value = (Integer) reader.apply(source);
+            if (value != null) {
+                writer.accept(target, value);
+            } else if (projectNull()) {
+                writer.accept(target, 0);
+            }
+        }
+
+        @Override
+        void update(Object source, Object target, ProjectionUpdate update) {
+            final Integer boxedValue = (Integer) reader.apply(source);
+            if (boxedValue == null && !projectNull()) {
+                return;
+            }
+            final int value = boxedValue == null ? 0 : boxedValue;
+            if (targetReader == null || value != targetReader.applyAsInt(target)) {
+                writer.accept(target, value);
+                update.changed(getPropertyName());
+            }
+        }
+
+        @Override
+        void write(Object source, ProjectionWriter writer) throws Exception {
+            final Integer value = (Integer) reader.apply(source);
+            if (value != null || projectNull()) {
+                writer.getSink().name(getPropertyName());
+                writer.getSink().value(value == null ? 0 : value);
+            }
+        }
+    }
+
+    private static final class UnboxingDoubleProjectionStep extends UnboxingProjectionStep {
+
+        private final ToDoubleFunction<Object> targetReader;
+        private final ObjDoubleConsumer<Object> writer;
+
+        UnboxingDoubleProjectionStep(Class<?> targetClass, String propertyName, String sourcePropertyName, Function<Object, Object> reader,
+                                     NullToPrimitivePolicy nullToPrimitivePolicy, ToDoubleFunction<Object> targetReader, ObjDoubleConsumer<Object> writer) {
+            super(targetClass, propertyName, sourcePropertyName, reader, nullToPrimitivePolicy);
+            this.targetReader = targetReader;
+            this.writer = writer;
+        }
+
+        @Override
+        void apply(Object source, Object target, ProjectionContext context) {
+            final Double value = (Double) reader.apply(source);
+            if (value != null) {
+                writer.accept(target, value);
+            } else if (projectNull()) {
+                writer.accept(target, 0d);
+            }
+        }
+
+        @Override
+        void update(Object source, Object target, ProjectionUpdate update) {
+            final Double boxedValue = (Double) reader.apply(source);
+            if (boxedValue == null && !projectNull()) {
+                return;
+            }
+            final double value = boxedValue == null ? 0d : boxedValue;
+            if (targetReader == null || Double.compare(value, targetReader.applyAsDouble(target)) != 0) {
+                writer.accept(target, value);
+                update.changed(getPropertyName());
+            }
+        }
+
+        @Override
+        void write(Object source, ProjectionWriter writer) throws Exception {
+            final Double value = (Double) reader.apply(source);
+            if (value != null || projectNull()) {
+                writer.getSink().name(getPropertyName());
+                writer.getSink().value(value == null ? 0d : value);
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator projecting the elements of a source spliterator lazily while they are pulled, so a stream of
+ * projections never holds more than the currently processed element. Splitting is delegated to the source
+ * spliterator which allows parallel streams of projections. Like {@link BulkProjection} each spliterator reuses
+ * the plan resolved for an element for all following elements of the same class.
+ * @author Guido Laures
+ * @see Projector#projectStream(java.util.stream.Stream, Class)
+ */
+final class ProjectingSpliterator<T> implements Spliterator<T> {
+
+    private final Projector projector;
+    private final Spliterator<?> sources;
+    private final Class<T> projectionClass;
+    private final String profile;
+    private Class<?> planSourceClass;
+    private ProjectionPlan<T> plan;
+
+    ProjectingSpliterator(Projector projector, Spliterator<?> sources, Class<T> projectionClass, String profile) {
+        this.projector = projector;
+        this.sources = sources;
+        this.projectionClass = projectionClass;
+        this.profile = profile;
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super T> action) {
+        return sources.tryAdvance(source -> action.accept(project(source)));
+    }
+
+    @Override
+    public void forEachRemaining(final Consumer<? super T> action) {
+        sources.forEachRemaining(source -> action.accept(project(source)));
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        final Spliterator<?> split = sources.trySplit();
+        return split == null ? null : new ProjectingSpliterator<T>(projector, split, projectionClass, profile);
+    }
+
+    @Override
+    public long estimateSize() {
+        return sources.estimateSize();
+    }
+
+    @Override
+    public int characteristics() {
+        // projections are neither sorted nor guaranteed to be distinct like their sources
+        return sources.characteristics() & ~(Spliterator.SORTED | Spliterator.DISTINCT);
+    }
+
+    private T project(Object source) {
+        if (source == null) {
+            return null;
+        }
+        if (source.getClass() != planSourceClass) {
+            plan = projector.getPlan(source.getClass(), projectionClass, profile);
+            planSourceClass = source.getClass();
+        }
+        try {
+            return new ProjectionContext(projector, profile).project(source, plan);
+        } catch (final RuntimeException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
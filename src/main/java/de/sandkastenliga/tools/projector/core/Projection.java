@@ -23,10 +23,11 @@ import java.lang.annotation.Target;
 /**
  * The annotated setter method of a projected property of the target object (projection)
  * will be used to project data from the source object (object thet is projected)
- * according to the rules specified in this annotation.
+ * according to the rules specified in this annotation. Properties of immutable projections are annotated on
+ * the parameters of their constructor or on the methods of their builder (or the getters of the projection).
  * @author Guido Laures
  */
-@Target(ElementType.METHOD)
+@Target({ElementType.METHOD, ElementType.PARAMETER})
 @Retention(RetentionPolicy.RUNTIME)
 public @interface Projection {
 
@@ -55,4 +56,64 @@ public @interface Projection {
      * @return the name of the property of the source object's property to be used as value for the annotated setter method
      */
     String referencePropertyName() default "id";
+
+    /**
+     * This property is only used with ProjectionType.projection or ProjectionType.projectionCollection.
+     * If set to true the nested source object is not projected together with the source object. Instead the
+     * setter is called with a proxy (a generated subclass of the projection class) or a lazy list, which project
+     * the nested source objects when they are accessed first. Lazy projections can also be switched on for all
+     * properties with {@link Projector#setLazyProjections(boolean)}.
+     * Default value for this annotation parameter is false.
+     * @return true if the nested source object should be projected on first access
+     */
+    boolean lazy() default false;
+
+    /**
+     * The names of the profiles (use cases like "summary" or "detail") the property is projected in. If a
+     * projection is done for a profile (see {@link Projector#project(Object, Class, String)}), properties annotated
+     * with other profiles are not projected, neither by the projection itself nor by the projections nested in it.
+     * Projections done without a profile project all properties.
+     * Default value for this annotation parameter is an empty array, i.e. the property is projected in all profiles.
+     * @return the names of the profiles the property is projected in
+     */
+    String[] profiles() default {};
+
+    /**
+     * This property is only used with ProjectionType.property or ProjectionType.projection.
+     * The name of the {@link BatchResolver} (see {@link Projector#setBatchResolver(String, BatchResolver)}) resolving
+     * the value of the source object's property (e.g. an ID) to the object it refers to, which is then projected
+     * instead of the value. The keys of all properties using the same resolver are resolved together while a source
+     * object or a collection of them is projected.
+     * Default value for this annotation parameter is "", i.e. the value of the source object's property is projected.
+     * @return the name of the batch resolver resolving the source object's property value
+     */
+    String resolver() default "";
+
+    /**
+     * This property is only used with ProjectionType.propertyCollection or ProjectionType.projectionCollection.
+     * The maximum number of elements of the source collection that are projected, e.g. to project a preview of a
+     * large collection. The limit is applied after the elements have been filtered and sorted.
+     * Default value for this annotation parameter is Integer.MAX_VALUE, i.e. all elements are projected.
+     * @return the maximum number of projected elements
+     */
+    int limit() default Integer.MAX_VALUE;
+
+    /**
+     * This property is only used with ProjectionType.propertyCollection or ProjectionType.projectionCollection.
+     * The name of the filter (see {@link Projector#setCollectionFilter(String, java.util.function.Predicate)})
+     * selecting the elements of the source collection that are projected. Elements not accepted by the filter are
+     * never projected.
+     * Default value for this annotation parameter is "", i.e. all elements are projected.
+     * @return the name of the filter of the source collection's elements
+     */
+    String filter() default "";
+
+    /**
+     * This property is only used with ProjectionType.propertyCollection or ProjectionType.projectionCollection.
+     * The name of the comparator (see {@link Projector#setCollectionComparator(String, java.util.Comparator)})
+     * sorting the elements of the source collection before they are projected.
+     * Default value for this annotation parameter is "", i.e. the elements are projected in the order of the source collection.
+     * @return the name of the comparator of the source collection's elements
+     */
+    String comparator() default "";
 }
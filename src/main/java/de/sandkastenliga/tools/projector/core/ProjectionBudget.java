@@ -0,0 +1,171 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the size of the object graph created by one call of the {@link Projector} and the time it may take, so
+ * badly shaped object graphs cannot project tens of thousands of nested projections. Each limit has a
+ * {@link BudgetPolicy} telling whether the projection is truncated or fails once the limit is exceeded. Budgets are
+ * immutable, each limit set returns a new budget:
+ * <pre>
+ * ProjectionBudget budget = ProjectionBudget.UNLIMITED
+ *         .withMaxObjects(10000, BudgetPolicy.fail)
+ *         .withMaxCollectionElements(100, BudgetPolicy.truncate)
+ *         .withTimeout(50, TimeUnit.MILLISECONDS, BudgetPolicy.fail);
+ * projector.setProjectionBudget(budget);
+ * </pre>
+ * The limits are checked whenever an object is projected (projections reused within the call do not count) and
+ * whenever a collection is projected, the counters are kept by the {@link ProjectionContext} of the call.
+ * @author Guido Laures
+ * @see Projector#setProjectionBudget(ProjectionBudget)
+ * @see Projector#projectWithin(Object, Class, ProjectionBudget)
+ */
+public final class ProjectionBudget {
+
+    /**
+     * The limits of a budget.
+     */
+    public enum Limit {
+        /**
+         * The maximum number of objects projected by one call, including the object passed to the projector.
+         */
+        objects,
+        /**
+         * The maximum number of elements projected per collection property.
+         */
+        collectionElements,
+        /**
+         * The maximum depth of nested projections, 1 for the object passed to the projector.
+         */
+        depth,
+        /**
+         * The time after which no more objects are projected by a call.
+         */
+        deadline
+    }
+
+    /**
+     * The budget without any limits, which is the default of projectors.
+     */
+    public static final ProjectionBudget UNLIMITED = new ProjectionBudget(Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, 0,
+            new EnumMap<Limit, BudgetPolicy>(Limit.class));
+
+    private final int maxObjects;
+    private final int maxCollectionElements;
+    private final int maxDepth;
+    private final long timeoutNanos;
+    private final Map<Limit, BudgetPolicy> policies;
+
+    private ProjectionBudget(int maxObjects, int maxCollectionElements, int maxDepth, long timeoutNanos, Map<Limit, BudgetPolicy> policies) {
+        this.maxObjects = maxObjects;
+        this.maxCollectionElements = maxCollectionElements;
+        this.maxDepth = maxDepth;
+        this.timeoutNanos = timeoutNanos;
+        this.policies = policies;
+    }
+
+    /**
+     * @param maxObjects the maximum number of objects projected by one call
+     * @param policy     the policy applied if more objects would be projected
+     * @return a copy of this budget with the given limit
+     */
+    public ProjectionBudget withMaxObjects(int maxObjects, BudgetPolicy policy) {
+        checkPositive(maxObjects);
+        return new ProjectionBudget(maxObjects, maxCollectionElements, maxDepth, timeoutNanos, policies(Limit.objects, policy));
+    }
+
+    /**
+     * @param maxCollectionElements the maximum number of elements projected per collection property
+     * @param policy                the policy applied if a collection has more elements
+     * @return a copy of this budget with the given limit
+     */
+    public ProjectionBudget withMaxCollectionElements(int maxCollectionElements, BudgetPolicy policy) {
+        if (maxCollectionElements < 0) {
+            throw new IllegalArgumentException("The maximum number of collection elements must not be negative: " + maxCollectionElements);
+        }
+        return new ProjectionBudget(maxObjects, maxCollectionElements, maxDepth, timeoutNanos, policies(Limit.collectionElements, policy));
+    }
+
+    /**
+     * @param maxDepth the maximum depth of nested projections, 1 to project the object passed to the projector only
+     * @param policy   the policy applied if a projection would be nested deeper
+     * @return a copy of this budget with the given limit
+     */
+    public ProjectionBudget withMaxDepth(int maxDepth, BudgetPolicy policy) {
+        checkPositive(maxDepth);
+        return new ProjectionBudget(maxObjects, maxCollectionElements, maxDepth, timeoutNanos, policies(Limit.depth, policy));
+    }
+
+    /**
+     * @param timeout the time a call may project objects for, measured from the start of the call
+     * @param unit    the unit of the timeout
+     * @param policy  the policy applied if an object would be projected after the deadline
+     * @return a copy of this budget with the given limit
+     */
+    public ProjectionBudget withTimeout(long timeout, TimeUnit unit, BudgetPolicy policy) {
+        checkPositive(timeout);
+        return new ProjectionBudget(maxObjects, maxCollectionElements, maxDepth, unit.toNanos(timeout), policies(Limit.deadline, policy));
+    }
+
+    public int getMaxObjects() {
+        return maxObjects;
+    }
+
+    public int getMaxCollectionElements() {
+        return maxCollectionElements;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @return the timeout in nanoseconds or 0 if there is no deadline
+     */
+    public long getTimeoutNanos() {
+        return timeoutNanos;
+    }
+
+    /**
+     * @return the policy of the limit or null if the limit has not been set
+     */
+    public BudgetPolicy getPolicy(Limit limit) {
+        return policies.get(limit);
+    }
+
+    private Map<Limit, BudgetPolicy> policies(Limit limit, BudgetPolicy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("The policy of limit " + limit + " must not be null");
+        }
+        final Map<Limit, BudgetPolicy> copy = new EnumMap<Limit, BudgetPolicy>(policies);
+        copy.put(limit, policy);
+        return copy;
+    }
+
+    private static void checkPositive(long value) {
+        if (value < 1) {
+            throw new IllegalArgumentException("The limit must be positive: " + value);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ProjectionBudget" + policies;
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+/**
+ * Thrown if a projection exceeds a limit of its {@link ProjectionBudget} and the {@link BudgetPolicy#fail} policy
+ * is used for that limit.
+ * @author Guido Laures
+ */
+public class ProjectionBudgetExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final ProjectionBudget.Limit limit;
+
+    public ProjectionBudgetExceededException(ProjectionBudget.Limit limit, String message) {
+        super(message);
+        this.limit = limit;
+    }
+
+    /**
+     * @return the limit which has been exceeded
+     */
+    public ProjectionBudget.Limit getLimit() {
+        return limit;
+    }
+}
@@ -0,0 +1,380 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A bounded cache of projections shared by all calls of a {@link Projector}, meant for slowly changing reference
+ * data that is projected over and over again. Only source objects of the classes registered with
+ * {@link #cache(Class, Function, Function)} (or their subclasses) are cached, keyed by their identity or a key read
+ * from them (e.g. the ID of an entity) and the projection class and profile. If a version is read from the source
+ * objects, a cached projection is only used as long as the source object has the same version. Nested projections
+ * are cached as well, so projections shared by several source objects are only projected once.
+ * <pre>
+ * ProjectionCache cache = new ProjectionCache(10000, 10, TimeUnit.MINUTES)
+ *         .cache(Address.class, Address::getId, Address::getVersion);
+ * projector.setResultCache(cache);
+ * </pre>
+ * The cache holds up to the maximum number of source objects and evicts the least recently used ones first (the
+ * cache is split into segments evicting independently to reduce lock contention). Cached projections are returned
+ * to all callers, so they must not be modified. Projections are not cached while a maximum depth is set or while
+ * keys of a {@link BatchResolver} are waiting to be resolved.
+ * @author Guido Laures
+ * @see Projector#setResultCache(ProjectionCache)
+ */
+public final class ProjectionCache {
+
+    private static final int MAX_SEGMENTS = 16;
+    private static final Registration NOT_CACHED = new Registration(null, null, null);
+
+    private final Segment[] segments;
+    private final long timeToLiveNanos;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final Map<Class<?>, Registration> registrations = new LinkedHashMap<Class<?>, Registration>();
+    private volatile ClassValue<Registration> registrationsByClass = createRegistrationCache();
+
+    /**
+     * Creates a cache whose projections do not expire.
+     * @param maximumSize the maximum number of cached source objects
+     */
+    public ProjectionCache(int maximumSize) {
+        this(maximumSize, 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param maximumSize the maximum number of cached source objects
+     * @param timeToLive  the time a projection is used after it has been cached or 0 if projections do not expire
+     * @param unit        the unit of the time to live
+     */
+    public ProjectionCache(int maximumSize, long timeToLive, TimeUnit unit) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("The maximum size must be positive: " + maximumSize);
+        }
+        int segmentCount = 1;
+        while (segmentCount < MAX_SEGMENTS && segmentCount * 32 <= maximumSize) {
+            segmentCount *= 2;
+        }
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment((maximumSize + segmentCount - 1) / segmentCount, evictions);
+        }
+        this.timeToLiveNanos = unit.toNanos(timeToLive);
+    }
+
+    /**
+     * Caches the projections of the source class' objects by their identity. Cached projections are used whenever
+     * the same source object is projected again, until they are evicted, expire or are invalidated.
+     * @param sourceClass the class of the source objects whose projections are cached
+     * @return this cache
+     */
+    public <S> ProjectionCache cache(Class<S> sourceClass) {
+        return cache(sourceClass, null, null);
+    }
+
+    /**
+     * Caches the projections of the source class' objects by a key read from them. Different source objects with
+     * the same key (e.g. the same entity loaded by different JPA sessions) share their projections.
+     * @param sourceClass      the class of the source objects whose projections are cached
+     * @param keyExtractor     reads the key of a source object, null to cache by identity
+     * @param versionExtractor reads the version of a source object or null if source objects are not versioned
+     * @return this cache
+     */
+    public synchronized <S> ProjectionCache cache(Class<S> sourceClass, Function<? super S, ?> keyExtractor, Function<? super S, ?> versionExtractor) {
+        @SuppressWarnings("unchecked")
+        final Registration registration = new Registration(sourceClass, (Function<Object, ?>) keyExtractor, (Function<Object, ?>) versionExtractor);
+        registrations.put(sourceClass, registration);
+        registrationsByClass = createRegistrationCache();
+        return this;
+    }
+
+    /**
+     * Removes all projections of the source object from the cache.
+     * @param source the source object whose projections are not up to date anymore
+     */
+    public void invalidate(Object source) {
+        final Registration registration = registrationsByClass.get(source.getClass());
+        if (registration != NOT_CACHED) {
+            final Object key = registration.key(source);
+            final Segment segment = segment(key);
+            synchronized (segment) {
+                segment.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Removes all projections of the source object with the given key from the cache.
+     * @param sourceClass the class the source objects have been registered with
+     * @param key         the key of the source object as read by the key extractor
+     */
+    public void invalidate(Class<?> sourceClass, Object key) {
+        final Object cacheKey = new Key(sourceClass, key);
+        final Segment segment = segment(cacheKey);
+        synchronized (segment) {
+            segment.remove(cacheKey);
+        }
+    }
+
+    /**
+     * Removes all projections from the cache.
+     */
+    public void invalidateAll() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     * @return the number of source objects projections are cached for
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return the number of projections taken from the cache
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of projections of cached source classes not found in the cache
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of source objects evicted from the cache because it was full
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return true if the projections of the source object's class are cached
+     */
+    boolean isCached(Object source) {
+        return registrationsByClass.get(source.getClass()) != NOT_CACHED;
+    }
+
+    /**
+     * @return the cached projection of the source object or null if there is no current one or the source object's class is not cached
+     */
+    Object get(Object source, Class<?> projectionClass, String profile) {
+        final Registration registration = registrationsByClass.get(source.getClass());
+        if (registration == NOT_CACHED) {
+            return null;
+        }
+        final Object key = registration.key(source);
+        final Segment segment = segment(key);
+        Cached cached;
+        synchronized (segment) {
+            cached = segment.get(key);
+        }
+        for (; cached != null; cached = cached.next) {
+            if (cached.projectionClass == projectionClass && Objects.equals(cached.profile, profile)) {
+                if ((timeToLiveNanos == 0 || System.nanoTime() - cached.expiresAt < 0)
+                        && Objects.equals(cached.version, registration.version(source))) {
+                    hits.increment();
+                    return cached.projection;
+                }
+                break;
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Caches the projection of the source object, replacing the one cached for the same projection class and profile.
+     */
+    void put(Object source, Class<?> projectionClass, String profile, Object projection) {
+        final Registration registration = registrationsByClass.get(source.getClass());
+        if (registration == NOT_CACHED) {
+            return;
+        }
+        final Object key = registration.key(source);
+        final Object version = registration.version(source);
+        final long expiresAt = System.nanoTime() + timeToLiveNanos;
+        final Segment segment = segment(key);
+        synchronized (segment) {
+            Cached next = null;
+            // the cached projections are immutable, the other projections of the source object are copied
+            for (Cached cached = segment.get(key); cached != null; cached = cached.next) {
+                if (cached.projectionClass != projectionClass || !Objects.equals(cached.profile, profile)) {
+                    next = new Cached(cached.projectionClass, cached.profile, cached.version, cached.projection, cached.expiresAt, next);
+                }
+            }
+            segment.put(key, new Cached(projectionClass, profile, version, projection, expiresAt, next));
+        }
+    }
+
+    private Segment segment(Object key) {
+        final int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+
+    private ClassValue<Registration> createRegistrationCache() {
+        final Map<Class<?>, Registration> registrations = new LinkedHashMap<Class<?>, Registration>(this.registrations);
+        return new ClassValue<Registration>() {
+            @Override
+            protected Registration computeValue(Class<?> sourceClass) {
+                // subclasses (e.g. proxies of entities) are cached like their registered class
+                for (Class<?> type = sourceClass; type != null; type = type.getSuperclass()) {
+                    final Registration registration = registrations.get(type);
+                    if (registration != null) {
+                        return registration;
+                    }
+                }
+                return NOT_CACHED;
+            }
+        };
+    }
+
+    /**
+     * How the objects of a registered source class are cached.
+     */
+    private static final class Registration {
+
+        private final Class<?> sourceClass;
+        private final Function<Object, ?> keyExtractor;
+        private final Function<Object, ?> versionExtractor;
+
+        Registration(Class<?> sourceClass, Function<Object, ?> keyExtractor, Function<Object, ?> versionExtractor) {
+            this.sourceClass = sourceClass;
+            this.keyExtractor = keyExtractor;
+            this.versionExtractor = versionExtractor;
+        }
+
+        Object key(Object source) {
+            return keyExtractor == null ? new IdentityKey(source) : new Key(sourceClass, keyExtractor.apply(source));
+        }
+
+        Object version(Object source) {
+            return versionExtractor == null ? null : versionExtractor.apply(source);
+        }
+    }
+
+    private static final class Key {
+
+        private final Class<?> sourceClass;
+        private final Object key;
+
+        Key(Class<?> sourceClass, Object key) {
+            this.sourceClass = sourceClass;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return sourceClass == other.sourceClass && Objects.equals(key, other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * sourceClass.hashCode() + Objects.hashCode(key);
+        }
+    }
+
+    private static final class IdentityKey {
+
+        private final Object source;
+
+        IdentityKey(Object source) {
+            this.source = source;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof IdentityKey && ((IdentityKey) o).source == source;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(source);
+        }
+    }
+
+    /**
+     * The projection of a source object onto one projection class and profile. A source object projected onto
+     * several projection classes or profiles has a chain of cached projections.
+     */
+    private static final class Cached {
+
+        private final Class<?> projectionClass;
+        private final String profile;
+        private final Object version;
+        private final Object projection;
+        private final long expiresAt;
+        private final Cached next;
+
+        Cached(Class<?> projectionClass, String profile, Object version, Object projection, long expiresAt, Cached next) {
+            this.projectionClass = projectionClass;
+            this.profile = profile;
+            this.version = version;
+            this.projection = projection;
+            this.expiresAt = expiresAt;
+            this.next = next;
+        }
+    }
+
+    /**
+     * A part of the cache evicting its least recently used source objects, guarded by its own monitor.
+     */
+    private static final class Segment extends LinkedHashMap<Object, Cached> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+        private final transient LongAdder evictions;
+
+        Segment(int capacity, LongAdder evictions) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.evictions = evictions;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, Cached> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
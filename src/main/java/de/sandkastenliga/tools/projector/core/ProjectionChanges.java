@@ -0,0 +1,69 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes which properties of an existing projection have been changed by
+ * {@link Projector#projectInto(Object, Object)}. Properties are identified by their path from the projection,
+ * e.g. {@code name}, {@code address.city} or {@code homes[1].name}. Changed entries of projected collections are
+ * identified by the path of the collection property.
+ * @author Guido Laures
+ */
+public final class ProjectionChanges {
+
+    static final ProjectionChanges NONE = new ProjectionChanges(Collections.<String>emptyList());
+
+    private final List<String> changedProperties;
+
+    ProjectionChanges(List<String> changedProperties) {
+        this.changedProperties = Collections.unmodifiableList(changedProperties);
+    }
+
+    /**
+     * @return true if at least one property has been changed
+     */
+    public boolean hasChanges() {
+        return !changedProperties.isEmpty();
+    }
+
+    /**
+     * @return the paths of all changed properties in the order they have been changed
+     */
+    public List<String> getChangedProperties() {
+        return changedProperties;
+    }
+
+    /**
+     * @param path the path of a property, e.g. {@code address}
+     * @return true if the property or any property nested in it (e.g. {@code address.city}) has been changed
+     */
+    public boolean isChanged(String path) {
+        for (String changedProperty : changedProperties) {
+            if (changedProperty.startsWith(path) && (changedProperty.length() == path.length()
+                    || changedProperty.charAt(path.length()) == '.' || changedProperty.charAt(path.length()) == '[')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "ProjectionChanges" + changedProperties;
+    }
+}
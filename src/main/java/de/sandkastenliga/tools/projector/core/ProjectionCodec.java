@@ -0,0 +1,851 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import org.apache.commons.beanutils.PropertyUtils;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Encodes projections into a compact binary layout and decodes them into instances of the projection class, e.g. to
+ * keep projections in an off-heap cache or to pass them between processes. Source objects are encoded while they are
+ * projected (see {@link Projector#projectTo(Object, Class, ProjectionSink)}), so no projection instances are created
+ * to encode them. The layout is derived from the properties of the projection class: each object is a sequence of
+ * properties, identified by their index instead of their name and ended by a zero byte. Properties left out by the
+ * projection (e.g. unset nested projections) are left out of the layout as well. Values are written as follows:
+ * <ul>
+ * <li>integral numbers and characters as (zigzag) varints, {@code double} and {@code float} values with 8 and 4
+ * bytes, booleans as one byte</li>
+ * <li>strings as UTF-8, enums by their ordinal, {@link BigDecimal}, {@link BigInteger}, {@link Date}, {@link Instant},
+ * {@link LocalDate}, {@link LocalTime}, {@link LocalDateTime} and {@link UUID} in their most compact form</li>
+ * <li>collections of IDs ({@link ProjectionType#propertyCollection} of integral numbers, including {@code long[]} and
+ * {@code int[]}) as packed varints, other collections as their size followed by their elements</li>
+ * </ul>
+ * The layout does not describe itself, it can only be decoded by a codec of the same projection class, so it is meant
+ * for caches and processes sharing the same version of the projection classes. The properties of the projection
+ * classes are validated when the codec is created. Codecs are thread-safe.
+ * @author Guido Laures
+ * @see Projector#createCodec(Class)
+ */
+public final class ProjectionCodec<T> {
+
+    private final Projector projector;
+    private final Class<T> projectionClass;
+    private final Schema schema;
+
+    ProjectionCodec(Projector projector, Class<T> projectionClass) throws Exception {
+        this.projector = projector;
+        this.projectionClass = projectionClass;
+        this.schema = createSchema(projectionClass, new HashMap<Class<?>, Schema>(), projector.getPropertyAccessor());
+    }
+
+    /**
+     * @return the class of the projections encoded and decoded by this codec
+     */
+    public Class<T> getProjectionClass() {
+        return projectionClass;
+    }
+
+    /**
+     * Encodes the projection of the source object.
+     * @param source the object to be projected, must not be null
+     * @return the encoded projection
+     */
+    public byte[] encode(Object source) {
+        checkSource(source);
+        final Encoder encoder = new Encoder(schema, ByteBuffer.allocate(256), true);
+        projector.projectTo(source, projectionClass, encoder);
+        final ByteBuffer out = encoder.out;
+        return Arrays.copyOf(out.array(), out.position());
+    }
+
+    /**
+     * Encodes the projection of the source object into the buffer, starting at its position. The position of the
+     * buffer is advanced past the encoded projection.
+     * @param source the object to be projected, must not be null
+     * @param buffer the buffer the projection is written to, e.g. a direct buffer
+     * @throws BufferOverflowException if the buffer is too small, the encoded projection is incomplete then
+     */
+    public void encode(Object source, ByteBuffer buffer) {
+        checkSource(source);
+        try {
+            projector.projectTo(source, projectionClass, new Encoder(schema, buffer, false));
+        } catch (final RuntimeException e) {
+            if (e.getCause() instanceof BufferOverflowException) {
+                throw (BufferOverflowException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static void checkSource(Object source) {
+        if (source == null) {
+            throw new IllegalArgumentException("Null cannot be encoded");
+        }
+    }
+
+    /**
+     * @param bytes the projection encoded by {@link #encode(Object)}
+     * @return the decoded projection
+     */
+    public T decode(byte[] bytes) {
+        return decode(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Decodes a projection starting at the position of the buffer, which can be a heap, direct or memory-mapped
+     * buffer. The position of the buffer is advanced past the decoded projection.
+     * @param buffer the buffer holding the encoded projection
+     * @return the decoded projection
+     */
+    public T decode(ByteBuffer buffer) {
+        try {
+            return projectionClass.cast(schema.decode(buffer));
+        } catch (final RuntimeException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ProjectionCodec[" + projectionClass.getName() + "]";
+    }
+
+    /**
+     * Creates the schema of the target class and the schemas of its nested projections, which are shared by all
+     * properties (and cycles) projecting onto the same class.
+     */
+    private static Schema createSchema(Class<?> targetClass, Map<Class<?>, Schema> schemas, PropertyAccessor propertyAccessor) throws Exception {
+        Schema schema = schemas.get(targetClass);
+        if (schema != null) {
+            return schema;
+        }
+        final TargetInstantiator<?> instantiator = TargetInstantiator.create(targetClass);
+        schema = new Schema(targetClass, instantiator);
+        schemas.put(targetClass, schema);
+        final List<TargetProperty> properties = instantiator.getStagedProperties() != null
+                ? instantiator.getStagedProperties() : ProjectionPlanBuilder.getBeanProperties(targetClass);
+        for (TargetProperty property : properties) {
+            final Projection annotation = property.getAnnotation();
+            final ProjectionType type = annotation == null ? ProjectionType.asIs : annotation.value();
+            if (type != ProjectionType.none) {
+                schema.add(createField(schema, schema.fields.length, property, type, schemas, propertyAccessor));
+            }
+        }
+        return schema;
+    }
+
+    private static Field createField(Schema schema, int index, TargetProperty property, ProjectionType type, Map<Class<?>, Schema> schemas,
+                                     PropertyAccessor propertyAccessor) throws Exception {
+        final Class<?> propertyType = property.getType();
+        final BiConsumer<Object, Object> writer = property.getDescriptor() == null
+                ? property.getStagedWriter() : propertyAccessor.createWriter(property.getDescriptor());
+        final Field field = new Field(property.getName(), index, writer, propertyType.isPrimitive());
+        final Class<?> elementType = propertyType.isArray() ? propertyType.getComponentType() : BeanProperties.firstTypeArgument(property.getGenericType());
+        switch (type) {
+            case projection:
+                field.kind = Kind.object;
+                field.nested = createSchema(propertyType, schemas, propertyAccessor);
+                return field;
+            case projectionCollection:
+                if (elementType == null) {
+                    throw new IllegalStateException("Cannot encode property '" + property.getName() + "' of class '" + schema.targetClass
+                            + "': the class of its elements cannot be determined");
+                }
+                field.kind = Kind.objects;
+                field.nested = createSchema(elementType, schemas, propertyAccessor);
+                field.collection = createTargetCollection(schema, property, writer, propertyAccessor);
+                return field;
+            case propertyCollection:
+                if (propertyType == long[].class || propertyType == int[].class) {
+                    field.kind = Kind.packed;
+                    field.arrayType = propertyType;
+                    return field;
+                }
+                field.collection = createTargetCollection(schema, property, writer, propertyAccessor);
+                field.value = createValue(schema, property, elementType);
+                field.kind = field.value.type == ValueType.integral ? Kind.packed : Kind.values;
+                return field;
+            default:
+                if (Collection.class.isAssignableFrom(propertyType)) {
+                    // e.g. a list of strings copied as is
+                    field.kind = Kind.values;
+                    field.collection = createTargetCollection(schema, property, writer, propertyAccessor);
+                    field.value = createValue(schema, property, elementType);
+                    return field;
+                }
+                field.kind = Kind.value;
+                field.value = createValue(schema, property, propertyType);
+                if (property.getDescriptor() != null) {
+                    // primitive values are decoded onto the properties without boxing
+                    if (propertyType == long.class) {
+                        field.longWriter = propertyAccessor.createLongWriter(property.getDescriptor());
+                    } else if (propertyType == int.class) {
+                        field.intWriter = propertyAccessor.createIntWriter(property.getDescriptor());
+                    } else if (propertyType == double.class) {
+                        field.doubleWriter = propertyAccessor.createDoubleWriter(property.getDescriptor());
+                    }
+                }
+                return field;
+        }
+    }
+
+    private static TargetCollection createTargetCollection(Schema schema, TargetProperty property, BiConsumer<Object, Object> writer,
+                                                           PropertyAccessor propertyAccessor) {
+        final boolean readable = property.getDescriptor() != null && PropertyUtils.getReadMethod(property.getDescriptor()) != null;
+        return new TargetCollection(schema.targetClass, property.getName(), property.getType(),
+                readable ? propertyAccessor.createReader(property.getDescriptor()) : null, writer);
+    }
+
+    private static Value createValue(Schema schema, TargetProperty property, Class<?> type) {
+        final ValueType valueType = type == null ? null : ValueType.of(type);
+        if (valueType == null) {
+            throw new IllegalStateException("Cannot encode property '" + property.getName() + "' of class '" + schema.targetClass
+                    + "': values of type '" + (type == null ? property.getGenericType() : type) + "' are not supported");
+        }
+        return new Value(valueType, Converters.boxed(type));
+    }
+
+    /**
+     * How a property is laid out.
+     */
+    private enum Kind {
+        /**
+         * A single value.
+         */
+        value,
+        /**
+         * A nested projection.
+         */
+        object,
+        /**
+         * A collection of integral numbers as its size followed by the numbers as zigzag varints.
+         */
+        packed,
+        /**
+         * A collection of other values as its size followed by the elements, each with a leading byte telling
+         * whether it is null.
+         */
+        values,
+        /**
+         * A collection of nested projections, each with a leading 1 byte, ended by a zero byte.
+         */
+        objects
+    }
+
+    /**
+     * The supported types of values.
+     */
+    private enum ValueType {
+        bool, integral, character, float32, float64, string, enumeration, bigDecimal, bigInteger, date, instant, localDate, localDateTime, localTime, uuid;
+
+        /**
+         * @return the type of the values of the given class or null if they cannot be encoded
+         */
+        static ValueType of(Class<?> type) {
+            final Class<?> boxed = Converters.boxed(type);
+            if (boxed == Boolean.class) {
+                return bool;
+            }
+            if (boxed == Long.class || boxed == Integer.class || boxed == Short.class || boxed == Byte.class) {
+                return integral;
+            }
+            if (boxed == Character.class) {
+                return character;
+            }
+            if (boxed == Float.class) {
+                return float32;
+            }
+            if (boxed == Double.class) {
+                return float64;
+            }
+            if (boxed == String.class) {
+                return string;
+            }
+            if (boxed.isEnum()) {
+                return enumeration;
+            }
+            if (boxed == BigDecimal.class) {
+                return bigDecimal;
+            }
+            if (boxed == BigInteger.class) {
+                return bigInteger;
+            }
+            if (boxed == Date.class) {
+                return date;
+            }
+            if (boxed == Instant.class) {
+                return instant;
+            }
+            if (boxed == LocalDate.class) {
+                return localDate;
+            }
+            if (boxed == LocalDateTime.class) {
+                return localDateTime;
+            }
+            if (boxed == LocalTime.class) {
+                return localTime;
+            }
+            if (boxed == UUID.class) {
+                return uuid;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The values of a property or of the elements of a collection property.
+     */
+    private static final class Value {
+
+        private final ValueType type;
+        private final Class<?> valueClass;
+        private final Object[] constants;
+
+        Value(ValueType type, Class<?> valueClass) {
+            this.type = type;
+            this.valueClass = valueClass;
+            this.constants = valueClass.getEnumConstants();
+        }
+
+        void write(Object value, Encoder out) {
+            switch (type) {
+                case bool:
+                    out.ensure(1);
+                    out.out.put((byte) ((Boolean) value ? 1 : 0));
+                    break;
+                case integral:
+                    out.writeZigzag(((Number) value).longValue());
+                    break;
+                case character:
+                    out.writeVarint((Character) value);
+                    break;
+                case float32:
+                    out.writeFixed(Float.floatToRawIntBits(((Number) value).floatValue()), 4);
+                    break;
+                case float64:
+                    out.writeFixed(Double.doubleToRawLongBits(((Number) value).doubleValue()), 8);
+                    break;
+                case string:
+                    out.writeBytes(((String) value).getBytes(StandardCharsets.UTF_8));
+                    break;
+                case enumeration:
+                    out.writeVarint(((Enum<?>) value).ordinal());
+                    break;
+                case bigDecimal:
+                    out.writeZigzag(((BigDecimal) value).scale());
+                    out.writeBytes(((BigDecimal) value).unscaledValue().toByteArray());
+                    break;
+                case bigInteger:
+                    out.writeBytes(((BigInteger) value).toByteArray());
+                    break;
+                case date:
+                    out.writeZigzag(((Date) value).getTime());
+                    break;
+                case instant:
+                    out.writeZigzag(((Instant) value).getEpochSecond());
+                    out.writeVarint(((Instant) value).getNano());
+                    break;
+                case localDate:
+                    out.writeZigzag(((LocalDate) value).toEpochDay());
+                    break;
+                case localDateTime:
+                    out.writeZigzag(((LocalDateTime) value).toLocalDate().toEpochDay());
+                    out.writeVarint(((LocalDateTime) value).toLocalTime().toNanoOfDay());
+                    break;
+                case localTime:
+                    out.writeVarint(((LocalTime) value).toNanoOfDay());
+                    break;
+                default:
+                    out.writeFixed(((UUID) value).getMostSignificantBits(), 8);
+                    out.writeFixed(((UUID) value).getLeastSignificantBits(), 8);
+                    break;
+            }
+        }
+
+        Object read(ByteBuffer in) {
+            switch (type) {
+                case bool:
+                    return in.get() != 0;
+                case integral:
+                    return box(readZigzag(in));
+                case character:
+                    return (char) readVarint(in);
+                case float32:
+                    return Float.intBitsToFloat((int) readFixed(in, 4));
+                case float64:
+                    return Double.longBitsToDouble(readFixed(in, 8));
+                case string:
+                    return readString(in);
+                case enumeration:
+                    return constants[(int) readVarint(in)];
+                case bigDecimal:
+                    final int scale = (int) readZigzag(in);
+                    return new BigDecimal(new BigInteger(readBytes(in)), scale);
+                case bigInteger:
+                    return new BigInteger(readBytes(in));
+                case date:
+                    return new Date(readZigzag(in));
+                case instant:
+                    final long seconds = readZigzag(in);
+                    return Instant.ofEpochSecond(seconds, readVarint(in));
+                case localDate:
+                    return LocalDate.ofEpochDay(readZigzag(in));
+                case localDateTime:
+                    final LocalDate date = LocalDate.ofEpochDay(readZigzag(in));
+                    return LocalDateTime.of(date, LocalTime.ofNanoOfDay(readVarint(in)));
+                case localTime:
+                    return LocalTime.ofNanoOfDay(readVarint(in));
+                default:
+                    final long mostSignificantBits = readFixed(in, 8);
+                    return new UUID(mostSignificantBits, readFixed(in, 8));
+            }
+        }
+
+        /**
+         * @return the integral number as an instance of the value class
+         */
+        Object box(long value) {
+            if (valueClass == Long.class) {
+                return value;
+            }
+            if (valueClass == Integer.class) {
+                return (int) value;
+            }
+            if (valueClass == Short.class) {
+                return (short) value;
+            }
+            return (byte) value;
+        }
+    }
+
+    /**
+     * The layout of the projections of a target class.
+     */
+    private static final class Schema {
+
+        private final Class<?> targetClass;
+        private final TargetInstantiator<?> instantiator;
+        private final Map<String, Field> fieldsByName = new HashMap<String, Field>();
+        private Field[] fields = new Field[0];
+
+        Schema(Class<?> targetClass, TargetInstantiator<?> instantiator) {
+            this.targetClass = targetClass;
+            this.instantiator = instantiator;
+        }
+
+        void add(Field field) {
+            fields = Arrays.copyOf(fields, fields.length + 1);
+            fields[field.index] = field;
+            fieldsByName.put(field.name, field);
+        }
+
+        Field getField(String name) {
+            final Field field = fieldsByName.get(name);
+            if (field == null) {
+                throw new IllegalStateException("Cannot encode unknown property '" + name + "' of class '" + targetClass + "'");
+            }
+            return field;
+        }
+
+        Object decode(ByteBuffer in) throws Exception {
+            final Object target = instantiator.newTarget();
+            for (int key = (int) readVarint(in); key != 0; key = (int) readVarint(in)) {
+                final int index = (key >>> 1) - 1;
+                if (index >= fields.length) {
+                    throw new IllegalStateException("Cannot decode unknown property " + index + " of class '" + targetClass + "'");
+                }
+                final Field field = fields[index];
+                if ((key & 1) == 0) {
+                    field.decode(in, target);
+                } else if (!field.primitive) {
+                    field.writer.accept(target, null);
+                }
+            }
+            return instantiator.complete(target);
+        }
+    }
+
+    /**
+     * A property of a target class.
+     */
+    private static final class Field {
+
+        private final String name;
+        private final int index;
+        private final BiConsumer<Object, Object> writer;
+        private final boolean primitive;
+        private Kind kind;
+        private Value value;
+        private Schema nested;
+        private TargetCollection collection;
+        private Class<?> arrayType;
+        private ObjLongConsumer<Object> longWriter;
+        private ObjIntConsumer<Object> intWriter;
+        private ObjDoubleConsumer<Object> doubleWriter;
+
+        Field(String name, int index, BiConsumer<Object, Object> writer, boolean primitive) {
+            this.name = name;
+            this.index = index;
+            this.writer = writer;
+            this.primitive = primitive;
+        }
+
+        /**
+         * @return the key of the property, telling whether its value is null
+         */
+        int key(boolean isNull) {
+            return (index + 1) << 1 | (isNull ? 1 : 0);
+        }
+
+        void decode(ByteBuffer in, Object target) throws Exception {
+            switch (kind) {
+                case value:
+                    if (longWriter != null) {
+                        longWriter.accept(target, readZigzag(in));
+                    } else if (intWriter != null) {
+                        intWriter.accept(target, (int) readZigzag(in));
+                    } else if (doubleWriter != null) {
+                        doubleWriter.accept(target, Double.longBitsToDouble(readFixed(in, 8)));
+                    } else {
+                        writer.accept(target, value.read(in));
+                    }
+                    break;
+                case object:
+                    writer.accept(target, nested.decode(in));
+                    break;
+                case packed:
+                    decodePacked(in, target);
+                    break;
+                case values:
+                    final int size = (int) readVarint(in);
+                    final Collection<Object> values = collection.create(size);
+                    for (int i = 0; i < size; i++) {
+                        values.add(in.get() == 0 ? null : value.read(in));
+                    }
+                    set(target, values);
+                    break;
+                default:
+                    final Collection<Object> projections = collection.create(10);
+                    while (in.get() != 0) {
+                        projections.add(nested.decode(in));
+                    }
+                    set(target, projections);
+                    break;
+            }
+        }
+
+        private void decodePacked(ByteBuffer in, Object target) {
+            final int size = (int) readVarint(in);
+            if (arrayType == long[].class) {
+                final long[] values = new long[size];
+                for (int i = 0; i < size; i++) {
+                    values[i] = readZigzag(in);
+                }
+                writer.accept(target, values);
+            } else if (arrayType == int[].class) {
+                final int[] values = new int[size];
+                for (int i = 0; i < size; i++) {
+                    values[i] = (int) readZigzag(in);
+                }
+                writer.accept(target, values);
+            } else {
+                final Collection<Object> values = collection.create(size);
+                for (int i = 0; i < size; i++) {
+                    values.add(value.box(readZigzag(in)));
+                }
+                set(target, values);
+            }
+        }
+
+        /**
+         * Adds the decoded elements to the collection initialized by the target object or sets them.
+         */
+        private void set(Object target, Collection<Object> elements) {
+            final Collection<Object> initialized = collection.get(target, elements.size());
+            if (initialized == null) {
+                collection.set(target, elements);
+            } else {
+                initialized.addAll(elements);
+            }
+        }
+    }
+
+    /**
+     * The sink encoding the projection of one source object. The properties of the objects currently encoded are
+     * looked up by their names in the schemas kept on a stack, the elements of collections of values are collected
+     * until their size is known.
+     */
+    private static final class Encoder implements ProjectionSink {
+
+        private final Schema schema;
+        private final boolean growable;
+        private ByteBuffer out;
+        /**
+         * The schemas of the objects and the fields of the collections currently encoded.
+         */
+        private Object[] stack = new Object[8];
+        private int depth;
+        private Field field;
+        private long[] packed = new long[0];
+        private Object[] values = new Object[0];
+        private int size;
+
+        Encoder(Schema schema, ByteBuffer out, boolean growable) {
+            this.schema = schema;
+            this.out = out;
+            this.growable = growable;
+        }
+
+        @Override
+        public void beginObject() {
+            if (depth == 0) {
+                push(schema);
+            } else if (stack[depth - 1] instanceof Field) {
+                // an element of a collection of projections
+                ensure(1);
+                out.put((byte) 1);
+                push(((Field) stack[depth - 1]).nested);
+            } else {
+                writeVarint(field.key(false));
+                push(field.nested);
+            }
+        }
+
+        @Override
+        public void endObject() {
+            ensure(1);
+            out.put((byte) 0);
+            depth--;
+        }
+
+        @Override
+        public void beginArray() {
+            writeVarint(field.key(false));
+            push(field);
+            size = 0;
+        }
+
+        @Override
+        public void endArray() {
+            final Field array = (Field) stack[--depth];
+            if (array.kind == Kind.packed) {
+                writeVarint(size);
+                for (int i = 0; i < size; i++) {
+                    writeZigzag(packed[i]);
+                }
+            } else if (array.kind == Kind.values) {
+                writeVarint(size);
+                for (int i = 0; i < size; i++) {
+                    writeElement(array, values[i]);
+                    values[i] = null;
+                }
+            } else {
+                ensure(1);
+                out.put((byte) 0);
+            }
+        }
+
+        @Override
+        public void name(String name) {
+            field = ((Schema) stack[depth - 1]).getField(name);
+        }
+
+        @Override
+        public void value(Object value) {
+            if (stack[depth - 1] instanceof Field) {
+                final Field array = (Field) stack[depth - 1];
+                if (array.kind == Kind.packed) {
+                    add(((Number) value).longValue());
+                } else if (array.kind == Kind.values) {
+                    if (size == values.length) {
+                        values = Arrays.copyOf(values, Math.max(16, size * 2));
+                    }
+                    values[size++] = value;
+                }
+                return;
+            }
+            if (value == null) {
+                writeVarint(field.key(true));
+                return;
+            }
+            writeVarint(field.key(false));
+            if (field.kind == Kind.value) {
+                field.value.write(value, this);
+            } else if (field.kind == Kind.values) {
+                final Collection<?> collection = (Collection<?>) value;
+                writeVarint(collection.size());
+                for (Object element : collection) {
+                    writeElement(field, element);
+                }
+            } else {
+                throw new IllegalStateException("Cannot encode a value of type '" + value.getClass().getName() + "' as property '" + field.name + "'");
+            }
+        }
+
+        @Override
+        public void value(long value) {
+            if (stack[depth - 1] instanceof Field) {
+                add(value);
+            } else if (field.value.type == ValueType.integral) {
+                writeVarint(field.key(false));
+                writeZigzag(value);
+            } else {
+                value(Long.valueOf(value));
+            }
+        }
+
+        @Override
+        public void value(double value) {
+            if (field.value.type == ValueType.float64) {
+                writeVarint(field.key(false));
+                writeFixed(Double.doubleToRawLongBits(value), 8);
+            } else {
+                value(Double.valueOf(value));
+            }
+        }
+
+        @Override
+        public void flush() {
+            // the buffer belongs to the caller
+        }
+
+        private void push(Object schemaOrField) {
+            if (depth == stack.length) {
+                stack = Arrays.copyOf(stack, depth * 2);
+            }
+            stack[depth++] = schemaOrField;
+        }
+
+        private void add(long value) {
+            if (size == packed.length) {
+                packed = Arrays.copyOf(packed, Math.max(16, size * 2));
+            }
+            packed[size++] = value;
+        }
+
+        private void writeElement(Field array, Object element) {
+            ensure(1);
+            if (element == null) {
+                out.put((byte) 0);
+            } else {
+                out.put((byte) 1);
+                array.value.write(element, this);
+            }
+        }
+
+        void ensure(int bytes) {
+            if (growable && out.remaining() < bytes) {
+                final ByteBuffer grown = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + bytes));
+                out.flip();
+                grown.put(out);
+                out = grown;
+            }
+        }
+
+        void writeVarint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                out.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.put((byte) value);
+        }
+
+        void writeZigzag(long value) {
+            writeVarint((value << 1) ^ (value >> 63));
+        }
+
+        /**
+         * Writes the lowest bytes of the value, most significant first, independent of the byte order of the buffer.
+         */
+        void writeFixed(long value, int bytes) {
+            ensure(bytes);
+            for (int shift = (bytes - 1) * 8; shift >= 0; shift -= 8) {
+                out.put((byte) (value >>> shift));
+            }
+        }
+
+        void writeBytes(byte[] bytes) {
+            writeVarint(bytes.length);
+            ensure(bytes.length);
+            out.put(bytes);
+        }
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            final byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private static long readZigzag(ByteBuffer in) {
+        final long value = readVarint(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long readFixed(ByteBuffer in, int bytes) {
+        long value = 0;
+        for (int i = 0; i < bytes; i++) {
+            value = value << 8 | (in.get() & 0xFF);
+        }
+        return value;
+    }
+
+    private static byte[] readBytes(ByteBuffer in) {
+        final byte[] bytes = new byte[(int) readVarint(in)];
+        in.get(bytes);
+        return bytes;
+    }
+
+    private static String readString(ByteBuffer in) {
+        final int length = (int) readVarint(in);
+        if (in.hasArray()) {
+            // heap buffers are decoded without copying
+            final String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+            return value;
+        }
+        final byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Adds the projection of each entry of the source object's collection to the target object's collection.
+ * @author Guido Laures
+ * @see ProjectionType#projectionCollection
+ */
+final class ProjectionCollectionProjectionStep extends ProjectionStep {
+
+    private final TargetCollection targetCollection;
+    private final Class<?> elementProjectionClass;
+
+    ProjectionCollectionProjectionStep(String propertyName, String sourcePropertyName, Function<Object, Object> sourceReader, BiConsumer<Object, Object> targetWriter, TargetCollection targetCollection, Class<?> elementProjectionClass) {
+        super(ProjectionType.projectionCollection, propertyName, sourcePropertyName, sourceReader, targetWriter);
+        this.targetCollection = targetCollection;
+        this.elementProjectionClass = elementProjectionClass;
+    }
+
+    @Override
+    void apply(Object source, Object target, ProjectionContext context) throws Exception {
+        if (context.isMaxDepthReached()) {
+            return;
+        }
+        Collection<?> sourceCollection = (Collection<?>) sourceReader.apply(source);
+        if (sourceCollection != null) {
+            if (!context.isLoaded(sourceCollection)) {
+                applyUnloaded(target, sourceCollection, null, context);
+                return;
+            }
+            sourceCollection = context.limitCollection(this, sourceCollection);
+            Collection<Object> entries = targetCollection.get(target, sourceCollection.size());
+            final boolean created = entries == null;
+            if (created) {
+                entries = targetCollection.create(sourceCollection.size());
+            }
+            int projected = 0;
+            for (Object sourceCollectionEntry : sourceCollection) {
+                final Object projection = context.isLoaded(sourceCollectionEntry)
+                        ? context.projectNested(sourceCollectionEntry, elementProjectionClass)
+                        : projectUnloaded(sourceCollectionEntry, context);
+                if (projection != null) {
+                    entries.add(projection);
+                    projected++;
+                }
+            }
+            if (created) {
+                targetCollection.set(target, entries);
+            }
+            context.collectionProjected(this, projected);
+        }
+    }
+
+    /**
+     * @return the projection of an unloaded entity contained in a loaded collection or null if it is left out
+     */
+    private Object projectUnloaded(Object sourceCollectionEntry, ProjectionContext context) throws Exception {
+        return context.getUnloadedAssociationPolicy() == UnloadedAssociationPolicy.idOnly
+                ? context.projectIdentifier(sourceCollectionEntry, elementProjectionClass) : null;
+    }
+
+    /**
+     * The projections held by a list are updated in place index by index, the list is shortened or extended if
+     * the size of the source collection has changed. The entries of all other collections cannot be matched with
+     * the source objects, they are replaced by new projections.
+     */
+    @Override
+    void update(Object source, Object target, ProjectionUpdate update) throws Exception {
+        Collection<?> sourceCollection = (Collection<?>) sourceReader.apply(source);
+        if (sourceCollection == null || !update.getContext().isLoaded(sourceCollection)) {
+            return;
+        }
+        sourceCollection = update.getContext().limitCollection(this, sourceCollection);
+        final Collection<Object> entries = targetCollection.get(target, 0);
+        if (entries instanceof List) {
+            updateList((List<Object>) entries, sourceCollection, update);
+            return;
+        }
+        final List<Object> projections = new ArrayList<Object>(sourceCollection.size());
+        for (Object sourceCollectionEntry : sourceCollection) {
+            final Object projection = update.getContext().projectNested(sourceCollectionEntry, elementProjectionClass);
+            if (projection != null) {
+                projections.add(projection);
+            }
+        }
+        if (entries == null) {
+            final Collection<Object> created = targetCollection.create(projections.size());
+            created.addAll(projections);
+            targetCollection.set(target, created);
+            update.changed(getPropertyName());
+        } else if (!TargetCollection.containsExactly(entries, projections)) {
+            entries.clear();
+            entries.addAll(projections);
+            update.changed(getPropertyName());
+        }
+    }
+
+    @Override
+    void write(Object source, ProjectionWriter writer) throws Exception {
+        write(this, source, writer, elementProjectionClass);
+    }
+
+    /**
+     * Writes the projections of the entries of the source object's collection as an array, lazy projections are
+     * written the same way. Null entries and entries closing a cycle are left out.
+     */
+    static void write(ProjectionStep step, Object source, ProjectionWriter writer, Class<?> elementProjectionClass) throws Exception {
+        if (writer.isMaxDepthReached()) {
+            return;
+        }
+        Collection<?> sourceCollection = (Collection<?>) step.sourceReader.apply(source);
+        if (sourceCollection != null) {
+            final ProjectionContext context = writer.getContext();
+            if (!context.isLoaded(sourceCollection)) {
+                step.writeUnloaded(sourceCollection, null, writer);
+                return;
+            }
+            sourceCollection = context.limitCollection(step, sourceCollection);
+            writer.getSink().name(step.getPropertyName());
+            writer.getSink().beginArray();
+            for (Object sourceCollectionEntry : sourceCollection) {
+                if (sourceCollectionEntry == null) {
+                    continue;
+                }
+                if (context.isLoaded(sourceCollectionEntry)) {
+                    writer.writeNested(null, sourceCollectionEntry, elementProjectionClass);
+                } else if (context.getUnloadedAssociationPolicy() == UnloadedAssociationPolicy.idOnly) {
+                    writer.writeIdentifier(null, sourceCollectionEntry, elementProjectionClass);
+                }
+            }
+            writer.getSink().endArray();
+        }
+    }
+
+    private void updateList(List<Object> entries, Collection<?> sourceCollection, ProjectionUpdate update) throws Exception {
+        final ListIterator<Object> iterator = entries.listIterator();
+        int index = 0;
+        for (Object sourceCollectionEntry : sourceCollection) {
+            if (sourceCollectionEntry == null) {
+                continue;
+            }
+            final boolean existing = iterator.hasNext();
+            final Object current = existing ? iterator.next() : null;
+            final Object projection = update.updateNested(sourceCollectionEntry, current, elementProjectionClass, getPropertyName(), index, false);
+            if (projection == null) {
+                if (existing) {
+                    iterator.previous();
+                }
+                continue;
+            }
+            if (!existing) {
+                iterator.add(projection);
+                update.changed(getPropertyName(), index);
+            } else if (projection != current) {
+                iterator.set(projection);
+                update.changed(getPropertyName(), index);
+            }
+            index++;
+        }
+        if (iterator.hasNext()) {
+            while (iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+            update.changed(getPropertyName());
+        }
+    }
+
+    @Override
+    Class<?> getProjectionClass() {
+        return elementProjectionClass;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The projection of a list of source objects in columns: one array per projected property holding the property's
+ * value for each source object (row) at the row's index instead of one projection per source object. Properties of
+ * the primitive types {@code long}, {@code int}, {@code double} and {@code boolean} are held in primitive arrays,
+ * all other properties in object arrays. Nested projections are held as projection instances.
+ *
+ * The values of {@link ProjectionType#propertyCollection} properties are flattened into one array of all rows,
+ * the values of row {@code i} range from {@code offsets[i]} (inclusive) to {@code offsets[i + 1]} (exclusive).
+ * Numeric and boolean values of such collections are held in primitive arrays even if the collection holds their
+ * wrapper type, null values are handled according to the projector's {@link NullToPrimitivePolicy}.
+ * @author Guido Laures
+ * @see Projector#projectColumns(java.util.Collection, Class)
+ */
+public final class ProjectionColumns {
+
+    private final Class<?> projectionClass;
+    private final int size;
+    private final Map<String, Object> columns;
+    private final Map<String, int[]> offsets;
+
+    ProjectionColumns(Class<?> projectionClass, int size, Map<String, Object> columns, Map<String, int[]> offsets) {
+        this.projectionClass = projectionClass;
+        this.size = size;
+        this.columns = columns;
+        this.offsets = offsets;
+    }
+
+    /**
+     * @return the class the rows have been projected onto
+     */
+    public Class<?> getProjectionClass() {
+        return projectionClass;
+    }
+
+    /**
+     * @return the number of rows, i.e. of projected source objects
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the names of the projected properties of the projection class in the order of the projection's steps
+     */
+    public Set<String> getColumnNames() {
+        return Collections.unmodifiableSet(columns.keySet());
+    }
+
+    /**
+     * @param name the name of a projected property of the projection class
+     * @return the array holding the values of the property (not a copy)
+     * @throws IllegalArgumentException if the property has not been projected
+     */
+    public Object getColumn(String name) {
+        final Object column = columns.get(name);
+        if (column == null) {
+            throw new IllegalArgumentException("No column '" + name + "' projected onto " + projectionClass.getName());
+        }
+        return column;
+    }
+
+    /**
+     * @return the values of a {@code long} property or of a collection of {@code long} values
+     * @throws IllegalArgumentException if the property has not been projected or its values are not of type {@code long}
+     */
+    public long[] getLongColumn(String name) {
+        return getColumn(name, long[].class);
+    }
+
+    /**
+     * @return the values of an {@code int} property or of a collection of {@code int} values
+     * @throws IllegalArgumentException if the property has not been projected or its values are not of type {@code int}
+     */
+    public int[] getIntColumn(String name) {
+        return getColumn(name, int[].class);
+    }
+
+    /**
+     * @return the values of a {@code double} property or of a collection of {@code double} values
+     * @throws IllegalArgumentException if the property has not been projected or its values are not of type {@code double}
+     */
+    public double[] getDoubleColumn(String name) {
+        return getColumn(name, double[].class);
+    }
+
+    /**
+     * @return the values of a {@code boolean} property or of a collection of {@code boolean} values
+     * @throws IllegalArgumentException if the property has not been projected or its values are not of type {@code boolean}
+     */
+    public boolean[] getBooleanColumn(String name) {
+        return getColumn(name, boolean[].class);
+    }
+
+    /**
+     * @return the values of a property held in an object array, e.g. strings or nested projections
+     * @throws IllegalArgumentException if the property has not been projected or its values are held in a primitive array
+     */
+    public Object[] getObjectColumn(String name) {
+        return getColumn(name, Object[].class);
+    }
+
+    /**
+     * @param name the name of a projected {@link ProjectionType#propertyCollection} property
+     * @return the offsets of the rows' values within the property's column, one more than there are rows
+     * @throws IllegalArgumentException if the property has not been projected or is not a property collection
+     */
+    public int[] getOffsets(String name) {
+        final int[] offsetsOfColumn = offsets.get(name);
+        if (offsetsOfColumn == null) {
+            throw new IllegalArgumentException("No collection column '" + name + "' projected onto " + projectionClass.getName());
+        }
+        return offsetsOfColumn;
+    }
+
+    private <A> A getColumn(String name, Class<A> arrayClass) {
+        final Object column = getColumn(name);
+        if (!arrayClass.isInstance(column)) {
+            throw new IllegalArgumentException("Column '" + name + "' is a " + column.getClass().getSimpleName()
+                    + ", not a " + arrayClass.getSimpleName());
+        }
+        return arrayClass.cast(column);
+    }
+
+    @Override
+    public String toString() {
+        return "ProjectionColumns[" + projectionClass.getName() + ", " + size + " rows, " + columns.keySet() + "]";
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown if projections precompiled by the {@link Projector} are invalid, e.g. because of an unknown
+ * {@link Projection#propertyName()}. The exception lists all problems found.
+ * @author Guido Laures
+ * @see Projector#precompile(Class, Class)
+ */
+public class ProjectionConfigurationException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<String> problems;
+
+    public ProjectionConfigurationException(List<String> problems) {
+        super(message(problems));
+        this.problems = Collections.unmodifiableList(new ArrayList<String>(problems));
+    }
+
+    /**
+     * @return the descriptions of all problems found
+     */
+    public List<String> getProblems() {
+        return problems;
+    }
+
+    private static String message(List<String> problems) {
+        final StringBuilder message = new StringBuilder("Invalid projections:");
+        for (String problem : problems) {
+            message.append("\n - ").append(problem);
+        }
+        return message.toString();
+    }
+}
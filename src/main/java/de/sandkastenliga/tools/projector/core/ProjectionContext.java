@@ -0,0 +1,601 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * The state of one call to the {@link Projector}. The context remembers every source object projected during
+ * the call, so each source object is projected only once per projection class and its projection is reused
+ * wherever the source object is referenced again. Source objects that are reached again while they are still
+ * being projected close a cycle, which is handled according to the projector's {@link CyclePolicy}.
+ * A context is not thread-safe and must not be used outside of the call it was created for.
+ * @author Guido Laures
+ */
+public final class ProjectionContext {
+
+    private final Projector projector;
+    private final CyclePolicy cyclePolicy;
+    private final String profile;
+    private final int maxDepth;
+    private final ProjectionListener listener;
+    private final LoadStateResolver loadStateResolver;
+    private final UnloadedAssociationPolicy unloadedAssociationPolicy;
+    private final BatchResolution batchResolution;
+    /**
+     * The cache of projections or null, projections limited by a maximum depth and updates are not cached.
+     */
+    private final ProjectionCache resultCache;
+    private final ProjectionBudget budget;
+    /**
+     * The number of objects that may still be projected within the budget.
+     */
+    private int objectsLeft;
+    private final long deadline;
+    private Set<ProjectionBudget.Limit> exceededLimits;
+    /**
+     * The depth of the projection currently done, 1 for the object passed to the projector.
+     */
+    private int depth;
+    private Throwable reportedFailure;
+    /**
+     * The collection step that has reported the number of elements it projected last and that number, which are
+     * passed to the listener once the step has been applied.
+     */
+    private ProjectionStep collectionStep;
+    private int collectionSize;
+    /**
+     * The first source object is kept in fields, the map of projections by source object identity is only
+     * created with the first nested projection as most projected objects do not have any.
+     */
+    private Object firstSource;
+    private Projected firstProjected;
+    private Map<Object, Projected> projections;
+
+    ProjectionContext(Projector projector) {
+        this(projector, null);
+    }
+
+    /**
+     * @param cached false if projections are neither taken from nor put into the projector's {@link ProjectionCache},
+     *               e.g. while existing projections are updated
+     */
+    ProjectionContext(Projector projector, boolean cached) {
+        this(projector, null, projector.getProjectionListener(), 0, null, projector.getProjectionBudget(), cached);
+    }
+
+    /**
+     * @param profile the profile of the projections of this context or null
+     */
+    ProjectionContext(Projector projector, String profile) {
+        this(projector, profile, projector.getProjectionListener(), 0);
+    }
+
+    /**
+     * @param profile  the profile of the projections of this context or null
+     * @param listener the listener measuring the projections of this context or null
+     * @param depth    the depth of the projection the projections of this context are nested in, e.g. of a lazy projection
+     */
+    ProjectionContext(Projector projector, String profile, ProjectionListener listener, int depth) {
+        this(projector, profile, listener, depth, null, projector.getProjectionBudget(), true);
+    }
+
+    /**
+     * @param profile         the profile of the projections of this context or null
+     * @param batchResolution the batch collecting the keys to be resolved by {@link BatchResolver}s or null to resolve each key on its own
+     */
+    ProjectionContext(Projector projector, String profile, BatchResolution batchResolution) {
+        this(projector, profile, projector.getProjectionListener(), 0, batchResolution, projector.getProjectionBudget(), true);
+    }
+
+    /**
+     * @param profile         the profile of the projections of this context or null
+     * @param batchResolution the batch collecting the keys to be resolved by {@link BatchResolver}s or null to resolve each key on its own
+     * @param budget          the budget of the projections of this context
+     */
+    ProjectionContext(Projector projector, String profile, BatchResolution batchResolution, ProjectionBudget budget) {
+        this(projector, profile, projector.getProjectionListener(), 0, batchResolution, budget, true);
+    }
+
+    private ProjectionContext(Projector projector, String profile, ProjectionListener listener, int depth, BatchResolution batchResolution,
+                              ProjectionBudget budget, boolean cached) {
+        this.projector = projector;
+        this.cyclePolicy = projector.getCyclePolicy();
+        this.profile = profile;
+        this.maxDepth = projector.getMaxDepth();
+        this.listener = listener;
+        this.loadStateResolver = projector.getLoadStateResolver();
+        this.unloadedAssociationPolicy = projector.getUnloadedAssociationPolicy();
+        this.depth = depth;
+        this.batchResolution = batchResolution;
+        this.resultCache = cached && maxDepth == Integer.MAX_VALUE ? projector.getResultCache() : null;
+        this.budget = budget;
+        this.objectsLeft = budget.getMaxObjects();
+        this.deadline = budget.getTimeoutNanos() == 0 ? 0 : System.nanoTime() + budget.getTimeoutNanos();
+    }
+
+    /**
+     * @return the batch collecting the keys to be resolved by batch resolvers or null if each key is resolved on its own
+     */
+    BatchResolution getBatchResolution() {
+        return batchResolution;
+    }
+
+    /**
+     * @return the projector this context belongs to
+     */
+    public Projector getProjector() {
+        return projector;
+    }
+
+    /**
+     * @return the profile of the projections of this context or null if all properties are projected
+     * @see Projection#profiles()
+     */
+    public String getProfile() {
+        return profile;
+    }
+
+    /**
+     * @return true if the projection currently done has reached the {@link Projector#setMaxDepth(int) maximum depth},
+     * so it must not project any nested projections
+     */
+    public boolean isMaxDepthReached() {
+        return depth >= maxDepth;
+    }
+
+    /**
+     * Returns the projection of a source object nested in the object graph projected by this context.
+     * If the source object has already been projected onto the projection class within this context, that
+     * projection is returned.
+     *
+     * @param source          The source object which should be projected
+     * @param projectionClass The class to be used for the projection
+     * @return the projection of the source object or null if it closes a cycle and {@link CyclePolicy#setNull} is used
+     * @throws ProjectionCycleException if the source object closes a cycle and {@link CyclePolicy#fail} is used
+     */
+    public <T> T project(final Object source, final Class<T> projectionClass) {
+        try {
+            return projectNested(source, projectionClass);
+        } catch (final RuntimeException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Applies the projector's {@link NullToPrimitivePolicy} to a null value projected onto a primitive property.
+     * This is used by generated projectors, runtime plans apply the policy within their steps.
+     *
+     * @param targetClass  The class of the target object
+     * @param propertyName The name of the primitive property
+     * @return true if the default value of the primitive type should be projected, false if the property should not be projected
+     * @throws IllegalArgumentException if {@link NullToPrimitivePolicy#fail} is used
+     */
+    public boolean projectNullOntoPrimitive(final Class<?> targetClass, final String propertyName) {
+        switch (projector.getNullToPrimitivePolicy()) {
+            case skip:
+                return false;
+            case defaultValue:
+                return true;
+            default:
+                throw new IllegalArgumentException("Cannot project null onto primitive property '" + propertyName
+                        + "' of class '" + targetClass + "'");
+        }
+    }
+
+    /**
+     * @return true if the value of an association of a source object has been loaded or load states are not checked
+     */
+    boolean isLoaded(final Object value) {
+        return loadStateResolver == null || value == null || loadStateResolver.isLoaded(value);
+    }
+
+    UnloadedAssociationPolicy getUnloadedAssociationPolicy() {
+        return unloadedAssociationPolicy;
+    }
+
+    /**
+     * @return true if the property of an unloaded entity is its identifier, which can be read without loading the entity
+     */
+    boolean isIdentifier(final Object entity, final String propertyName) {
+        return propertyName.equals(loadStateResolver.getIdentifierName(entity));
+    }
+
+    /**
+     * @return the identifier of an unloaded entity
+     */
+    Object getIdentifier(final Object entity) {
+        return loadStateResolver.getIdentifier(entity);
+    }
+
+    /**
+     * Reads the reference property of a referenced object. If the object is an unloaded entity and the property is
+     * its identifier, the identifier is read without loading the entity.
+     */
+    Object readReference(final ReferenceReader referenceReader, final Object referencedObject) throws NoSuchMethodException {
+        if (loadStateResolver != null && !loadStateResolver.isLoaded(referencedObject)
+                && isIdentifier(referencedObject, referenceReader.getPropertyName())) {
+            return loadStateResolver.getIdentifier(referencedObject);
+        }
+        return referenceReader.read(referencedObject);
+    }
+
+    /**
+     * @return a new projection of an unloaded entity with only its identifier set or null if the identifier
+     * cannot be projected
+     * @see UnloadedAssociationPolicy#idOnly
+     */
+    Object projectIdentifier(final Object entity, final Class<?> projectionClass) throws Exception {
+        final String identifierName = getProjectedIdentifierName(entity, projectionClass);
+        if (identifierName == null) {
+            return null;
+        }
+        final BiConsumer<Object, Object> identifierWriter = projector.getIdentifierWriter(projectionClass, identifierName);
+        final ProjectionPlan<?> plan = projector.getPlan(entity.getClass(), projectionClass, profile);
+        final Object projection = plan.newTarget();
+        identifierWriter.accept(projection, loadStateResolver.getIdentifier(entity));
+        return plan.complete(projection);
+    }
+
+    /**
+     * @return the name of the identifier of an unloaded entity or null if the projection class has no property of
+     * that name the identifier could be projected onto
+     */
+    String getProjectedIdentifierName(final Object entity, final Class<?> projectionClass) {
+        final String identifierName = loadStateResolver.getIdentifierName(entity);
+        if (identifierName == null || projector.getIdentifierWriter(projectionClass, identifierName) == null) {
+            return null;
+        }
+        return identifierName;
+    }
+
+    /**
+     * Resolves a key with a batch resolver and passes the resolved object to the continuation, which is done
+     * when the keys of the batch are resolved if this context belongs to a batch, otherwise right away.
+     */
+    void resolve(final BatchResolver<Object, Object> resolver, final Object key, final BatchResolution.Continuation continuation) throws Exception {
+        if (batchResolution == null) {
+            continuation.resolved(resolveNow(resolver, key));
+        } else {
+            batchResolution.add(resolver, key, this, depth, continuation);
+        }
+    }
+
+    /**
+     * Runs the continuation of a resolved key at the depth of the projection it has been registered by.
+     */
+    void resume(final int depth, final BatchResolution.Continuation continuation, final Object value) throws Exception {
+        final int currentDepth = this.depth;
+        this.depth = depth;
+        try {
+            continuation.resolved(value);
+        } finally {
+            this.depth = currentDepth;
+        }
+    }
+
+    /**
+     * @return the object the key is resolved to by the resolver or null if it cannot be resolved
+     */
+    static Object resolveNow(final BatchResolver<Object, Object> resolver, final Object key) throws Exception {
+        final Map<Object, Object> values = resolver.resolve(Collections.singleton(key));
+        return values == null ? null : values.get(key);
+    }
+
+    <T> T projectNested(final Object source, final Class<T> projectionClass) throws Exception {
+        final Projected projected = find(source, projectionClass);
+        if (projected != null) {
+            return projectionClass.cast(resolve(projected, source));
+        }
+        return project(source, projector.getPlan(source.getClass(), projectionClass, profile));
+    }
+
+    /**
+     * Projects the source object with the given plan, registering its projection before the plan's steps are
+     * applied so that the projection can be found by nested projections referencing the source object again.
+     * Projections of source objects whose class is cached by the projector's {@link ProjectionCache} are taken from
+     * and put into the cache.
+     */
+    <T> T project(final Object source, final ProjectionPlan<T> plan) throws Exception {
+        if (!isWithinBudget(source, plan)) {
+            return null;
+        }
+        if (resultCache != null) {
+            final Object cached = resultCache.get(source, plan.getTargetClass(), profile);
+            if (cached != null) {
+                register(source, plan.getTargetClass(), cached).complete = true;
+                return plan.getTargetClass().cast(cached);
+            }
+        }
+        final Object target = plan.newTarget();
+        final Projected projected = register(source, plan.getTargetClass(), target);
+        apply(source, target, plan);
+        // immutable projections are created from the object their properties have been staged in
+        final T projection = plan.complete(target);
+        projected.target = projection;
+        projected.complete = true;
+        if (resultCache != null && exceededLimits == null && (batchResolution == null || !batchResolution.isPending())) {
+            // projections waiting for resolved objects are not finished yet, truncated projections are never cached
+            resultCache.put(source, plan.getTargetClass(), profile, projection);
+        }
+        return projection;
+    }
+
+    /**
+     * @return true if another object may be projected within the budget, false if the projection is truncated
+     * @throws ProjectionBudgetExceededException if a limit is exceeded and {@link BudgetPolicy#fail} is used
+     */
+    private boolean isWithinBudget(final Object source, final ProjectionPlan<?> plan) {
+        return isWithinBudget(source, plan.getTargetClass(), depth);
+    }
+
+    /**
+     * @param depth the depth of the projection the source object is nested in, 0 for the object passed to the projector
+     * @return true if another object may be projected within the budget, false if the projection is truncated
+     * @throws ProjectionBudgetExceededException if a limit is exceeded and {@link BudgetPolicy#fail} is used
+     */
+    boolean isWithinBudget(final Object source, final Class<?> projectionClass, final int depth) {
+        if (--objectsLeft < 0) {
+            objectsLeft = 0;
+            return exceeded(ProjectionBudget.Limit.objects, "more than " + budget.getMaxObjects() + " objects would be projected, "
+                    + source.getClass().getName() + " onto " + projectionClass.getName() + " is not projected");
+        }
+        if (depth >= budget.getMaxDepth()) {
+            return exceeded(ProjectionBudget.Limit.depth, "the maximum depth of " + budget.getMaxDepth() + " has been reached, "
+                    + source.getClass().getName() + " onto " + projectionClass.getName() + " is not projected");
+        }
+        if (deadline != 0 && System.nanoTime() - deadline > 0) {
+            return exceeded(ProjectionBudget.Limit.deadline, "the timeout of " + budget.getTimeoutNanos() + "ns has expired, "
+                    + source.getClass().getName() + " onto " + projectionClass.getName() + " is not projected");
+        }
+        return true;
+    }
+
+    /**
+     * Records the number of elements a collection step has projected, which is reported to the listener once the
+     * step has been applied. Steps report the elements they have actually projected rather than reading the source
+     * collection again, which might load it.
+     */
+    void collectionProjected(final ProjectionStep step, final int size) {
+        if (listener != null) {
+            collectionStep = step;
+            collectionSize = size;
+        }
+    }
+
+    /**
+     * @return the number of elements projected by the step or -1 if it has not projected a collection
+     */
+    int takeCollectionSize(final ProjectionStep step) {
+        final int size = collectionStep == step ? collectionSize : -1;
+        collectionStep = null;
+        return size;
+    }
+
+    /**
+     * @return the maximum number of elements projected per collection property
+     */
+    public int getMaxCollectionElements() {
+        return budget.getMaxCollectionElements();
+    }
+
+    /**
+     * Applies the {@link BudgetPolicy} of the budget's collection element limit to a collection property with more
+     * elements than {@link #getMaxCollectionElements()}, of which the remaining elements are not projected.
+     * This is used by generated projectors, runtime plans apply the limit within their steps.
+     *
+     * @param targetClass  The class of the target object
+     * @param propertyName The name of the collection property
+     * @throws ProjectionBudgetExceededException if {@link BudgetPolicy#fail} is used
+     */
+    public void collectionBudgetExceeded(final Class<?> targetClass, final String propertyName) {
+        exceeded(ProjectionBudget.Limit.collectionElements, "property '" + propertyName + "' of class '" + targetClass
+                + "' has more than " + budget.getMaxCollectionElements() + " elements");
+    }
+
+    /**
+     * @return the limits of the budget exceeded by the projections of this context or null if there are none
+     */
+    Set<ProjectionBudget.Limit> getExceededLimits() {
+        return exceededLimits;
+    }
+
+    private boolean exceeded(final ProjectionBudget.Limit limit, final String reason) {
+        if (budget.getPolicy(limit) == BudgetPolicy.fail) {
+            throw new ProjectionBudgetExceededException(limit, "Projection budget exceeded: " + reason);
+        }
+        if (exceededLimits == null) {
+            exceededLimits = EnumSet.noneOf(ProjectionBudget.Limit.class);
+        }
+        exceededLimits.add(limit);
+        return false;
+    }
+
+    /**
+     * Projects the source object with the given plan onto an existing target object.
+     */
+    <T> void projectInto(final Object source, final T target, final ProjectionPlan<T> plan) throws Exception {
+        final Projected projected = register(source, plan.getTargetClass(), target);
+        apply(source, target, plan);
+        projected.complete = true;
+    }
+
+    private <T> void apply(final Object source, final Object target, final ProjectionPlan<T> plan) throws Exception {
+        depth++;
+        try {
+            if (listener == null) {
+                plan.apply(source, target, this);
+            } else {
+                applyObserved(source, target, plan);
+            }
+        } finally {
+            depth--;
+        }
+    }
+
+    private <T> void applyObserved(final Object source, final Object target, final ProjectionPlan<T> plan) throws Exception {
+        try {
+            final long start = System.nanoTime();
+            plan.applyObserved(source, target, this, listener);
+            listener.projected(plan, depth, System.nanoTime() - start);
+        } catch (final Exception | Error e) {
+            if (e != reportedFailure) {
+                // the enclosing projections fail with the same exception
+                reportedFailure = e;
+                listener.failed(plan, depth, e);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a lazy projection of a source object nested in the object graph projected by this context: a proxy
+     * (a generated subclass of the projection class) that projects the source object onto itself when one of its
+     * methods is called first. If the source object has already been projected onto the projection class within
+     * this context, that projection is returned instead. The proxy is projected with a context of its own.
+     * Lazy projections require Byte Buddy on the class path.
+     *
+     * @param source          The source object which should be projected
+     * @param projectionClass The class to be used for the projection, it must neither be final nor lack a default constructor
+     * @return the lazy projection of the source object
+     * @see Projection#lazy()
+     */
+    public <T> T projectLazily(final Object source, final Class<T> projectionClass) {
+        final Projected projected = find(source, projectionClass);
+        if (projected != null) {
+            return projectionClass.cast(resolve(projected, source));
+        }
+        final T proxy = LazyProjectionProxies.create(projector, profile, depth, source, projectionClass);
+        register(source, projectionClass, proxy).complete = true;
+        return proxy;
+    }
+
+    /**
+     * Returns an unmodifiable list of the lazy projections of the source objects. Each element is projected when
+     * it is accessed first, all elements of the list share one context. Creating the list does not copy the
+     * source collection unless it is not a random access list.
+     *
+     * @param sources                The source objects which should be projected
+     * @param elementProjectionClass The class to be used for the projection of the elements
+     * @return the list of lazy projections (null source objects are projected to null), which holds no more elements
+     * than the budget allows
+     * @see Projection#lazy()
+     */
+    public <T> List<T> projectCollectionLazily(final Collection<?> sources, final Class<T> elementProjectionClass) {
+        final Collection<?> limited = sources.size() > budget.getMaxCollectionElements()
+                ? limitCollection("a collection projected onto " + elementProjectionClass.getName() + " lazily", sources) : sources;
+        return new LazyProjectionList<T>(projector, profile, depth, limited, elementProjectionClass);
+    }
+
+    /**
+     * @return the source collection of the step or, if it has more elements than the budget allows, its first elements
+     * @throws ProjectionBudgetExceededException if the collection has too many elements and {@link BudgetPolicy#fail} is used
+     */
+    Collection<?> limitCollection(final ProjectionStep step, final Collection<?> sources) {
+        return sources.size() > budget.getMaxCollectionElements() ? limitCollection("property '" + step.getPropertyName() + "'", sources) : sources;
+    }
+
+    private Collection<?> limitCollection(final String collectionName, final Collection<?> sources) {
+        final int maxElements = budget.getMaxCollectionElements();
+        exceeded(ProjectionBudget.Limit.collectionElements, collectionName + " has more than " + maxElements + " elements");
+        if (sources instanceof List) {
+            return ((List<?>) sources).subList(0, maxElements);
+        }
+        final List<Object> elements = new ArrayList<Object>(maxElements);
+        for (Object source : sources) {
+            if (elements.size() == maxElements) {
+                break;
+            }
+            elements.add(source);
+        }
+        return elements;
+    }
+
+    Object resolve(Projected projected, Object source) {
+        if (projected.complete) {
+            return projected.target;
+        }
+        switch (cyclePolicy) {
+            case setNull:
+                return null;
+            case fail:
+                throw new ProjectionCycleException("Cycle detected: " + source.getClass().getName() + "@"
+                        + Integer.toHexString(System.identityHashCode(source)) + " is already being projected onto "
+                        + projected.projectionClass.getName());
+            default:
+                if (!projected.projectionClass.isInstance(projected.target)) {
+                    throw new ProjectionCycleException("Cycle detected: " + source.getClass().getName() + "@"
+                            + Integer.toHexString(System.identityHashCode(source)) + " is already being projected onto the immutable class "
+                            + projected.projectionClass.getName() + " which cannot be referenced before it has been created, use CyclePolicy.setNull");
+                }
+                return projected.target;
+        }
+    }
+
+    Projected find(Object source, Class<?> projectionClass) {
+        Projected projected = source == firstSource ? firstProjected : projections == null ? null : projections.get(source);
+        for (; projected != null; projected = projected.next) {
+            if (projected.projectionClass == projectionClass) {
+                return projected;
+            }
+        }
+        return null;
+    }
+
+    Projected register(Object source, Class<?> projectionClass, Object target) {
+        if (firstSource == null || firstSource == source) {
+            firstSource = source;
+            firstProjected = new Projected(projectionClass, target, firstProjected);
+            return firstProjected;
+        }
+        if (projections == null) {
+            projections = new IdentityHashMap<Object, Projected>();
+        }
+        final Projected projected = new Projected(projectionClass, target, projections.get(source));
+        projections.put(source, projected);
+        return projected;
+    }
+
+    /**
+     * The projection of a source object onto one projection class. A source object projected onto several
+     * projection classes has a chain of projections.
+     */
+    static final class Projected {
+
+        private final Class<?> projectionClass;
+        /**
+         * The projection or, while an immutable projection is being projected, the object its properties are staged in.
+         */
+        private Object target;
+        private final Projected next;
+        boolean complete;
+
+        Projected(Class<?> projectionClass, Object target, Projected next) {
+            this.projectionClass = projectionClass;
+            this.target = target;
+            this.next = next;
+        }
+    }
+}
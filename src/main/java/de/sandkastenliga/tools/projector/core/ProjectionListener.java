@@ -0,0 +1,105 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+/**
+ * Receives measurements of the projections done by a {@link Projector}, e.g. to export them to a metrics system.
+ * Listeners are called synchronously by the projecting thread, possibly by several threads at once, so
+ * implementations need to be thread-safe and should return quickly. If no listener is set, projections are not
+ * measured at all. Projections delegating to a {@link GeneratedProjector} are measured as a whole, without their
+ * steps.
+ * @author Guido Laures
+ * @see Projector#setProjectionListener(ProjectionListener)
+ * @see ProjectionStatistics
+ * @see JfrProjectionListener
+ */
+public interface ProjectionListener {
+
+    /**
+     * Called after a source object has been projected.
+     * @param plan  the plan used for the projection
+     * @param depth the depth of the projection within the projected object graph, 1 for the object passed to the projector
+     * @param nanos the time the projection took including all nested projections
+     */
+    default void projected(ProjectionPlan<?> plan, int depth, long nanos) {
+    }
+
+    /**
+     * Called after a step of a plan has been applied to a source object.
+     * @param plan  the plan the step belongs to
+     * @param step  the applied step, its {@link ProjectionStep#getType() type} tells the kind of projection
+     * @param nanos the time applying the step took including all nested projections
+     */
+    default void stepApplied(ProjectionPlan<?> plan, ProjectionStep step, long nanos) {
+    }
+
+    /**
+     * Called after a step of type {@link ProjectionType#propertyCollection} or {@link ProjectionType#projectionCollection}
+     * has projected a collection. Collections that have not been loaded and are not projected are not reported.
+     * @param plan the plan the step belongs to
+     * @param step the applied step
+     * @param size the number of elements projected, which may be less than the source collection has if elements
+     *             have been left out by a filter, a limit or the projection budget
+     */
+    default void collectionProjected(ProjectionPlan<?> plan, ProjectionStep step, int size) {
+    }
+
+    /**
+     * Called if the projection of a source object has failed. Failures are reported for the projection they
+     * occurred in, not for the projections it is nested in.
+     * @param plan    the plan used for the projection
+     * @param depth   the depth of the projection within the projected object graph
+     * @param failure the cause of the failure
+     */
+    default void failed(ProjectionPlan<?> plan, int depth, Throwable failure) {
+    }
+
+    /**
+     * @param listeners the listeners to be combined
+     * @return a listener passing all calls to the given listeners in the given order
+     */
+    static ProjectionListener of(final ProjectionListener... listeners) {
+        final ProjectionListener[] copy = listeners.clone();
+        return new ProjectionListener() {
+            @Override
+            public void projected(ProjectionPlan<?> plan, int depth, long nanos) {
+                for (ProjectionListener listener : copy) {
+                    listener.projected(plan, depth, nanos);
+                }
+            }
+
+            @Override
+            public void stepApplied(ProjectionPlan<?> plan, ProjectionStep step, long nanos) {
+                for (ProjectionListener listener : copy) {
+                    listener.stepApplied(plan, step, nanos);
+                }
+            }
+
+            @Override
+            public void collectionProjected(ProjectionPlan<?> plan, ProjectionStep step, int size) {
+                for (ProjectionListener listener : copy) {
+                    listener.collectionProjected(plan, step, size);
+                }
+            }
+
+            @Override
+            public void failed(ProjectionPlan<?> plan, int depth, Throwable failure) {
+                for (ProjectionListener listener : copy) {
+                    listener.failed(plan, depth, failure);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The immutable, fully resolved plan to project objects of a source class onto a target class (projection).
+ * A plan is built once per pair of source and target class by the {@link Projector} and cached for all further
+ * projections of that pair. Running a plan does not require any introspection or annotation lookups anymore.
+ * If a {@link GeneratedProjector} exists for the pair of classes the plan delegates to it and has no steps.
+ * Immutable target classes are created through their builder or constructor once the steps have been applied
+ * (see {@link #isImmutable()}).
+ * @author Guido Laures
+ * @see Projector#getPlan(Class, Class)
+ */
+public final class ProjectionPlan<T> {
+
+    private final Class<?> sourceClass;
+    private final Class<T> targetClass;
+    private final ProjectionStep[] steps;
+    private final Map<ProjectionType, List<ProjectionStep>> stepsByType;
+    private final GeneratedProjector<Object, T> generatedProjector;
+    private final TargetInstantiator<T> instantiator;
+
+    ProjectionPlan(Class<?> sourceClass, Class<T> targetClass, List<ProjectionStep> steps, TargetInstantiator<T> instantiator) {
+        this(sourceClass, targetClass, steps, null, instantiator);
+    }
+
+    ProjectionPlan(Class<?> sourceClass, Class<T> targetClass, GeneratedProjector<Object, T> generatedProjector) {
+        this(sourceClass, targetClass, Collections.<ProjectionStep>emptyList(), generatedProjector, null);
+    }
+
+    private ProjectionPlan(Class<?> sourceClass, Class<T> targetClass, List<ProjectionStep> steps, GeneratedProjector<Object, T> generatedProjector,
+                           TargetInstantiator<T> instantiator) {
+        this.sourceClass = sourceClass;
+        this.targetClass = targetClass;
+        this.generatedProjector = generatedProjector;
+        this.instantiator = instantiator;
+        this.steps = steps.toArray(new ProjectionStep[steps.size()]);
+        Map<ProjectionType, List<ProjectionStep>> byType = new EnumMap<ProjectionType, List<ProjectionStep>>(ProjectionType.class);
+        for (ProjectionType type : ProjectionType.values()) {
+            List<ProjectionStep> stepsOfType = new ArrayList<ProjectionStep>();
+            for (ProjectionStep step : steps) {
+                if (step.getType() == type) {
+                    stepsOfType.add(step);
+                }
+            }
+            byType.put(type, Collections.unmodifiableList(stepsOfType));
+        }
+        this.stepsByType = Collections.unmodifiableMap(byType);
+    }
+
+    /**
+     * @return the class of the objects this plan projects
+     */
+    public Class<?> getSourceClass() {
+        return sourceClass;
+    }
+
+    /**
+     * @return the class of the projections this plan creates
+     */
+    public Class<T> getTargetClass() {
+        return targetClass;
+    }
+
+    /**
+     * @return all steps of this plan in the order they are applied
+     */
+    public List<ProjectionStep> getSteps() {
+        return Collections.unmodifiableList(Arrays.asList(steps));
+    }
+
+    /**
+     * @param type the projection type
+     * @return the steps of this plan using the given projection type
+     */
+    public List<ProjectionStep> getSteps(ProjectionType type) {
+        return stepsByType.get(type);
+    }
+
+    /**
+     * @return the generated projector this plan delegates to or null if the plan uses its own steps
+     */
+    public GeneratedProjector<?, T> getGeneratedProjector() {
+        return generatedProjector;
+    }
+
+    /**
+     * @return true if the projections of this plan are immutable: they are created through the builder or the
+     * constructor of the target class once all steps have been applied and cannot be projected onto afterwards
+     */
+    public boolean isImmutable() {
+        return instantiator != null && instantiator.getStagedProperties() != null;
+    }
+
+    /**
+     * @return a new instance of the target class or, if it is {@link #isImmutable() immutable}, the object its
+     * properties are staged in, which is turned into the projection by {@link #complete(Object)}
+     */
+    Object newTarget() throws Exception {
+        if (generatedProjector != null) {
+            return generatedProjector.newInstance();
+        }
+        return instantiator.newTarget();
+    }
+
+    /**
+     * @return the projection of a target object created by {@link #newTarget()} after all steps have been applied to it
+     */
+    @SuppressWarnings("unchecked")
+    T complete(Object target) throws Exception {
+        if (instantiator == null) {
+            return (T) target;
+        }
+        return instantiator.complete(target);
+    }
+
+    /**
+     * Applies all steps of this plan to the target object.
+     */
+    @SuppressWarnings("unchecked")
+    void apply(Object source, Object target, ProjectionContext context) throws Exception {
+        if (generatedProjector != null) {
+            generatedProjector.project(source, (T) target, context);
+            return;
+        }
+        for (ProjectionStep step : steps) {
+            step.apply(source, target, context);
+        }
+    }
+
+    /**
+     * Applies all steps of this plan to the target object, reporting each step to the listener.
+     */
+    @SuppressWarnings("unchecked")
+    void applyObserved(Object source, Object target, ProjectionContext context, ProjectionListener listener) throws Exception {
+        if (generatedProjector != null) {
+            generatedProjector.project(source, (T) target, context);
+            return;
+        }
+        for (ProjectionStep step : steps) {
+            final long start = System.nanoTime();
+            step.apply(source, target, context);
+            listener.stepApplied(this, step, System.nanoTime() - start);
+            final int collectionSize = context.takeCollectionSize(step);
+            if (collectionSize >= 0) {
+                listener.collectionProjected(this, step, collectionSize);
+            }
+        }
+    }
+
+    /**
+     * Updates the existing target object with all steps of this plan. Plans delegating to a generated projector
+     * cannot update target objects.
+     */
+    void update(Object source, T target, ProjectionUpdate update) throws Exception {
+        if (generatedProjector != null) {
+            throw new IllegalStateException(this + " delegates to a generated projector and cannot update projections");
+        }
+        if (isImmutable()) {
+            throw new IllegalStateException(this + " creates immutable projections which cannot be updated");
+        }
+        for (ProjectionStep step : steps) {
+            step.update(source, target, update);
+        }
+    }
+
+    /**
+     * Writes all steps of this plan to the sink of the writer. Plans delegating to a generated projector cannot
+     * write to sinks.
+     */
+    void write(Object source, ProjectionWriter writer) throws Exception {
+        if (generatedProjector != null) {
+            throw new IllegalStateException(this + " delegates to a generated projector and cannot write to sinks");
+        }
+        for (ProjectionStep step : steps) {
+            step.write(source, writer);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ProjectionPlan[" + sourceClass.getName() + " -> " + targetClass.getName() + "]";
+    }
+}
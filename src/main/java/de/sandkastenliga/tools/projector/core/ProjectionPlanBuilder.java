@@ -0,0 +1,421 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import org.apache.commons.beanutils.PropertyUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Predicate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Builds {@link ProjectionPlan}s by introspecting the target class' setter methods and their
+ * {@link Projection} and {@link NoProjection} annotations as well as the source class' getter methods.
+ * The properties of immutable target classes are taken from their constructor or builder instead
+ * (see {@link TargetInstantiator}).
+ * @author Guido Laures
+ */
+final class ProjectionPlanBuilder {
+
+    private final PropertyAccessor propertyAccessor;
+    private final boolean useGeneratedProjectors;
+    private final boolean lazyProjections;
+    private final NullToPrimitivePolicy nullToPrimitivePolicy;
+    private final String profile;
+    private final boolean limitedDepth;
+    private final boolean checkLoadState;
+    private final Projector projector;
+
+    /**
+     * Creates a builder using the current configuration of the projector.
+     */
+    ProjectionPlanBuilder(Projector projector) {
+        this(projector, projector.isUseGeneratedProjectors(), null);
+    }
+
+    /**
+     * Creates a builder using the current configuration of the projector.
+     * @param useGeneratedProjectors false to build plans that never delegate to generated projectors (e.g. to update existing projections)
+     * @param profile                the profile of the plans or null to build plans projecting all properties
+     */
+    ProjectionPlanBuilder(Projector projector, boolean useGeneratedProjectors, String profile) {
+        this.projector = projector;
+        this.propertyAccessor = projector.getPropertyAccessor();
+        this.useGeneratedProjectors = useGeneratedProjectors;
+        this.profile = profile;
+        this.limitedDepth = projector.getMaxDepth() != Integer.MAX_VALUE;
+        this.checkLoadState = projector.getLoadStateResolver() != null;
+        this.lazyProjections = projector.isLazyProjections();
+        this.nullToPrimitivePolicy = projector.getNullToPrimitivePolicy();
+    }
+
+    <T> ProjectionPlan<T> build(Class<?> sourceClass, Class<T> targetClass) throws Exception {
+        // generated projectors only project the properties lazily which are annotated to be lazy,
+        // they know neither profiles nor the maximum depth and do not check load states
+        if (useGeneratedProjectors && !lazyProjections && profile == null && !limitedDepth && !checkLoadState) {
+            final GeneratedProjector<Object, T> generatedProjector = findGeneratedProjector(sourceClass, targetClass);
+            if (generatedProjector != null) {
+                return new ProjectionPlan<T>(sourceClass, targetClass, generatedProjector);
+            }
+        }
+        final TargetInstantiator<T> instantiator = TargetInstantiator.create(targetClass);
+        final boolean immutable = instantiator.getStagedProperties() != null;
+        final List<ProjectionStep> steps = new ArrayList<ProjectionStep>();
+        for (TargetProperty targetProperty : immutable ? instantiator.getStagedProperties() : getBeanProperties(targetClass)) {
+            final String propertyName = targetProperty.getName();
+            final Projection projectionAnnotation = targetProperty.getAnnotation();
+            if (projectionAnnotation != null && !isInProfile(projectionAnnotation)) {
+                continue;
+            }
+            if (projectionAnnotation == null) {
+                // default is to copy the value from the property of the source object with the same name
+                steps.add(createAsIsStep(targetClass, targetProperty, BeanProperties.getReadableProperty(sourceClass, propertyName)));
+                continue;
+            }
+            // if no explicit name given, we assume the same name on the source object
+            final String sourcePropertyName = (projectionAnnotation.propertyName().equals("")) ? propertyName : projectionAnnotation.propertyName();
+            if (projectionAnnotation.value() == ProjectionType.none) {
+                continue;
+            }
+            final PropertyDescriptor sourceProperty = BeanProperties.getReadableProperty(sourceClass, sourcePropertyName);
+            if (projectionAnnotation.value() == ProjectionType.asIs) {
+                steps.add(createAsIsStep(targetClass, targetProperty, sourceProperty));
+                continue;
+            }
+            final Function<Object, Object> targetReader = createTargetReader(targetProperty);
+            final BiConsumer<Object, Object> targetWriter = createWriter(targetClass, targetProperty);
+            final Method sourceReadMethod = PropertyUtils.getReadMethod(sourceProperty);
+            final Function<Object, Object> sourceReader = createSelectingReader(propertyAccessor.createReader(sourceProperty),
+                    getCollectionSelection(targetClass, propertyName, projectionAnnotation));
+            final boolean lazy = lazyProjections || projectionAnnotation.lazy();
+            final BatchResolver<Object, Object> resolver = getBatchResolver(targetClass, propertyName, projectionAnnotation);
+            if (resolver != null) {
+                // the step projecting the resolved object reads it as its source value
+                final ProjectionStep step = createResolvedStep(projectionAnnotation, propertyName, sourcePropertyName, targetReader, targetWriter,
+                        targetProperty.getType(), lazy);
+                // immutable projections are created before the keys of a batch would be resolved
+                steps.add(new ResolvingProjectionStep(sourcePropertyName, sourceReader, resolver, step, !immutable));
+                continue;
+            }
+            switch (projectionAnnotation.value()) {
+                case property:
+                    final ReferenceReader propertyReader = new ReferenceReader(sourceReadMethod.getReturnType(), projectionAnnotation.referencePropertyName(), propertyAccessor);
+                    // the type of the reference property is only known if it is declared by the referenced type
+                    final Converter<Object, Object> converter = propertyReader.getStaticProperty() == null
+                            ? null : findConverter(propertyReader.getStaticProperty().getPropertyType(), targetProperty.getType());
+                    steps.add(new PropertyProjectionStep(propertyName, sourcePropertyName, sourceReader, targetReader, targetWriter, propertyReader, converter));
+                    break;
+                case projection:
+                    if (lazy) {
+                        steps.add(new LazyNestedProjectionStep(propertyName, sourcePropertyName, sourceReader, targetReader, targetWriter,
+                                targetProperty.getType()));
+                    } else {
+                        steps.add(new NestedProjectionStep(propertyName, sourcePropertyName, sourceReader, targetReader, targetWriter,
+                                targetProperty.getType()));
+                    }
+                    break;
+                case propertyCollection:
+                    final ReferenceReader referenceReader = new ReferenceReader(BeanProperties.firstTypeArgument(sourceReadMethod.getGenericReturnType()),
+                            projectionAnnotation.referencePropertyName(), propertyAccessor);
+                    final Class<?> targetType = targetProperty.getType();
+                    if (targetType == int[].class && referenceReader.getStaticProperty() != null
+                            && Converters.boxed(referenceReader.getStaticProperty().getPropertyType()) == Long.class) {
+                        throw new IllegalStateException("Cannot project '" + propertyName + "' on class '" + targetClass
+                                + "': the long values of '" + projectionAnnotation.referencePropertyName() + "' do not fit into an int[]");
+                    }
+                    if (targetType == long[].class || targetType == int[].class) {
+                        steps.add(new PropertyArrayProjectionStep(propertyName, sourcePropertyName, sourceReader, targetReader, targetWriter,
+                                targetType.getComponentType(), referenceReader, propertyAccessor, nullToPrimitivePolicy));
+                    } else {
+                        steps.add(new PropertyCollectionProjectionStep(propertyName, sourcePropertyName, sourceReader, targetWriter,
+                                createTargetCollection(targetClass, targetProperty, targetReader, targetWriter), referenceReader));
+                    }
+                    break;
+                case projectionCollection:
+                    // the element type of the projected collection is the type argument of the setter's parameter
+                    final Class<?> elementProjectionClass = BeanProperties.firstTypeArgument(targetProperty.getGenericType());
+                    if (elementProjectionClass == null) {
+                        throw new IllegalStateException("Cannot determine the projection class of the elements of '" + propertyName
+                                + "' on class '" + targetClass + "': the setter's parameter needs to be a parameterized collection");
+                    }
+                    if (!lazy) {
+                        steps.add(new ProjectionCollectionProjectionStep(propertyName, sourcePropertyName, sourceReader, targetWriter,
+                                createTargetCollection(targetClass, targetProperty, targetReader, targetWriter), elementProjectionClass));
+                    } else if (targetProperty.getType().isAssignableFrom(List.class)) {
+                        // the lazy list replaces the target object's collection
+                        steps.add(new LazyProjectionCollectionProjectionStep(propertyName, sourcePropertyName, sourceReader, targetWriter,
+                                elementProjectionClass));
+                    } else {
+                        throw new IllegalStateException("Cannot project '" + propertyName + "' on class '" + targetClass
+                                + "' lazily: the setter's parameter needs to accept a List");
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unsupported projection type " + projectionAnnotation.value());
+            }
+        }
+        return new ProjectionPlan<T>(sourceClass, targetClass, steps, instantiator);
+    }
+
+    /**
+     * @return the properties of a mutable target class which can be set and are not annotated with {@link NoProjection}
+     */
+    static List<TargetProperty> getBeanProperties(Class<?> targetClass) {
+        final List<TargetProperty> properties = new ArrayList<TargetProperty>();
+        for (PropertyDescriptor descriptor : PropertyUtils.getPropertyDescriptors(targetClass)) {
+            final Method projectMethod = PropertyUtils.getWriteMethod(descriptor);
+            if (projectMethod == null || projectMethod.getAnnotation(NoProjection.class) != null) {
+                // we cannot set the property or do not want to project it
+                continue;
+            }
+            properties.add(new TargetProperty(descriptor));
+        }
+        return properties;
+    }
+
+    /**
+     * @return true if the annotated property is projected in the profile of the plan
+     */
+    private boolean isInProfile(Projection projectionAnnotation) {
+        if (profile == null || projectionAnnotation.profiles().length == 0) {
+            return true;
+        }
+        for (String propertyProfile : projectionAnnotation.profiles()) {
+            if (propertyProfile.equals(profile)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the batch resolver named by the annotation or null if the source object's property value is projected
+     */
+    @SuppressWarnings("unchecked")
+    private BatchResolver<Object, Object> getBatchResolver(Class<?> targetClass, String propertyName, Projection projectionAnnotation) {
+        final String resolverName = projectionAnnotation.resolver();
+        if (resolverName.isEmpty()) {
+            return null;
+        }
+        if (projectionAnnotation.value() != ProjectionType.property && projectionAnnotation.value() != ProjectionType.projection) {
+            throw new IllegalStateException("Cannot resolve '" + propertyName + "' on class '" + targetClass
+                    + "': batch resolvers can only be used with ProjectionType.property and ProjectionType.projection");
+        }
+        final BatchResolver<?, ?> resolver = projector.getBatchResolver(resolverName);
+        if (resolver == null) {
+            throw new IllegalStateException("Cannot resolve '" + propertyName + "' on class '" + targetClass
+                    + "': no batch resolver named '" + resolverName + "' has been set");
+        }
+        return (BatchResolver<Object, Object>) resolver;
+    }
+
+    /**
+     * @return the selection of the source collection's elements declared by the annotation or null if all elements are projected
+     */
+    @SuppressWarnings("unchecked")
+    private CollectionSelection getCollectionSelection(Class<?> targetClass, String propertyName, Projection projectionAnnotation) {
+        if (projectionAnnotation.limit() == Integer.MAX_VALUE && projectionAnnotation.filter().isEmpty() && projectionAnnotation.comparator().isEmpty()) {
+            return null;
+        }
+        if (projectionAnnotation.value() != ProjectionType.propertyCollection && projectionAnnotation.value() != ProjectionType.projectionCollection) {
+            throw new IllegalStateException("Cannot select the elements of '" + propertyName + "' on class '" + targetClass
+                    + "': limits, filters and comparators can only be used with ProjectionType.propertyCollection and ProjectionType.projectionCollection");
+        }
+        if (projectionAnnotation.limit() < 0) {
+            throw new IllegalStateException("The limit of '" + propertyName + "' on class '" + targetClass + "' must not be negative");
+        }
+        final Predicate<?> filter = projectionAnnotation.filter().isEmpty() ? null : projector.getCollectionFilter(projectionAnnotation.filter());
+        if (filter == null && !projectionAnnotation.filter().isEmpty()) {
+            throw new IllegalStateException("Cannot filter '" + propertyName + "' on class '" + targetClass
+                    + "': no collection filter named '" + projectionAnnotation.filter() + "' has been set");
+        }
+        final Comparator<?> comparator = projectionAnnotation.comparator().isEmpty() ? null : projector.getCollectionComparator(projectionAnnotation.comparator());
+        if (comparator == null && !projectionAnnotation.comparator().isEmpty()) {
+            throw new IllegalStateException("Cannot sort '" + propertyName + "' on class '" + targetClass
+                    + "': no collection comparator named '" + projectionAnnotation.comparator() + "' has been set");
+        }
+        return new CollectionSelection((Predicate<Object>) filter, (Comparator<Object>) comparator, projectionAnnotation.limit());
+    }
+
+    /**
+     * @return the reader of the source collection reading the selected elements only or the reader itself if there is no selection
+     */
+    private Function<Object, Object> createSelectingReader(final Function<Object, Object> reader, final CollectionSelection selection) {
+        if (selection == null) {
+            return reader;
+        }
+        // unloaded collections are left to the steps, selecting their elements would load them
+        final LoadStateResolver loadStateResolver = projector.getLoadStateResolver();
+        return source -> {
+            final Collection<?> sources = (Collection<?>) reader.apply(source);
+            return sources == null || loadStateResolver != null && !loadStateResolver.isLoaded(sources) ? sources : selection.select(sources);
+        };
+    }
+
+    /**
+     * @return the step projecting an object resolved by a batch resolver, the type of resolved objects is unknown
+     */
+    private ProjectionStep createResolvedStep(Projection projectionAnnotation, String propertyName, String sourcePropertyName,
+                                              Function<Object, Object> targetReader, BiConsumer<Object, Object> targetWriter, Class<?> type, boolean lazy) {
+        final Function<Object, Object> resolvedReader = Function.identity();
+        if (projectionAnnotation.value() == ProjectionType.property) {
+            return new PropertyProjectionStep(propertyName, sourcePropertyName, resolvedReader, targetReader, targetWriter,
+                    new ReferenceReader(null, projectionAnnotation.referencePropertyName(), propertyAccessor), null);
+        }
+        if (lazy) {
+            return new LazyNestedProjectionStep(propertyName, sourcePropertyName, resolvedReader, targetReader, targetWriter, type);
+        }
+        return new NestedProjectionStep(propertyName, sourcePropertyName, resolvedReader, targetReader, targetWriter, type);
+    }
+
+    private ProjectionStep createAsIsStep(Class<?> targetClass, TargetProperty targetProperty, PropertyDescriptor sourceProperty) {
+        final Class<?> type = targetProperty.getType();
+        if (targetProperty.getDescriptor() != null && type == sourceProperty.getPropertyType() && PrimitiveProjectionStep.isSupported(type)) {
+            // e.g. long onto long: transferred without boxing
+            return PrimitiveProjectionStep.create(targetProperty.getDescriptor(), sourceProperty, propertyAccessor);
+        }
+        if (targetProperty.getDescriptor() != null && PrimitiveProjectionStep.isSupported(type) && sourceProperty.getPropertyType() == Converters.boxed(type)) {
+            // e.g. Long onto long: unboxed once it is read
+            return PrimitiveProjectionStep.createUnboxing(targetClass, targetProperty.getDescriptor(), sourceProperty, propertyAccessor, nullToPrimitivePolicy);
+        }
+        // e.g. a Date onto an Instant: the values are converted as they are read
+        final Converter<Object, Object> converter = findConverter(sourceProperty.getPropertyType(), type);
+        final Function<Object, Object> reader = propertyAccessor.createReader(sourceProperty);
+        final Function<Object, Object> sourceReader = converter == null ? reader : source -> {
+            final Object value = reader.apply(source);
+            return value == null ? null : converter.convert(value);
+        };
+        return new AsIsProjectionStep(targetProperty.getName(), sourceProperty.getName(),
+                sourceReader, createTargetReader(targetProperty), createWriter(targetClass, targetProperty));
+    }
+
+    /**
+     * @return the converter of the projector for the pair of types or null if the values are projected as they are
+     */
+    @SuppressWarnings("unchecked")
+    private Converter<Object, Object> findConverter(Class<?> sourceType, Class<?> targetType) {
+        return (Converter<Object, Object>) projector.getConverter(sourceType, targetType);
+    }
+
+    /**
+     * @return the reader of a target property or null if it has no getter or is staged for an immutable projection
+     */
+    private Function<Object, Object> createTargetReader(TargetProperty targetProperty) {
+        final PropertyDescriptor descriptor = targetProperty.getDescriptor();
+        return descriptor == null || PropertyUtils.getReadMethod(descriptor) == null ? null : propertyAccessor.createReader(descriptor);
+    }
+
+    private BiConsumer<Object, Object> createWriter(final Class<?> targetClass, final TargetProperty targetProperty) {
+        return createWriter(targetClass, targetProperty, propertyAccessor, nullToPrimitivePolicy);
+    }
+
+    /**
+     * Creates the writer of a target property. Writers of primitive properties apply the
+     * {@link NullToPrimitivePolicy} to null values, {@code long}, {@code int} and {@code double} bean properties are
+     * written with the primitive writers of the property accessor.
+     */
+    static BiConsumer<Object, Object> createWriter(final Class<?> targetClass, final TargetProperty targetProperty,
+                                                   final PropertyAccessor propertyAccessor, final NullToPrimitivePolicy nullToPrimitivePolicy) {
+        final PropertyDescriptor descriptor = targetProperty.getDescriptor();
+        final Class<?> type = targetProperty.getType();
+        final BiConsumer<Object, Object> writer;
+        if (descriptor == null) {
+            writer = targetProperty.getStagedWriter();
+        } else if (type == long.class) {
+            final ObjLongConsumer<Object> longWriter = propertyAccessor.createLongWriter(descriptor);
+            writer = (target, value) -> longWriter.accept(target, (Long) value);
+        } else if (type == int.class) {
+            final ObjIntConsumer<Object> intWriter = propertyAccessor.createIntWriter(descriptor);
+            writer = (target, value) -> intWriter.accept(target, (Integer) value);
+        } else if (type == double.class) {
+            final ObjDoubleConsumer<Object> doubleWriter = propertyAccessor.createDoubleWriter(descriptor);
+            writer = (target, value) -> doubleWriter.accept(target, (Double) value);
+        } else {
+            writer = propertyAccessor.createWriter(descriptor);
+        }
+        if (type == null || !type.isPrimitive()) {
+            return writer;
+        }
+        switch (nullToPrimitivePolicy) {
+            case skip:
+                return (target, value) -> {
+                    if (value != null) {
+                        writer.accept(target, value);
+                    }
+                };
+            case defaultValue:
+                final Object defaultValue = Array.get(Array.newInstance(type, 1), 0);
+                return (target, value) -> writer.accept(target, value == null ? defaultValue : value);
+            default:
+                final String propertyName = targetProperty.getName();
+                return (target, value) -> {
+                    if (value == null) {
+                        throw new IllegalArgumentException("Cannot project null onto primitive property '" + propertyName
+                                + "' of class '" + targetClass + "'");
+                    }
+                    writer.accept(target, value);
+                };
+        }
+    }
+
+    /**
+     * Looks up the projector generated by the annotation processor for the target class.
+     * @return the generated projector or null if there is none for the given pair of classes
+     */
+    @SuppressWarnings("unchecked")
+    private <T> GeneratedProjector<Object, T> findGeneratedProjector(Class<?> sourceClass, Class<T> targetClass) throws Exception {
+        if (targetClass.getAnnotation(ProjectionSource.class) == null) {
+            return null;
+        }
+        final Class<?> generatedClass;
+        try {
+            generatedClass = Class.forName(targetClass.getName() + GeneratedProjector.CLASS_NAME_SUFFIX, true, targetClass.getClassLoader());
+        } catch (final ClassNotFoundException e) {
+            return null;
+        }
+        if (!GeneratedProjector.class.isAssignableFrom(generatedClass)) {
+            return null;
+        }
+        final GeneratedProjector<Object, T> generatedProjector;
+        try {
+            generatedProjector = (GeneratedProjector<Object, T>) generatedClass.getDeclaredConstructor().newInstance();
+        } catch (final InvocationTargetException e) {
+            // the constructor of the generated projector failed
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw (Exception) e.getCause();
+        }
+        if (generatedProjector.getTargetClass() != targetClass || !generatedProjector.getSourceClass().isAssignableFrom(sourceClass)) {
+            return null;
+        }
+        return generatedProjector;
+    }
+
+    private TargetCollection createTargetCollection(Class<?> targetClass, TargetProperty targetProperty, Function<Object, Object> targetReader, BiConsumer<Object, Object> targetWriter) {
+        return new TargetCollection(targetClass, targetProperty.getName(), targetProperty.getType(), targetReader, targetWriter);
+    }
+}
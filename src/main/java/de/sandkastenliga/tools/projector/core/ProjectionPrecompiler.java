@@ -0,0 +1,185 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import org.apache.commons.beanutils.PropertyUtils;
+
+import java.beans.PropertyDescriptor;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Builds and validates the plans of projections and all projections nested in them ahead of their first use.
+ * Nested projections are precompiled for the declared types of the source properties. Problems are collected
+ * and reported together.
+ * @author Guido Laures
+ * @see Projector#precompile(Class, Class)
+ */
+final class ProjectionPrecompiler {
+
+    private final Projector projector;
+    private final Set<List<Class<?>>> precompiled = new HashSet<List<Class<?>>>();
+    private final List<String> problems = new ArrayList<String>();
+
+    ProjectionPrecompiler(Projector projector) {
+        this.projector = projector;
+    }
+
+    /**
+     * Precompiles the projections of the source class onto the target class, unless already done by this precompiler.
+     */
+    void precompile(Class<?> sourceClass, Class<?> targetClass) {
+        final List<Class<?>> pair = new ArrayList<Class<?>>(2);
+        pair.add(sourceClass);
+        pair.add(targetClass);
+        if (!precompiled.add(pair)) {
+            return;
+        }
+        final ProjectionPlan<?> plan;
+        try {
+            projector.getPlan(sourceClass, targetClass);
+            // plans delegating to generated projectors have no steps, the runtime plan is validated as well
+            plan = projector.getUpdatePlan(sourceClass, targetClass);
+        } catch (final RuntimeException e) {
+            final Throwable cause = e.getClass() == RuntimeException.class && e.getCause() != null ? e.getCause() : e;
+            problems.add(sourceClass.getName() + " -> " + targetClass.getName() + ": " + cause.getMessage());
+            return;
+        }
+        for (ProjectionStep step : plan.getSteps()) {
+            validateReference(plan, step);
+            final Class<?> projectionClass = step.getProjectionClass();
+            if (projectionClass == null || step instanceof ResolvingProjectionStep) {
+                // the class of objects resolved by batch resolvers is unknown
+                continue;
+            }
+            final PropertyDescriptor sourceProperty = BeanProperties.findReadableProperty(sourceClass, step.getSourcePropertyName());
+            final Class<?> nestedSourceClass = step.getType() == ProjectionType.projectionCollection
+                    ? BeanProperties.firstTypeArgument(PropertyUtils.getReadMethod(sourceProperty).getGenericReturnType())
+                    : sourceProperty.getPropertyType();
+            if (nestedSourceClass != null) {
+                precompile(nestedSourceClass, projectionClass);
+            }
+        }
+    }
+
+    /**
+     * Precompiles the projection of a class annotated with {@link ProjectionSource}.
+     */
+    void precompile(Class<?> targetClass) {
+        final ProjectionSource projectionSource = targetClass.getAnnotation(ProjectionSource.class);
+        if (projectionSource == null) {
+            problems.add(targetClass.getName() + ": the class of its source objects is unknown, it needs to be annotated with @ProjectionSource");
+            return;
+        }
+        precompile(projectionSource.value(), targetClass);
+    }
+
+    /**
+     * Precompiles the projections of all classes annotated with {@link ProjectionSource} in the package and its
+     * sub packages.
+     */
+    void precompilePackage(String packageName, ClassLoader classLoader) {
+        final List<String> classNames = new ArrayList<String>();
+        try {
+            final Enumeration<URL> resources = classLoader.getResources(packageName.replace('.', '/'));
+            while (resources.hasMoreElements()) {
+                findClassNames(resources.nextElement(), packageName, classNames);
+            }
+        } catch (final IOException | URISyntaxException e) {
+            throw new IllegalStateException("Cannot scan package '" + packageName + "'", e);
+        }
+        for (String className : classNames) {
+            final Class<?> type;
+            try {
+                type = Class.forName(className, false, classLoader);
+            } catch (final ClassNotFoundException | LinkageError e) {
+                continue;
+            }
+            if (type.getAnnotation(ProjectionSource.class) != null && !Modifier.isAbstract(type.getModifiers())) {
+                precompile(type);
+            }
+        }
+    }
+
+    /**
+     * @throws ProjectionConfigurationException if any problems have been found
+     */
+    void validate() {
+        if (!problems.isEmpty()) {
+            throw new ProjectionConfigurationException(problems);
+        }
+    }
+
+    /**
+     * Reference properties missing on the declared type of the referenced objects are looked up on their runtime
+     * classes, which can only provide them if the declared type is an interface or abstract.
+     */
+    private void validateReference(ProjectionPlan<?> plan, ProjectionStep step) {
+        final ReferenceReader referenceReader = step.getReferenceReader();
+        if (referenceReader == null || referenceReader.getStaticProperty() != null) {
+            return;
+        }
+        final Class<?> referencedType = referenceReader.getReferencedType();
+        if (referencedType != null && !referencedType.isInterface() && !Modifier.isAbstract(referencedType.getModifiers())) {
+            problems.add(plan.getSourceClass().getName() + " -> " + plan.getTargetClass().getName() + ": unknown reference property '"
+                    + referenceReader.getPropertyName() + "' of property '" + step.getPropertyName() + "' on class '" + referencedType + "'");
+        }
+    }
+
+    private static void findClassNames(URL resource, String packageName, List<String> classNames) throws IOException, URISyntaxException {
+        if ("file".equals(resource.getProtocol())) {
+            findClassNames(new File(resource.toURI()), packageName, classNames);
+        } else if ("jar".equals(resource.getProtocol())) {
+            final JarURLConnection connection = (JarURLConnection) resource.openConnection();
+            connection.setUseCaches(false);
+            final String prefix = packageName.replace('.', '/') + '/';
+            try (JarFile jarFile = connection.getJarFile()) {
+                final Enumeration<JarEntry> entries = jarFile.entries();
+                while (entries.hasMoreElements()) {
+                    final String name = entries.nextElement().getName();
+                    if (name.startsWith(prefix) && name.endsWith(".class")) {
+                        classNames.add(name.substring(0, name.length() - ".class".length()).replace('/', '.'));
+                    }
+                }
+            }
+        }
+    }
+
+    private static void findClassNames(File directory, String packageName, List<String> classNames) {
+        final File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            final String name = file.getName();
+            if (file.isDirectory()) {
+                findClassNames(file, packageName + '.' + name, classNames);
+            } else if (name.endsWith(".class")) {
+                classNames.add(packageName + '.' + name.substring(0, name.length() - ".class".length()));
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import java.io.IOException;
+
+/**
+ * Receives the projection of an object graph as a sequence of events instead of projection instances, e.g. to
+ * serialize it while it is being projected. Objects are reported as a name and a value per projected property
+ * between {@link #beginObject()} and {@link #endObject()}, collections as values between {@link #beginArray()} and
+ * {@link #endArray()}. A sink is used by one projection at a time and does not need to be thread-safe.
+ * @author Guido Laures
+ * @see Projector#projectTo(Object, Class, ProjectionSink)
+ * @see JsonSink
+ */
+public interface ProjectionSink {
+
+    /**
+     * Starts a projected object, either the projected object itself, the value of a property or an element of an array.
+     */
+    void beginObject() throws IOException;
+
+    /**
+     * Ends the projected object started last.
+     */
+    void endObject() throws IOException;
+
+    /**
+     * Starts the projection of a collection, either as the value of a property or as an element of an array.
+     */
+    void beginArray() throws IOException;
+
+    /**
+     * Ends the projected collection started last.
+     */
+    void endArray() throws IOException;
+
+    /**
+     * Reports the name of the next projected property of the current object, it is followed by exactly one value,
+     * object or array.
+     * @param name the name of the property of the projection class
+     */
+    void name(String name) throws IOException;
+
+    /**
+     * Reports a value copied from a source object.
+     * @param value the value or null
+     */
+    void value(Object value) throws IOException;
+
+    /**
+     * Reports a value of a primitive {@code long} or {@code int} property without boxing it.
+     */
+    void value(long value) throws IOException;
+
+    /**
+     * Reports a value of a primitive {@code double} property without boxing it.
+     */
+    void value(double value) throws IOException;
+
+    /**
+     * Called when all objects passed to the projector have been reported.
+     */
+    void flush() throws IOException;
+}
@@ -0,0 +1,38 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares the class of the source objects that are projected onto the annotated target class (projection).
+ * This is not required for projections at runtime but allows the ModelProjector annotation processor
+ * (module {@code modelprojector-processor}) to validate the projection and to generate a reflection-free
+ * {@link GeneratedProjector} for the annotated class at compile time.
+ * @author Guido Laures
+ * @see GeneratedProjector
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ProjectionSource {
+
+    /**
+     * @return the class of the objects projected onto the annotated class
+     */
+    Class<?> value();
+}
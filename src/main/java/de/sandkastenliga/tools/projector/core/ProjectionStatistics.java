@@ -0,0 +1,290 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link ProjectionListener} aggregating the measurements of all projections in memory per pair of source and
+ * target class. The statistics are meant to be read periodically and exported to a metrics system. Recording
+ * does not lock, so it can be shared by all threads of an application.
+ * <pre>
+ * ProjectionStatistics statistics = new ProjectionStatistics();
+ * projector.setProjectionListener(statistics);
+ * ...
+ * for (ProjectionStatistics.Entry entry : statistics.getEntries()) {
+ *     entry.getLatency().getPercentile(0.99);
+ * }
+ * </pre>
+ * @author Guido Laures
+ */
+public class ProjectionStatistics implements ProjectionListener {
+
+    private final ConcurrentMap<ClassPair, Entry> entries = new ConcurrentHashMap<ClassPair, Entry>();
+
+    @Override
+    public void projected(ProjectionPlan<?> plan, int depth, long nanos) {
+        final Entry entry = getEntry(plan);
+        entry.latency.record(nanos);
+        entry.depth.record(depth);
+    }
+
+    @Override
+    public void stepApplied(ProjectionPlan<?> plan, ProjectionStep step, long nanos) {
+        getEntry(plan).stepLatencies.get(step.getType()).record(nanos);
+    }
+
+    @Override
+    public void collectionProjected(ProjectionPlan<?> plan, ProjectionStep step, int size) {
+        getEntry(plan).collectionSize.record(size);
+    }
+
+    @Override
+    public void failed(ProjectionPlan<?> plan, int depth, Throwable failure) {
+        getEntry(plan).failures.increment();
+    }
+
+    /**
+     * @return the statistics of all pairs of classes projected since the statistics have been created or reset
+     */
+    public Collection<Entry> getEntries() {
+        return new ArrayList<Entry>(entries.values());
+    }
+
+    /**
+     * @return the statistics of projections of the source class onto the target class or null if there has been none
+     */
+    public Entry getEntry(Class<?> sourceClass, Class<?> targetClass) {
+        return entries.get(new ClassPair(sourceClass, targetClass));
+    }
+
+    /**
+     * Discards all statistics.
+     */
+    public void reset() {
+        entries.clear();
+    }
+
+    private Entry getEntry(ProjectionPlan<?> plan) {
+        final ClassPair key = new ClassPair(plan.getSourceClass(), plan.getTargetClass());
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            final Entry existing = entries.putIfAbsent(key, entry = new Entry(key.sourceClass, key.targetClass));
+            if (existing != null) {
+                entry = existing;
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * The statistics of the projections of one source class onto one target class.
+     */
+    public static final class Entry {
+
+        private final Class<?> sourceClass;
+        private final Class<?> targetClass;
+        private final Histogram latency = new Histogram();
+        private final Histogram depth = new Histogram();
+        private final Histogram collectionSize = new Histogram();
+        private final Map<ProjectionType, Histogram> stepLatencies = new EnumMap<ProjectionType, Histogram>(ProjectionType.class);
+        private final LongAdder failures = new LongAdder();
+
+        Entry(Class<?> sourceClass, Class<?> targetClass) {
+            this.sourceClass = sourceClass;
+            this.targetClass = targetClass;
+            for (ProjectionType type : ProjectionType.values()) {
+                stepLatencies.put(type, new Histogram());
+            }
+        }
+
+        public Class<?> getSourceClass() {
+            return sourceClass;
+        }
+
+        public Class<?> getTargetClass() {
+            return targetClass;
+        }
+
+        /**
+         * @return the number of successful projections
+         */
+        public long getCount() {
+            return latency.getCount();
+        }
+
+        /**
+         * @return the number of failed projections
+         */
+        public long getFailures() {
+            return failures.sum();
+        }
+
+        /**
+         * @return the latencies of the projections in nanoseconds, including their nested projections
+         */
+        public Histogram getLatency() {
+            return latency;
+        }
+
+        /**
+         * @return the depths of the projections within the projected object graphs
+         */
+        public Histogram getDepth() {
+            return depth;
+        }
+
+        /**
+         * @return the sizes of the source collections projected by collection steps
+         */
+        public Histogram getCollectionSize() {
+            return collectionSize;
+        }
+
+        /**
+         * @return the latencies in nanoseconds of the steps of the given type, including their nested projections
+         */
+        public Histogram getStepLatency(ProjectionType type) {
+            return stepLatencies.get(type);
+        }
+
+        @Override
+        public String toString() {
+            return sourceClass.getName() + " -> " + targetClass.getName() + ": " + getCount() + " projections, "
+                    + getFailures() + " failures, latency " + latency;
+        }
+    }
+
+    /**
+     * A histogram of non-negative values with buckets whose bounds are powers of two. Bucket 0 counts the value 0,
+     * bucket {@code i} counts the values from {@code 2^(i-1)} to {@code 2^i - 1}, so percentiles are accurate
+     * within a factor of two.
+     */
+    public static final class Histogram {
+
+        private final LongAdder[] buckets = new LongAdder[Long.SIZE + 1];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        Histogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long value) {
+            buckets[Long.SIZE - Long.numberOfLeadingZeros(value)].increment();
+            count.increment();
+            sum.add(value);
+            max.accumulate(value);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getSum() {
+            return sum.sum();
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        public double getMean() {
+            final long count = getCount();
+            return count == 0 ? 0 : (double) getSum() / count;
+        }
+
+        /**
+         * @return the number of recorded values per bucket
+         */
+        public long[] getBucketCounts() {
+            final long[] counts = new long[buckets.length];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = buckets[i].sum();
+            }
+            return counts;
+        }
+
+        /**
+         * @param bucket the index of a bucket
+         * @return the largest value counted by the bucket
+         */
+        public static long getUpperBound(int bucket) {
+            return bucket == Long.SIZE ? Long.MAX_VALUE : (1L << bucket) - 1;
+        }
+
+        /**
+         * @param percentile the percentile between 0 and 1, e.g. 0.99
+         * @return the upper bound of the bucket containing the percentile (but not more than the maximum) or 0 if
+         * no values have been recorded
+         */
+        public long getPercentile(double percentile) {
+            final long[] counts = getBucketCounts();
+            long total = 0;
+            for (long bucketCount : counts) {
+                total += bucketCount;
+            }
+            final long rank = (long) Math.ceil(percentile * total);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank && seen > 0) {
+                    return Math.min(getUpperBound(i), getMax());
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + getCount() + ", mean=" + (long) getMean() + ", p99=" + getPercentile(0.99) + ", max=" + getMax();
+        }
+    }
+
+    private static final class ClassPair {
+
+        private final Class<?> sourceClass;
+        private final Class<?> targetClass;
+
+        ClassPair(Class<?> sourceClass, Class<?> targetClass) {
+            this.sourceClass = sourceClass;
+            this.targetClass = targetClass;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof ClassPair)) {
+                return false;
+            }
+            final ClassPair other = (ClassPair) o;
+            return sourceClass == other.sourceClass && targetClass == other.targetClass;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * sourceClass.hashCode() + targetClass.hashCode();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * A single, fully resolved step of a {@link ProjectionPlan}. Each step projects exactly one property
+ * of the target object. All introspection (property descriptors, annotations, generic types) has been
+ * done when the step was created, so applying it only invokes the resolved property accessors.
+ * @author Guido Laures
+ * @see ProjectionPlan
+ */
+public abstract class ProjectionStep {
+
+    private final ProjectionType type;
+    private final String propertyName;
+    private final String sourcePropertyName;
+    final Function<Object, Object> sourceReader;
+    final Function<Object, Object> targetReader;
+    final BiConsumer<Object, Object> targetWriter;
+
+    ProjectionStep(ProjectionType type, String propertyName, String sourcePropertyName, Function<Object, Object> sourceReader, BiConsumer<Object, Object> targetWriter) {
+        this(type, propertyName, sourcePropertyName, sourceReader, null, targetWriter);
+    }
+
+    /**
+     * @param targetReader the reader of the target property used to detect changes when updating projections or
+     *                     null if the target property cannot be read
+     */
+    ProjectionStep(ProjectionType type, String propertyName, String sourcePropertyName, Function<Object, Object> sourceReader, Function<Object, Object> targetReader, BiConsumer<Object, Object> targetWriter) {
+        this.type = type;
+        this.propertyName = propertyName;
+        this.sourcePropertyName = sourcePropertyName;
+        this.sourceReader = sourceReader;
+        this.targetReader = targetReader;
+        this.targetWriter = targetWriter;
+    }
+
+    /**
+     * @return the type of projection this step performs
+     */
+    public ProjectionType getType() {
+        return type;
+    }
+
+    /**
+     * @return the name of the projected property on the target object
+     */
+    public String getPropertyName() {
+        return propertyName;
+    }
+
+    /**
+     * @return the name of the property on the source object that is projected
+     */
+    public String getSourcePropertyName() {
+        return sourcePropertyName;
+    }
+
+    /**
+     * Projects the property of the source object onto the target object.
+     * @param source the object that is projected
+     * @param target the projection the property is written to
+     * @param context the context of the current projection used for nested projections
+     * @throws Exception if reading or writing a property fails
+     */
+    abstract void apply(Object source, Object target, ProjectionContext context) throws Exception;
+
+    /**
+     * Projects the property of the source object onto an existing target object, writing it only if its value has
+     * changed. Nested projections are updated in place where possible.
+     * @param source the object that is projected
+     * @param target the existing projection
+     * @param update the state of the current update used for nested projections and to record changed properties
+     * @throws Exception if reading or writing a property fails
+     */
+    abstract void update(Object source, Object target, ProjectionUpdate update) throws Exception;
+
+    /**
+     * Writes the projected property of the source object to the sink of the writer as a name followed by its value,
+     * or nothing if {@link #apply(Object, Object, ProjectionContext)} would not write the property.
+     * @param source the object that is projected
+     * @param writer the state of the current write used for nested projections
+     * @throws Exception if reading a property or writing to the sink fails
+     */
+    abstract void write(Object source, ProjectionWriter writer) throws Exception;
+
+    /**
+     * Applies the {@link UnloadedAssociationPolicy} to an association of the source object that has not been loaded.
+     * @param value           the unloaded value of the association
+     * @param projectionClass the class of the projection of an unloaded entity or null if the association is a collection
+     */
+    void applyUnloaded(Object target, Object value, Class<?> projectionClass, ProjectionContext context) throws Exception {
+        switch (context.getUnloadedAssociationPolicy()) {
+            case setNull:
+                targetWriter.accept(target, null);
+                break;
+            case idOnly:
+                final Object projection = projectionClass == null ? null : context.projectIdentifier(value, projectionClass);
+                if (projection != null) {
+                    targetWriter.accept(target, projection);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Writes an association of the source object that has not been loaded according to the {@link UnloadedAssociationPolicy}.
+     * @param value           the unloaded value of the association
+     * @param projectionClass the class of the projection of an unloaded entity or null if the association is a collection
+     */
+    void writeUnloaded(Object value, Class<?> projectionClass, ProjectionWriter writer) throws Exception {
+        switch (writer.getContext().getUnloadedAssociationPolicy()) {
+            case setNull:
+                writer.getSink().name(propertyName);
+                writer.getSink().value(null);
+                break;
+            case idOnly:
+                if (projectionClass != null) {
+                    writer.writeIdentifier(propertyName, value, projectionClass);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * @return the value of the source object's property this step projects
+     */
+    Object readSourceValue(Object source, ProjectionContext context) throws Exception {
+        return sourceReader.apply(source);
+    }
+
+    /**
+     * @return the class of the nested projections this step creates or null if it does not create any
+     */
+    Class<?> getProjectionClass() {
+        return null;
+    }
+
+    /**
+     * @return the reader of the reference property this step reads or null if it does not read any
+     */
+    ReferenceReader getReferenceReader() {
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + sourcePropertyName + " -> " + propertyName;
+    }
+}
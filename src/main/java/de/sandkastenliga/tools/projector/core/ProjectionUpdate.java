@@ -0,0 +1,146 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The state of one call to {@link Projector#projectInto(Object, Object)}. Projections nested in the existing
+ * projection are updated in place where possible and every property written is recorded with its path.
+ * The path of the property currently updated is kept on a stack, so no path is built unless a property changes.
+ * @author Guido Laures
+ */
+final class ProjectionUpdate {
+
+    private final ProjectionContext context;
+    private String[] names = new String[8];
+    private int[] indices = new int[8];
+    private int depth;
+    private List<String> changes;
+
+    ProjectionUpdate(ProjectionContext context) {
+        this.context = context;
+    }
+
+    ProjectionContext getContext() {
+        return context;
+    }
+
+    /**
+     * Updates the existing target object with the given plan, registering it as the projection of the source
+     * object within the context.
+     */
+    <T> void update(Object source, T target, ProjectionPlan<T> plan) throws Exception {
+        final ProjectionContext.Projected projected = context.register(source, plan.getTargetClass(), target);
+        plan.update(source, target, this);
+        projected.complete = true;
+    }
+
+    /**
+     * Returns the projection of a source object nested in the updated object graph. If the source object has
+     * already been projected within the context, that projection is returned. Otherwise the current projection is
+     * updated if it is an instance of the projection class or a new projection is created. Immutable projections
+     * and projections of source objects cached by the {@link ProjectionCache} are replaced by a new projection
+     * unless it equals the current one.
+     *
+     * @param propertyName the name of the property holding the projection
+     * @param index        the index of the projection within the property's list or -1
+     * @param lazy         true to create a lazy projection if a new projection is needed
+     * @return the projection to be set or null if the source object closes a cycle and {@link CyclePolicy#setNull} is used
+     */
+    Object updateNested(Object source, Object current, Class<?> projectionClass, String propertyName, int index, boolean lazy) throws Exception {
+        final ProjectionContext.Projected projected = context.find(source, projectionClass);
+        if (projected != null) {
+            return context.resolve(projected, source);
+        }
+        if (current == null || !projectionClass.isInstance(current)) {
+            return lazy ? context.projectLazily(source, projectionClass) : context.projectNested(source, projectionClass);
+        }
+        final ProjectionPlan<?> plan = context.getProjector().getUpdatePlan(source.getClass(), projectionClass);
+        if (plan.isImmutable() || isShared(source)) {
+            // immutable projections and projections the result cache may have returned to other callers are
+            // replaced unless the new projection equals the current one
+            final Object projection = context.projectNested(source, projectionClass);
+            return current.equals(projection) ? current : projection;
+        }
+        enter(propertyName, index);
+        try {
+            updateNested(source, current, plan);
+        } finally {
+            depth--;
+        }
+        return current;
+    }
+
+    /**
+     * @return true if projections of the source object may be shared by the result cache, so they must not be updated in place
+     */
+    private boolean isShared(Object source) {
+        final ProjectionCache resultCache = context.getProjector().getResultCache();
+        return resultCache != null && resultCache.isCached(source);
+    }
+
+    private <T> void updateNested(Object source, Object current, ProjectionPlan<T> plan) throws Exception {
+        update(source, plan.getTargetClass().cast(current), plan);
+    }
+
+    /**
+     * Records that the property of the object currently updated has been changed.
+     */
+    void changed(String propertyName) {
+        changed(propertyName, -1);
+    }
+
+    /**
+     * Records that the entry of the list property of the object currently updated has been changed.
+     */
+    void changed(String propertyName, int index) {
+        final StringBuilder path = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            append(path, names[i], indices[i]);
+        }
+        append(path, propertyName, index);
+        if (changes == null) {
+            changes = new ArrayList<String>();
+        }
+        changes.add(path.toString());
+    }
+
+    ProjectionChanges getChanges() {
+        return changes == null ? ProjectionChanges.NONE : new ProjectionChanges(changes);
+    }
+
+    private void enter(String propertyName, int index) {
+        if (depth == names.length) {
+            names = Arrays.copyOf(names, depth * 2);
+            indices = Arrays.copyOf(indices, depth * 2);
+        }
+        names[depth] = propertyName;
+        indices[depth] = index;
+        depth++;
+    }
+
+    private static void append(StringBuilder path, String propertyName, int index) {
+        if (path.length() > 0) {
+            path.append('.');
+        }
+        path.append(propertyName);
+        if (index >= 0) {
+            path.append('[').append(index).append(']');
+        }
+    }
+}
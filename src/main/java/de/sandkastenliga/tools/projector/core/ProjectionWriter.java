@@ -0,0 +1,127 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import java.util.Arrays;
+
+/**
+ * The state of one call to {@link Projector#projectTo(Object, Class, ProjectionSink)}. The source objects
+ * currently being written are kept on a stack to detect cycles, as a sink cannot refer to an object it has
+ * already received. Source objects referenced several times are written each time they are referenced.
+ * @author Guido Laures
+ */
+final class ProjectionWriter {
+
+    private final ProjectionContext context;
+    private final ProjectionSink sink;
+    private final int maxDepth;
+    private Object[] sources = new Object[8];
+    private Class<?>[] projectionClasses = new Class<?>[8];
+    private int depth;
+
+    ProjectionWriter(ProjectionContext context, ProjectionSink sink) {
+        this.context = context;
+        this.sink = sink;
+        this.maxDepth = context.getProjector().getMaxDepth();
+    }
+
+    ProjectionContext getContext() {
+        return context;
+    }
+
+    ProjectionSink getSink() {
+        return sink;
+    }
+
+    /**
+     * @return true if the object currently written has reached the {@link Projector#setMaxDepth(int) maximum depth},
+     * so it must not write any nested projections
+     */
+    boolean isMaxDepthReached() {
+        return depth >= maxDepth;
+    }
+
+    /**
+     * Writes the projection of the source object as an object to the sink.
+     */
+    void write(Object source, ProjectionPlan<?> plan) throws Exception {
+        if (depth == sources.length) {
+            sources = Arrays.copyOf(sources, depth * 2);
+            projectionClasses = Arrays.copyOf(projectionClasses, depth * 2);
+        }
+        sources[depth] = source;
+        projectionClasses[depth++] = plan.getTargetClass();
+        try {
+            sink.beginObject();
+            plan.write(source, this);
+            sink.endObject();
+        } finally {
+            sources[--depth] = null;
+        }
+    }
+
+    /**
+     * Writes the projection of a source object nested in the written object graph to the sink.
+     *
+     * @param name the name of the property holding the projection or null if it is an element of an array or
+     *             the object passed to the projector
+     * @return false if nothing has been written because the source object closes a cycle and {@link CyclePolicy#setNull} is used
+     * or it is left out by the {@link ProjectionBudget}
+     * @throws ProjectionCycleException if the source object closes a cycle and any other cycle policy is used
+     * @throws ProjectionBudgetExceededException if a limit of the budget is exceeded and {@link BudgetPolicy#fail} is used
+     */
+    boolean writeNested(String name, Object source, Class<?> projectionClass) throws Exception {
+        for (int i = 0; i < depth; i++) {
+            if (sources[i] == source && projectionClasses[i] == projectionClass) {
+                if (context.getProjector().getCyclePolicy() == CyclePolicy.setNull) {
+                    return false;
+                }
+                throw new ProjectionCycleException("Cycle detected: " + source.getClass().getName() + "@"
+                        + Integer.toHexString(System.identityHashCode(source)) + " is already being written as "
+                        + projectionClass.getName() + ", cycles cannot be written to a sink");
+            }
+        }
+        if (!context.isWithinBudget(source, projectionClass, depth)) {
+            return false;
+        }
+        if (name != null) {
+            sink.name(name);
+        }
+        write(source, context.getProjector().getUpdatePlan(source.getClass(), projectionClass, context.getProfile()));
+        return true;
+    }
+
+    /**
+     * Writes a projection of an unloaded entity with only its identifier set.
+     *
+     * @param name the name of the property holding the projection or null if it is an element of an array
+     * @return false if nothing has been written because the identifier cannot be projected onto the projection class
+     * @see UnloadedAssociationPolicy#idOnly
+     */
+    boolean writeIdentifier(String name, Object entity, Class<?> projectionClass) throws Exception {
+        final String identifierName = context.getProjectedIdentifierName(entity, projectionClass);
+        if (identifierName == null) {
+            return false;
+        }
+        if (name != null) {
+            sink.name(name);
+        }
+        sink.beginObject();
+        sink.name(identifierName);
+        sink.value(context.getIdentifier(entity));
+        sink.endObject();
+        return true;
+    }
+}
@@ -14,14 +14,30 @@
  */
 package de.sandkastenliga.tools.projector.core;
 
-
 import org.apache.commons.beanutils.PropertyUtils;
 
 import java.beans.PropertyDescriptor;
-import java.lang.reflect.Method;
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A Projector is usually instatiated one time as a central component of your application.
@@ -32,10 +48,68 @@ import java.util.Collection;
  */
 public class Projector {
 
+    private static final BiConsumer<Object, Object> NO_WRITER = (target, value) -> {
+    };
+
+    /**
+     * Projection plans are attached to the target class via a {@link ClassValue}. This keeps the lookup
+     * thread-safe and lock-free and ties the lifetime of the cached plans to the target class so that they
+     * do not prevent class loaders (e.g. of redeployed web applications) from being garbage collected.
+     */
+    private volatile ClassValue<ConcurrentMap<Class<?>, ProjectionPlan<?>>> plans = createPlanCache();
+    /**
+     * Plans updating existing projections never delegate to generated projectors, they are only cached separately
+     * if the plan of the same pair of classes does.
+     */
+    private volatile ClassValue<ConcurrentMap<Class<?>, ProjectionPlan<?>>> updatePlans = createPlanCache();
+    /**
+     * The plans of projections done for a profile by the name of the profile.
+     */
+    private volatile ConcurrentMap<String, ClassValue<ConcurrentMap<Class<?>, ProjectionPlan<?>>>> profilePlans =
+            new ConcurrentHashMap<String, ClassValue<ConcurrentMap<Class<?>, ProjectionPlan<?>>>>();
+    /**
+     * The plans of projecting rows by projection class, see {@link #projectRows(ResultSet, Class)}.
+     */
+    private volatile ClassValue<RowPlan<?>> rowPlans = createRowPlanCache();
+
+    private volatile PropertyAccessor propertyAccessor = PropertyAccessMode.getDefault().createAccessor();
+    private volatile boolean useGeneratedProjectors = true;
+    private volatile int parallelThreshold = 1000;
+    private volatile CyclePolicy cyclePolicy = CyclePolicy.reuse;
+    private volatile boolean lazyProjections;
+    private volatile NullToPrimitivePolicy nullToPrimitivePolicy = NullToPrimitivePolicy.fail;
+    private volatile ProjectionListener projectionListener;
+    private volatile int maxDepth = Integer.MAX_VALUE;
+    private volatile LoadStateResolver loadStateResolver;
+    private volatile UnloadedAssociationPolicy unloadedAssociationPolicy = UnloadedAssociationPolicy.skip;
+    /**
+     * The batch resolvers by name, replaced as a whole when a resolver is set.
+     */
+    private volatile Map<String, BatchResolver<?, ?>> batchResolvers = Collections.emptyMap();
+    /**
+     * The converters by pair of types, replaced as a whole when a converter is set.
+     */
+    private volatile Converters converters = Converters.BUILT_IN;
+    /**
+     * The filters and comparators of collection properties by name, replaced as a whole when one is set.
+     */
+    private volatile Map<String, Predicate<?>> collectionFilters = Collections.emptyMap();
+    private volatile Map<String, Comparator<?>> collectionComparators = Collections.emptyMap();
+    private volatile ProjectionCache resultCache;
+    private volatile ProjectionBudget projectionBudget = ProjectionBudget.UNLIMITED;
+    /**
+     * Writers of the identifier properties of projections by projection class and property name, see {@link UnloadedAssociationPolicy#idOnly}.
+     */
+    private volatile ClassValue<ConcurrentMap<String, BiConsumer<Object, Object>>> identifierWriters = createIdentifierWriterCache();
+
     /**
      * This method returns the projection of a source object according to the rules specified on the
      * projectionClass' annotations.
      *
+     * Each source object within the projected object graph is projected only once per projection class,
+     * so source objects referenced several times share the same projection. Cycles in the object graph are
+     * handled according to the {@link #setCyclePolicy(CyclePolicy) cycle policy}.
+     *
      * @param source          The source object which should be projected onto a different target object class
      * @param projectionClass The class to be used for the projection
      * @return the projected version of source object
@@ -43,77 +117,1030 @@ public class Projector {
      * @see ProjectionType
      */
     public <T> T project(final Object source, final Class<T> projectionClass) {
+        return project(source, projectionClass, null);
+    }
+
+    /**
+     * Projects the source object for a profile (use case). Properties annotated with other
+     * {@link Projection#profiles() profiles} are not projected, neither by the projection itself nor by the
+     * projections nested in it. Each pair of classes has a plan of its own per profile.
+     *
+     * @param source          The source object which should be projected onto a different target object class
+     * @param projectionClass The class to be used for the projection
+     * @param profile         The name of the profile or null to project all properties
+     * @return the projected version of source object
+     * @see #project(Object, Class)
+     */
+    public <T> T project(final Object source, final Class<T> projectionClass, final String profile) {
+        return projectWith(new ProjectionContext(this, profile, createBatchResolution()), source, projectionClass);
+    }
+
+    /**
+     * Projects the source object within a budget limiting the size of the projected object graph and the time the
+     * projection may take. Limits using {@link BudgetPolicy#truncate} leave out the parts of the object graph
+     * exceeding them and mark the result as truncated.
+     *
+     * @param source          The source object which should be projected onto a different target object class
+     * @param projectionClass The class to be used for the projection
+     * @param budget          The budget of this call, replacing the {@link #setProjectionBudget(ProjectionBudget) projector's budget}
+     * @return the projected version of source object and the limits of the budget it has exceeded
+     * @throws ProjectionBudgetExceededException if a limit using {@link BudgetPolicy#fail} is exceeded
+     */
+    public <T> BudgetedProjection<T> projectWithin(final Object source, final Class<T> projectionClass, final ProjectionBudget budget) {
+        final ProjectionContext context = new ProjectionContext(this, null, createBatchResolution(), budget);
+        final T projection = projectWith(context, source, projectionClass);
+        return new BudgetedProjection<T>(projection, context.getExceededLimits());
+    }
+
+    private <T> T projectWith(final ProjectionContext context, final Object source, final Class<T> projectionClass) {
         try {
-            final T result = projectionClass.newInstance();
-            for (PropertyDescriptor propertyProjectedOntoDescriptor : PropertyUtils.getPropertyDescriptors(result)) {
-                final Method projectMethod = PropertyUtils.getWriteMethod(propertyProjectedOntoDescriptor);
-                if (projectMethod != null && (projectMethod.getAnnotation(NoProjection.class) == null)) {
-                    // we can set the property and want to project
-                    Projection projectionAnnotation = projectMethod.getAnnotation(Projection.class);
-                    if (projectionAnnotation == null) {
-                        // default is to copy the value from the property of the source object with the same name
-                        PropertyUtils.setProperty(result, propertyProjectedOntoDescriptor.getName(), PropertyUtils.getProperty(source, propertyProjectedOntoDescriptor.getName()));
-                    } else {
-                        // determine the source object's property to map
-                        // if no explicit name given, we assume the same name on the source object
-                        String sourcePropertyName = (projectionAnnotation.propertyName().equals("")) ? propertyProjectedOntoDescriptor.getName() : projectionAnnotation.propertyName();
-                        switch (projectionAnnotation.value()) {
-                            case none:
-                                // do nothing
-                                break;
-                            case property:
-                                // find the ID of the source class
-                                Object referencedObject = PropertyUtils.getProperty(source, sourcePropertyName);
-                                if (referencedObject != null) {
-                                    Object referencedObjectId = PropertyUtils.getProperty(referencedObject, projectionAnnotation.referencePropertyName());
-                                    PropertyUtils.setProperty(result, propertyProjectedOntoDescriptor.getName(), referencedObjectId);
-                                }
-                                break;
-                            case projection:
-                                Object sourceValueObject = PropertyUtils.getProperty(source, sourcePropertyName);
-                                if (sourceValueObject != null) {
-                                    Object projectionOfSourceValueObject = project(sourceValueObject, propertyProjectedOntoDescriptor.getPropertyType());
-                                    PropertyUtils.setProperty(result, propertyProjectedOntoDescriptor.getName(), projectionOfSourceValueObject);
-                                }
-                                break;
-                            case propertyCollection:
-                                // get the target object colleciton and check if it is initialized
-                                Collection targetCollection = (Collection) PropertyUtils.getProperty(result, propertyProjectedOntoDescriptor.getName());
-                                // get the source object collection
-                                Collection sourceCollection = (Collection) PropertyUtils.getProperty(source, sourcePropertyName);
-                                // go through source object collection members and add reference to target object list
-                                if (sourceCollection != null) {
-                                    for (Object sourceCollectionEntry : sourceCollection) {
-                                        Object sourceObjectId = PropertyUtils.getProperty(sourceCollectionEntry, projectionAnnotation.referencePropertyName());
-                                        targetCollection.add(sourceObjectId);
-                                    }
-                                }
-                                break;
-                            case projectionCollection:
-                                // get the target object colleciton and check if it is initialized
-                                targetCollection = (Collection) PropertyUtils.getProperty(result, propertyProjectedOntoDescriptor.getName());
-                                // get the source object collection
-                                sourceCollection = (Collection) PropertyUtils.getProperty(source, sourcePropertyName);
-                                // go through source object collection members and add reference to target object list
-                                if (sourceCollection != null) {
-                                    final Type[] types = projectMethod.getGenericParameterTypes();
-                                    // assuming that the first parameter to the method is of type List<Integer>
-                                    final ParameterizedType pType = (ParameterizedType) types[0];
-                                    final Class<?> clazz = (Class<?>) pType.getActualTypeArguments()[0];
-                                    for (Object sourceCollectionEntry : sourceCollection) {
-                                        targetCollection.add(project(sourceCollectionEntry, clazz));
-                                    }
-                                }
-                                break;
-                            default:
-                                PropertyUtils.setProperty(result, propertyProjectedOntoDescriptor.getName(), PropertyUtils.getProperty(source, sourcePropertyName));
-                        }
-                    }
-                }
+            final T projection = context.projectNested(source, projectionClass);
+            if (context.getBatchResolution() != null) {
+                context.getBatchResolution().complete();
             }
-            return result;
+            return projection;
+        } catch (final ProjectionCycleException | ProjectionBudgetExceededException e) {
+            throw e;
         } catch (final Throwable t) {
             throw new RuntimeException(t);
         }
     }
+
+    /**
+     * Projects the source object like {@link #project(Object, Class)}, resolving the keys of properties annotated
+     * with a {@link Projection#resolver() batch resolver} asynchronously with {@link BatchResolver#resolveAsync(java.util.Set)}.
+     * The source object is projected by the calling thread, the projection is finished by the threads completing the
+     * resolvers' futures.
+     *
+     * @param source          The source object which should be projected onto a different target object class
+     * @param projectionClass The class to be used for the projection
+     * @return the future of the projected version of source object
+     */
+    public <T> CompletableFuture<T> projectAsync(final Object source, final Class<T> projectionClass) {
+        return projectAllAsync(Collections.singletonList(source), projectionClass).thenApply(projections -> projections.get(0));
+    }
+
+    /**
+     * Projects the source object onto an existing projection (e.g. a DTO held by a UI model or a cache), so the
+     * projection reflects the current state of the source object again. Only properties whose values have changed
+     * are written. Nested projections and the projections held by lists are updated in place if they are instances
+     * of the projection class, new projections are only created where there has been none before. Properties of the
+     * target object without a getter are always written. Updates do not use the {@link #setResultCache(ProjectionCache)
+     * result cache}, nested projections of cached source objects are replaced by new projections instead of being
+     * updated in place, as the cache may have returned them to other callers. The {@link #setProjectionBudget(ProjectionBudget)
+     * projector's budget} limits the new projections and the collection elements like those of a projection.
+     *
+     * Updates never use {@link GeneratedProjector}s, the runtime plans are used instead.
+     *
+     * @param source The source object which should be projected
+     * @param target The existing projection of the source object
+     * @return the paths of all properties which have been changed, e.g. {@code address.city} or {@code homes[2]}
+     * @see #project(Object, Class)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> ProjectionChanges projectInto(final Object source, final T target) {
+        try {
+            final ProjectionUpdate update = new ProjectionUpdate(new ProjectionContext(this, false));
+            update.update(source, target, getUpdatePlan(source.getClass(), (Class<T>) target.getClass()));
+            return update.getChanges();
+        } catch (final ProjectionCycleException | ProjectionBudgetExceededException e) {
+            throw e;
+        } catch (final Throwable t) {
+            throw new RuntimeException(t);
+        }
+    }
+
+    /**
+     * Projects all source objects onto the projection class. If the number of source objects reaches the
+     * {@link #setParallelThreshold(int) parallel threshold} the projection is split and done in parallel
+     * using the common {@link ForkJoinPool}.
+     *
+     * @param sources         The source objects which should be projected
+     * @param projectionClass The class to be used for the projection
+     * @return the projections in the order of the source objects (null source objects are projected to null)
+     * @see #project(Object, Class)
+     */
+    public <T> List<T> projectAll(final Collection<?> sources, final Class<T> projectionClass) {
+        return projectAll(sources, projectionClass, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Projects all source objects onto the projection class. If the number of source objects reaches the
+     * {@link #setParallelThreshold(int) parallel threshold} the projection is split and done in parallel
+     * by the given executor. A {@link ForkJoinPool} is used with fork-join tasks, any other executor
+     * is passed one task per range of source objects.
+     *
+     * @param sources         The source objects which should be projected
+     * @param projectionClass The class to be used for the projection
+     * @param executor        The executor used to project in parallel
+     * @return the projections in the order of the source objects (null source objects are projected to null)
+     * @see #project(Object, Class)
+     */
+    public <T> List<T> projectAll(final Collection<?> sources, final Class<T> projectionClass, final Executor executor) {
+        return projectAll(sources, projectionClass, null, executor);
+    }
+
+    /**
+     * Projects all source objects onto the projection class for a profile, like {@link #projectAll(Collection, Class)}.
+     *
+     * @param sources         The source objects which should be projected
+     * @param projectionClass The class to be used for the projection
+     * @param profile         The name of the profile or null to project all properties
+     * @return the projections in the order of the source objects (null source objects are projected to null)
+     * @see #project(Object, Class, String)
+     */
+    public <T> List<T> projectAll(final Collection<?> sources, final Class<T> projectionClass, final String profile) {
+        return projectAll(sources, projectionClass, profile, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Projects all source objects onto the projection class for a profile, like {@link #projectAll(Collection, Class, Executor)}.
+     *
+     * @param sources         The source objects which should be projected
+     * @param projectionClass The class to be used for the projection
+     * @param profile         The name of the profile or null to project all properties
+     * @param executor        The executor used to project in parallel
+     * @return the projections in the order of the source objects (null source objects are projected to null)
+     * @see #project(Object, Class, String)
+     */
+    public <T> List<T> projectAll(final Collection<?> sources, final Class<T> projectionClass, final String profile, final Executor executor) {
+        final BulkProjection<T> bulkProjection = new BulkProjection<T>(this, sources, projectionClass, profile);
+        if (sources.size() < parallelThreshold) {
+            return bulkProjection.projectSequentially();
+        }
+        return bulkProjection.projectInParallel(executor);
+    }
+
+    /**
+     * Projects all source objects like {@link #projectAll(Collection, Class)}, resolving the keys of properties
+     * annotated with a {@link Projection#resolver() batch resolver} asynchronously with
+     * {@link BatchResolver#resolveAsync(java.util.Set)}. The source objects are projected sequentially by the calling thread,
+     * the projections are finished by the threads completing the resolvers' futures.
+     *
+     * @param sources         The source objects which should be projected
+     * @param projectionClass The class to be used for the projection
+     * @return the future of the projections in the order of the source objects (null source objects are projected to null)
+     */
+    public <T> CompletableFuture<List<T>> projectAllAsync(final Collection<?> sources, final Class<T> projectionClass) {
+        try {
+            return new BulkProjection<T>(this, sources, projectionClass, null).projectAsync();
+        } catch (final RuntimeException e) {
+            final CompletableFuture<List<T>> failed = new CompletableFuture<List<T>>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    /**
+     * Returns a stream of the projections of the source stream's elements. Elements are projected lazily while
+     * they are pulled from the returned stream (including their nested projections), so the projections of large
+     * sources like scrollable database cursors never need to be held in memory at once. The returned stream is
+     * parallel if the source stream is and closing it closes the source stream.
+     *
+     * @param sources         The stream of source objects which should be projected
+     * @param projectionClass The class to be used for the projection
+     * @return the stream of projections (null source objects are projected to null)
+     * @see #project(Object, Class)
+     */
+    public <T> Stream<T> projectStream(final Stream<?> sources, final Class<T> projectionClass) {
+        return projectStream(sources, projectionClass, null);
+    }
+
+    /**
+     * Returns a stream of the projections of the source stream's elements for a profile, like
+     * {@link #projectStream(Stream, Class)}.
+     *
+     * @param sources         The stream of source objects which should be projected
+     * @param projectionClass The class to be used for the projection
+     * @param profile         The name of the profile or null to project all properties
+     * @return the stream of projections (null source objects are projected to null)
+     * @see #project(Object, Class, String)
+     */
+    public <T> Stream<T> projectStream(final Stream<?> sources, final Class<T> projectionClass, final String profile) {
+        return StreamSupport.stream(new ProjectingSpliterator<T>(this, sources.spliterator(), projectionClass, profile), sources.isParallel())
+                .onClose(sources::close);
+    }
+
+    /**
+     * Returns an iterator over the projections of the source iterator's elements. Elements are projected lazily
+     * in {@link Iterator#next()}.
+     *
+     * @param sources         The iterator over the source objects which should be projected
+     * @param projectionClass The class to be used for the projection
+     * @return the iterator over the projections (null source objects are projected to null)
+     * @see #projectStream(Stream, Class)
+     */
+    public <T> Iterator<T> projectIterator(final Iterator<?> sources, final Class<T> projectionClass) {
+        return Spliterators.iterator(new ProjectingSpliterator<T>(this,
+                Spliterators.spliteratorUnknownSize(sources, Spliterator.ORDERED), projectionClass, null));
+    }
+
+    /**
+     * Writes the projection of the source object to a sink instead of creating an instance of the projection class,
+     * e.g. to serialize it with a {@link JsonSink} without materializing the projected object graph. The same plans
+     * as for {@link #project(Object, Class)} are used, properties a projection would not set (e.g. null nested
+     * projections) are left out. Source objects referenced several times are written each time, cycles are left
+     * out if the {@link CyclePolicy#setNull} cycle policy is used and fail otherwise. The
+     * {@link #setProjectionBudget(ProjectionBudget) projector's budget} limits the written objects and collection
+     * elements like those of a projection.
+     *
+     * Writing never uses {@link GeneratedProjector}s and is not reported to the {@link ProjectionListener}.
+     *
+     * @param source          The source object which should be projected
+     * @param projectionClass The class to be used for the projection
+     * @param sink            The sink the projection is written to, it is flushed afterwards
+     * @throws ProjectionCycleException if the source object graph contains a cycle and {@link CyclePolicy#setNull} is not used
+     * @throws ProjectionBudgetExceededException if a limit of the budget using {@link BudgetPolicy#fail} is exceeded
+     */
+    public void projectTo(final Object source, final Class<?> projectionClass, final ProjectionSink sink) {
+        projectTo(source, projectionClass, null, sink);
+    }
+
+    /**
+     * Writes the projection of the source object for a profile to a sink, like {@link #projectTo(Object, Class, ProjectionSink)}.
+     *
+     * @param source          The source object which should be projected
+     * @param projectionClass The class to be used for the projection
+     * @param profile         The name of the profile or null to project all properties
+     * @param sink            The sink the projection is written to, it is flushed afterwards
+     */
+    public void projectTo(final Object source, final Class<?> projectionClass, final String profile, final ProjectionSink sink) {
+        try {
+            write(source, projectionClass, profile, sink);
+            sink.flush();
+        } catch (final ProjectionCycleException | ProjectionBudgetExceededException e) {
+            throw e;
+        } catch (final Throwable t) {
+            throw new RuntimeException(t);
+        }
+    }
+
+    /**
+     * Writes the projections of all source objects to a sink as one array, e.g. for large list responses which
+     * are serialized while they are projected. Each source object is projected with a context of its own.
+     *
+     * @param sources         The source objects which should be projected
+     * @param projectionClass The class to be used for the projection
+     * @param sink            The sink the projections are written to, it is flushed afterwards
+     * @see #projectTo(Object, Class, ProjectionSink)
+     */
+    public void projectAllTo(final Iterable<?> sources, final Class<?> projectionClass, final ProjectionSink sink) {
+        projectAllTo(sources, projectionClass, null, sink);
+    }
+
+    /**
+     * Writes the projections of all source objects for a profile to a sink as one array, like
+     * {@link #projectAllTo(Iterable, Class, ProjectionSink)}.
+     *
+     * @param sources         The source objects which should be projected
+     * @param projectionClass The class to be used for the projection
+     * @param profile         The name of the profile or null to project all properties
+     * @param sink            The sink the projections are written to, it is flushed afterwards
+     */
+    public void projectAllTo(final Iterable<?> sources, final Class<?> projectionClass, final String profile, final ProjectionSink sink) {
+        try {
+            sink.beginArray();
+            for (Object source : sources) {
+                write(source, projectionClass, profile, sink);
+            }
+            sink.endArray();
+            sink.flush();
+        } catch (final ProjectionCycleException | ProjectionBudgetExceededException e) {
+            throw e;
+        } catch (final Throwable t) {
+            throw new RuntimeException(t);
+        }
+    }
+
+    /**
+     * Projects the source objects into columns instead of one projection per source object, e.g. for reports and
+     * exports aggregating over many rows: each projected property of the projection class is held in one array with
+     * the property's value of each source object, numeric properties in primitive arrays. Property collections
+     * (e.g. IDs) are flattened into one array of values with the offsets of each row. The columns are built with the
+     * same plans as projections. Nested projections are still created as instances of their projection class and
+     * are shared by all rows referencing the same source object.
+     *
+     * @param sources         The source objects (rows) which should be projected
+     * @param projectionClass The class to be used for the projection
+     * @return the columns, null source objects are rows with default values
+     * @see ProjectionColumns
+     */
+    public ProjectionColumns projectColumns(final Collection<?> sources, final Class<?> projectionClass) {
+        return projectColumns(sources, projectionClass, null);
+    }
+
+    /**
+     * Projects the source objects into columns for a profile, like {@link #projectColumns(Collection, Class)}.
+     *
+     * @param sources         The source objects (rows) which should be projected
+     * @param projectionClass The class to be used for the projection
+     * @param profile         The name of the profile or null to project all properties
+     * @return the columns, null source objects are rows with default values
+     */
+    public ProjectionColumns projectColumns(final Collection<?> sources, final Class<?> projectionClass, final String profile) {
+        try {
+            return new ColumnarProjection(this, projectionClass, profile, sources.size()).project(sources);
+        } catch (final ProjectionCycleException | ProjectionBudgetExceededException e) {
+            throw e;
+        } catch (final Throwable t) {
+            throw new RuntimeException(t);
+        }
+    }
+
+    /**
+     * Projects a row of column names and values, e.g. of a native query or a JDBC template, onto the projection
+     * class without creating any entities. Rows are flat: properties projected as is or as
+     * {@link ProjectionType#property} are projected from the value of the column with their (annotated) name,
+     * nested projections and collections are not projected. Properties without a column in the row keep the
+     * values the projection has been initialized with. Values are converted with the
+     * {@link #setConverter(Class, Class, Converter) converters} and the {@link NullToPrimitivePolicy} applies.
+     * Row projections are not reported to the {@link ProjectionListener}, cached or limited by budgets.
+     *
+     * @param row             The column values by column name
+     * @param projectionClass The class to be used for the projection
+     * @return the projection of the row
+     */
+    public <T> T projectRow(final Map<String, ?> row, final Class<T> projectionClass) {
+        try {
+            return getRowPlan(projectionClass).project(row);
+        } catch (final Throwable t) {
+            throw new RuntimeException(t);
+        }
+    }
+
+    /**
+     * Projects the current row of the result set onto the projection class, like {@link #projectRow(Map, Class)}.
+     * Columns are matched to the properties by their labels ignoring case and underscores (e.g. {@code MARRIED_TO}
+     * is projected onto a property projecting {@code marriedTo}). The columns are resolved with each call, use
+     * {@link #projectRows(ResultSet, Class)} to project all rows of a result set.
+     *
+     * @param resultSet       The result set positioned on the row to be projected
+     * @param projectionClass The class to be used for the projection
+     * @return the projection of the current row
+     */
+    public <T> T projectRow(final ResultSet resultSet, final Class<T> projectionClass) {
+        try {
+            return getRowPlan(projectionClass).bind(resultSet).project();
+        } catch (final Throwable t) {
+            throw new RuntimeException(t);
+        }
+    }
+
+    /**
+     * Returns a stream of the projections of the remaining rows of the result set, like
+     * {@link #projectRow(ResultSet, Class)}. The columns of the properties are resolved once per result set, so
+     * the rows are read by column index and primitive columns without boxing. Rows are read and projected while
+     * they are pulled from the returned stream, so large results (e.g. of a forward-only cursor) never need to be
+     * held in memory. Closing the returned stream closes the result set.
+     *
+     * @param resultSet       The result set whose rows should be projected
+     * @param projectionClass The class to be used for the projection
+     * @return the ordered stream of projections
+     */
+    public <T> Stream<T> projectRows(final ResultSet resultSet, final Class<T> projectionClass) {
+        final RowPlan<T>.ResultSetReader reader;
+        try {
+            reader = getRowPlan(projectionClass).bind(resultSet);
+        } catch (final Throwable t) {
+            throw new RuntimeException(t);
+        }
+        return StreamSupport.stream(new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(final Consumer<? super T> action) {
+                final T projection;
+                try {
+                    if (!resultSet.next()) {
+                        return false;
+                    }
+                    projection = reader.project();
+                } catch (final Throwable t) {
+                    throw new RuntimeException(t);
+                }
+                action.accept(projection);
+                return true;
+            }
+        }, false).onClose(() -> {
+            try {
+                resultSet.close();
+            } catch (final SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> RowPlan<T> getRowPlan(final Class<T> projectionClass) {
+        return (RowPlan<T>) rowPlans.get(projectionClass);
+    }
+
+    /**
+     * Creates a codec encoding projections onto the projection class into a compact binary layout (e.g. for
+     * off-heap caches or transfer between processes) and decoding them into instances of the projection class.
+     * Source objects are encoded with the same plans as {@link #projectTo(Object, Class, ProjectionSink)}.
+     *
+     * @param projectionClass The class to be used for the projection
+     * @return the codec of the projection class
+     * @throws IllegalStateException if a property of the projection class cannot be encoded
+     * @see ProjectionCodec
+     */
+    public <T> ProjectionCodec<T> createCodec(final Class<T> projectionClass) {
+        try {
+            return new ProjectionCodec<T>(this, projectionClass);
+        } catch (final RuntimeException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void write(final Object source, final Class<?> projectionClass, final String profile, final ProjectionSink sink) throws Exception {
+        if (source == null) {
+            sink.value(null);
+            return;
+        }
+        if (!new ProjectionWriter(new ProjectionContext(this, profile), sink).writeNested(null, source, projectionClass)) {
+            sink.value(null);
+        }
+    }
+
+    /**
+     * Builds and validates the plans to project objects of the source class onto the projection class and onto
+     * all projections nested in it ahead of their first use, e.g. at application startup. Nested projections are
+     * precompiled for the declared types of the source properties, plans for other runtime classes (e.g. subclasses
+     * or proxies of persistent entities) are still built on their first use. Changing the configuration of the
+     * projector afterwards discards all precompiled plans.
+     *
+     * @param sourceClass     The class of the objects to be projected
+     * @param projectionClass The class to be used for the projection
+     * @throws ProjectionConfigurationException listing all problems found, e.g. unknown property names or
+     *                                          projection collections whose element class cannot be determined
+     */
+    public void precompile(final Class<?> sourceClass, final Class<?> projectionClass) {
+        final ProjectionPrecompiler precompiler = new ProjectionPrecompiler(this);
+        precompiler.precompile(sourceClass, projectionClass);
+        precompiler.validate();
+    }
+
+    /**
+     * Precompiles the projections of the given classes annotated with {@link ProjectionSource}.
+     *
+     * @param projectionClasses The classes to be used for projections
+     * @throws ProjectionConfigurationException listing all problems found
+     * @see #precompile(Class, Class)
+     */
+    public void precompile(final Class<?>... projectionClasses) {
+        final ProjectionPrecompiler precompiler = new ProjectionPrecompiler(this);
+        for (Class<?> projectionClass : projectionClasses) {
+            precompiler.precompile(projectionClass);
+        }
+        precompiler.validate();
+    }
+
+    /**
+     * Precompiles the projections of all classes annotated with {@link ProjectionSource} found in the package
+     * and its sub packages by the context class loader of the current thread.
+     *
+     * @param packageName The name of the package, e.g. {@code com.example.dto}
+     * @throws ProjectionConfigurationException listing all problems found
+     * @see #precompile(Class, Class)
+     */
+    public void precompilePackage(final String packageName) {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (classLoader == null) {
+            classLoader = Projector.class.getClassLoader();
+        }
+        final ProjectionPrecompiler precompiler = new ProjectionPrecompiler(this);
+        precompiler.precompilePackage(packageName, classLoader);
+        precompiler.validate();
+    }
+
+    /**
+     * Projects a sample source object repeatedly and discards the projections, so the code used to project
+     * objects like it is compiled by the JIT compiler before it is needed. Warm-up projections are not reported
+     * to the {@link #setProjectionListener(ProjectionListener) projection listener}.
+     *
+     * @param sample          A source object representative of the objects to be projected
+     * @param projectionClass The class to be used for the projection
+     * @param iterations      The number of projections, e.g. 10000
+     */
+    public void warmUp(final Object sample, final Class<?> projectionClass, final int iterations) {
+        try {
+            for (int i = 0; i < iterations; i++) {
+                new ProjectionContext(this, null, null, 0).projectNested(sample, projectionClass);
+            }
+        } catch (final RuntimeException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns the plan to project objects of the source class onto the projection class. The plan is built
+     * on first use and cached for all further projections of the same pair of classes.
+     *
+     * @param sourceClass     The class of the objects to be projected
+     * @param projectionClass The class to be used for the projection
+     * @return the cached plan for the given classes
+     * @see ProjectionPlan
+     */
+    public <T> ProjectionPlan<T> getPlan(final Class<?> sourceClass, final Class<T> projectionClass) {
+        return getPlan(plans, sourceClass, projectionClass, useGeneratedProjectors, null);
+    }
+
+    /**
+     * Returns the plan to project objects of the source class onto the projection class for a profile.
+     *
+     * @param sourceClass     The class of the objects to be projected
+     * @param projectionClass The class to be used for the projection
+     * @param profile         The name of the profile or null for the plan projecting all properties
+     * @return the cached plan for the given classes and profile
+     * @see #project(Object, Class, String)
+     */
+    public <T> ProjectionPlan<T> getPlan(final Class<?> sourceClass, final Class<T> projectionClass, final String profile) {
+        if (profile == null) {
+            return getPlan(sourceClass, projectionClass);
+        }
+        final ConcurrentMap<String, ClassValue<ConcurrentMap<Class<?>, ProjectionPlan<?>>>> profilePlans = this.profilePlans;
+        ClassValue<ConcurrentMap<Class<?>, ProjectionPlan<?>>> cache = profilePlans.get(profile);
+        if (cache == null) {
+            final ClassValue<ConcurrentMap<Class<?>, ProjectionPlan<?>>> existingCache = profilePlans.putIfAbsent(profile, cache = createPlanCache());
+            if (existingCache != null) {
+                cache = existingCache;
+            }
+        }
+        return getPlan(cache, sourceClass, projectionClass, useGeneratedProjectors, profile);
+    }
+
+    /**
+     * @return the cached plan to update existing projections, which never delegates to a generated projector
+     */
+    <T> ProjectionPlan<T> getUpdatePlan(final Class<?> sourceClass, final Class<T> projectionClass) {
+        final ProjectionPlan<T> plan = getPlan(sourceClass, projectionClass);
+        if (plan.getGeneratedProjector() == null) {
+            return plan;
+        }
+        return getPlan(updatePlans, sourceClass, projectionClass, false, null);
+    }
+
+    /**
+     * @return the cached plan for a profile which never delegates to a generated projector
+     */
+    <T> ProjectionPlan<T> getUpdatePlan(final Class<?> sourceClass, final Class<T> projectionClass, final String profile) {
+        // plans of profiles never delegate to generated projectors
+        return profile == null ? getUpdatePlan(sourceClass, projectionClass) : getPlan(sourceClass, projectionClass, profile);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> ProjectionPlan<T> getPlan(final ClassValue<ConcurrentMap<Class<?>, ProjectionPlan<?>>> cache, final Class<?> sourceClass,
+                                          final Class<T> projectionClass, final boolean useGeneratedProjectors, final String profile) {
+        final ConcurrentMap<Class<?>, ProjectionPlan<?>> plansOfProjectionClass = cache.get(projectionClass);
+        ProjectionPlan<T> plan = (ProjectionPlan<T>) plansOfProjectionClass.get(sourceClass);
+        if (plan == null) {
+            try {
+                // the configuration is read after the cache, so a plan is never cached with an outdated configuration
+                plan = new ProjectionPlanBuilder(this, useGeneratedProjectors, profile).build(sourceClass, projectionClass);
+            } catch (final RuntimeException e) {
+                throw e;
+            } catch (final Exception e) {
+                throw new RuntimeException(e);
+            }
+            // another thread might have been faster, in that case use its plan
+            final ProjectionPlan<T> existingPlan = (ProjectionPlan<T>) plansOfProjectionClass.putIfAbsent(sourceClass, plan);
+            if (existingPlan != null) {
+                plan = existingPlan;
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * @return the strategy used to read and write properties
+     */
+    public PropertyAccessor getPropertyAccessor() {
+        return propertyAccessor;
+    }
+
+    /**
+     * Sets the strategy used to read and write properties. All cached projection plans are discarded.
+     *
+     * @param propertyAccessor the strategy to be used
+     * @see #setPropertyAccessMode(PropertyAccessMode)
+     */
+    public void setPropertyAccessor(final PropertyAccessor propertyAccessor) {
+        this.propertyAccessor = propertyAccessor;
+        discardPlans();
+    }
+
+    /**
+     * Switches between the built-in property access strategies. All cached projection plans are discarded.
+     *
+     * @param propertyAccessMode the mode to be used
+     */
+    public void setPropertyAccessMode(final PropertyAccessMode propertyAccessMode) {
+        setPropertyAccessor(propertyAccessMode.createAccessor());
+    }
+
+    /**
+     * @return true if projectors generated by the annotation processor are used (the default)
+     */
+    public boolean isUseGeneratedProjectors() {
+        return useGeneratedProjectors;
+    }
+
+    /**
+     * Defines whether projectors generated at compile time by the annotation processor (see {@link GeneratedProjector})
+     * are used if available. If switched off, all projections are done by runtime plans. All cached projection plans are discarded.
+     *
+     * @param useGeneratedProjectors true to use generated projectors
+     */
+    public void setUseGeneratedProjectors(final boolean useGeneratedProjectors) {
+        this.useGeneratedProjectors = useGeneratedProjectors;
+        discardPlans();
+    }
+
+    /**
+     * @return the minimum number of source objects {@link #projectAll(Collection, Class)} projects in parallel
+     */
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * Sets the minimum number of source objects {@link #projectAll(Collection, Class)} projects in parallel.
+     * Smaller collections are projected sequentially in the calling thread. Default is 1000.
+     *
+     * @param parallelThreshold the minimum number of source objects to project in parallel
+     */
+    public void setParallelThreshold(final int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * @return the policy applied to cycles in projected object graphs
+     */
+    public CyclePolicy getCyclePolicy() {
+        return cyclePolicy;
+    }
+
+    /**
+     * Sets the policy applied if a source object is reached again while it is still being projected.
+     * Default is {@link CyclePolicy#reuse}.
+     *
+     * @param cyclePolicy the policy to be applied
+     */
+    public void setCyclePolicy(final CyclePolicy cyclePolicy) {
+        this.cyclePolicy = cyclePolicy;
+    }
+
+    /**
+     * @return true if all nested projections are projected lazily
+     */
+    public boolean isLazyProjections() {
+        return lazyProjections;
+    }
+
+    /**
+     * Defines whether all properties of type {@link ProjectionType#projection} and {@link ProjectionType#projectionCollection}
+     * are projected lazily, as if they were annotated with {@link Projection#lazy()}. Generated projectors are not
+     * used while this is switched on. All cached projection plans are discarded. Default is false.
+     *
+     * @param lazyProjections true to project all nested projections lazily
+     */
+    public void setLazyProjections(final boolean lazyProjections) {
+        this.lazyProjections = lazyProjections;
+        discardPlans();
+    }
+
+    /**
+     * @return the policy applied to null values projected onto primitive properties
+     */
+    public NullToPrimitivePolicy getNullToPrimitivePolicy() {
+        return nullToPrimitivePolicy;
+    }
+
+    /**
+     * Sets the policy applied if a null value (e.g. of a {@code Long} property) is projected onto a property of a
+     * primitive type (e.g. {@code long}). All cached projection plans are discarded. Default is {@link NullToPrimitivePolicy#fail}.
+     *
+     * @param nullToPrimitivePolicy the policy to be applied
+     */
+    public void setNullToPrimitivePolicy(final NullToPrimitivePolicy nullToPrimitivePolicy) {
+        this.nullToPrimitivePolicy = nullToPrimitivePolicy;
+        discardPlans();
+    }
+
+    /**
+     * @return the listener measuring projections or null if projections are not measured
+     */
+    public ProjectionListener getProjectionListener() {
+        return projectionListener;
+    }
+
+    /**
+     * Sets the listener receiving measurements of all projections started after this call. Projections are not
+     * measured if no listener is set, which is the default.
+     *
+     * @param projectionListener the listener or null to stop measuring
+     * @see ProjectionStatistics
+     * @see ProjectionListener#of(ProjectionListener...)
+     */
+    public void setProjectionListener(final ProjectionListener projectionListener) {
+        this.projectionListener = projectionListener;
+    }
+
+    /**
+     * @return the maximum depth of nested projections
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Limits the depth of projected object graphs. The object passed to the projector has depth 1, its nested
+     * projections (of type {@link ProjectionType#projection} and {@link ProjectionType#projectionCollection})
+     * depth 2 and so on. Nested projections that would exceed the maximum depth are not projected, their properties
+     * are left untouched. Generated projectors are not used while a maximum depth is set. All cached projection plans
+     * are discarded. Default is {@link Integer#MAX_VALUE}, i.e. no limit.
+     *
+     * @param maxDepth the maximum depth, at least 1
+     */
+    public void setMaxDepth(final int maxDepth) {
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException("The maximum depth must be at least 1");
+        }
+        this.maxDepth = maxDepth;
+        discardPlans();
+    }
+
+    /**
+     * @return the resolver of the load state of associations or null if load states are not checked
+     */
+    public LoadStateResolver getLoadStateResolver() {
+        return loadStateResolver;
+    }
+
+    /**
+     * Sets the resolver telling whether associations of source objects (e.g. lazy associations of JPA entities) have
+     * been loaded. Unloaded associations are not loaded by projections but handled according to the
+     * {@link #setUnloadedAssociationPolicy(UnloadedAssociationPolicy) unloaded association policy}. Generated projectors
+     * are not used while a resolver is set. All cached projection plans are discarded. Default is null, i.e. all
+     * associations are projected.
+     *
+     * @param loadStateResolver the resolver or null to project all associations
+     * @see PersistenceLoadStateResolver
+     */
+    public void setLoadStateResolver(final LoadStateResolver loadStateResolver) {
+        this.loadStateResolver = loadStateResolver;
+        discardPlans();
+    }
+
+    /**
+     * @return the policy applied to associations that have not been loaded
+     */
+    public UnloadedAssociationPolicy getUnloadedAssociationPolicy() {
+        return unloadedAssociationPolicy;
+    }
+
+    /**
+     * Sets the policy applied to associations the {@link #setLoadStateResolver(LoadStateResolver) load state resolver}
+     * reports as not loaded. Default is {@link UnloadedAssociationPolicy#skip}.
+     *
+     * @param unloadedAssociationPolicy the policy to be applied
+     */
+    public void setUnloadedAssociationPolicy(final UnloadedAssociationPolicy unloadedAssociationPolicy) {
+        this.unloadedAssociationPolicy = unloadedAssociationPolicy;
+    }
+
+    /**
+     * @param name the name of the resolver
+     * @return the batch resolver set for the name or null if there is none
+     */
+    public BatchResolver<?, ?> getBatchResolver(final String name) {
+        return batchResolvers.get(name);
+    }
+
+    /**
+     * Sets the batch resolver used by properties annotated with the resolver's name (see {@link Projection#resolver()}).
+     * All keys read by properties using the same resolver are resolved with one call per projection, collection of
+     * projections ({@link #projectAll(Collection, Class)}, one call per range if projected in parallel) and level of
+     * nesting. Other projections, e.g. streams, updates or projections written to sinks, resolve each key on its own.
+     * Setting a resolver discards all cached plans.
+     *
+     * @param name     the name of the resolver
+     * @param resolver the resolver or null to remove the resolver of that name
+     */
+    public synchronized void setBatchResolver(final String name, final BatchResolver<?, ?> resolver) {
+        final Map<String, BatchResolver<?, ?>> resolvers = new HashMap<String, BatchResolver<?, ?>>(batchResolvers);
+        if (resolver == null) {
+            resolvers.remove(name);
+        } else {
+            resolvers.put(name, resolver);
+        }
+        this.batchResolvers = resolvers;
+        discardPlans();
+    }
+
+    /**
+     * @param name the name of the filter
+     * @return the filter of collection elements set for the name or null if there is none
+     */
+    public Predicate<?> getCollectionFilter(final String name) {
+        return collectionFilters.get(name);
+    }
+
+    /**
+     * Sets the filter used by collection properties annotated with the filter's name (see {@link Projection#filter()}).
+     * Only the elements of the source collection accepted by the filter are projected. Setting a filter discards all
+     * cached plans.
+     *
+     * @param name   the name of the filter
+     * @param filter the filter of the source collection's elements or null to remove the filter of that name
+     */
+    public synchronized void setCollectionFilter(final String name, final Predicate<?> filter) {
+        final Map<String, Predicate<?>> filters = new HashMap<String, Predicate<?>>(collectionFilters);
+        if (filter == null) {
+            filters.remove(name);
+        } else {
+            filters.put(name, filter);
+        }
+        this.collectionFilters = filters;
+        discardPlans();
+    }
+
+    /**
+     * @param name the name of the comparator
+     * @return the comparator of collection elements set for the name or null if there is none
+     */
+    public Comparator<?> getCollectionComparator(final String name) {
+        return collectionComparators.get(name);
+    }
+
+    /**
+     * Sets the comparator used by collection properties annotated with the comparator's name (see
+     * {@link Projection#comparator()}). The elements of the source collection are sorted before they are projected,
+     * so a {@link Projection#limit() limit} projects the first elements in that order. Setting a comparator discards
+     * all cached plans.
+     *
+     * @param name       the name of the comparator
+     * @param comparator the comparator of the source collection's elements or null to remove the comparator of that name
+     */
+    public synchronized void setCollectionComparator(final String name, final Comparator<?> comparator) {
+        final Map<String, Comparator<?>> comparators = new HashMap<String, Comparator<?>>(collectionComparators);
+        if (comparator == null) {
+            comparators.remove(name);
+        } else {
+            comparators.put(name, comparator);
+        }
+        this.collectionComparators = comparators;
+        discardPlans();
+    }
+
+    /**
+     * Returns the converter used to project values of the source type onto properties of the target type. Converters
+     * registered for a source type are used for its subclasses as well. Besides the converters set with
+     * {@link #setConverter(Class, Class, Converter)}, the following converters are built in:
+     * <ul>
+     * <li>{@link java.util.Date} to {@link java.time.Instant} and {@code Long} (epoch milliseconds) and
+     * {@link java.time.Instant} to {@link java.util.Date}</li>
+     * <li>{@link java.sql.Date}, {@link java.sql.Time} and {@link java.sql.Timestamp} to and from
+     * {@link java.time.LocalDate}, {@link java.time.LocalTime} and {@link java.time.LocalDateTime}</li>
+     * <li>enums to and from {@code String} by their name and {@link java.util.UUID} to and from {@code String}</li>
+     * <li>{@link Number} to {@code Long}, {@code Integer}, {@code Double}, {@code Float}, {@link java.math.BigDecimal}
+     * and {@link java.math.BigInteger}, conversions to integral types throw an {@link ArithmeticException} instead of
+     * losing a fraction or overflowing</li>
+     * </ul>
+     *
+     * @param sourceType the type of the source values, primitive types are treated like their wrapper types
+     * @param targetType the type of the target property
+     * @return the converter or null if values of the source type are projected as they are or cannot be converted
+     */
+    public <S, T> Converter<S, T> getConverter(final Class<S> sourceType, final Class<T> targetType) {
+        return converters.find(sourceType, targetType);
+    }
+
+    /**
+     * Sets the converter used by {@link ProjectionType#asIs} and {@link ProjectionType#property} projections whose
+     * source value type is not assignable to the target property's type, replacing a built-in converter of the same
+     * pair of types. The converter of each property is chosen when the plan is built, setting a converter discards
+     * all cached plans. Converters are not used by generated projectors, which only project assignable types.
+     *
+     * @param sourceType the type of the source values, the converter is used for its subclasses as well
+     * @param targetType the type of the target properties
+     * @param converter  the converter or null to remove the converter of the pair of types
+     */
+    public synchronized <S, T> void setConverter(final Class<S> sourceType, final Class<T> targetType, final Converter<? super S, ? extends T> converter) {
+        this.converters = converters.with(sourceType, targetType, converter);
+        discardPlans();
+    }
+
+    /**
+     * @return the budget of each call of this projector
+     */
+    public ProjectionBudget getProjectionBudget() {
+        return projectionBudget;
+    }
+
+    /**
+     * Sets the budget limiting the size of the object graph projected by each call (each source object of
+     * {@link #projectAll(Collection, Class)} or a stream has a budget of its own) and the time it may take. The
+     * budget's counters are kept per call, so checking them is cheap enough to leave a budget on. Only
+     * {@link #projectWithin(Object, Class, ProjectionBudget)} tells whether a projection has been truncated.
+     * Default is {@link ProjectionBudget#UNLIMITED}.
+     *
+     * @param projectionBudget the budget to be applied
+     */
+    public void setProjectionBudget(final ProjectionBudget projectionBudget) {
+        this.projectionBudget = projectionBudget == null ? ProjectionBudget.UNLIMITED : projectionBudget;
+    }
+
+    /**
+     * @return the cache of projections shared by all calls or null if projections are not cached
+     */
+    public ProjectionCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Sets the cache of projections used by all projections started after this call, including the projections
+     * nested in them. Only the projections of the source classes registered with the cache are cached. The cache is
+     * invalidated whenever cached plans are discarded. Projections are not cached by default.
+     *
+     * @param resultCache the cache or null to stop caching projections
+     * @see ProjectionCache#cache(Class, java.util.function.Function, java.util.function.Function)
+     */
+    public void setResultCache(final ProjectionCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    /**
+     * @return a new batch collecting the keys to be resolved by batch resolvers or null if no resolvers have been set
+     */
+    BatchResolution createBatchResolution() {
+        return batchResolvers.isEmpty() ? null : new BatchResolution();
+    }
+
+    /**
+     * @return the writer of the named property of the projection class or null if it cannot be written
+     */
+    BiConsumer<Object, Object> getIdentifierWriter(final Class<?> projectionClass, final String propertyName) {
+        final ConcurrentMap<String, BiConsumer<Object, Object>> writers = identifierWriters.get(projectionClass);
+        BiConsumer<Object, Object> writer = writers.get(propertyName);
+        if (writer == null) {
+            final PropertyDescriptor descriptor = BeanProperties.findPropertyDescriptor(projectionClass, propertyName);
+            writer = descriptor == null || PropertyUtils.getWriteMethod(descriptor) == null ? NO_WRITER : propertyAccessor.createWriter(descriptor);
+            writers.putIfAbsent(propertyName, writer);
+        }
+        return writer == NO_WRITER ? null : writer;
+    }
+
+    private void discardPlans() {
+        final ProjectionCache resultCache = this.resultCache;
+        if (resultCache != null) {
+            // cached projections have been projected with the discarded plans
+            resultCache.invalidateAll();
+        }
+        this.plans = createPlanCache();
+        this.updatePlans = createPlanCache();
+        this.profilePlans = new ConcurrentHashMap<String, ClassValue<ConcurrentMap<Class<?>, ProjectionPlan<?>>>>();
+        this.identifierWriters = createIdentifierWriterCache();
+        this.rowPlans = createRowPlanCache();
+    }
+
+    /**
+     * Row plans are built with the settings of the projector at the time they are first used.
+     */
+    private ClassValue<RowPlan<?>> createRowPlanCache() {
+        return new ClassValue<RowPlan<?>>() {
+            @Override
+            protected RowPlan<?> computeValue(Class<?> projectionClass) {
+                try {
+                    return new RowPlan<>(projectionClass, propertyAccessor, nullToPrimitivePolicy, converters);
+                } catch (final RuntimeException e) {
+                    throw e;
+                } catch (final Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+    }
+
+    private static ClassValue<ConcurrentMap<String, BiConsumer<Object, Object>>> createIdentifierWriterCache() {
+        return new ClassValue<ConcurrentMap<String, BiConsumer<Object, Object>>>() {
+            @Override
+            protected ConcurrentMap<String, BiConsumer<Object, Object>> computeValue(Class<?> projectionClass) {
+                return new ConcurrentHashMap<String, BiConsumer<Object, Object>>();
+            }
+        };
+    }
+
+    private static ClassValue<ConcurrentMap<Class<?>, ProjectionPlan<?>>> createPlanCache() {
+        return new ClassValue<ConcurrentMap<Class<?>, ProjectionPlan<?>>>() {
+            @Override
+            protected ConcurrentMap<Class<?>, ProjectionPlan<?>> computeValue(Class<?> targetClass) {
+                return new ConcurrentHashMap<Class<?>, ProjectionPlan<?>>();
+            }
+        };
+    }
+
 }
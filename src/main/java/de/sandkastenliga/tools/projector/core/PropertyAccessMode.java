@@ -0,0 +1,55 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+/**
+ * The built-in {@link PropertyAccessor} implementations a {@link Projector} can be switched between.
+ * The default mode can be set with the system property {@value #SYSTEM_PROPERTY}
+ * (e.g. {@code -Dmodelprojector.propertyAccessMode=beanUtils}) which allows to compare both backends in
+ * production without changing any code.
+ * @author Guido Laures
+ * @see Projector#setPropertyAccessMode(PropertyAccessMode)
+ */
+public enum PropertyAccessMode {
+
+    /**
+     * Access properties through generated lambdas (see {@link LambdaPropertyAccessor}). This is the default.
+     */
+    lambda,
+    /**
+     * Access properties through commons-beanutils (see {@link BeanUtilsPropertyAccessor}).
+     */
+    beanUtils;
+
+    /**
+     * Name of the system property defining the default access mode.
+     */
+    public static final String SYSTEM_PROPERTY = "modelprojector.propertyAccessMode";
+
+    /**
+     * @return a new accessor implementing this mode
+     */
+    public PropertyAccessor createAccessor() {
+        return this == beanUtils ? new BeanUtilsPropertyAccessor() : new LambdaPropertyAccessor();
+    }
+
+    /**
+     * @return the mode configured by the system property {@value #SYSTEM_PROPERTY} or {@link #lambda} if not set
+     */
+    public static PropertyAccessMode getDefault() {
+        final String mode = System.getProperty(SYSTEM_PROPERTY);
+        return mode == null || mode.isEmpty() ? lambda : valueOf(mode);
+    }
+}
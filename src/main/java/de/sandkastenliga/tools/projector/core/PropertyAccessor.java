@@ -0,0 +1,105 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import java.beans.PropertyDescriptor;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Strategy used by the {@link Projector} to read and write bean properties. Readers and writers are
+ * created once when a {@link ProjectionPlan} is built and are then invoked for every projected object,
+ * so implementations should do all expensive work when creating them.
+ * Properties of the primitive types {@code long}, {@code int} and {@code double} are transferred through the
+ * primitive readers and writers if source and target property have the same primitive type. Their default
+ * implementations box the values, implementations should override them to avoid boxing.
+ * @author Guido Laures
+ * @see PropertyAccessMode
+ * @see Projector#setPropertyAccessor(PropertyAccessor)
+ */
+public interface PropertyAccessor {
+
+    /**
+     * @param property the readable property
+     * @return a function returning the property's value of the bean passed to it
+     */
+    Function<Object, Object> createReader(PropertyDescriptor property);
+
+    /**
+     * @param property the writable property
+     * @return a consumer setting the property of the bean passed as first argument to the second argument
+     */
+    BiConsumer<Object, Object> createWriter(PropertyDescriptor property);
+
+    /**
+     * @param property the readable property of type {@code long}
+     * @return a function returning the property's value of the bean passed to it
+     */
+    default ToLongFunction<Object> createLongReader(PropertyDescriptor property) {
+        final Function<Object, Object> reader = createReader(property);
+        return bean -> (Long) reader.apply(bean);
+    }
+
+    /**
+     * @param property the writable property of type {@code long}
+     * @return a consumer setting the property of the bean passed as first argument to the second argument
+     */
+    default ObjLongConsumer<Object> createLongWriter(PropertyDescriptor property) {
+        final BiConsumer<Object, Object> writer = createWriter(property);
+        return writer::accept;
+    }
+
+    /**
+     * @param property the readable property of type {@code int}
+     * @return a function returning the property's value of the bean passed to it
+     */
+    default ToIntFunction<Object> createIntReader(PropertyDescriptor property) {
+        final Function<Object, Object> reader = createReader(property);
+        return bean -> (Integer) reader.apply(bean);
+    }
+
+    /**
+     * @param property the writable property of type {@code int}
+     * @return a consumer setting the property of the bean passed as first argument to the second argument
+     */
+    default ObjIntConsumer<Object> createIntWriter(PropertyDescriptor property) {
+        final BiConsumer<Object, Object> writer = createWriter(property);
+        return writer::accept;
+    }
+
+    /**
+     * @param property the readable property of type {@code double}
+     * @return a function returning the property's value of the bean passed to it
+     */
+    default ToDoubleFunction<Object> createDoubleReader(PropertyDescriptor property) {
+        final Function<Object, Object> reader = createReader(property);
+        return bean -> (Double) reader.apply(bean);
+    }
+
+    /**
+     * @param property the writable property of type {@code double}
+     * @return a consumer setting the property of the bean passed as first argument to the second argument
+     */
+    default ObjDoubleConsumer<Object> createDoubleWriter(PropertyDescriptor property) {
+        final BiConsumer<Object, Object> writer = createWriter(property);
+        return writer::accept;
+    }
+}
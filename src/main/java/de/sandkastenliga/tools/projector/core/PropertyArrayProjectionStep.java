@@ -0,0 +1,185 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import java.beans.PropertyDescriptor;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Projects a property of each entry of the source object's collection into a {@code long[]} or {@code int[]}
+ * array set onto the target object. If the reference property has the array's primitive type it is read without
+ * boxing, otherwise its numbers are converted onto the array's type and null values are handled according to the
+ * {@link NullToPrimitivePolicy}. Numbers that do not fit into an {@code int[]} fail the projection.
+ * @author Guido Laures
+ * @see ProjectionType#propertyCollection
+ */
+final class PropertyArrayProjectionStep extends ProjectionStep {
+
+    private final ReferenceReader referenceReader;
+    private final boolean longArray;
+    private final ToLongFunction<Object> longReader;
+    private final ToIntFunction<Object> intReader;
+    private final NullToPrimitivePolicy nullToPrimitivePolicy;
+
+    PropertyArrayProjectionStep(String propertyName, String sourcePropertyName, Function<Object, Object> sourceReader, Function<Object, Object> targetReader, BiConsumer<Object, Object> targetWriter,
+                                Class<?> componentType, ReferenceReader referenceReader, PropertyAccessor propertyAccessor, NullToPrimitivePolicy nullToPrimitivePolicy) {
+        super(ProjectionType.propertyCollection, propertyName, sourcePropertyName, sourceReader, targetReader, targetWriter);
+        this.referenceReader = referenceReader;
+        this.longArray = componentType == long.class;
+        this.nullToPrimitivePolicy = nullToPrimitivePolicy;
+        final PropertyDescriptor referenceProperty = referenceReader.getStaticProperty();
+        final boolean primitive = referenceProperty != null && referenceProperty.getPropertyType() == componentType;
+        this.longReader = primitive && longArray ? propertyAccessor.createLongReader(referenceProperty) : null;
+        this.intReader = primitive && !longArray ? propertyAccessor.createIntReader(referenceProperty) : null;
+    }
+
+    @Override
+    void apply(Object source, Object target, ProjectionContext context) throws Exception {
+        Collection<?> sourceCollection = (Collection<?>) sourceReader.apply(source);
+        if (sourceCollection != null) {
+            if (!context.isLoaded(sourceCollection)) {
+                applyUnloaded(target, sourceCollection, null, context);
+                return;
+            }
+            sourceCollection = context.limitCollection(this, sourceCollection);
+            if (longArray) {
+                final long[] values = toLongArray(sourceCollection, context);
+                targetWriter.accept(target, values);
+                context.collectionProjected(this, values.length);
+            } else {
+                final int[] values = toIntArray(sourceCollection, context);
+                targetWriter.accept(target, values);
+                context.collectionProjected(this, values.length);
+            }
+        }
+    }
+
+    @Override
+    void update(Object source, Object target, ProjectionUpdate update) throws Exception {
+        Collection<?> sourceCollection = (Collection<?>) sourceReader.apply(source);
+        if (sourceCollection == null || !update.getContext().isLoaded(sourceCollection)) {
+            return;
+        }
+        sourceCollection = update.getContext().limitCollection(this, sourceCollection);
+        final Object current = targetReader == null ? null : targetReader.apply(target);
+        final boolean changed;
+        final Object values;
+        if (longArray) {
+            final long[] longValues = toLongArray(sourceCollection, update.getContext());
+            changed = !(current instanceof long[]) || !Arrays.equals(longValues, (long[]) current);
+            values = longValues;
+        } else {
+            final int[] intValues = toIntArray(sourceCollection, update.getContext());
+            changed = !(current instanceof int[]) || !Arrays.equals(intValues, (int[]) current);
+            values = intValues;
+        }
+        if (changed) {
+            targetWriter.accept(target, values);
+            update.changed(getPropertyName());
+        }
+    }
+
+    @Override
+    void write(Object source, ProjectionWriter writer) throws Exception {
+        Collection<?> sourceCollection = (Collection<?>) sourceReader.apply(source);
+        if (sourceCollection != null) {
+            if (!writer.getContext().isLoaded(sourceCollection)) {
+                writeUnloaded(sourceCollection, null, writer);
+                return;
+            }
+            sourceCollection = writer.getContext().limitCollection(this, sourceCollection);
+            final ProjectionSink sink = writer.getSink();
+            sink.name(getPropertyName());
+            sink.beginArray();
+            if (longArray) {
+                for (long value : toLongArray(sourceCollection, writer.getContext())) {
+                    sink.value(value);
+                }
+            } else {
+                for (int value : toIntArray(sourceCollection, writer.getContext())) {
+                    sink.value(value);
+                }
+            }
+            sink.endArray();
+        }
+    }
+
+    /**
+     * Reads the reference property of each entry, the identifiers of unloaded entities are read without loading them.
+     */
+    private long[] toLongArray(Collection<?> sourceCollection, ProjectionContext context) throws Exception {
+        final long[] values = new long[sourceCollection.size()];
+        int size = 0;
+        for (Object sourceCollectionEntry : sourceCollection) {
+            if (longReader != null && context.isLoaded(sourceCollectionEntry)) {
+                values[size++] = longReader.applyAsLong(sourceCollectionEntry);
+            } else {
+                final Number value = (Number) context.readReference(referenceReader, sourceCollectionEntry);
+                if (value != null) {
+                    values[size++] = value.longValue();
+                } else if (projectNull()) {
+                    values[size++] = 0L;
+                }
+            }
+        }
+        return size == values.length ? values : Arrays.copyOf(values, size);
+    }
+
+    /**
+     * Reads the reference property of each entry like {@link #toLongArray(Collection, ProjectionContext)}.
+     * @throws ArithmeticException if a value does not fit into an int
+     */
+    private int[] toIntArray(Collection<?> sourceCollection, ProjectionContext context) throws Exception {
+        final int[] values = new int[sourceCollection.size()];
+        int size = 0;
+        for (Object sourceCollectionEntry : sourceCollection) {
+            if (intReader != null && context.isLoaded(sourceCollectionEntry)) {
+                values[size++] = intReader.applyAsInt(sourceCollectionEntry);
+            } else {
+                final Number value = (Number) context.readReference(referenceReader, sourceCollectionEntry);
+                if (value != null) {
+                    values[size++] = Math.toIntExact(value.longValue());
+                } else if (projectNull()) {
+                    values[size++] = 0;
+                }
+            }
+        }
+        return size == values.length ? values : Arrays.copyOf(values, size);
+    }
+
+    /**
+     * @return true if a null value is projected as 0, false if it is left out
+     */
+    private boolean projectNull() {
+        switch (nullToPrimitivePolicy) {
+            case skip:
+                return false;
+            case defaultValue:
+                return true;
+            default:
+                throw new IllegalArgumentException("Cannot project null into primitive array '" + getPropertyName() + "'");
+        }
+    }
+
+    @Override
+    ReferenceReader getReferenceReader() {
+        return referenceReader;
+    }
+}
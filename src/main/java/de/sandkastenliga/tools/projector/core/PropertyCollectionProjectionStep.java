@@ -0,0 +1,110 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Adds a property of each entry of the source object's collection to the target object's collection.
+ * @author Guido Laures
+ * @see ProjectionType#propertyCollection
+ */
+final class PropertyCollectionProjectionStep extends ProjectionStep {
+
+    private final TargetCollection targetCollection;
+    private final ReferenceReader referenceReader;
+
+    PropertyCollectionProjectionStep(String propertyName, String sourcePropertyName, Function<Object, Object> sourceReader, BiConsumer<Object, Object> targetWriter, TargetCollection targetCollection, ReferenceReader referenceReader) {
+        super(ProjectionType.propertyCollection, propertyName, sourcePropertyName, sourceReader, targetWriter);
+        this.targetCollection = targetCollection;
+        this.referenceReader = referenceReader;
+    }
+
+    @Override
+    void apply(Object source, Object target, ProjectionContext context) throws Exception {
+        Collection<?> sourceCollection = (Collection<?>) sourceReader.apply(source);
+        if (sourceCollection != null) {
+            if (!context.isLoaded(sourceCollection)) {
+                applyUnloaded(target, sourceCollection, null, context);
+                return;
+            }
+            sourceCollection = context.limitCollection(this, sourceCollection);
+            Collection<Object> entries = targetCollection.get(target, sourceCollection.size());
+            final boolean created = entries == null;
+            if (created) {
+                entries = targetCollection.create(sourceCollection.size());
+            }
+            for (Object sourceCollectionEntry : sourceCollection) {
+                entries.add(context.readReference(referenceReader, sourceCollectionEntry));
+            }
+            if (created) {
+                targetCollection.set(target, entries);
+            }
+            context.collectionProjected(this, sourceCollection.size());
+        }
+    }
+
+    @Override
+    void update(Object source, Object target, ProjectionUpdate update) throws Exception {
+        Collection<?> sourceCollection = (Collection<?>) sourceReader.apply(source);
+        if (sourceCollection == null || !update.getContext().isLoaded(sourceCollection)) {
+            return;
+        }
+        sourceCollection = update.getContext().limitCollection(this, sourceCollection);
+        Collection<Object> entries = targetCollection.get(target, 0);
+        final List<Object> values = new ArrayList<Object>(sourceCollection.size());
+        for (Object sourceCollectionEntry : sourceCollection) {
+            values.add(update.getContext().readReference(referenceReader, sourceCollectionEntry));
+        }
+        if (entries == null) {
+            entries = targetCollection.create(values.size());
+            entries.addAll(values);
+            targetCollection.set(target, entries);
+            update.changed(getPropertyName());
+        } else if (!TargetCollection.containsExactly(entries, values)) {
+            entries.clear();
+            entries.addAll(values);
+            update.changed(getPropertyName());
+        }
+    }
+
+    @Override
+    void write(Object source, ProjectionWriter writer) throws Exception {
+        Collection<?> sourceCollection = (Collection<?>) sourceReader.apply(source);
+        if (sourceCollection != null) {
+            if (!writer.getContext().isLoaded(sourceCollection)) {
+                writeUnloaded(sourceCollection, null, writer);
+                return;
+            }
+            sourceCollection = writer.getContext().limitCollection(this, sourceCollection);
+            final ProjectionSink sink = writer.getSink();
+            sink.name(getPropertyName());
+            sink.beginArray();
+            for (Object sourceCollectionEntry : sourceCollection) {
+                sink.value(writer.getContext().readReference(referenceReader, sourceCollectionEntry));
+            }
+            sink.endArray();
+        }
+    }
+
+    @Override
+    ReferenceReader getReferenceReader() {
+        return referenceReader;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+
+/**
+ * Projects a property of the object referenced by the source object's property onto the target object. The value of
+ * the property is converted if the plan has chosen a {@link Converter} for it.
+ * @author Guido Laures
+ * @see ProjectionType#property
+ */
+final class PropertyProjectionStep extends ProjectionStep {
+
+    private final ReferenceReader referenceReader;
+    private final Converter<Object, Object> converter;
+
+    PropertyProjectionStep(String propertyName, String sourcePropertyName, Function<Object, Object> sourceReader, Function<Object, Object> targetReader, BiConsumer<Object, Object> targetWriter,
+                           ReferenceReader referenceReader, Converter<Object, Object> converter) {
+        super(ProjectionType.property, propertyName, sourcePropertyName, sourceReader, targetReader, targetWriter);
+        this.referenceReader = referenceReader;
+        this.converter = converter;
+    }
+
+    @Override
+    void apply(Object source, Object target, ProjectionContext context) throws Exception {
+        Object referencedObject = sourceReader.apply(source);
+        if (referencedObject != null) {
+            if (!context.isLoaded(referencedObject)) {
+                if (context.isIdentifier(referencedObject, referenceReader.getPropertyName())) {
+                    targetWriter.accept(target, convert(context.getIdentifier(referencedObject)));
+                } else {
+                    applyUnloaded(target, referencedObject, null, context);
+                }
+                return;
+            }
+            targetWriter.accept(target, convert(referenceReader.read(referencedObject)));
+        }
+    }
+
+    @Override
+    void update(Object source, Object target, ProjectionUpdate update) throws Exception {
+        Object referencedObject = sourceReader.apply(source);
+        final ProjectionContext context = update.getContext();
+        if (referencedObject == null
+                || !context.isLoaded(referencedObject) && !context.isIdentifier(referencedObject, referenceReader.getPropertyName())) {
+            return;
+        }
+        final Object value = convert(context.readReference(referenceReader, referencedObject));
+        if (targetReader == null || !Objects.equals(value, targetReader.apply(target))) {
+            targetWriter.accept(target, value);
+            update.changed(getPropertyName());
+        }
+    }
+
+    @Override
+    void write(Object source, ProjectionWriter writer) throws Exception {
+        Object referencedObject = sourceReader.apply(source);
+        if (referencedObject != null) {
+            final ProjectionContext context = writer.getContext();
+            if (!context.isLoaded(referencedObject)) {
+                if (context.isIdentifier(referencedObject, referenceReader.getPropertyName())) {
+                    writer.getSink().name(getPropertyName());
+                    writer.getSink().value(convert(context.getIdentifier(referencedObject)));
+                } else {
+                    writeUnloaded(referencedObject, null, writer);
+                }
+                return;
+            }
+            writer.getSink().name(getPropertyName());
+            writer.getSink().value(convert(referenceReader.read(referencedObject)));
+        }
+    }
+
+    private Object convert(Object value) {
+        return converter == null || value == null ? value : converter.convert(value);
+    }
+
+    @Override
+    ReferenceReader getReferenceReader() {
+        return referenceReader;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import java.beans.PropertyDescriptor;
+import java.util.function.Function;
+
+/**
+ * Reads the reference property (see {@link Projection#referencePropertyName()}) of a referenced object.
+ * If the declared type of the referenced objects is known and provides the property, its reader is
+ * created once. Otherwise the reader is resolved (and cached) for the runtime class of each referenced object.
+ * @author Guido Laures
+ */
+final class ReferenceReader {
+
+    private final Class<?> referencedType;
+    private final String propertyName;
+    private final PropertyDescriptor descriptor;
+    private final Function<Object, Object> reader;
+    private final ClassValue<Function<Object, Object>> dynamicReaders;
+
+    ReferenceReader(Class<?> referencedType, final String propertyName, final PropertyAccessor propertyAccessor) {
+        this.referencedType = referencedType;
+        this.propertyName = propertyName;
+        this.descriptor = referencedType == null ? null : BeanProperties.findReadableProperty(referencedType, propertyName);
+        if (descriptor != null) {
+            this.reader = propertyAccessor.createReader(descriptor);
+            this.dynamicReaders = null;
+        } else {
+            this.reader = null;
+            this.dynamicReaders = new ClassValue<Function<Object, Object>>() {
+                @Override
+                protected Function<Object, Object> computeValue(Class<?> type) {
+                    final PropertyDescriptor descriptor = BeanProperties.findReadableProperty(type, propertyName);
+                    return descriptor == null ? null : propertyAccessor.createReader(descriptor);
+                }
+            };
+        }
+    }
+
+    /**
+     * @return the declared type of the referenced objects or null if it is unknown
+     */
+    Class<?> getReferencedType() {
+        return referencedType;
+    }
+
+    String getPropertyName() {
+        return propertyName;
+    }
+
+    /**
+     * @return the reference property of the declared type of the referenced objects or null if it is resolved
+     * for the runtime class of each referenced object
+     */
+    PropertyDescriptor getStaticProperty() {
+        return descriptor;
+    }
+
+    Object read(Object referencedObject) throws NoSuchMethodException {
+        if (reader != null) {
+            return reader.apply(referencedObject);
+        }
+        final Function<Object, Object> dynamicReader = dynamicReaders.get(referencedObject.getClass());
+        if (dynamicReader == null) {
+            throw new NoSuchMethodException("Unknown property '" + propertyName + "' on class '" + referencedObject.getClass() + "'");
+        }
+        return dynamicReader.apply(referencedObject);
+    }
+}
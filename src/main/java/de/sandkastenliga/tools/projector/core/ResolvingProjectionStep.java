@@ -0,0 +1,96 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import java.util.function.Function;
+
+/**
+ * Resolves the value of the source object's property with a {@link BatchResolver} and projects the resolved object
+ * with the step projecting the property, which reads the resolved object as its source value. Within a batch the
+ * step is finished once the keys of the batch have been resolved, updates and writes resolve each key on its own.
+ * @author Guido Laures
+ * @see Projection#resolver()
+ */
+final class ResolvingProjectionStep extends ProjectionStep {
+
+    private final BatchResolver<Object, Object> resolver;
+    private final ProjectionStep step;
+    private final boolean batched;
+
+    /**
+     * @param sourceReader the reader of the key from the source object
+     * @param step         the step projecting the resolved object, reading it as its source value
+     * @param batched      false to resolve each key on its own, e.g. for immutable projections which are created
+     *                     before the keys of the batch are resolved
+     */
+    ResolvingProjectionStep(String sourcePropertyName, Function<Object, Object> sourceReader, BatchResolver<Object, Object> resolver, ProjectionStep step,
+                            boolean batched) {
+        super(step.getType(), step.getPropertyName(), sourcePropertyName, sourceReader, step.targetReader, step.targetWriter);
+        this.resolver = resolver;
+        this.step = step;
+        this.batched = batched;
+    }
+
+    @Override
+    void apply(Object source, Object target, ProjectionContext context) throws Exception {
+        if (getType() == ProjectionType.projection && context.isMaxDepthReached()) {
+            return;
+        }
+        final Object key = sourceReader.apply(source);
+        if (key == null) {
+            return;
+        }
+        if (batched) {
+            context.resolve(resolver, key, value -> step.apply(value, target, context));
+        } else {
+            step.apply(ProjectionContext.resolveNow(resolver, key), target, context);
+        }
+        // collections projected right away are reported as projected by this step
+        final int collectionSize = context.takeCollectionSize(step);
+        if (collectionSize >= 0) {
+            context.collectionProjected(this, collectionSize);
+        }
+    }
+
+    @Override
+    void update(Object source, Object target, ProjectionUpdate update) throws Exception {
+        final Object key = sourceReader.apply(source);
+        step.update(key == null ? null : ProjectionContext.resolveNow(resolver, key), target, update);
+    }
+
+    @Override
+    void write(Object source, ProjectionWriter writer) throws Exception {
+        final Object key = sourceReader.apply(source);
+        if (key != null) {
+            step.write(ProjectionContext.resolveNow(resolver, key), writer);
+        }
+    }
+
+    @Override
+    Object readSourceValue(Object source, ProjectionContext context) throws Exception {
+        final Object key = sourceReader.apply(source);
+        return key == null ? null : ProjectionContext.resolveNow(resolver, key);
+    }
+
+    @Override
+    Class<?> getProjectionClass() {
+        return step.getProjectionClass();
+    }
+
+    @Override
+    ReferenceReader getReferenceReader() {
+        return step.getReferenceReader();
+    }
+}
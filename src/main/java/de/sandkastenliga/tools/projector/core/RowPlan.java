@@ -0,0 +1,235 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import java.beans.PropertyDescriptor;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * The plan of projecting flat rows (e.g. of a {@link ResultSet} or maps of column names and values) onto a
+ * projection class. Rows have no nested objects, so only properties projected {@link ProjectionType#asIs as is} or as
+ * {@link ProjectionType#property} are projected, from the column named like the property or like the
+ * {@link Projection#propertyName() property name} of the annotation. Properties without a column in the row are not
+ * projected. Row plans are thread-safe and cached by the {@link Projector} per projection class.
+ * @author Guido Laures
+ * @see Projector#projectRows(ResultSet, Class)
+ */
+final class RowPlan<T> {
+
+    private final Class<T> targetClass;
+    private final TargetInstantiator<T> instantiator;
+    private final Converters converters;
+    private final RowProperty[] properties;
+
+    RowPlan(Class<T> targetClass, PropertyAccessor propertyAccessor, NullToPrimitivePolicy nullToPrimitivePolicy, Converters converters) throws Exception {
+        this.targetClass = targetClass;
+        this.instantiator = TargetInstantiator.create(targetClass);
+        this.converters = converters;
+        final List<RowProperty> properties = new ArrayList<RowProperty>();
+        final List<TargetProperty> targetProperties = instantiator.getStagedProperties() != null
+                ? instantiator.getStagedProperties() : ProjectionPlanBuilder.getBeanProperties(targetClass);
+        for (TargetProperty targetProperty : targetProperties) {
+            final Projection annotation = targetProperty.getAnnotation();
+            if (annotation != null && annotation.value() != ProjectionType.asIs && annotation.value() != ProjectionType.property) {
+                continue;
+            }
+            final String columnName = annotation == null || annotation.propertyName().equals("") ? targetProperty.getName() : annotation.propertyName();
+            properties.add(new RowProperty(targetProperty, columnName,
+                    ProjectionPlanBuilder.createWriter(targetClass, targetProperty, propertyAccessor, nullToPrimitivePolicy), propertyAccessor));
+        }
+        this.properties = properties.toArray(new RowProperty[0]);
+    }
+
+    Class<T> getTargetClass() {
+        return targetClass;
+    }
+
+    /**
+     * Projects a row of column names and values. Values are converted onto the types of the properties with the
+     * converters of the projector, looked up by the class of each value.
+     */
+    T project(Map<String, ?> row) throws Exception {
+        final Object target = instantiator.newTarget();
+        for (RowProperty property : properties) {
+            final Object value = row.get(property.columnName);
+            if (value != null || row.containsKey(property.columnName)) {
+                property.writer.accept(target, convert(property, value));
+            }
+        }
+        return instantiator.complete(target);
+    }
+
+    /**
+     * Resolves the columns of the result set's properties once, so its rows are read by column index.
+     */
+    ResultSetReader bind(ResultSet resultSet) throws SQLException {
+        return new ResultSetReader(resultSet);
+    }
+
+    private Object convert(RowProperty property, Object value) {
+        if (value == null || property.boxedType.isInstance(value)) {
+            return value;
+        }
+        final Converter<Object, Object> converter = findConverter(value.getClass(), property.boxedType);
+        if (converter == null) {
+            throw new IllegalArgumentException("Cannot project value of type '" + value.getClass().getName() + "' onto property '"
+                    + property.name + "' of class '" + targetClass + "'");
+        }
+        return converter.convert(value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Converter<Object, Object> findConverter(Class<?> sourceType, Class<?> targetType) {
+        return (Converter<Object, Object>) converters.find(sourceType, targetType);
+    }
+
+    /**
+     * Column names are matched ignoring case and underscores, e.g. column {@code MARRIED_TO} is projected onto
+     * property {@code marriedTo}.
+     */
+    private static String normalize(String columnName) {
+        return columnName.replace("_", "").toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Reads the rows of one result set. Columns holding the boxed type of a {@code long}, {@code int} or
+     * {@code double} property are read without boxing, the converters of all other columns are chosen once by the
+     * column's class.
+     */
+    final class ResultSetReader {
+
+        private final ResultSet resultSet;
+        private final int[] columnIndexes;
+        private final Converter<Object, Object>[] columnConverters;
+        private final boolean[] dynamic;
+
+        @SuppressWarnings("unchecked")
+        ResultSetReader(ResultSet resultSet) throws SQLException {
+            this.resultSet = resultSet;
+            final ResultSetMetaData metaData = resultSet.getMetaData();
+            final Map<String, Integer> indexesByName = new HashMap<String, Integer>();
+            for (int i = metaData.getColumnCount(); i > 0; i--) {
+                // the first of several columns with the same name wins
+                indexesByName.put(normalize(metaData.getColumnLabel(i)), i);
+            }
+            this.columnIndexes = new int[properties.length];
+            this.columnConverters = (Converter<Object, Object>[]) new Converter<?, ?>[properties.length];
+            this.dynamic = new boolean[properties.length];
+            for (int i = 0; i < properties.length; i++) {
+                final RowProperty property = properties[i];
+                final Integer index = indexesByName.get(normalize(property.columnName));
+                if (index == null) {
+                    continue;
+                }
+                columnIndexes[i] = index;
+                final Class<?> columnClass = columnClass(metaData.getColumnClassName(index));
+                if (columnClass == null) {
+                    dynamic[i] = true;
+                } else if (columnClass != property.boxedType || property.longWriter == null && property.intWriter == null && property.doubleWriter == null) {
+                    columnConverters[i] = findConverter(columnClass, property.boxedType);
+                    // e.g. a column declared as a supertype of its values
+                    dynamic[i] = columnConverters[i] == null && !property.boxedType.isAssignableFrom(columnClass);
+                }
+            }
+        }
+
+        /**
+         * Projects the current row of the result set.
+         */
+        T project() throws Exception {
+            final Object target = instantiator.newTarget();
+            for (int i = 0; i < properties.length; i++) {
+                final int index = columnIndexes[i];
+                if (index == 0) {
+                    continue;
+                }
+                final RowProperty property = properties[i];
+                if (property.longWriter != null && columnConverters[i] == null && !dynamic[i]) {
+                    final long value = resultSet.getLong(index);
+                    if (resultSet.wasNull()) {
+                        property.writer.accept(target, null);
+                    } else {
+                        property.longWriter.accept(target, value);
+                    }
+                } else if (property.intWriter != null && columnConverters[i] == null && !dynamic[i]) {
+                    final int value = resultSet.getInt(index);
+                    if (resultSet.wasNull()) {
+                        property.writer.accept(target, null);
+                    } else {
+                        property.intWriter.accept(target, value);
+                    }
+                } else if (property.doubleWriter != null && columnConverters[i] == null && !dynamic[i]) {
+                    final double value = resultSet.getDouble(index);
+                    if (resultSet.wasNull()) {
+                        property.writer.accept(target, null);
+                    } else {
+                        property.doubleWriter.accept(target, value);
+                    }
+                } else {
+                    final Object value = resultSet.getObject(index);
+                    final Converter<Object, Object> converter = columnConverters[i];
+                    property.writer.accept(target, value == null ? null
+                            : converter != null ? converter.convert(value) : dynamic[i] ? convert(property, value) : value);
+                }
+            }
+            return instantiator.complete(target);
+        }
+
+        private Class<?> columnClass(String className) {
+            try {
+                return className == null ? null : Class.forName(className, false, targetClass.getClassLoader());
+            } catch (final ClassNotFoundException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * A property of the projection class projected from a column.
+     */
+    private static final class RowProperty {
+
+        private final String name;
+        private final String columnName;
+        private final Class<?> boxedType;
+        private final BiConsumer<Object, Object> writer;
+        private final ObjLongConsumer<Object> longWriter;
+        private final ObjIntConsumer<Object> intWriter;
+        private final ObjDoubleConsumer<Object> doubleWriter;
+
+        RowProperty(TargetProperty targetProperty, String columnName, BiConsumer<Object, Object> writer, PropertyAccessor propertyAccessor) {
+            this.name = targetProperty.getName();
+            this.columnName = columnName;
+            this.boxedType = Converters.boxed(targetProperty.getType());
+            this.writer = writer;
+            final PropertyDescriptor descriptor = targetProperty.getDescriptor();
+            final Class<?> type = targetProperty.getType();
+            this.longWriter = descriptor != null && type == long.class ? propertyAccessor.createLongWriter(descriptor) : null;
+            this.intWriter = descriptor != null && type == int.class ? propertyAccessor.createIntWriter(descriptor) : null;
+            this.doubleWriter = descriptor != null && type == double.class ? propertyAccessor.createDoubleWriter(descriptor) : null;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * The Java Flight Recorder event emitted by the {@link JfrProjectionListener} for slow projections.
+ * @author Guido Laures
+ */
+@Name("de.sandkastenliga.projector.SlowProjection")
+@Label("Slow Projection")
+@Category("ModelProjector")
+@Description("A projection taking longer than the threshold of the listener")
+final class SlowProjectionEvent extends Event {
+
+    @Label("Source Class")
+    Class<?> sourceClass;
+
+    @Label("Target Class")
+    Class<?> targetClass;
+
+    @Label("Depth")
+    @Description("The depth of the projection within the projected object graph")
+    int depth;
+
+    @Label("Projection Time")
+    @Description("The time the projection took including all nested projections")
+    @Timespan(Timespan.NANOSECONDS)
+    long projectionTime;
+}
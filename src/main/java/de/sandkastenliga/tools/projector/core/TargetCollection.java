@@ -0,0 +1,141 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * The collection property of a target object entries are added to. The collection initialized by the target
+ * object is used if there is one. Otherwise a collection matching the property's type is created (sized for
+ * the entries to be added) and set after it has been filled.
+ * @author Guido Laures
+ */
+final class TargetCollection {
+
+    private final String propertyName;
+    private final Class<?> targetClass;
+    private final Function<Object, Object> reader;
+    private final BiConsumer<Object, Object> writer;
+    private final IntFunction<Collection<Object>> factory;
+
+    /**
+     * @param reader the reader of the collection property or null if it has no getter
+     */
+    TargetCollection(Class<?> targetClass, String propertyName, Class<?> collectionType, Function<Object, Object> reader, BiConsumer<Object, Object> writer) {
+        this.targetClass = targetClass;
+        this.propertyName = propertyName;
+        this.reader = reader;
+        this.writer = writer;
+        this.factory = factory(collectionType);
+        if (reader == null && factory == null) {
+            throw new IllegalStateException("Property '" + propertyName + "' of class '" + targetClass
+                    + "' needs a getter or a type of collection that can be instantiated");
+        }
+    }
+
+    /**
+     * @return the collection initialized by the target object (with room for the given number of additional entries)
+     * or null if a new collection needs to be created
+     */
+    @SuppressWarnings("unchecked")
+    Collection<Object> get(Object target, int additionalSize) {
+        final Collection<Object> collection = reader == null ? null : (Collection<Object>) reader.apply(target);
+        if (collection instanceof ArrayList) {
+            ((ArrayList<Object>) collection).ensureCapacity(collection.size() + additionalSize);
+        }
+        return collection;
+    }
+
+    /**
+     * @return a new collection with room for the given number of entries to be {@link #set(Object, Collection) set}
+     * once it is filled
+     */
+    Collection<Object> create(int size) {
+        if (factory == null) {
+            throw new IllegalStateException("The collection of property '" + propertyName + "' of class '" + targetClass
+                    + "' is null and cannot be created");
+        }
+        return factory.apply(size);
+    }
+
+    void set(Object target, Collection<Object> collection) {
+        writer.accept(target, collection);
+    }
+
+    /**
+     * @return true if the collection of the target object holds exactly the given values, sets are compared
+     * regardless of the order of their entries
+     */
+    static boolean containsExactly(Collection<Object> entries, Collection<Object> values) {
+        if (entries instanceof Set) {
+            return entries.equals(new HashSet<Object>(values));
+        }
+        if (entries.size() != values.size()) {
+            return false;
+        }
+        final Iterator<Object> iterator = entries.iterator();
+        for (Object value : values) {
+            if (!Objects.equals(iterator.next(), value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the factory of collections of the given type or null if they cannot be created
+     */
+    private static IntFunction<Collection<Object>> factory(Class<?> collectionType) {
+        if (collectionType.isAssignableFrom(ArrayList.class)) {
+            return ArrayList::new;
+        }
+        if (collectionType.isAssignableFrom(LinkedHashSet.class)) {
+            return size -> new LinkedHashSet<Object>(Math.max(size * 4 / 3 + 1, 16));
+        }
+        if (collectionType.isAssignableFrom(TreeSet.class)) {
+            return size -> new TreeSet<Object>();
+        }
+        if (collectionType.isInterface() || Modifier.isAbstract(collectionType.getModifiers())) {
+            return null;
+        }
+        final Constructor<?> constructor;
+        try {
+            constructor = collectionType.getConstructor();
+        } catch (final NoSuchMethodException e) {
+            return null;
+        }
+        return size -> {
+            try {
+                @SuppressWarnings("unchecked")
+                final Collection<Object> collection = (Collection<Object>) constructor.newInstance();
+                return collection;
+            } catch (final ReflectiveOperationException e) {
+                throw new IllegalStateException("Cannot create collection of " + constructor.getDeclaringClass(), e);
+            }
+        };
+    }
+}
@@ -0,0 +1,410 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import java.beans.ConstructorProperties;
+import java.beans.Introspector;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Creates the projections of a target class. The way projections are created is resolved once per
+ * {@link ProjectionPlan}, constructors and methods are invoked through {@link MethodHandle}s:
+ * <ul>
+ * <li>Target classes with a public no-arg constructor are instantiated before their properties are projected
+ * through their setters.</li>
+ * <li>Target classes with a static {@code builder()} method are immutable: their properties are projected onto the
+ * builder (through methods named like the property, optionally prefixed with {@code set} or {@code with}) and the
+ * projection is created by the builder's {@code build()} method afterwards.</li>
+ * <li>Other target classes are immutable as well and created by the public constructor taking all of their
+ * properties (the one annotated with {@link ConstructorProperties} or the one with the most parameters). The
+ * constructor arguments are staged in an array until all properties are projected.</li>
+ * </ul>
+ * @author Guido Laures
+ */
+abstract class TargetInstantiator<T> {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType FACTORY_TYPE = MethodType.methodType(Object.class);
+    private static final MethodType BUILD_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class, Object[].class);
+    private static final MethodType WRITER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final String[] BUILDER_METHOD_PREFIXES = {"set", "with"};
+
+    final Class<T> targetClass;
+
+    TargetInstantiator(Class<T> targetClass) {
+        this.targetClass = targetClass;
+    }
+
+    /**
+     * @return a new projection or, if the target class is immutable, the object its properties are staged in
+     */
+    abstract Object newTarget() throws Exception;
+
+    /**
+     * @param target the object returned by {@link #newTarget()} after all properties have been projected onto it
+     * @return the projection
+     */
+    abstract T complete(Object target) throws Exception;
+
+    /**
+     * @return the properties of an immutable target class, which are written onto the objects returned by
+     * {@link #newTarget()}, or null if the properties are written through the setters of the projection
+     */
+    List<TargetProperty> getStagedProperties() {
+        return null;
+    }
+
+    /**
+     * @return the instantiator of the target class
+     * @throws IllegalStateException if the properties of an immutable target class cannot be determined
+     */
+    static <T> TargetInstantiator<T> create(Class<T> targetClass) throws IllegalAccessException {
+        if (targetClass.isInterface() || Modifier.isAbstract(targetClass.getModifiers())) {
+            return new Uninstantiable<T>(targetClass, "it is abstract");
+        }
+        final Constructor<T> defaultConstructor;
+        try {
+            defaultConstructor = targetClass.getConstructor();
+        } catch (final NoSuchMethodException e) {
+            final Method builderMethod = findBuilderMethod(targetClass);
+            if (builderMethod != null) {
+                return new BuilderInstantiator<T>(targetClass, builderMethod);
+            }
+            final Constructor<?> constructor = findConstructor(targetClass);
+            if (constructor != null) {
+                return new ConstructorInstantiator<T>(targetClass, constructor);
+            }
+            return new Uninstantiable<T>(targetClass,
+                    "it needs a public no-arg constructor, a static builder() method or a public constructor taking its properties");
+        }
+        return new BeanInstantiator<T>(targetClass, defaultConstructor);
+    }
+
+    /**
+     * @return the static no-arg {@code builder()} method of the target class or null if it has none
+     */
+    private static Method findBuilderMethod(Class<?> targetClass) {
+        final Method builderMethod;
+        final Method buildMethod;
+        try {
+            builderMethod = targetClass.getMethod("builder");
+            buildMethod = builderMethod.getReturnType().getMethod("build");
+        } catch (final NoSuchMethodException e) {
+            return null;
+        }
+        if (!Modifier.isStatic(builderMethod.getModifiers()) || Modifier.isStatic(buildMethod.getModifiers())
+                || !targetClass.isAssignableFrom(buildMethod.getReturnType())) {
+            return null;
+        }
+        return builderMethod;
+    }
+
+    /**
+     * @return the public constructor annotated with {@link ConstructorProperties} or the one with the most
+     * parameters or null if the target class has no public constructor
+     */
+    private static Constructor<?> findConstructor(Class<?> targetClass) {
+        Constructor<?> found = null;
+        boolean ambiguous = false;
+        for (Constructor<?> constructor : targetClass.getConstructors()) {
+            if (found == null || isPreferred(constructor, found)) {
+                found = constructor;
+                ambiguous = false;
+            } else if (!isPreferred(found, constructor)) {
+                ambiguous = true;
+            }
+        }
+        if (ambiguous) {
+            throw new IllegalStateException("Cannot choose the constructor of class '" + targetClass
+                    + "': several public constructors take the most parameters, annotate one with @ConstructorProperties");
+        }
+        return found;
+    }
+
+    private static boolean isPreferred(Constructor<?> constructor, Constructor<?> other) {
+        final boolean annotated = constructor.getAnnotation(ConstructorProperties.class) != null;
+        if (annotated != (other.getAnnotation(ConstructorProperties.class) != null)) {
+            return annotated;
+        }
+        return constructor.getParameterCount() > other.getParameterCount();
+    }
+
+    /**
+     * @return the public no-arg method of the target class reading the property or null if there is none
+     */
+    private static Method findAccessor(Class<?> targetClass, String propertyName) {
+        final String capitalized = Character.toUpperCase(propertyName.charAt(0)) + propertyName.substring(1);
+        for (String methodName : new String[]{"get" + capitalized, "is" + capitalized, propertyName}) {
+            try {
+                final Method accessor = targetClass.getMethod(methodName);
+                if (!Modifier.isStatic(accessor.getModifiers()) && accessor.getReturnType() != void.class) {
+                    return accessor;
+                }
+            } catch (final NoSuchMethodException e) {
+                // try the next naming convention
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the name of the property written by a builder method, e.g. {@code street} for {@code withStreet}
+     */
+    private static String builderPropertyName(String methodName) {
+        for (String prefix : BUILDER_METHOD_PREFIXES) {
+            if (methodName.length() > prefix.length() && methodName.startsWith(prefix)
+                    && Character.isUpperCase(methodName.charAt(prefix.length()))) {
+                return Introspector.decapitalize(methodName.substring(prefix.length()));
+            }
+        }
+        return methodName;
+    }
+
+    /**
+     * @return the name of a constructor parameter, which is taken from {@link ConstructorProperties}, the class
+     * file (if compiled with {@code -parameters}) or the name of the source property given by {@link Projection}
+     */
+    private static String parameterName(Constructor<?> constructor, int index) {
+        final ConstructorProperties constructorProperties = constructor.getAnnotation(ConstructorProperties.class);
+        if (constructorProperties != null && constructorProperties.value().length == constructor.getParameterCount()) {
+            return constructorProperties.value()[index];
+        }
+        final Parameter parameter = constructor.getParameters()[index];
+        if (parameter.isNamePresent()) {
+            return parameter.getName();
+        }
+        final Projection projectionAnnotation = parameter.getAnnotation(Projection.class);
+        if (projectionAnnotation != null && !projectionAnnotation.propertyName().isEmpty()) {
+            return projectionAnnotation.propertyName();
+        }
+        throw new IllegalStateException("Cannot determine the name of parameter " + index + " of " + constructor
+                + ": annotate the constructor with @ConstructorProperties, compile with -parameters or annotate the parameter with @Projection(propertyName = ...)");
+    }
+
+    private static <M extends AccessibleObject & Member> M accessible(M member) {
+        if (!Modifier.isPublic(member.getDeclaringClass().getModifiers())) {
+            member.setAccessible(true);
+        }
+        return member;
+    }
+
+    private static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException) {
+            return (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return new RuntimeException(t);
+    }
+
+    /**
+     * Instantiates mutable target classes with their no-arg constructor.
+     */
+    private static final class BeanInstantiator<T> extends TargetInstantiator<T> {
+
+        private final MethodHandle constructor;
+
+        BeanInstantiator(Class<T> targetClass, Constructor<T> constructor) throws IllegalAccessException {
+            super(targetClass);
+            this.constructor = LOOKUP.unreflectConstructor(accessible(constructor)).asType(FACTORY_TYPE);
+        }
+
+        @Override
+        Object newTarget() {
+            try {
+                return (Object) constructor.invokeExact();
+            } catch (final Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        T complete(Object target) {
+            return (T) target;
+        }
+    }
+
+    /**
+     * Creates immutable projections with the constructor taking all of their properties.
+     */
+    private static final class ConstructorInstantiator<T> extends TargetInstantiator<T> {
+
+        private final MethodHandle constructor;
+        private final Object[] defaultArguments;
+        private final List<TargetProperty> properties;
+
+        ConstructorInstantiator(Class<T> targetClass, Constructor<?> constructor) throws IllegalAccessException {
+            super(targetClass);
+            final Parameter[] parameters = constructor.getParameters();
+            this.constructor = LOOKUP.unreflectConstructor(accessible(constructor)).asFixedArity()
+                    .asSpreader(Object[].class, parameters.length).asType(CONSTRUCTOR_TYPE);
+            this.defaultArguments = new Object[parameters.length];
+            final List<TargetProperty> properties = new ArrayList<TargetProperty>(parameters.length);
+            for (int i = 0; i < parameters.length; i++) {
+                final Class<?> type = parameters[i].getType();
+                if (type.isPrimitive()) {
+                    // arguments not projected are passed as default values
+                    defaultArguments[i] = Array.get(Array.newInstance(type, 1), 0);
+                }
+                final int index = i;
+                properties.add(new TargetProperty(parameterName(constructor, i), type, parameters[i].getParameterizedType(),
+                        parameters[i].getAnnotation(Projection.class), (arguments, value) -> ((Object[]) arguments)[index] = value));
+            }
+            this.properties = Collections.unmodifiableList(properties);
+        }
+
+        @Override
+        Object newTarget() {
+            return defaultArguments.clone();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        T complete(Object target) {
+            try {
+                return (T) constructor.invokeExact((Object[]) target);
+            } catch (final Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        @Override
+        List<TargetProperty> getStagedProperties() {
+            return properties;
+        }
+    }
+
+    /**
+     * Creates immutable projections with their builder. Only builder methods writing a property the target class
+     * can be read by are used.
+     */
+    private static final class BuilderInstantiator<T> extends TargetInstantiator<T> {
+
+        private final MethodHandle builder;
+        private final MethodHandle build;
+        private final List<TargetProperty> properties;
+
+        BuilderInstantiator(Class<T> targetClass, Method builderMethod) throws IllegalAccessException {
+            super(targetClass);
+            final Class<?> builderClass = builderMethod.getReturnType();
+            this.builder = LOOKUP.unreflect(accessible(builderMethod)).asType(FACTORY_TYPE);
+            try {
+                this.build = LOOKUP.unreflect(accessible(builderClass.getMethod("build"))).asType(BUILD_TYPE);
+            } catch (final NoSuchMethodException e) {
+                throw new IllegalStateException(e);
+            }
+            // properties are ordered by name like the properties of beans
+            final Map<String, Method> methods = new TreeMap<String, Method>();
+            for (Method method : builderClass.getMethods()) {
+                if (Modifier.isStatic(method.getModifiers()) || method.getParameterCount() != 1 || method.isBridge()
+                        || method.getAnnotation(NoProjection.class) != null) {
+                    continue;
+                }
+                final String propertyName = builderPropertyName(method.getName());
+                final Method accessor = findAccessor(targetClass, propertyName);
+                if (accessor == null || accessor.getAnnotation(NoProjection.class) != null
+                        || !method.getParameterTypes()[0].isAssignableFrom(accessor.getReturnType())) {
+                    continue;
+                }
+                final Method other = methods.get(propertyName);
+                if (other == null || method.getParameterTypes()[0] == accessor.getReturnType()) {
+                    methods.put(propertyName, method);
+                }
+            }
+            final List<TargetProperty> properties = new ArrayList<TargetProperty>(methods.size());
+            for (Map.Entry<String, Method> entry : methods.entrySet()) {
+                final Method method = entry.getValue();
+                Projection projectionAnnotation = method.getAnnotation(Projection.class);
+                if (projectionAnnotation == null) {
+                    projectionAnnotation = findAccessor(targetClass, entry.getKey()).getAnnotation(Projection.class);
+                }
+                final MethodHandle writer = LOOKUP.unreflect(accessible(method)).asType(WRITER_TYPE);
+                properties.add(new TargetProperty(entry.getKey(), method.getParameterTypes()[0], method.getGenericParameterTypes()[0],
+                        projectionAnnotation, (target, value) -> {
+                    try {
+                        writer.invokeExact(target, value);
+                    } catch (final Throwable t) {
+                        throw rethrow(t);
+                    }
+                }));
+            }
+            this.properties = Collections.unmodifiableList(properties);
+        }
+
+        @Override
+        Object newTarget() {
+            try {
+                return (Object) builder.invokeExact();
+            } catch (final Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        T complete(Object target) {
+            try {
+                return (T) build.invokeExact(target);
+            } catch (final Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        @Override
+        List<TargetProperty> getStagedProperties() {
+            return properties;
+        }
+    }
+
+    /**
+     * Target classes that cannot be instantiated can still be projected onto existing objects and written to sinks.
+     */
+    private static final class Uninstantiable<T> extends TargetInstantiator<T> {
+
+        private final String reason;
+
+        Uninstantiable(Class<T> targetClass, String reason) {
+            super(targetClass);
+            this.reason = reason;
+        }
+
+        @Override
+        Object newTarget() throws InstantiationException {
+            throw new InstantiationException("Cannot instantiate class '" + targetClass + "': " + reason);
+        }
+
+        @Override
+        T complete(Object target) {
+            throw new IllegalStateException();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+import org.apache.commons.beanutils.PropertyUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.function.BiConsumer;
+
+/**
+ * A property of a target class that is projected onto: a bean property written by its setter or a property of an
+ * immutable target class staged for its constructor or builder (see {@link TargetInstantiator}).
+ * @author Guido Laures
+ */
+final class TargetProperty {
+
+    private final String name;
+    private final Class<?> type;
+    private final Type genericType;
+    private final Projection annotation;
+    private final PropertyDescriptor descriptor;
+    private final BiConsumer<Object, Object> stagedWriter;
+
+    /**
+     * Creates a bean property written by its setter.
+     */
+    TargetProperty(PropertyDescriptor descriptor) {
+        final Method writeMethod = PropertyUtils.getWriteMethod(descriptor);
+        this.name = descriptor.getName();
+        this.type = descriptor.getPropertyType();
+        this.genericType = writeMethod.getGenericParameterTypes()[0];
+        this.annotation = writeMethod.getAnnotation(Projection.class);
+        this.descriptor = descriptor;
+        this.stagedWriter = null;
+    }
+
+    /**
+     * Creates a property staged for the constructor or builder of an immutable target class.
+     * @param stagedWriter the writer of the property's value onto the staging object
+     */
+    TargetProperty(String name, Class<?> type, Type genericType, Projection annotation, BiConsumer<Object, Object> stagedWriter) {
+        this.name = name;
+        this.type = type;
+        this.genericType = genericType;
+        this.annotation = annotation;
+        this.descriptor = null;
+        this.stagedWriter = stagedWriter;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * @return the generic type of the value written, e.g. the setter's parameter type
+     */
+    Type getGenericType() {
+        return genericType;
+    }
+
+    /**
+     * @return the projection annotation of the property or null if it is projected as is
+     */
+    Projection getAnnotation() {
+        return annotation;
+    }
+
+    /**
+     * @return the descriptor of the bean property or null if the property is staged
+     */
+    PropertyDescriptor getDescriptor() {
+        return descriptor;
+    }
+
+    /**
+     * @return the writer of a staged property
+     */
+    BiConsumer<Object, Object> getStagedWriter() {
+        return stagedWriter;
+    }
+}
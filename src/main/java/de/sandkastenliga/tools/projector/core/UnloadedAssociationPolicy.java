@@ -0,0 +1,40 @@
+/*
+ * (C) Copyright 2018 Sandkastenliga (http://www.sandkastenliga.de).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.sandkastenliga.tools.projector.core;
+
+/**
+ * Tells the {@link Projector} what to do with an association of a source object that has not been loaded
+ * according to the {@link LoadStateResolver}. Reference properties ({@link ProjectionType#property} and
+ * {@link ProjectionType#propertyCollection}) that are the identifier of an unloaded entity are always projected,
+ * since the identifier can be read without loading the entity.
+ * @see Projector#setUnloadedAssociationPolicy(UnloadedAssociationPolicy)
+ * @author Guido Laures
+ */
+public enum UnloadedAssociationPolicy {
+
+    /**
+     * Do not project the association, leaving the property of the projection untouched. This is the default.
+     */
+    skip,
+    /**
+     * Set the property of the projection to null.
+     */
+    setNull,
+    /**
+     * Project an unloaded entity of a {@link ProjectionType#projection} onto a new projection with only its
+     * identifier set (to the property named like the entity's identifier). Unloaded collections are skipped.
+     */
+    idOnly
+}
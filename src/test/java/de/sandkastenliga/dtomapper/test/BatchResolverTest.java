@@ -0,0 +1,225 @@
+package de.sandkastenliga.dtomapper.test;
+
+import de.sandkastenliga.tools.projector.core.BatchResolver;
+import de.sandkastenliga.tools.projector.core.Projection;
+import de.sandkastenliga.tools.projector.core.ProjectionType;
+import de.sandkastenliga.tools.projector.core.Projector;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+public class BatchResolverTest {
+
+    private Projector projector = new Projector();
+    private CountingResolver customers = new CountingResolver();
+    private CountingResolver companies = new CountingResolver();
+    private List<Order> orders = new ArrayList<Order>();
+
+    @Before
+    public void setupTestData() {
+        for (long i = 1; i <= 3; i++) {
+            Customer customer = new Customer();
+            customer.setName("Customer " + i);
+            customer.setCompanyId(i % 2);
+            customers.values.put(i, customer);
+            Company company = new Company();
+            company.setName("Company " + (i - 1));
+            companies.values.put(i - 1, company);
+        }
+        for (long i = 0; i < 10; i++) {
+            Order order = new Order();
+            order.setCustomerId(i % 3 + 1);
+            orders.add(order);
+        }
+        projector.setBatchResolver("customers", customers);
+        projector.setBatchResolver("companies", companies);
+    }
+
+    @Test
+    public void testKeysOfAllSourcesAreResolvedAtOnce() {
+        List<OrderDto> dtos = projector.projectAll(orders, OrderDto.class);
+        Assert.assertEquals("Customer 2", dtos.get(1).getCustomerName());
+        Assert.assertEquals("Customer 2", dtos.get(1).getCustomer().getName());
+        Assert.assertEquals("Company 0", dtos.get(1).getCustomer().getCompany().getName());
+        Assert.assertEquals("Company 1", dtos.get(2).getCustomer().getCompany().getName());
+        Assert.assertEquals(Arrays.asList(new HashSet<Object>(Arrays.asList(1L, 2L, 3L))), customers.calls);
+        Assert.assertEquals(Arrays.asList(new HashSet<Object>(Arrays.asList(0L, 1L))), companies.calls);
+    }
+
+    @Test
+    public void testKeysAreResolvedAsynchronously() throws Exception {
+        customers.async = true;
+        companies.async = true;
+        List<OrderDto> dtos = projector.projectAllAsync(orders, OrderDto.class).get();
+        Assert.assertEquals(10, dtos.size());
+        Assert.assertEquals("Company 1", dtos.get(9).getCustomer().getCompany().getName());
+        Assert.assertEquals(1, customers.calls.size());
+        Assert.assertEquals(1, companies.calls.size());
+        Assert.assertEquals("Customer 3", projector.projectAsync(orders.get(2), OrderDto.class).get().getCustomerName());
+    }
+
+    @Test
+    public void testUnresolvedKeysAreNotProjected() {
+        orders.get(0).setCustomerId(4L);
+        OrderDto dto = projector.project(orders.get(0), OrderDto.class);
+        Assert.assertNull(dto.getCustomer());
+        Assert.assertNull(dto.getCustomerName());
+    }
+
+    @Test
+    public void testUpdatesResolveKeys() {
+        OrderDto dto = projector.project(orders.get(0), OrderDto.class);
+        orders.get(0).setCustomerId(2L);
+        projector.projectInto(orders.get(0), dto);
+        Assert.assertEquals("Customer 2", dto.getCustomerName());
+        Assert.assertEquals("Company 0", dto.getCustomer().getCompany().getName());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMissingResolverFails() {
+        projector.setBatchResolver("companies", null);
+        projector.getPlan(Order.class, OrderDto.class);
+        projector.getPlan(Customer.class, CustomerDto.class);
+    }
+
+    private static class CountingResolver implements BatchResolver<Object, Object> {
+
+        private final Map<Object, Object> values = new HashMap<Object, Object>();
+        private final List<Set<Object>> calls = new ArrayList<Set<Object>>();
+        private boolean async;
+
+        @Override
+        public Map<Object, Object> resolve(Set<Object> keys) {
+            calls.add(keys);
+            Map<Object, Object> resolved = new HashMap<Object, Object>();
+            for (Object key : keys) {
+                if (values.containsKey(key)) {
+                    resolved.put(key, values.get(key));
+                }
+            }
+            return resolved;
+        }
+
+        @Override
+        public CompletableFuture<Map<Object, Object>> resolveAsync(Set<Object> keys) {
+            return async ? CompletableFuture.supplyAsync(() -> resolve(keys)) : BatchResolver.super.resolveAsync(keys);
+        }
+    }
+
+    public static class Order {
+
+        private Long customerId;
+
+        public Long getCustomerId() {
+            return customerId;
+        }
+
+        public void setCustomerId(Long customerId) {
+            this.customerId = customerId;
+        }
+    }
+
+    public static class Customer {
+
+        private String name;
+        private Long companyId;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Long getCompanyId() {
+            return companyId;
+        }
+
+        public void setCompanyId(Long companyId) {
+            this.companyId = companyId;
+        }
+    }
+
+    public static class Company {
+
+        private String name;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    public static class OrderDto {
+
+        private String customerName;
+        private CustomerDto customer;
+
+        public String getCustomerName() {
+            return customerName;
+        }
+
+        @Projection(value = ProjectionType.property, propertyName = "customerId", referencePropertyName = "name", resolver = "customers")
+        public void setCustomerName(String customerName) {
+            this.customerName = customerName;
+        }
+
+        public CustomerDto getCustomer() {
+            return customer;
+        }
+
+        @Projection(value = ProjectionType.projection, propertyName = "customerId", resolver = "customers")
+        public void setCustomer(CustomerDto customer) {
+            this.customer = customer;
+        }
+    }
+
+    public static class CustomerDto {
+
+        private String name;
+        private CompanyDto company;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public CompanyDto getCompany() {
+            return company;
+        }
+
+        @Projection(value = ProjectionType.projection, propertyName = "companyId", resolver = "companies")
+        public void setCompany(CompanyDto company) {
+            this.company = company;
+        }
+    }
+
+    public static class CompanyDto {
+
+        private String name;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+}
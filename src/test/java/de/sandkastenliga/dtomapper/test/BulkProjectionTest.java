@@ -0,0 +1,68 @@
+package de.sandkastenliga.dtomapper.test;
+
+import de.sandkastenliga.tools.projector.core.Projector;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class BulkProjectionTest {
+
+    private Projector projector = new Projector();
+    private List<Person> persons = new ArrayList<Person>();
+
+    @Before
+    public void setupTestData() {
+        for (long i = 0; i < 5000; i++) {
+            Person person = new Person();
+            person.setId(i);
+            person.setName("Person " + i);
+            Person child = new Person();
+            child.setId(10000 + i);
+            person.getChildren().add(child);
+            persons.add(person);
+        }
+        persons.add(100, null);
+    }
+
+    @Test
+    public void testSequentialProjectionKeepsOrder() {
+        projector.setParallelThreshold(Integer.MAX_VALUE);
+        assertProjections(projector.projectAll(persons, PersonDto.class));
+    }
+
+    @Test
+    public void testParallelProjectionKeepsOrder() {
+        projector.setParallelThreshold(100);
+        assertProjections(projector.projectAll(persons, PersonDto.class));
+    }
+
+    @Test
+    public void testParallelProjectionWithExecutor() {
+        projector.setParallelThreshold(100);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            assertProjections(projector.projectAll(persons, PersonDto.class, executor));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void assertProjections(List<PersonDto> projections) {
+        Assert.assertEquals(persons.size(), projections.size());
+        for (int i = 0; i < persons.size(); i++) {
+            Person person = persons.get(i);
+            if (person == null) {
+                Assert.assertNull(projections.get(i));
+            } else {
+                Assert.assertEquals((long) person.getId(), projections.get(i).getId());
+                Assert.assertEquals(person.getName(), projections.get(i).getName());
+                Assert.assertEquals(person.getChildren().get(0).getId(), projections.get(i).getChildrenIds().get(0));
+            }
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package de.sandkastenliga.dtomapper.test;
+
+import de.sandkastenliga.tools.projector.core.NullToPrimitivePolicy;
+import de.sandkastenliga.tools.projector.core.Projection;
+import de.sandkastenliga.tools.projector.core.ProjectionType;
+import de.sandkastenliga.tools.projector.core.Projector;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+public class CollectionProjectionTest {
+
+    private Projector projector = new Projector();
+    private Person person;
+
+    @Before
+    public void setupTestData() {
+        person = new Person();
+        for (long i = 1; i <= 3; i++) {
+            Person child = new Person();
+            child.setId(i);
+            person.getChildren().add(child);
+            RealEstate home = new RealEstate();
+            home.setName("Home " + i);
+            person.getHomes().add(home);
+        }
+    }
+
+    @Test
+    public void testPrimitiveArrays() {
+        ChildrenDto dto = projector.project(person, ChildrenDto.class);
+        Assert.assertArrayEquals(new long[]{1L, 2L, 3L}, dto.getChildrenIds());
+    }
+
+    @Test
+    public void testNullEntriesOfPrimitiveArrays() {
+        person.getChildren().get(1).setId(null);
+        projector.setNullToPrimitivePolicy(NullToPrimitivePolicy.skip);
+        Assert.assertArrayEquals(new long[]{1L, 3L}, projector.project(person, ChildrenDto.class).getChildrenIds());
+        projector.setNullToPrimitivePolicy(NullToPrimitivePolicy.defaultValue);
+        Assert.assertArrayEquals(new long[]{1L, 0L, 3L}, projector.project(person, ChildrenDto.class).getChildrenIds());
+    }
+
+    @Test
+    public void testIntegerReferencesAreWidenedIntoLongArrays() {
+        Team team = new Team();
+        for (int i = 1; i <= 3; i++) {
+            Member member = new Member();
+            member.setNumber(i * 10);
+            team.getMembers().add(member);
+        }
+        TeamDto dto = projector.project(team, TeamDto.class);
+        Assert.assertArrayEquals(new long[]{10L, 20L, 30L}, dto.getMemberNumbers());
+        Assert.assertArrayEquals(new int[]{10, 20, 30}, dto.getIntMemberNumbers());
+    }
+
+    @Test
+    public void testNumbersOutOfIntRangeFailIntArrays() {
+        Team team = new Team();
+        Member member = new Member();
+        member.setCode(Integer.MAX_VALUE + 1L);
+        team.getMembers().add(member);
+        try {
+            projector.project(team, TeamCodesDto.class);
+            Assert.fail(member.getCode() + " must not be projected into an int[]");
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getCause() instanceof ArithmeticException);
+        }
+        member.setCode(42L);
+        Assert.assertArrayEquals(new int[]{42}, projector.project(team, TeamCodesDto.class).getCodes());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testLongReferencesAreRejectedForIntArrays() {
+        projector.getPlan(Person.class, IntChildrenDto.class);
+    }
+
+    @Test
+    public void testMissingCollectionsAreCreated() {
+        ChildrenDto dto = projector.project(person, ChildrenDto.class);
+        Assert.assertEquals(new LinkedHashSet<Long>(Arrays.asList(1L, 2L, 3L)), dto.getChildrenIdSet());
+        Assert.assertEquals(3, dto.getHomes().size());
+        Assert.assertEquals("Home 2", dto.getHomes().get(1).getName());
+    }
+
+    @Test
+    public void testInitializedCollectionsAreUsed() {
+        ChildrenDto dto = projector.project(person, ChildrenDto.class);
+        Assert.assertSame(dto.initializedHomes, dto.getInitializedHomes());
+        Assert.assertEquals(4, dto.getInitializedHomes().size());
+    }
+
+    public static class ChildrenDto {
+
+        private long[] childrenIds;
+        private Set<Long> childrenIdSet;
+        private List<RealEstateDto> homes;
+        private final List<RealEstateDto> initializedHomes = new ArrayList<RealEstateDto>();
+
+        public ChildrenDto() {
+            initializedHomes.add(new RealEstateDto());
+        }
+
+        public long[] getChildrenIds() {
+            return childrenIds;
+        }
+
+        @Projection(value = ProjectionType.propertyCollection, propertyName = "children")
+        public void setChildrenIds(long[] childrenIds) {
+            this.childrenIds = childrenIds;
+        }
+
+        public Set<Long> getChildrenIdSet() {
+            return childrenIdSet;
+        }
+
+        @Projection(value = ProjectionType.propertyCollection, propertyName = "children")
+        public void setChildrenIdSet(Set<Long> childrenIdSet) {
+            this.childrenIdSet = childrenIdSet;
+        }
+
+        public List<RealEstateDto> getHomes() {
+            return homes;
+        }
+
+        @Projection(ProjectionType.projectionCollection)
+        public void setHomes(List<RealEstateDto> homes) {
+            this.homes = homes;
+        }
+
+        public List<RealEstateDto> getInitializedHomes() {
+            return initializedHomes;
+        }
+
+        @Projection(value = ProjectionType.projectionCollection, propertyName = "homes")
+        public void setInitializedHomes(List<RealEstateDto> initializedHomes) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    public static class Member {
+
+        private Integer number;
+        private Number code;
+
+        public Integer getNumber() {
+            return number;
+        }
+
+        public void setNumber(Integer number) {
+            this.number = number;
+        }
+
+        public Number getCode() {
+            return code;
+        }
+
+        public void setCode(Number code) {
+            this.code = code;
+        }
+    }
+
+    public static class Team {
+
+        private List<Member> members = new ArrayList<Member>();
+
+        public List<Member> getMembers() {
+            return members;
+        }
+
+        public void setMembers(List<Member> members) {
+            this.members = members;
+        }
+    }
+
+    public static class TeamDto {
+
+        private long[] memberNumbers;
+        private int[] intMemberNumbers;
+
+        public long[] getMemberNumbers() {
+            return memberNumbers;
+        }
+
+        @Projection(value = ProjectionType.propertyCollection, propertyName = "members", referencePropertyName = "number")
+        public void setMemberNumbers(long[] memberNumbers) {
+            this.memberNumbers = memberNumbers;
+        }
+
+        public int[] getIntMemberNumbers() {
+            return intMemberNumbers;
+        }
+
+        @Projection(value = ProjectionType.propertyCollection, propertyName = "members", referencePropertyName = "number")
+        public void setIntMemberNumbers(int[] intMemberNumbers) {
+            this.intMemberNumbers = intMemberNumbers;
+        }
+    }
+
+    public static class TeamCodesDto {
+
+        private int[] codes;
+
+        public int[] getCodes() {
+            return codes;
+        }
+
+        @Projection(value = ProjectionType.propertyCollection, propertyName = "members", referencePropertyName = "code")
+        public void setCodes(int[] codes) {
+            this.codes = codes;
+        }
+    }
+
+    public static class IntChildrenDto {
+
+        private int[] childrenIds;
+
+        public int[] getChildrenIds() {
+            return childrenIds;
+        }
+
+        @Projection(value = ProjectionType.propertyCollection, propertyName = "children")
+        public void setChildrenIds(int[] childrenIds) {
+            this.childrenIds = childrenIds;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package de.sandkastenliga.dtomapper.test;
+
+import de.sandkastenliga.tools.projector.core.Projection;
+import de.sandkastenliga.tools.projector.core.ProjectionListener;
+import de.sandkastenliga.tools.projector.core.ProjectionPlan;
+import de.sandkastenliga.tools.projector.core.ProjectionType;
+import de.sandkastenliga.tools.projector.core.Projector;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CollectionSelectionTest {
+
+    private Projector projector = new Projector();
+    private Person person;
+    private AtomicInteger projectedHomes = new AtomicInteger();
+
+    @Before
+    public void setupTestData() {
+        person = new Person();
+        person.setId(1L);
+        for (int i = 1; i <= 5; i++) {
+            Person child = new Person();
+            child.setId((long) i + 1);
+            person.getChildren().add(child);
+            Address address = new Address();
+            address.setCity(i % 2 == 0 ? "Berlin" : "Hamburg");
+            RealEstate home = new RealEstate();
+            home.setName("Home " + i);
+            home.setAddress(address);
+            person.getHomes().add(home);
+        }
+        projector.setCollectionFilter("inBerlin", (RealEstate home) -> "Berlin".equals(home.getAddress().getCity()));
+        projector.setCollectionFilter("evenIds", (Person child) -> child.getId() % 2 == 0);
+        projector.setCollectionComparator("byIdDescending", Comparator.comparing(Person::getId).reversed());
+        projector.setProjectionListener(new ProjectionListener() {
+            @Override
+            public void projected(ProjectionPlan<?> plan, int depth, long nanos) {
+                if (plan.getTargetClass() == RealEstateDto.class) {
+                    projectedHomes.incrementAndGet();
+                }
+            }
+        });
+    }
+
+    @Test
+    public void testLimitProjectsFirstElements() {
+        PreviewPersonDto dto = projector.project(person, PreviewPersonDto.class);
+        Assert.assertEquals(2, dto.getFirstHomes().size());
+        Assert.assertEquals("Home 2", dto.getFirstHomes().get(1).getName());
+        Assert.assertEquals(5, person.getHomes().size());
+    }
+
+    @Test
+    public void testFilteredElementsAreNotProjected() {
+        PreviewPersonDto dto = projector.project(person, PreviewPersonDto.class);
+        Assert.assertEquals(2, dto.getBerlinHomes().size());
+        Assert.assertEquals("Home 4", dto.getBerlinHomes().get(1).getName());
+        // the two first homes and the two homes in Berlin, the first home in Berlin is shared
+        Assert.assertEquals(3, projectedHomes.get());
+    }
+
+    @Test
+    public void testElementsAreFilteredSortedAndLimited() {
+        PreviewPersonDto dto = projector.project(person, PreviewPersonDto.class);
+        Assert.assertEquals(Arrays.asList(6L, 4L), dto.getEvenChildIds());
+    }
+
+    @Test
+    public void testSelectionIsAppliedToUpdates() {
+        PreviewPersonDto dto = projector.project(person, PreviewPersonDto.class);
+        Person child = new Person();
+        child.setId(8L);
+        person.getChildren().add(child);
+        Assert.assertTrue(projector.projectInto(person, dto).isChanged("evenChildIds"));
+        Assert.assertEquals(Arrays.asList(8L, 6L), dto.getEvenChildIds());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnknownFilterIsReported() {
+        projector.setCollectionFilter("inBerlin", null);
+        projector.getPlan(Person.class, PreviewPersonDto.class);
+    }
+
+    public static class PreviewPersonDto {
+
+        private List<RealEstateDto> firstHomes = new ArrayList<RealEstateDto>();
+        private List<RealEstateDto> berlinHomes = new ArrayList<RealEstateDto>();
+        private List<Long> evenChildIds = new ArrayList<Long>();
+
+        public List<RealEstateDto> getFirstHomes() {
+            return firstHomes;
+        }
+
+        @Projection(value = ProjectionType.projectionCollection, propertyName = "homes", limit = 2)
+        public void setFirstHomes(List<RealEstateDto> firstHomes) {
+            this.firstHomes = firstHomes;
+        }
+
+        public List<RealEstateDto> getBerlinHomes() {
+            return berlinHomes;
+        }
+
+        @Projection(value = ProjectionType.projectionCollection, propertyName = "homes", filter = "inBerlin")
+        public void setBerlinHomes(List<RealEstateDto> berlinHomes) {
+            this.berlinHomes = berlinHomes;
+        }
+
+        public List<Long> getEvenChildIds() {
+            return evenChildIds;
+        }
+
+        @Projection(value = ProjectionType.propertyCollection, propertyName = "children", filter = "evenIds", comparator = "byIdDescending", limit = 2)
+        public void setEvenChildIds(List<Long> evenChildIds) {
+            this.evenChildIds = evenChildIds;
+        }
+    }
+}
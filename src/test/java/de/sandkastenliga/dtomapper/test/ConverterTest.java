@@ -0,0 +1,189 @@
+package de.sandkastenliga.dtomapper.test;
+
+import de.sandkastenliga.tools.projector.core.JsonSink;
+import de.sandkastenliga.tools.projector.core.Projection;
+import de.sandkastenliga.tools.projector.core.ProjectionType;
+import de.sandkastenliga.tools.projector.core.Projector;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Date;
+
+public class ConverterTest {
+
+    private Projector projector = new Projector();
+    private Order order;
+
+    @Before
+    public void setupTestData() {
+        Customer customer = new Customer();
+        customer.setId(7L);
+        order = new Order();
+        order.setCreated(new Date(1000L));
+        order.setStatus(Status.open);
+        order.setAmount(new BigDecimal("12.00"));
+        order.setCustomer(customer);
+    }
+
+    @Test
+    public void testBuiltInConverters() {
+        OrderDto dto = projector.project(order, OrderDto.class);
+        Assert.assertEquals(Instant.ofEpochMilli(1000L), dto.getCreated());
+        Assert.assertEquals("open", dto.getStatus());
+        Assert.assertEquals(12L, dto.getAmount());
+        Assert.assertEquals(7, dto.getCustomerId());
+        Assert.assertNull(projector.getConverter(Long.class, Number.class));
+        Assert.assertNotNull(projector.getConverter(int.class, Long.class));
+    }
+
+    @Test
+    public void testStringIsConvertedToEnum() {
+        OrderDto dto = projector.project(order, OrderDto.class);
+        Assert.assertEquals(Status.open, projector.project(dto, OrderStatus.class).getStatus());
+    }
+
+    @Test
+    public void testCustomConverterOfReferenceProperty() {
+        // more specific than the built-in converter of numbers
+        projector.setConverter(Long.class, Integer.class, id -> Math.toIntExact(id) + 1000);
+        Assert.assertEquals(1007, projector.project(order, OrderDto.class).getCustomerId());
+        StringWriter out = new StringWriter();
+        projector.projectTo(order, OrderDto.class, new JsonSink(out));
+        Assert.assertTrue(out.toString(), out.toString().contains("\"customerId\":1007"));
+    }
+
+    @Test
+    public void testCustomConverterReplacesBuiltInConverter() {
+        Assert.assertEquals("open", projector.project(order, OrderDto.class).getStatus());
+        projector.setConverter(Status.class, String.class, status -> status.name().toUpperCase());
+        Assert.assertEquals("OPEN", projector.project(order, OrderDto.class).getStatus());
+        projector.setConverter(Status.class, String.class, null);
+        Assert.assertEquals("open", projector.project(order, OrderDto.class).getStatus());
+    }
+
+    @Test
+    public void testLossyConversionFails() {
+        order.setAmount(new BigDecimal("12.50"));
+        try {
+            projector.project(order, OrderDto.class);
+            Assert.fail("12.50 must not be projected onto a long");
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getCause() instanceof ArithmeticException);
+        }
+    }
+
+    public enum Status {
+        open, shipped
+    }
+
+    public static class Customer {
+
+        private Long id;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+    }
+
+    public static class Order {
+
+        private Date created;
+        private Status status;
+        private BigDecimal amount;
+        private Customer customer;
+
+        public Date getCreated() {
+            return created;
+        }
+
+        public void setCreated(Date created) {
+            this.created = created;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public void setStatus(Status status) {
+            this.status = status;
+        }
+
+        public BigDecimal getAmount() {
+            return amount;
+        }
+
+        public void setAmount(BigDecimal amount) {
+            this.amount = amount;
+        }
+
+        public Customer getCustomer() {
+            return customer;
+        }
+
+        public void setCustomer(Customer customer) {
+            this.customer = customer;
+        }
+    }
+
+    public static class OrderStatus {
+
+        private Status status;
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public void setStatus(Status status) {
+            this.status = status;
+        }
+    }
+
+    public static class OrderDto {
+
+        private Instant created;
+        private String status;
+        private long amount;
+        private int customerId;
+
+        public Instant getCreated() {
+            return created;
+        }
+
+        public void setCreated(Instant created) {
+            this.created = created;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public void setStatus(String status) {
+            this.status = status;
+        }
+
+        public long getAmount() {
+            return amount;
+        }
+
+        public void setAmount(long amount) {
+            this.amount = amount;
+        }
+
+        public int getCustomerId() {
+            return customerId;
+        }
+
+        @Projection(value = ProjectionType.property, propertyName = "customer")
+        public void setCustomerId(int customerId) {
+            this.customerId = customerId;
+        }
+    }
+}
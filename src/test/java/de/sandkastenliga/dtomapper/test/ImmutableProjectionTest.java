@@ -0,0 +1,244 @@
+package de.sandkastenliga.dtomapper.test;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+import de.sandkastenliga.tools.projector.core.CyclePolicy;
+import de.sandkastenliga.tools.projector.core.JsonSink;
+import de.sandkastenliga.tools.projector.core.Projection;
+import de.sandkastenliga.tools.projector.core.ProjectionCycleException;
+import de.sandkastenliga.tools.projector.core.ProjectionType;
+import de.sandkastenliga.tools.projector.core.Projector;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.beans.ConstructorProperties;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ImmutableProjectionTest {
+
+    private Projector projector = new Projector();
+    private Person person;
+
+    @Before
+    public void setupTestData() {
+        person = new Person();
+        person.setId(1L);
+        person.setName("Test");
+        Address address = new Address();
+        address.setStreet("Teststreet");
+        address.setCity("Testcity");
+        person.setAddress(address);
+        for (int i = 1; i <= 2; i++) {
+            Person child = new Person();
+            child.setId((long) i + 1);
+            person.getChildren().add(child);
+            RealEstate home = new RealEstate();
+            home.setName("Home " + i);
+            home.setAddress(address);
+            person.getHomes().add(home);
+        }
+    }
+
+    @Test
+    public void testProjectionThroughConstructor() {
+        ImmutablePersonDto dto = projector.project(person, ImmutablePersonDto.class);
+        Assert.assertEquals(1L, dto.getId());
+        Assert.assertEquals("Test", dto.getName());
+        Assert.assertEquals("Testcity", dto.getAddress().getCity());
+        Assert.assertEquals(Arrays.asList(2L, 3L), dto.getChildren());
+        Assert.assertNull(dto.getMarriedTo());
+    }
+
+    @Test
+    public void testProjectionThroughBuilder() {
+        BuiltPersonDto dto = projector.project(person, BuiltPersonDto.class);
+        Assert.assertEquals("Test", dto.getName());
+        Assert.assertEquals(2, dto.getHomes().size());
+        // both homes share the projection of their address
+        Assert.assertSame(dto.getHomes().get(0).getAddress(), dto.getHomes().get(1).getAddress());
+        Assert.assertEquals("Teststreet", dto.getHomes().get(0).getAddress().getStreet());
+    }
+
+    @Test
+    public void testCycleIntoImmutableProjection() {
+        Person wife = new Person();
+        wife.setId(4L);
+        wife.setMarriedTo(person);
+        person.setMarriedTo(wife);
+        try {
+            projector.project(person, ImmutablePersonDto.class);
+            Assert.fail("Cycle into an immutable projection must not be reused");
+        } catch (ProjectionCycleException e) {
+            // expected
+        }
+        projector.setCyclePolicy(CyclePolicy.setNull);
+        ImmutablePersonDto dto = projector.project(person, ImmutablePersonDto.class);
+        Assert.assertEquals(4L, dto.getMarriedTo().getId());
+        Assert.assertNull(dto.getMarriedTo().getMarriedTo());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testImmutableProjectionCannotBeUpdated() {
+        projector.projectInto(person, projector.project(person, ImmutablePersonDto.class));
+    }
+
+    @Test
+    public void testImmutableProjectionIsWrittenToSink() {
+        StringWriter out = new StringWriter();
+        projector.projectTo(person, ImmutablePersonDto.class, new JsonSink(out));
+        Assert.assertEquals(new Gson().toJsonTree(projector.project(person, ImmutablePersonDto.class)), new JsonParser().parse(out.toString()));
+    }
+
+    public static final class ImmutableAddressDto {
+
+        private final String street;
+        private final String city;
+
+        @ConstructorProperties({"street", "city"})
+        public ImmutableAddressDto(String street, String city) {
+            this.street = street;
+            this.city = city;
+        }
+
+        public String getStreet() {
+            return street;
+        }
+
+        public String getCity() {
+            return city;
+        }
+    }
+
+    public static final class ImmutablePersonDto {
+
+        private final long id;
+        private final String name;
+        private final ImmutableAddressDto address;
+        private final ImmutablePersonDto marriedTo;
+        private final List<Long> children;
+
+        public ImmutablePersonDto(@Projection(propertyName = "id") long id,
+                                  @Projection(propertyName = "name") String name,
+                                  @Projection(value = ProjectionType.projection, propertyName = "address") ImmutableAddressDto address,
+                                  @Projection(value = ProjectionType.projection, propertyName = "marriedTo") ImmutablePersonDto marriedTo,
+                                  @Projection(value = ProjectionType.propertyCollection, propertyName = "children") List<Long> children) {
+            this.id = id;
+            this.name = name;
+            this.address = address;
+            this.marriedTo = marriedTo;
+            this.children = children;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public ImmutableAddressDto getAddress() {
+            return address;
+        }
+
+        public ImmutablePersonDto getMarriedTo() {
+            return marriedTo;
+        }
+
+        public List<Long> getChildren() {
+            return children;
+        }
+    }
+
+    public static final class BuiltRealEstateDto {
+
+        private final String name;
+        private final ImmutableAddressDto address;
+
+        private BuiltRealEstateDto(Builder builder) {
+            this.name = builder.name;
+            this.address = builder.address;
+        }
+
+        public static Builder builder() {
+            return new Builder();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        @Projection(ProjectionType.projection)
+        public ImmutableAddressDto getAddress() {
+            return address;
+        }
+
+        public static final class Builder {
+
+            private String name;
+            private ImmutableAddressDto address;
+
+            public Builder name(String name) {
+                this.name = name;
+                return this;
+            }
+
+            public Builder address(ImmutableAddressDto address) {
+                this.address = address;
+                return this;
+            }
+
+            public BuiltRealEstateDto build() {
+                return new BuiltRealEstateDto(this);
+            }
+        }
+    }
+
+    public static final class BuiltPersonDto {
+
+        private final String name;
+        private final List<BuiltRealEstateDto> homes;
+
+        private BuiltPersonDto(Builder builder) {
+            this.name = builder.name;
+            this.homes = builder.homes;
+        }
+
+        public static Builder builder() {
+            return new Builder();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public List<BuiltRealEstateDto> getHomes() {
+            return homes;
+        }
+
+        public static final class Builder {
+
+            private String name;
+            private List<BuiltRealEstateDto> homes = new ArrayList<BuiltRealEstateDto>();
+
+            public Builder withName(String name) {
+                this.name = name;
+                return this;
+            }
+
+            @Projection(ProjectionType.projectionCollection)
+            public Builder withHomes(List<BuiltRealEstateDto> homes) {
+                this.homes = homes;
+                return this;
+            }
+
+            public BuiltPersonDto build() {
+                return new BuiltPersonDto(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package de.sandkastenliga.dtomapper.test;
+
+import de.sandkastenliga.tools.projector.core.Projection;
+import de.sandkastenliga.tools.projector.core.ProjectionType;
+import de.sandkastenliga.tools.projector.core.Projector;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+public class LazyProjectionTest {
+
+    private Projector projector = new Projector();
+    private Person person;
+
+    @Before
+    public void setupTestData() {
+        person = new Person();
+        person.setId(1L);
+        person.setName("Testperson");
+        Address address = new Address();
+        address.setCity("Testcity");
+        person.setAddress(address);
+        RealEstate home = new RealEstate();
+        home.setName("Home");
+        home.setAddress(address);
+        person.getHomes().add(home);
+    }
+
+    @Test
+    public void testNestedProjectionIsProjectedOnFirstAccess() {
+        projector.setLazyProjections(true);
+        PersonDto dto = projector.project(person, PersonDto.class);
+        AddressDto address = dto.getAddress();
+        Assert.assertNotSame(AddressDto.class, address.getClass());
+        // the source object is read when the projection is accessed
+        person.getAddress().setCity("Othercity");
+        Assert.assertEquals("Othercity", address.getCity());
+        person.getAddress().setCity("Thirdcity");
+        Assert.assertEquals("Othercity", address.getCity());
+    }
+
+    @Test
+    public void testProjectionCollectionIsProjectedOnFirstAccess() {
+        projector.setLazyProjections(true);
+        PersonDto dto = projector.project(person, PersonDto.class);
+        List<RealEstateDto> homes = dto.getHomes();
+        Assert.assertEquals(1, homes.size());
+        person.getHomes().get(0).setName("Other home");
+        Assert.assertEquals("Other home", homes.get(0).getName());
+        Assert.assertSame(homes.get(0), homes.get(0));
+        Assert.assertEquals("Testcity", homes.get(0).getCity());
+    }
+
+    @Test
+    public void testLazyAnnotation() {
+        LazyPersonDto dto = projector.project(person, LazyPersonDto.class);
+        Assert.assertEquals("Testperson", dto.getName());
+        Assert.assertNotSame(AddressDto.class, dto.getAddress().getClass());
+        Assert.assertEquals("Testcity", dto.getAddress().getCity());
+        Assert.assertEquals("Home", dto.getHomes().get(0).getName());
+    }
+
+    @Test
+    public void testEagerByDefault() {
+        PersonDto dto = projector.project(person, PersonDto.class);
+        Assert.assertSame(AddressDto.class, dto.getAddress().getClass());
+    }
+
+    public static class LazyPersonDto {
+
+        private String name;
+        private AddressDto address;
+        private List<RealEstateDto> homes;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public AddressDto getAddress() {
+            return address;
+        }
+
+        @Projection(value = ProjectionType.projection, lazy = true)
+        public void setAddress(AddressDto address) {
+            this.address = address;
+        }
+
+        public List<RealEstateDto> getHomes() {
+            return homes;
+        }
+
+        @Projection(value = ProjectionType.projectionCollection, lazy = true)
+        public void setHomes(List<RealEstateDto> homes) {
+            this.homes = homes;
+        }
+    }
+}
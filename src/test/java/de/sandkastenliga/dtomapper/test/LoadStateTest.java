@@ -0,0 +1,352 @@
+package de.sandkastenliga.dtomapper.test;
+
+import de.sandkastenliga.tools.projector.core.LoadStateResolver;
+import de.sandkastenliga.tools.projector.core.PersistenceLoadStateResolver;
+import de.sandkastenliga.tools.projector.core.Projection;
+import de.sandkastenliga.tools.projector.core.ProjectionStatistics;
+import de.sandkastenliga.tools.projector.core.ProjectionType;
+import de.sandkastenliga.tools.projector.core.Projector;
+import de.sandkastenliga.tools.projector.core.UnloadedAssociationPolicy;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.persistence.Entity;
+import javax.persistence.EntityManager;
+import javax.persistence.FetchType;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import java.util.ArrayList;
+import java.util.List;
+
+public class LoadStateTest {
+
+    private static SessionFactory entityManagerFactory;
+
+    private Projector projector = new Projector();
+    private EntityManager entityManager;
+
+    @BeforeClass
+    public static void setupDatabase() {
+        entityManagerFactory = new Configuration()
+                .setProperty("hibernate.connection.url", "jdbc:h2:mem:loadstate;DB_CLOSE_DELAY=-1")
+                .setProperty("hibernate.hbm2ddl.auto", "create-drop")
+                .addAnnotatedClass(Owner.class)
+                .addAnnotatedClass(Pet.class)
+                .buildSessionFactory();
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        entityManager.getTransaction().begin();
+        Owner partner = new Owner(2L, "Partner", null);
+        Owner owner = new Owner(1L, "Owner", partner);
+        entityManager.persist(partner);
+        entityManager.persist(owner);
+        entityManager.persist(new Pet(3L, "Pet", owner));
+        entityManager.getTransaction().commit();
+        entityManager.close();
+    }
+
+    @AfterClass
+    public static void closeDatabase() {
+        entityManagerFactory.close();
+    }
+
+    @Before
+    public void setupEntityManager() {
+        entityManager = entityManagerFactory.createEntityManager();
+        projector.setLoadStateResolver(new PersistenceLoadStateResolver(entityManagerFactory));
+    }
+
+    @Test
+    public void testUnloadedAssociationsAreSkipped() {
+        Owner owner = entityManager.find(Owner.class, 1L);
+        OwnerDto dto = projector.project(owner, OwnerDto.class);
+        Assert.assertEquals("Owner", dto.getName());
+        // the identifier is read without loading the partner
+        Assert.assertEquals(Long.valueOf(2L), dto.getPartnerId());
+        Assert.assertNull(dto.getPartner());
+        Assert.assertTrue(dto.getPets().isEmpty());
+        Assert.assertFalse(Hibernate.isInitialized(owner.getPartner()));
+        Assert.assertFalse(Hibernate.isInitialized(owner.getPets()));
+    }
+
+    @Test
+    public void testUnloadedAssociationsAreNotLoadedByListeners() {
+        projector.setProjectionListener(new ProjectionStatistics());
+        Owner owner = entityManager.find(Owner.class, 1L);
+        Assert.assertTrue(projector.project(owner, OwnerDto.class).getPets().isEmpty());
+        Assert.assertFalse(Hibernate.isInitialized(owner.getPets()));
+    }
+
+    @Test
+    public void testUnloadedAssociationsAreSetNull() {
+        projector.setUnloadedAssociationPolicy(UnloadedAssociationPolicy.setNull);
+        Owner owner = entityManager.find(Owner.class, 1L);
+        OwnerDto dto = projector.project(owner, OwnerDto.class);
+        Assert.assertNull(dto.getPets());
+        Assert.assertEquals(Long.valueOf(2L), dto.getPartnerId());
+        Assert.assertFalse(Hibernate.isInitialized(owner.getPets()));
+    }
+
+    @Test
+    public void testUnloadedAssociationsAreProjectedWithIdOnly() {
+        projector.setUnloadedAssociationPolicy(UnloadedAssociationPolicy.idOnly);
+        Owner owner = entityManager.find(Owner.class, 1L);
+        OwnerDto dto = projector.project(owner, OwnerDto.class);
+        Assert.assertEquals(2L, dto.getPartner().getId());
+        Assert.assertNull(dto.getPartner().getName());
+        Assert.assertFalse(Hibernate.isInitialized(owner.getPartner()));
+    }
+
+    @Test
+    public void testIdentifiersOfUnloadedEntitiesAreProjectedIntoArrays() {
+        projector.setLoadStateResolver(new LoadStateResolver() {
+            @Override
+            public boolean isLoaded(Object value) {
+                return !(value instanceof Tag) || ((Tag) value).loaded;
+            }
+
+            @Override
+            public String getIdentifierName(Object entity) {
+                return "id";
+            }
+
+            @Override
+            public Object getIdentifier(Object entity) {
+                return ((Tag) entity).id;
+            }
+        });
+        Household household = new Household();
+        household.getTags().add(new Tag(4L, true));
+        household.getTags().add(new Tag(5L, false));
+        HouseholdDto dto = projector.project(household, HouseholdDto.class);
+        Assert.assertArrayEquals(new long[]{4L, 5L}, dto.getTagIds());
+        Assert.assertFalse(household.getTags().get(1).loaded);
+    }
+
+    @Test
+    public void testLoadedAssociationsAreProjected() {
+        Owner owner = entityManager.createQuery("select o from LoadStateTest$Owner o join fetch o.partner left join fetch o.pets where o.id = 1", Owner.class)
+                .getSingleResult();
+        OwnerDto dto = projector.project(owner, OwnerDto.class);
+        Assert.assertEquals("Partner", dto.getPartner().getName());
+        Assert.assertEquals("Pet", dto.getPets().get(0).getName());
+    }
+
+    @Test
+    public void testWithoutResolverAssociationsAreLoaded() {
+        projector.setLoadStateResolver(null);
+        Owner owner = entityManager.find(Owner.class, 1L);
+        OwnerDto dto = projector.project(owner, OwnerDto.class);
+        Assert.assertEquals("Partner", dto.getPartner().getName());
+        Assert.assertTrue(Hibernate.isInitialized(owner.getPets()));
+    }
+
+    @Entity
+    public static class Owner {
+
+        private Long id;
+        private String name;
+        private Owner partner;
+        private List<Pet> pets = new ArrayList<Pet>();
+
+        public Owner() {
+        }
+
+        Owner(Long id, String name, Owner partner) {
+            this.id = id;
+            this.name = name;
+            this.partner = partner;
+        }
+
+        @Id
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        @ManyToOne(fetch = FetchType.LAZY)
+        public Owner getPartner() {
+            return partner;
+        }
+
+        public void setPartner(Owner partner) {
+            this.partner = partner;
+        }
+
+        @OneToMany(mappedBy = "owner")
+        public List<Pet> getPets() {
+            return pets;
+        }
+
+        public void setPets(List<Pet> pets) {
+            this.pets = pets;
+        }
+    }
+
+    @Entity
+    public static class Pet {
+
+        private Long id;
+        private String name;
+        private Owner owner;
+
+        public Pet() {
+        }
+
+        Pet(Long id, String name, Owner owner) {
+            this.id = id;
+            this.name = name;
+            this.owner = owner;
+        }
+
+        @Id
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        @ManyToOne(fetch = FetchType.LAZY)
+        public Owner getOwner() {
+            return owner;
+        }
+
+        public void setOwner(Owner owner) {
+            this.owner = owner;
+        }
+    }
+
+    public static class OwnerDto {
+
+        private long id;
+        private String name;
+        private Long partnerId;
+        private OwnerDto partner;
+        private List<PetDto> pets = new ArrayList<PetDto>();
+
+        public long getId() {
+            return id;
+        }
+
+        public void setId(long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Long getPartnerId() {
+            return partnerId;
+        }
+
+        @Projection(value = ProjectionType.property, propertyName = "partner")
+        public void setPartnerId(Long partnerId) {
+            this.partnerId = partnerId;
+        }
+
+        public OwnerDto getPartner() {
+            return partner;
+        }
+
+        @Projection(ProjectionType.projection)
+        public void setPartner(OwnerDto partner) {
+            this.partner = partner;
+        }
+
+        public List<PetDto> getPets() {
+            return pets;
+        }
+
+        @Projection(ProjectionType.projectionCollection)
+        public void setPets(List<PetDto> pets) {
+            this.pets = pets;
+        }
+    }
+
+    /**
+     * An entity which is loaded when its getter is called, like a proxy whose identifier is a field.
+     */
+    public static class Tag {
+
+        private final long id;
+        private boolean loaded;
+
+        Tag(long id, boolean loaded) {
+            this.id = id;
+            this.loaded = loaded;
+        }
+
+        public long getId() {
+            loaded = true;
+            return id;
+        }
+    }
+
+    public static class Household {
+
+        private List<Tag> tags = new ArrayList<Tag>();
+
+        public List<Tag> getTags() {
+            return tags;
+        }
+    }
+
+    public static class HouseholdDto {
+
+        private long[] tagIds;
+
+        public long[] getTagIds() {
+            return tagIds;
+        }
+
+        @Projection(value = ProjectionType.propertyCollection, propertyName = "tags")
+        public void setTagIds(long[] tagIds) {
+            this.tagIds = tagIds;
+        }
+    }
+
+    public static class PetDto {
+
+        private String name;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -2,6 +2,9 @@ package de.sandkastenliga.dtomapper.test;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import de.sandkastenliga.tools.projector.core.ProjectionPlan;
+import de.sandkastenliga.tools.projector.core.ProjectionType;
+import de.sandkastenliga.tools.projector.core.PropertyAccessMode;
 import de.sandkastenliga.tools.projector.core.Projector;
 import org.junit.Assert;
 import org.junit.Before;
@@ -62,4 +65,22 @@ public class ModelMapperTest {
         System.out.println(gson.toJson(aDto));
     }
 
+    @Test
+    public void testPlansAreCached() {
+        ProjectionPlan<PersonDto> plan = projector.getPlan(Person.class, PersonDto.class);
+        Assert.assertSame(plan, projector.getPlan(Person.class, PersonDto.class));
+        Assert.assertEquals(1, plan.getSteps(ProjectionType.projection).size());
+        Assert.assertEquals("address", plan.getSteps(ProjectionType.projection).get(0).getPropertyName());
+        Assert.assertEquals(1, plan.getSteps(ProjectionType.projectionCollection).size());
+        Assert.assertEquals(1, plan.getSteps(ProjectionType.propertyCollection).size());
+    }
+
+    @Test
+    public void testBeanUtilsPropertyAccessMode() {
+        Projector beanUtilsProjector = new Projector();
+        beanUtilsProjector.setPropertyAccessMode(PropertyAccessMode.beanUtils);
+        PersonDto aDto = beanUtilsProjector.project(person, PersonDto.class);
+        Assert.assertEquals(gson.toJson(projector.project(person, PersonDto.class)), gson.toJson(aDto));
+    }
+
 }
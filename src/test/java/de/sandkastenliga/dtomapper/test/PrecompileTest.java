@@ -0,0 +1,121 @@
+package de.sandkastenliga.dtomapper.test;
+
+import de.sandkastenliga.tools.projector.core.Projection;
+import de.sandkastenliga.tools.projector.core.ProjectionConfigurationException;
+import de.sandkastenliga.tools.projector.core.ProjectionSource;
+import de.sandkastenliga.tools.projector.core.ProjectionStatistics;
+import de.sandkastenliga.tools.projector.core.ProjectionType;
+import de.sandkastenliga.tools.projector.core.Projector;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class PrecompileTest {
+
+    private Projector projector = new Projector();
+
+    @Test
+    public void testValidProjections() {
+        projector.precompile(Person.class, PersonDto.class);
+        projector.precompile(ValidPersonDto.class);
+    }
+
+    @Test
+    public void testInvalidProjections() {
+        try {
+            projector.precompile(Person.class, InvalidPersonDto.class);
+            Assert.fail();
+        } catch (ProjectionConfigurationException e) {
+            Assert.assertEquals(e.getMessage(), 2, e.getProblems().size());
+            Assert.assertTrue(e.getProblems().get(0).contains("unknown reference property 'country'"));
+            Assert.assertTrue(e.getProblems().get(1).contains("Cannot determine the projection class of the elements of 'persons'"));
+        }
+    }
+
+    @Test
+    public void testUnknownPropertyName() {
+        try {
+            projector.precompile(Person.class, UnknownPropertyDto.class);
+            Assert.fail();
+        } catch (ProjectionConfigurationException e) {
+            Assert.assertEquals(1, e.getProblems().size());
+            Assert.assertTrue(e.getProblems().get(0).contains("Unknown property 'unknown'"));
+        }
+    }
+
+    @Test
+    public void testMissingProjectionSource() {
+        try {
+            projector.precompile(PersonDto.class);
+            Assert.fail();
+        } catch (ProjectionConfigurationException e) {
+            Assert.assertTrue(e.getProblems().get(0).contains("@ProjectionSource"));
+        }
+    }
+
+    @Test
+    public void testPackageScan() {
+        try {
+            projector.precompilePackage(getClass().getPackage().getName());
+            Assert.fail();
+        } catch (ProjectionConfigurationException e) {
+            // only the annotated invalid class is found
+            Assert.assertEquals(e.getMessage(), 2, e.getProblems().size());
+            Assert.assertTrue(e.getProblems().get(0).contains(InvalidPersonDto.class.getName()));
+        }
+    }
+
+    @Test
+    public void testWarmUpIsNotMeasured() {
+        ProjectionStatistics statistics = new ProjectionStatistics();
+        projector.setProjectionListener(statistics);
+        Person person = new Person();
+        person.setId(1L);
+        projector.warmUp(person, PersonDto.class, 100);
+        Assert.assertTrue(statistics.getEntries().isEmpty());
+    }
+
+    @ProjectionSource(Person.class)
+    public static class ValidPersonDto extends PersonDto {
+    }
+
+    @ProjectionSource(Person.class)
+    public static class InvalidPersonDto {
+
+        private String country;
+        private InvalidAddressDto address;
+
+        public String getCountry() {
+            return country;
+        }
+
+        @Projection(value = ProjectionType.property, propertyName = "address", referencePropertyName = "country")
+        public void setCountry(String country) {
+            this.country = country;
+        }
+
+        public InvalidAddressDto getAddress() {
+            return address;
+        }
+
+        @Projection(ProjectionType.projection)
+        public void setAddress(InvalidAddressDto address) {
+            this.address = address;
+        }
+    }
+
+    public static class InvalidAddressDto {
+
+        @Projection(value = ProjectionType.projectionCollection, propertyName = "person")
+        public void setPersons(List persons) {
+        }
+    }
+
+    public static class UnknownPropertyDto {
+
+        @Projection(propertyName = "unknown")
+        public void setName(String name) {
+        }
+    }
+}
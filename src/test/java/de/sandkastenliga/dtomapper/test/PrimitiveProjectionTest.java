@@ -0,0 +1,227 @@
+package de.sandkastenliga.dtomapper.test;
+
+import de.sandkastenliga.tools.projector.core.NullToPrimitivePolicy;
+import de.sandkastenliga.tools.projector.core.Projection;
+import de.sandkastenliga.tools.projector.core.ProjectionPlan;
+import de.sandkastenliga.tools.projector.core.ProjectionStep;
+import de.sandkastenliga.tools.projector.core.ProjectionType;
+import de.sandkastenliga.tools.projector.core.PropertyAccessMode;
+import de.sandkastenliga.tools.projector.core.Projector;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class PrimitiveProjectionTest {
+
+    private Projector projector = new Projector();
+    private Measurement measurement;
+
+    @Before
+    public void setupTestData() {
+        measurement = new Measurement();
+        measurement.setTimestamp(1234567890123L);
+        measurement.setCount(42);
+        measurement.setValue(3.5);
+        measurement.setValid(true);
+        measurement.setSensorId(7L);
+        Measurement previous = new Measurement();
+        previous.setSensorId(6L);
+        measurement.setPrevious(previous);
+    }
+
+    @Test
+    public void testPrimitiveProperties() {
+        MeasurementDto dto = projector.project(measurement, MeasurementDto.class);
+        assertProjected(dto);
+    }
+
+    @Test
+    public void testPrimitivePropertiesWithBeanUtils() {
+        projector.setPropertyAccessMode(PropertyAccessMode.beanUtils);
+        MeasurementDto dto = projector.project(measurement, MeasurementDto.class);
+        assertProjected(dto);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullOntoPrimitiveFails() {
+        measurement.setSensorId(null);
+        try {
+            projector.project(measurement, MeasurementDto.class);
+        } catch (RuntimeException e) {
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    @Test
+    public void testNullOntoPrimitiveIsSkipped() {
+        projector.setNullToPrimitivePolicy(NullToPrimitivePolicy.skip);
+        measurement.setSensorId(null);
+        measurement.getPrevious().setSensorId(null);
+        MeasurementDto dto = projector.project(measurement, MeasurementDto.class);
+        Assert.assertEquals(-1L, dto.getSensorId());
+        Assert.assertEquals(-1L, dto.getPreviousSensorId());
+        Assert.assertEquals(42, dto.getCount());
+    }
+
+    @Test
+    public void testNullOntoPrimitiveProjectsDefaultValue() {
+        projector.setNullToPrimitivePolicy(NullToPrimitivePolicy.defaultValue);
+        measurement.setSensorId(null);
+        MeasurementDto dto = projector.project(measurement, MeasurementDto.class);
+        Assert.assertEquals(0L, dto.getSensorId());
+        Assert.assertEquals(6L, dto.getPreviousSensorId());
+    }
+
+    @Test
+    public void testPrimitiveStepsAreSelected() {
+        ProjectionPlan<MeasurementDto> plan = projector.getPlan(Measurement.class, MeasurementDto.class);
+        Map<String, String> stepClasses = new HashMap<String, String>();
+        for (ProjectionStep step : plan.getSteps()) {
+            stepClasses.put(step.getPropertyName(), step.getClass().getName());
+        }
+        // long, int and double properties as well as the Long sensor ID are projected without a generic writer
+        for (String propertyName : Arrays.asList("timestamp", "count", "value", "sensorId")) {
+            Assert.assertTrue(stepClasses.get(propertyName), stepClasses.get(propertyName).contains("PrimitiveProjectionStep"));
+        }
+        Assert.assertFalse(stepClasses.get("valid").contains("PrimitiveProjectionStep"));
+    }
+
+    @Test
+    public void testUnboxedPropertiesAreUpdated() {
+        MeasurementDto dto = projector.project(measurement, MeasurementDto.class);
+        Assert.assertFalse(projector.projectInto(measurement, dto).isChanged("sensorId"));
+        measurement.setSensorId(8L);
+        Assert.assertTrue(projector.projectInto(measurement, dto).isChanged("sensorId"));
+        Assert.assertEquals(8L, dto.getSensorId());
+    }
+
+    private void assertProjected(MeasurementDto dto) {
+        Assert.assertEquals(1234567890123L, dto.getTimestamp());
+        Assert.assertEquals(42, dto.getCount());
+        Assert.assertEquals(3.5, dto.getValue(), 0);
+        Assert.assertTrue(dto.isValid());
+        Assert.assertEquals(7L, dto.getSensorId());
+        Assert.assertEquals(6L, dto.getPreviousSensorId());
+    }
+
+    public static class Measurement {
+
+        private long timestamp;
+        private int count;
+        private double value;
+        private boolean valid;
+        private Long sensorId;
+        private Measurement previous;
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public void setTimestamp(long timestamp) {
+            this.timestamp = timestamp;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public double getValue() {
+            return value;
+        }
+
+        public void setValue(double value) {
+            this.value = value;
+        }
+
+        public boolean isValid() {
+            return valid;
+        }
+
+        public void setValid(boolean valid) {
+            this.valid = valid;
+        }
+
+        public Long getSensorId() {
+            return sensorId;
+        }
+
+        public void setSensorId(Long sensorId) {
+            this.sensorId = sensorId;
+        }
+
+        public Measurement getPrevious() {
+            return previous;
+        }
+
+        public void setPrevious(Measurement previous) {
+            this.previous = previous;
+        }
+    }
+
+    public static class MeasurementDto {
+
+        private long timestamp;
+        private int count;
+        private double value;
+        private boolean valid;
+        private long sensorId = -1L;
+        private long previousSensorId = -1L;
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public void setTimestamp(long timestamp) {
+            this.timestamp = timestamp;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public double getValue() {
+            return value;
+        }
+
+        public void setValue(double value) {
+            this.value = value;
+        }
+
+        public boolean isValid() {
+            return valid;
+        }
+
+        public void setValid(boolean valid) {
+            this.valid = valid;
+        }
+
+        public long getSensorId() {
+            return sensorId;
+        }
+
+        public void setSensorId(long sensorId) {
+            this.sensorId = sensorId;
+        }
+
+        public long getPreviousSensorId() {
+            return previousSensorId;
+        }
+
+        @Projection(value = ProjectionType.property, propertyName = "previous", referencePropertyName = "sensorId")
+        public void setPreviousSensorId(long previousSensorId) {
+            this.previousSensorId = previousSensorId;
+        }
+    }
+}
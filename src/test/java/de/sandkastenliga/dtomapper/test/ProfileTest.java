@@ -0,0 +1,153 @@
+package de.sandkastenliga.dtomapper.test;
+
+import de.sandkastenliga.tools.projector.core.Projection;
+import de.sandkastenliga.tools.projector.core.ProjectionType;
+import de.sandkastenliga.tools.projector.core.Projector;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+public class ProfileTest {
+
+    private Projector projector = new Projector();
+    private Person person;
+
+    @Before
+    public void setupTestData() {
+        person = new Person();
+        person.setId(1L);
+        person.setName("Testperson");
+        person.setLogin("test@test.de");
+        Address address = new Address();
+        address.setCity("Testcity");
+        person.setAddress(address);
+        RealEstate home = new RealEstate();
+        home.setName("Home");
+        home.setAddress(address);
+        person.getHomes().add(home);
+    }
+
+    @Test
+    public void testSummaryProfile() {
+        ProfilePersonDto dto = projector.project(person, ProfilePersonDto.class, "summary");
+        Assert.assertEquals("Testperson", dto.getName());
+        Assert.assertNull(dto.getEmail());
+        Assert.assertNull(dto.getAddress());
+        Assert.assertEquals("Home", dto.getHomes().get(0).getName());
+        // the profile is applied to nested projections
+        Assert.assertNull(dto.getHomes().get(0).getCity());
+    }
+
+    @Test
+    public void testDetailProfile() {
+        ProfilePersonDto dto = projector.project(person, ProfilePersonDto.class, "detail");
+        Assert.assertEquals("test@test.de", dto.getEmail());
+        Assert.assertEquals("Testcity", dto.getAddress().getCity());
+        Assert.assertEquals("Testcity", dto.getHomes().get(0).getCity());
+    }
+
+    @Test
+    public void testNoProfileProjectsAllProperties() {
+        ProfilePersonDto dto = projector.project(person, ProfilePersonDto.class);
+        Assert.assertEquals("test@test.de", dto.getEmail());
+        Assert.assertEquals("Testcity", dto.getAddress().getCity());
+        Assert.assertEquals("Testcity", dto.getHomes().get(0).getCity());
+    }
+
+    @Test
+    public void testPlansPerProfile() {
+        Assert.assertNotSame(projector.getPlan(Person.class, ProfilePersonDto.class),
+                projector.getPlan(Person.class, ProfilePersonDto.class, "summary"));
+        Assert.assertSame(projector.getPlan(Person.class, ProfilePersonDto.class, "summary"),
+                projector.getPlan(Person.class, ProfilePersonDto.class, "summary"));
+        Assert.assertEquals(2, projector.getPlan(Person.class, ProfilePersonDto.class, "summary").getSteps().size());
+    }
+
+    @Test
+    public void testProjectAllWithProfile() {
+        List<ProfilePersonDto> dtos = projector.projectAll(Collections.singletonList(person), ProfilePersonDto.class, "summary");
+        Assert.assertNull(dtos.get(0).getAddress());
+    }
+
+    @Test
+    public void testMaxDepth() {
+        projector.setMaxDepth(1);
+        PersonDto dto = projector.project(person, PersonDto.class);
+        Assert.assertEquals("Testperson", dto.getName());
+        Assert.assertNull(dto.getAddress());
+        Assert.assertTrue(dto.getHomes().isEmpty());
+        projector.setMaxDepth(2);
+        dto = projector.project(person, PersonDto.class);
+        Assert.assertEquals("Testcity", dto.getAddress().getCity());
+        Assert.assertEquals(1, dto.getHomes().size());
+    }
+
+    public static class ProfilePersonDto {
+
+        private String name;
+        private String email;
+        private AddressDto address;
+        private List<ProfileHomeDto> homes;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+        @Projection(propertyName = "login", profiles = "detail")
+        public void setEmail(String email) {
+            this.email = email;
+        }
+
+        public AddressDto getAddress() {
+            return address;
+        }
+
+        @Projection(value = ProjectionType.projection, profiles = "detail")
+        public void setAddress(AddressDto address) {
+            this.address = address;
+        }
+
+        public List<ProfileHomeDto> getHomes() {
+            return homes;
+        }
+
+        @Projection(value = ProjectionType.projectionCollection, profiles = {"summary", "detail"})
+        public void setHomes(List<ProfileHomeDto> homes) {
+            this.homes = homes;
+        }
+    }
+
+    public static class ProfileHomeDto {
+
+        private String name;
+        private String city;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getCity() {
+            return city;
+        }
+
+        @Projection(value = ProjectionType.property, propertyName = "address", referencePropertyName = "city", profiles = "detail")
+        public void setCity(String city) {
+            this.city = city;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package de.sandkastenliga.dtomapper.test;
+
+import de.sandkastenliga.tools.projector.core.ProjectionColumns;
+import de.sandkastenliga.tools.projector.core.Projector;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ProjectColumnsTest {
+
+    private Projector projector = new Projector();
+    private List<Person> persons = new ArrayList<Person>();
+    private Address address = new Address();
+
+    @Before
+    public void setupTestData() {
+        address.setCity("Testcity");
+        for (long i = 1; i <= 3; i++) {
+            Person person = new Person();
+            person.setId(i);
+            person.setName("Person " + i);
+            person.setAddress(address);
+            Person wife = new Person();
+            wife.setId(i * 10);
+            person.setMarriedTo(wife);
+            for (long j = 1; j < i; j++) {
+                Person child = new Person();
+                child.setId(i * 100 + j);
+                person.getChildren().add(child);
+            }
+            RealEstate home = new RealEstate();
+            home.setName("Home " + i);
+            person.getHomes().add(home);
+            persons.add(person);
+        }
+    }
+
+    @Test
+    public void testPropertiesAreProjectedIntoColumns() {
+        ProjectionColumns columns = projector.projectColumns(persons, PersonDto.class);
+        Assert.assertEquals(3, columns.size());
+        Assert.assertArrayEquals(new long[]{1L, 2L, 3L}, columns.getLongColumn("id"));
+        Assert.assertArrayEquals(new long[]{10L, 20L, 30L}, columns.getLongColumn("husbandOrWifeId"));
+        Assert.assertArrayEquals(new Object[]{"Person 1", "Person 2", "Person 3"}, columns.getObjectColumn("name"));
+    }
+
+    @Test
+    public void testPropertyCollectionsAreFlattened() {
+        ProjectionColumns columns = projector.projectColumns(persons, PersonDto.class);
+        Assert.assertArrayEquals(new long[]{201L, 301L, 302L}, columns.getLongColumn("childrenIds"));
+        Assert.assertArrayEquals(new int[]{0, 0, 1, 3}, columns.getOffsets("childrenIds"));
+    }
+
+    @Test
+    public void testNestedProjectionsAreShared() {
+        ProjectionColumns columns = projector.projectColumns(persons, PersonDto.class);
+        Object[] addresses = columns.getObjectColumn("address");
+        Assert.assertEquals("Testcity", ((AddressDto) addresses[0]).getCity());
+        Assert.assertSame(addresses[0], addresses[2]);
+        List<?> homes = (List<?>) columns.getObjectColumn("homes")[1];
+        Assert.assertEquals(1, homes.size());
+        Assert.assertEquals("Home 2", ((RealEstateDto) homes.get(0)).getName());
+    }
+
+    @Test
+    public void testNullSourcesAreDefaultRows() {
+        ProjectionColumns columns = projector.projectColumns(Arrays.asList(null, persons.get(2), null), PersonDto.class);
+        Assert.assertArrayEquals(new long[]{0L, 3L, 0L}, columns.getLongColumn("id"));
+        Assert.assertArrayEquals(new int[]{0, 0, 2, 2}, columns.getOffsets("childrenIds"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongColumnTypeFails() {
+        projector.projectColumns(persons, PersonDto.class).getLongColumn("name");
+    }
+}
@@ -0,0 +1,92 @@
+package de.sandkastenliga.dtomapper.test;
+
+import de.sandkastenliga.tools.projector.core.ProjectionChanges;
+import de.sandkastenliga.tools.projector.core.Projector;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+public class ProjectIntoTest {
+
+    private Projector projector = new Projector();
+    private Person person;
+    private PersonDto dto;
+
+    @Before
+    public void setupTestData() {
+        person = new Person();
+        person.setId(1L);
+        person.setName("Testperson");
+        Address address = new Address();
+        address.setCity("Testcity");
+        person.setAddress(address);
+        for (int i = 1; i <= 2; i++) {
+            Person child = new Person();
+            child.setId((long) i + 1);
+            person.getChildren().add(child);
+            RealEstate home = new RealEstate();
+            home.setName("Home " + i);
+            home.setAddress(address);
+            person.getHomes().add(home);
+        }
+        dto = projector.project(person, PersonDto.class);
+    }
+
+    @Test
+    public void testUnchangedSourceHasNoChanges() {
+        ProjectionChanges changes = projector.projectInto(person, dto);
+        Assert.assertFalse(changes.toString(), changes.hasChanges());
+    }
+
+    @Test
+    public void testChangedPropertiesAreWritten() {
+        AddressDto address = dto.getAddress();
+        RealEstateDto home = dto.getHomes().get(1);
+        person.setName("Otherperson");
+        person.getAddress().setCity("Othercity");
+        person.getHomes().get(1).setName("Other home");
+        ProjectionChanges changes = projector.projectInto(person, dto);
+        Assert.assertEquals(new HashSet<String>(Arrays.asList("name", "address.city", "homes[0].city", "homes[1].name", "homes[1].city")),
+                new HashSet<String>(changes.getChangedProperties()));
+        Assert.assertTrue(changes.isChanged("address"));
+        Assert.assertTrue(changes.isChanged("homes"));
+        Assert.assertFalse(changes.isChanged("home"));
+        Assert.assertEquals("Otherperson", dto.getName());
+        Assert.assertSame(address, dto.getAddress());
+        Assert.assertEquals("Othercity", address.getCity());
+        Assert.assertSame(home, dto.getHomes().get(1));
+        Assert.assertEquals("Other home", home.getName());
+    }
+
+    @Test
+    public void testCollectionsAreResized() {
+        RealEstate home = new RealEstate();
+        home.setName("Home 3");
+        person.getHomes().add(home);
+        person.getChildren().remove(0);
+        ProjectionChanges changes = projector.projectInto(person, dto);
+        Assert.assertEquals(new HashSet<String>(Arrays.asList("childrenIds", "homes[2]")), new HashSet<String>(changes.getChangedProperties()));
+        Assert.assertEquals(Collections.singletonList(3L), dto.getChildrenIds());
+        Assert.assertEquals("Home 3", dto.getHomes().get(2).getName());
+        person.getHomes().subList(1, 3).clear();
+        changes = projector.projectInto(person, dto);
+        Assert.assertEquals(Collections.singletonList("homes"), changes.getChangedProperties());
+        Assert.assertEquals(1, dto.getHomes().size());
+    }
+
+    @Test
+    public void testMissingProjectionsAreCreated() {
+        person.setAddress(null);
+        Assert.assertEquals(Collections.singletonList("address"), projector.projectInto(person, dto).getChangedProperties());
+        Assert.assertNull(dto.getAddress());
+        Address address = new Address();
+        address.setCity("Newcity");
+        person.setAddress(address);
+        Assert.assertEquals(Collections.singletonList("address"), projector.projectInto(person, dto).getChangedProperties());
+        Assert.assertEquals("Newcity", dto.getAddress().getCity());
+    }
+}
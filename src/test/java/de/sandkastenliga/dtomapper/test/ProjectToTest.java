@@ -0,0 +1,140 @@
+package de.sandkastenliga.dtomapper.test;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import de.sandkastenliga.tools.projector.core.CyclePolicy;
+import de.sandkastenliga.tools.projector.core.JsonSink;
+import de.sandkastenliga.tools.projector.core.Projection;
+import de.sandkastenliga.tools.projector.core.ProjectionCycleException;
+import de.sandkastenliga.tools.projector.core.ProjectionType;
+import de.sandkastenliga.tools.projector.core.Projector;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class ProjectToTest {
+
+    private Projector projector = new Projector();
+    private Person person;
+
+    @Before
+    public void setupTestData() {
+        person = new Person();
+        person.setId(1L);
+        person.setLogin("test@test.de");
+        person.setName("Test \"person\"\n");
+        Person wife = new Person();
+        wife.setId(2L);
+        person.setMarriedTo(wife);
+        Address address = new Address();
+        address.setStreet("Teststreet");
+        address.setHousenumber("1");
+        address.setZip("12345");
+        address.setCity("Testcity");
+        person.setAddress(address);
+        for (int i = 1; i <= 2; i++) {
+            Person child = new Person();
+            child.setId((long) i + 2);
+            person.getChildren().add(child);
+            RealEstate home = new RealEstate();
+            home.setName("Home " + i);
+            home.setAddress(address);
+            person.getHomes().add(home);
+        }
+    }
+
+    @Test
+    public void testJsonEqualsSerializedProjection() {
+        Assert.assertEquals(new Gson().toJsonTree(projector.project(person, PersonDto.class)), write(person, PersonDto.class));
+    }
+
+    @Test
+    public void testAllSourcesAreWrittenAsArray() {
+        StringWriter out = new StringWriter();
+        projector.projectAllTo(Arrays.asList(person.getAddress(), null, new Address()), AddressDto.class, new JsonSink(out));
+        JsonElement json = new JsonParser().parse(out.toString());
+        Assert.assertEquals(3, json.getAsJsonArray().size());
+        Assert.assertEquals("Testcity", json.getAsJsonArray().get(0).getAsJsonObject().get("city").getAsString());
+        Assert.assertTrue(json.getAsJsonArray().get(1).isJsonNull());
+    }
+
+    @Test
+    public void testOutputStreamIsWrittenInUtf8() {
+        person.setName("Jürgen");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        projector.projectTo(person, PersonDto.class, new JsonSink(out));
+        JsonElement json = new JsonParser().parse(new String(out.toByteArray(), StandardCharsets.UTF_8));
+        Assert.assertEquals("Jürgen", json.getAsJsonObject().get("name").getAsString());
+    }
+
+    @Test
+    public void testNullNestedProjectionsAreLeftOut() {
+        person.setAddress(null);
+        Assert.assertFalse(write(person, PersonDto.class).getAsJsonObject().has("address"));
+    }
+
+    @Test
+    public void testCycles() {
+        Address address = person.getAddress();
+        address.setPerson(person);
+        try {
+            write(address, CyclicAddressDto.class);
+            Assert.fail();
+        } catch (ProjectionCycleException e) {
+            // expected
+        }
+        projector.setCyclePolicy(CyclePolicy.setNull);
+        JsonElement json = write(address, CyclicAddressDto.class);
+        Assert.assertFalse(json.getAsJsonObject().get("person").getAsJsonObject().has("address"));
+        Assert.assertNull(projector.project(address, CyclicAddressDto.class).getPerson().getAddress());
+    }
+
+    private JsonElement write(Object source, Class<?> projectionClass) {
+        StringWriter out = new StringWriter();
+        projector.projectTo(source, projectionClass, new JsonSink(out));
+        return new JsonParser().parse(out.toString());
+    }
+
+    public static class CyclicAddressDto {
+
+        private String city;
+        private CyclicPersonDto person;
+
+        public String getCity() {
+            return city;
+        }
+
+        public void setCity(String city) {
+            this.city = city;
+        }
+
+        public CyclicPersonDto getPerson() {
+            return person;
+        }
+
+        @Projection(ProjectionType.projection)
+        public void setPerson(CyclicPersonDto person) {
+            this.person = person;
+        }
+    }
+
+    public static class CyclicPersonDto {
+
+        private CyclicAddressDto address;
+
+        public CyclicAddressDto getAddress() {
+            return address;
+        }
+
+        @Projection(ProjectionType.projection)
+        public void setAddress(CyclicAddressDto address) {
+            this.address = address;
+        }
+    }
+}
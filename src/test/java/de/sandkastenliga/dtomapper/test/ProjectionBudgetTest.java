@@ -0,0 +1,148 @@
+package de.sandkastenliga.dtomapper.test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import de.sandkastenliga.tools.projector.core.BudgetPolicy;
+import de.sandkastenliga.tools.projector.core.BudgetedProjection;
+import de.sandkastenliga.tools.projector.core.JsonSink;
+import de.sandkastenliga.tools.projector.core.ProjectionBudget;
+import de.sandkastenliga.tools.projector.core.ProjectionBudgetExceededException;
+import de.sandkastenliga.tools.projector.core.ProjectionChanges;
+import de.sandkastenliga.tools.projector.core.Projector;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+public class ProjectionBudgetTest {
+
+    private Projector projector = new Projector();
+    private Person person;
+
+    @Before
+    public void setupTestData() {
+        person = new Person();
+        person.setId(1L);
+        person.setName("Test");
+        Address address = new Address();
+        address.setStreet("Teststreet");
+        address.setCity("Testcity");
+        person.setAddress(address);
+        for (int i = 1; i <= 5; i++) {
+            Person child = new Person();
+            child.setId((long) i + 1);
+            person.getChildren().add(child);
+            RealEstate home = new RealEstate();
+            home.setName("Home " + i);
+            home.setAddress(address);
+            person.getHomes().add(home);
+        }
+    }
+
+    @Test
+    public void testUnlimitedProjectionIsNotTruncated() {
+        BudgetedProjection<PersonDto> projection = projector.projectWithin(person, PersonDto.class, ProjectionBudget.UNLIMITED);
+        Assert.assertFalse(projection.isTruncated());
+        Assert.assertTrue(projection.getExceededLimits().isEmpty());
+        Assert.assertEquals(5, projection.getProjection().getHomes().size());
+    }
+
+    @Test
+    public void testObjectLimitTruncatesProjection() {
+        BudgetedProjection<PersonDto> projection = projector.projectWithin(person, PersonDto.class,
+                ProjectionBudget.UNLIMITED.withMaxObjects(3, BudgetPolicy.truncate));
+        Assert.assertTrue(projection.isTruncated());
+        Assert.assertEquals(EnumSet.of(ProjectionBudget.Limit.objects), projection.getExceededLimits());
+        PersonDto dto = projection.getProjection();
+        Assert.assertEquals("Testcity", dto.getAddress().getCity());
+        // the person and its address leave room for one home
+        Assert.assertEquals(1, dto.getHomes().size());
+        Assert.assertEquals("Home 1", dto.getHomes().get(0).getName());
+    }
+
+    @Test
+    public void testCollectionElementLimitTruncatesCollections() {
+        BudgetedProjection<PersonDto> projection = projector.projectWithin(person, PersonDto.class,
+                ProjectionBudget.UNLIMITED.withMaxCollectionElements(3, BudgetPolicy.truncate));
+        Assert.assertEquals(EnumSet.of(ProjectionBudget.Limit.collectionElements), projection.getExceededLimits());
+        Assert.assertEquals(3, projection.getProjection().getHomes().size());
+        Assert.assertEquals(3, projection.getProjection().getChildrenIds().size());
+        // the source collections are not modified
+        Assert.assertEquals(5, person.getHomes().size());
+    }
+
+    @Test
+    public void testBudgetLimitsWrittenProjections() {
+        projector.setProjectionBudget(ProjectionBudget.UNLIMITED.withMaxCollectionElements(2, BudgetPolicy.truncate));
+        StringWriter out = new StringWriter();
+        projector.projectTo(person, PersonDto.class, new JsonSink(out));
+        JsonObject json = new JsonParser().parse(out.toString()).getAsJsonObject();
+        Assert.assertEquals(2, json.getAsJsonArray("homes").size());
+        Assert.assertEquals(2, json.getAsJsonArray("childrenIds").size());
+        projector.setProjectionBudget(ProjectionBudget.UNLIMITED.withMaxObjects(2, BudgetPolicy.fail));
+        try {
+            projector.projectTo(person, PersonDto.class, new JsonSink(new StringWriter()));
+            Assert.fail("The homes exceed the object limit");
+        } catch (ProjectionBudgetExceededException e) {
+            Assert.assertEquals(ProjectionBudget.Limit.objects, e.getLimit());
+        }
+    }
+
+    @Test
+    public void testBudgetLimitsUpdatedCollections() {
+        PersonDto dto = projector.project(person, PersonDto.class);
+        projector.setProjectionBudget(ProjectionBudget.UNLIMITED.withMaxCollectionElements(2, BudgetPolicy.truncate));
+        ProjectionChanges changes = projector.projectInto(person, dto);
+        Assert.assertTrue(changes.isChanged("homes"));
+        Assert.assertEquals(2, dto.getHomes().size());
+        Assert.assertEquals(2, dto.getChildrenIds().size());
+        projector.setProjectionBudget(ProjectionBudget.UNLIMITED.withMaxCollectionElements(1, BudgetPolicy.fail));
+        try {
+            projector.projectInto(person, dto);
+            Assert.fail("The collections exceed the collection element limit");
+        } catch (ProjectionBudgetExceededException e) {
+            Assert.assertEquals(ProjectionBudget.Limit.collectionElements, e.getLimit());
+        }
+    }
+
+    @Test
+    public void testDepthLimitFailsProjection() {
+        projector.setProjectionBudget(ProjectionBudget.UNLIMITED.withMaxDepth(1, BudgetPolicy.fail));
+        try {
+            projector.project(person, PersonDto.class);
+            Assert.fail("The address is nested deeper than the budget allows");
+        } catch (ProjectionBudgetExceededException e) {
+            Assert.assertEquals(ProjectionBudget.Limit.depth, e.getLimit());
+        }
+        projector.setProjectionBudget(null);
+        Assert.assertNotNull(projector.project(person, PersonDto.class).getAddress());
+    }
+
+    @Test
+    public void testDeadlineTruncatesProjection() {
+        Person slowPerson = new Person() {
+            @Override
+            public Address getAddress() {
+                try {
+                    Thread.sleep(30);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getAddress();
+            }
+        };
+        slowPerson.setId(1L);
+        slowPerson.setAddress(person.getAddress());
+        slowPerson.getHomes().addAll(person.getHomes());
+        // builds the plan before the deadline starts
+        projector.getPlan(slowPerson.getClass(), PersonDto.class);
+        BudgetedProjection<PersonDto> projection = projector.projectWithin(slowPerson, PersonDto.class,
+                ProjectionBudget.UNLIMITED.withTimeout(10, TimeUnit.MILLISECONDS, BudgetPolicy.truncate));
+        Assert.assertEquals(EnumSet.of(ProjectionBudget.Limit.deadline), projection.getExceededLimits());
+        Assert.assertNull(projection.getProjection().getAddress());
+        Assert.assertTrue(projection.getProjection().getHomes().isEmpty());
+    }
+}
@@ -0,0 +1,102 @@
+package de.sandkastenliga.dtomapper.test;
+
+import de.sandkastenliga.tools.projector.core.ProjectionCache;
+import de.sandkastenliga.tools.projector.core.Projector;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class ProjectionCacheTest {
+
+    private Projector projector = new Projector();
+    private Person person;
+
+    @Before
+    public void setupTestData() {
+        person = new Person();
+        person.setId(1L);
+        person.setLogin("test@test.de");
+        person.setName("Test");
+        Address address = new Address();
+        address.setStreet("Teststreet");
+        address.setCity("Testcity");
+        person.setAddress(address);
+    }
+
+    @Test
+    public void testProjectionIsTakenFromCache() {
+        ProjectionCache cache = new ProjectionCache(100).cache(Person.class);
+        projector.setResultCache(cache);
+        PersonDto dto = projector.project(person, PersonDto.class);
+        Assert.assertSame(dto, projector.project(person, PersonDto.class));
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+        cache.invalidate(person);
+        Assert.assertNotSame(dto, projector.project(person, PersonDto.class));
+    }
+
+    @Test
+    public void testNestedProjectionsAreShared() {
+        projector.setResultCache(new ProjectionCache(100).cache(Address.class));
+        Person other = new Person();
+        other.setId(2L);
+        other.setAddress(person.getAddress());
+        Assert.assertSame(projector.project(person, PersonDto.class).getAddress(), projector.project(other, PersonDto.class).getAddress());
+    }
+
+    @Test
+    public void testSharedNestedProjectionsAreNotUpdatedInPlace() {
+        projector.setResultCache(new ProjectionCache(100).cache(Address.class));
+        Person other = new Person();
+        other.setId(2L);
+        other.setAddress(person.getAddress());
+        PersonDto dto = projector.project(person, PersonDto.class);
+        PersonDto otherDto = projector.project(other, PersonDto.class);
+        AddressDto shared = otherDto.getAddress();
+        person.getAddress().setCity("Berlin");
+        Assert.assertTrue(projector.projectInto(person, dto).isChanged("address"));
+        Assert.assertEquals("Berlin", dto.getAddress().getCity());
+        Assert.assertNotSame(shared, dto.getAddress());
+        Assert.assertSame(shared, otherDto.getAddress());
+        Assert.assertEquals("Testcity", shared.getCity());
+        Assert.assertSame(shared, projector.project(other, PersonDto.class).getAddress());
+    }
+
+    @Test
+    public void testChangedVersionIsProjectedAgain() {
+        ProjectionCache cache = new ProjectionCache(100).cache(Person.class, Person::getId, Person::getName);
+        projector.setResultCache(cache);
+        PersonDto dto = projector.project(person, PersonDto.class);
+        Person copy = new Person();
+        copy.setId(1L);
+        copy.setName("Test");
+        // same key and version
+        Assert.assertSame(dto, projector.project(copy, PersonDto.class));
+        copy.setName("Changed");
+        Assert.assertEquals("Changed", projector.project(copy, PersonDto.class).getName());
+        cache.invalidate(Person.class, 1L);
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedProjectionsAreEvicted() {
+        ProjectionCache cache = new ProjectionCache(2).cache(Person.class, Person::getId, null);
+        projector.setResultCache(cache);
+        for (long id = 1; id <= 3; id++) {
+            person.setId(id);
+            projector.project(person, PersonDto.class);
+        }
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testExpiredProjectionIsProjectedAgain() throws InterruptedException {
+        projector.setResultCache(new ProjectionCache(100, 1, TimeUnit.MILLISECONDS).cache(Person.class));
+        PersonDto dto = projector.project(person, PersonDto.class);
+        Thread.sleep(5);
+        Assert.assertNotSame(dto, projector.project(person, PersonDto.class));
+    }
+}
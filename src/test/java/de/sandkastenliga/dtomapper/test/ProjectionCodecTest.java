@@ -0,0 +1,211 @@
+package de.sandkastenliga.dtomapper.test;
+
+import de.sandkastenliga.tools.projector.core.ProjectionCodec;
+import de.sandkastenliga.tools.projector.core.Projector;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+public class ProjectionCodecTest {
+
+    private Projector projector = new Projector();
+    private Person person;
+
+    @Before
+    public void setupTestData() {
+        person = new Person();
+        person.setId(1L);
+        person.setName("Test");
+        person.setLogin("test@example.com");
+        Address address = new Address();
+        address.setStreet("Teststreet");
+        address.setCity("Testcity");
+        person.setAddress(address);
+        for (int i = 1; i <= 3; i++) {
+            Person child = new Person();
+            child.setId((long) i + 1);
+            person.getChildren().add(child);
+            RealEstate home = new RealEstate();
+            home.setName("Home " + i);
+            home.setAddress(address);
+            person.getHomes().add(home);
+        }
+    }
+
+    @Test
+    public void testRoundTrip() {
+        ProjectionCodec<PersonDto> codec = projector.createCodec(PersonDto.class);
+        byte[] bytes = codec.encode(person);
+        PersonDto dto = codec.decode(bytes);
+        Assert.assertEquals(1L, dto.getId());
+        Assert.assertEquals("Test", dto.getName());
+        Assert.assertEquals("test@example.com", dto.getEmail());
+        Assert.assertEquals("Testcity", dto.getAddress().getCity());
+        Assert.assertNull(dto.getAddress().getZip());
+        Assert.assertEquals(Arrays.asList(2L, 3L, 4L), dto.getChildrenIds());
+        Assert.assertEquals(3, dto.getHomes().size());
+        Assert.assertEquals("Home 3", dto.getHomes().get(2).getName());
+        Assert.assertEquals("Testcity", dto.getHomes().get(2).getCity());
+        Assert.assertEquals(0L, dto.getHusbandOrWifeId());
+    }
+
+    @Test
+    public void testEncodingIntoDirectBuffer() {
+        ProjectionCodec<PersonDto> codec = projector.createCodec(PersonDto.class);
+        Person other = new Person();
+        other.setId(2L);
+        other.setName("Other");
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1024);
+        codec.encode(person, buffer);
+        codec.encode(other, buffer);
+        buffer.flip();
+        Assert.assertEquals("Test", codec.decode(buffer).getName());
+        PersonDto dto = codec.decode(buffer);
+        Assert.assertEquals("Other", dto.getName());
+        Assert.assertNull(dto.getAddress());
+        Assert.assertTrue(dto.getHomes().isEmpty());
+        Assert.assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void testImmutableProjection() {
+        ProjectionCodec<ImmutableProjectionTest.ImmutablePersonDto> codec = projector.createCodec(ImmutableProjectionTest.ImmutablePersonDto.class);
+        ImmutableProjectionTest.ImmutablePersonDto dto = codec.decode(codec.encode(person));
+        Assert.assertEquals(1L, dto.getId());
+        Assert.assertEquals("Testcity", dto.getAddress().getCity());
+        Assert.assertEquals(Arrays.asList(2L, 3L, 4L), dto.getChildren());
+        Assert.assertNull(dto.getMarriedTo());
+    }
+
+    @Test
+    public void testValueTypes() {
+        Measurement measurement = new Measurement();
+        measurement.setId(UUID.randomUUID());
+        measurement.setTaken(Instant.ofEpochSecond(1500000000L, 123));
+        measurement.setDay(LocalDate.of(2020, 2, 29));
+        measurement.setValue(-1.5);
+        measurement.setPrice(new BigDecimal("-12.345"));
+        measurement.setUnit(Unit.celsius);
+        measurement.getTags().addAll(Arrays.asList("a", null, "ä"));
+        ProjectionCodec<Measurement> codec = projector.createCodec(Measurement.class);
+        byte[] bytes = codec.encode(measurement);
+        Measurement decoded = codec.decode(bytes);
+        Assert.assertEquals(measurement.getId(), decoded.getId());
+        Assert.assertEquals(measurement.getTaken(), decoded.getTaken());
+        Assert.assertEquals(measurement.getDay(), decoded.getDay());
+        Assert.assertEquals(-1.5, decoded.getValue(), 0);
+        Assert.assertEquals(measurement.getPrice(), decoded.getPrice());
+        Assert.assertEquals(Unit.celsius, decoded.getUnit());
+        Assert.assertEquals(measurement.getTags(), decoded.getTags());
+        Assert.assertNull(decoded.getComment());
+        // property indexes instead of names, varints instead of fixed size numbers
+        Assert.assertTrue(String.valueOf(bytes.length), bytes.length < 60);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnsupportedPropertyIsReported() {
+        projector.createCodec(UnsupportedDto.class);
+    }
+
+    public enum Unit {
+        kelvin, celsius
+    }
+
+    public static class Measurement {
+
+        private UUID id;
+        private Instant taken;
+        private LocalDate day;
+        private double value;
+        private BigDecimal price;
+        private Unit unit;
+        private List<String> tags = new ArrayList<String>();
+        private String comment;
+
+        public UUID getId() {
+            return id;
+        }
+
+        public void setId(UUID id) {
+            this.id = id;
+        }
+
+        public Instant getTaken() {
+            return taken;
+        }
+
+        public void setTaken(Instant taken) {
+            this.taken = taken;
+        }
+
+        public LocalDate getDay() {
+            return day;
+        }
+
+        public void setDay(LocalDate day) {
+            this.day = day;
+        }
+
+        public double getValue() {
+            return value;
+        }
+
+        public void setValue(double value) {
+            this.value = value;
+        }
+
+        public BigDecimal getPrice() {
+            return price;
+        }
+
+        public void setPrice(BigDecimal price) {
+            this.price = price;
+        }
+
+        public Unit getUnit() {
+            return unit;
+        }
+
+        public void setUnit(Unit unit) {
+            this.unit = unit;
+        }
+
+        public List<String> getTags() {
+            return tags;
+        }
+
+        public void setTags(List<String> tags) {
+            this.tags = tags;
+        }
+
+        public String getComment() {
+            return comment;
+        }
+
+        public void setComment(String comment) {
+            this.comment = comment;
+        }
+    }
+
+    public static class UnsupportedDto {
+
+        private Object payload;
+
+        public Object getPayload() {
+            return payload;
+        }
+
+        public void setPayload(Object payload) {
+            this.payload = payload;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package de.sandkastenliga.dtomapper.test;
+
+import de.sandkastenliga.tools.projector.core.CyclePolicy;
+import de.sandkastenliga.tools.projector.core.Projection;
+import de.sandkastenliga.tools.projector.core.ProjectionCycleException;
+import de.sandkastenliga.tools.projector.core.ProjectionType;
+import de.sandkastenliga.tools.projector.core.Projector;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ProjectionContextTest {
+
+    private Projector projector = new Projector();
+    private Person person;
+    private Person wife;
+
+    @Before
+    public void setupTestData() {
+        person = new Person();
+        person.setId(1L);
+        wife = new Person();
+        wife.setId(2L);
+        person.setMarriedTo(wife);
+        person.getChildren().add(wife);
+        Address address = new Address();
+        address.setCity("Testcity");
+        address.setPerson(person);
+        person.setAddress(address);
+    }
+
+    @Test
+    public void testSharedSourceObjectsAreProjectedOnce() {
+        PersonNodeDto dto = projector.project(person, PersonNodeDto.class);
+        Assert.assertSame(dto.getMarriedTo(), dto.getChildren().get(0));
+    }
+
+    @Test
+    public void testCycleReusesProjection() {
+        PersonNodeDto dto = projector.project(person, PersonNodeDto.class);
+        Assert.assertSame(dto, dto.getAddress().getPerson());
+    }
+
+    @Test
+    public void testCycleSetsNull() {
+        projector.setCyclePolicy(CyclePolicy.setNull);
+        PersonNodeDto dto = projector.project(person, PersonNodeDto.class);
+        Assert.assertEquals("Testcity", dto.getAddress().getCity());
+        Assert.assertNull(dto.getAddress().getPerson());
+    }
+
+    @Test(expected = ProjectionCycleException.class)
+    public void testCycleFails() {
+        projector.setCyclePolicy(CyclePolicy.fail);
+        projector.project(person, PersonNodeDto.class);
+    }
+
+    public static class PersonNodeDto {
+
+        private long id;
+        private AddressNodeDto address;
+        private PersonNodeDto marriedTo;
+        private List<PersonNodeDto> children = new ArrayList<PersonNodeDto>();
+
+        public long getId() {
+            return id;
+        }
+
+        public void setId(long id) {
+            this.id = id;
+        }
+
+        public AddressNodeDto getAddress() {
+            return address;
+        }
+
+        @Projection(ProjectionType.projection)
+        public void setAddress(AddressNodeDto address) {
+            this.address = address;
+        }
+
+        public PersonNodeDto getMarriedTo() {
+            return marriedTo;
+        }
+
+        @Projection(ProjectionType.projection)
+        public void setMarriedTo(PersonNodeDto marriedTo) {
+            this.marriedTo = marriedTo;
+        }
+
+        public List<PersonNodeDto> getChildren() {
+            return children;
+        }
+
+        @Projection(ProjectionType.projectionCollection)
+        public void setChildren(List<PersonNodeDto> children) {
+            this.children = children;
+        }
+    }
+
+    public static class AddressNodeDto {
+
+        private String city;
+        private PersonNodeDto person;
+
+        public String getCity() {
+            return city;
+        }
+
+        public void setCity(String city) {
+            this.city = city;
+        }
+
+        public PersonNodeDto getPerson() {
+            return person;
+        }
+
+        @Projection(ProjectionType.projection)
+        public void setPerson(PersonNodeDto person) {
+            this.person = person;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package de.sandkastenliga.dtomapper.test;
+
+import de.sandkastenliga.tools.projector.core.BudgetPolicy;
+import de.sandkastenliga.tools.projector.core.JfrProjectionListener;
+import de.sandkastenliga.tools.projector.core.ProjectionBudget;
+import de.sandkastenliga.tools.projector.core.ProjectionListener;
+import de.sandkastenliga.tools.projector.core.ProjectionPlan;
+import de.sandkastenliga.tools.projector.core.ProjectionStatistics;
+import de.sandkastenliga.tools.projector.core.ProjectionType;
+import de.sandkastenliga.tools.projector.core.Projector;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ProjectionListenerTest {
+
+    private Projector projector = new Projector();
+    private ProjectionStatistics statistics = new ProjectionStatistics();
+    private Person person;
+
+    @Before
+    public void setupTestData() {
+        person = new Person();
+        person.setId(1L);
+        Address address = new Address();
+        address.setCity("Testcity");
+        person.setAddress(address);
+        for (int i = 0; i < 3; i++) {
+            RealEstate home = new RealEstate();
+            home.setName("Home " + i);
+            person.getHomes().add(home);
+        }
+        projector.setProjectionListener(statistics);
+    }
+
+    @Test
+    public void testStatistics() {
+        projector.project(person, PersonDto.class);
+        projector.project(person, PersonDto.class);
+        ProjectionStatistics.Entry personEntry = statistics.getEntry(Person.class, PersonDto.class);
+        Assert.assertEquals(2, personEntry.getCount());
+        Assert.assertEquals(0, personEntry.getFailures());
+        Assert.assertEquals(1, personEntry.getDepth().getMax());
+        Assert.assertEquals(2, personEntry.getStepLatency(ProjectionType.projection).getCount());
+        Assert.assertEquals(2, personEntry.getStepLatency(ProjectionType.projectionCollection).getCount());
+        Assert.assertEquals(3, personEntry.getCollectionSize().getMax());
+        Assert.assertTrue(personEntry.getLatency().getPercentile(0.5) <= personEntry.getLatency().getMax());
+        ProjectionStatistics.Entry homeEntry = statistics.getEntry(RealEstate.class, RealEstateDto.class);
+        Assert.assertEquals(6, homeEntry.getCount());
+        Assert.assertEquals(2, homeEntry.getDepth().getMax());
+        Assert.assertEquals(3, statistics.getEntries().size());
+    }
+
+    @Test
+    public void testProjectedElementsOfTruncatedCollectionsAreReported() {
+        projector.projectWithin(person, PersonDto.class, ProjectionBudget.UNLIMITED.withMaxCollectionElements(2, BudgetPolicy.truncate));
+        Assert.assertEquals(2, statistics.getEntry(Person.class, PersonDto.class).getCollectionSize().getMax());
+    }
+
+    @Test
+    public void testFailuresAreReportedOnce() {
+        final AtomicInteger failures = new AtomicInteger();
+        projector.setProjectionListener(ProjectionListener.of(statistics, new ProjectionListener() {
+            @Override
+            public void failed(ProjectionPlan<?> plan, int depth, Throwable failure) {
+                Assert.assertEquals(2, depth);
+                failures.incrementAndGet();
+            }
+        }));
+        person.getHomes().get(1).setAddress(new Address() {
+            @Override
+            public String getCity() {
+                throw new IllegalStateException();
+            }
+        });
+        try {
+            projector.project(person, PersonDto.class);
+            Assert.fail();
+        } catch (RuntimeException e) {
+            Assert.assertEquals(1, failures.get());
+            Assert.assertEquals(1, statistics.getEntry(RealEstate.class, RealEstateDto.class).getFailures());
+            Assert.assertEquals(0, statistics.getEntry(Person.class, PersonDto.class).getFailures());
+        }
+    }
+
+    @Test
+    public void testSlowProjectionEvents() throws Exception {
+        projector.setProjectionListener(new JfrProjectionListener(0, TimeUnit.MILLISECONDS));
+        final File file = File.createTempFile("projections", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("de.sandkastenliga.projector.SlowProjection");
+            recording.start();
+            projector.project(person, PersonDto.class);
+            recording.stop();
+            recording.dump(file.toPath());
+            final List<RecordedEvent> events = RecordingFile.readAllEvents(file.toPath());
+            Assert.assertEquals(5, events.size());
+        } finally {
+            file.delete();
+        }
+    }
+}
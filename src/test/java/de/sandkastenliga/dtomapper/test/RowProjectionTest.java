@@ -0,0 +1,162 @@
+package de.sandkastenliga.dtomapper.test;
+
+import de.sandkastenliga.tools.projector.core.NullToPrimitivePolicy;
+import de.sandkastenliga.tools.projector.core.Projection;
+import de.sandkastenliga.tools.projector.core.Projector;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class RowProjectionTest {
+
+    private static Connection connection;
+    private Projector projector = new Projector();
+
+    @BeforeClass
+    public static void createDatabase() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:rows;DB_CLOSE_DELAY=-1");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table person (id bigint primary key, name varchar(50), login varchar(50), married_to bigint)");
+            statement.execute("insert into person values (1, 'Test', 'test@example.com', 2), (2, 'Other', 'other@example.com', 1), (3, 'Single', null, null)");
+            statement.execute("create table purchase (id int primary key, status varchar(10), amount decimal(10, 2), ordered_on date)");
+            statement.execute("insert into purchase values (1, 'open', 12.00, date '2020-02-29')");
+        }
+    }
+
+    @AfterClass
+    public static void dropDatabase() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("drop all objects");
+        }
+        connection.close();
+    }
+
+    @Test
+    public void testProjectionOfResultSetRows() throws SQLException {
+        List<PersonDto> dtos;
+        try (Stream<PersonDto> stream = projector.projectRows(query("select id, name, login, married_to from person where id < 3 order by id"), PersonDto.class)) {
+            dtos = stream.collect(Collectors.toList());
+        }
+        Assert.assertEquals(2, dtos.size());
+        PersonDto dto = dtos.get(0);
+        Assert.assertEquals(1L, dto.getId());
+        Assert.assertEquals("Test", dto.getName());
+        Assert.assertEquals("test@example.com", dto.getEmail());
+        Assert.assertEquals(2L, dto.getHusbandOrWifeId());
+        // rows are flat, nested projections and collections are not projected
+        Assert.assertNull(dto.getAddress());
+        Assert.assertTrue(dto.getChildrenIds().isEmpty());
+        Assert.assertEquals("Other", dtos.get(1).getName());
+    }
+
+    @Test
+    public void testColumnsAreConverted() throws SQLException {
+        ResultSet resultSet = query("select * from purchase");
+        Assert.assertTrue(resultSet.next());
+        PurchaseDto dto = projector.projectRow(resultSet, PurchaseDto.class);
+        resultSet.close();
+        Assert.assertEquals(1L, dto.getId());
+        Assert.assertEquals(ConverterTest.Status.open, dto.getStatus());
+        Assert.assertEquals(12L, dto.getAmount());
+        Assert.assertEquals(LocalDate.of(2020, 2, 29), dto.getDay());
+    }
+
+    @Test
+    public void testProjectionOfMapRows() {
+        Map<String, Object> row = new HashMap<String, Object>();
+        row.put("id", 1);
+        row.put("name", "Test");
+        row.put("login", null);
+        row.put("marriedTo", 2L);
+        PersonDto dto = projector.projectRow(row, PersonDto.class);
+        Assert.assertEquals(1L, dto.getId());
+        Assert.assertEquals("Test", dto.getName());
+        Assert.assertNull(dto.getEmail());
+        Assert.assertEquals(2L, dto.getHusbandOrWifeId());
+    }
+
+    @Test
+    public void testImmutableProjectionOfRows() throws SQLException {
+        try (Stream<ImmutableProjectionTest.ImmutablePersonDto> stream = projector.projectRows(query("select * from person order by id"),
+                ImmutableProjectionTest.ImmutablePersonDto.class)) {
+            ImmutableProjectionTest.ImmutablePersonDto dto = stream.skip(2).findFirst().get();
+            Assert.assertEquals(3L, dto.getId());
+            Assert.assertEquals("Single", dto.getName());
+            Assert.assertNull(dto.getMarriedTo());
+        }
+    }
+
+    @Test
+    public void testNullColumnOntoPrimitiveProperty() throws SQLException {
+        ResultSet resultSet = query("select * from person where id = 3");
+        try (Stream<PersonDto> stream = projector.projectRows(resultSet, PersonDto.class)) {
+            stream.findFirst();
+            Assert.fail("The null column must not be projected onto a long");
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+        Assert.assertTrue(resultSet.isClosed());
+        projector.setNullToPrimitivePolicy(NullToPrimitivePolicy.defaultValue);
+        try (Stream<PersonDto> stream = projector.projectRows(query("select * from person where id = 3"), PersonDto.class)) {
+            Assert.assertEquals(0L, stream.findFirst().get().getHusbandOrWifeId());
+        }
+    }
+
+    private static ResultSet query(String sql) throws SQLException {
+        return connection.createStatement().executeQuery(sql);
+    }
+
+    public static class PurchaseDto {
+
+        private long id;
+        private ConverterTest.Status status;
+        private long amount;
+        private LocalDate day;
+
+        public long getId() {
+            return id;
+        }
+
+        public void setId(long id) {
+            this.id = id;
+        }
+
+        public ConverterTest.Status getStatus() {
+            return status;
+        }
+
+        public void setStatus(ConverterTest.Status status) {
+            this.status = status;
+        }
+
+        public long getAmount() {
+            return amount;
+        }
+
+        public void setAmount(long amount) {
+            this.amount = amount;
+        }
+
+        public LocalDate getDay() {
+            return day;
+        }
+
+        @Projection(propertyName = "orderedOn")
+        public void setDay(LocalDate day) {
+            this.day = day;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package de.sandkastenliga.dtomapper.test;
+
+import de.sandkastenliga.tools.projector.core.Projector;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+public class StreamProjectionTest {
+
+    private Projector projector = new Projector();
+    private AtomicInteger createdPersons = new AtomicInteger();
+
+    @Test
+    public void testStreamIsProjectedLazily() {
+        Stream<Person> persons = Stream.iterate(1L, id -> id + 1).map(this::person);
+        List<Long> ids = projector.projectStream(persons, PersonDto.class).limit(3).map(PersonDto::getId).collect(Collectors.toList());
+        Assert.assertEquals(Arrays.asList(1L, 2L, 3L), ids);
+        Assert.assertTrue(createdPersons.get() <= 4);
+    }
+
+    @Test
+    public void testParallelStream() {
+        Stream<Person> persons = LongStream.range(0, 10000).boxed().parallel().map(this::person);
+        List<PersonDto> projections = projector.projectStream(persons, PersonDto.class).collect(Collectors.toList());
+        Assert.assertEquals(10000, projections.size());
+        for (int i = 0; i < projections.size(); i++) {
+            Assert.assertEquals(i, projections.get(i).getId());
+            Assert.assertEquals(1, projections.get(i).getHomes().size());
+        }
+    }
+
+    @Test
+    public void testIterator() {
+        Iterator<PersonDto> projections = projector.projectIterator(Arrays.asList(person(7L), null).iterator(), PersonDto.class);
+        Assert.assertEquals(7L, projections.next().getId());
+        Assert.assertNull(projections.next());
+        Assert.assertFalse(projections.hasNext());
+    }
+
+    private Person person(long id) {
+        createdPersons.incrementAndGet();
+        Person person = new Person();
+        person.setId(id);
+        RealEstate home = new RealEstate();
+        home.setName("Home of " + id);
+        person.getHomes().add(home);
+        return person;
+    }
+}